@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A connection manager that records the connection leased by the current thread against its bound
+ * {@link InFlightRequest}, so that the request can be aborted from another thread.  It also times the current
+ * thread's wait for a pooled connection and the establishment of a new one.  All other behaviour is delegated to the
+ * underlying pooled connection manager.
+ */
+@ThreadSafe
+class AbortableConnectionManager implements HttpClientConnectionManager
+{
+  /** The request bound to the current thread, if any. */
+  private static final ThreadLocal<InFlightRequest> CURRENT = new ThreadLocal<>();
+
+  /** The connection timings of the current thread's request. */
+  private static final ThreadLocal<Timings> TIMINGS = ThreadLocal.withInitial(Timings::new);
+
+  /** The underlying connection manager. */
+  private final HttpClientConnectionManager delegate;
+
+  /**
+   * Constructor.
+   * @param delegate The underlying connection manager.
+   */
+  AbortableConnectionManager(HttpClientConnectionManager delegate)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+  }
+
+  /**
+   * Binds a request to the current thread; connections leased by this thread are recorded against it.
+   * @param request The request.
+   */
+  static void bind(InFlightRequest request)
+  {
+    CURRENT.set(Preconditions.checkNotNull(request, "request cannot be null"));
+  }
+
+  /**
+   * Unbinds any request from the current thread.
+   */
+  static void unbind()
+  {
+    CURRENT.remove();
+  }
+
+  /**
+   * Starts timing a request on the current thread.  The timings are reused by each request the thread sends.
+   * @return The timings, reset to zero.
+   */
+  static Timings startTiming()
+  {
+    final Timings timings = TIMINGS.get();
+    timings.poolWaitNanos = 0;
+    timings.connectNanos = 0;
+    return timings;
+  }
+
+  @Override
+  public ConnectionRequest requestConnection(HttpRoute route, Object state)
+  {
+    final ConnectionRequest lease = this.delegate.requestConnection(route, state);
+    final InFlightRequest request = CURRENT.get();
+
+    if (request != null)
+    {
+      request.leasing(lease);
+    }
+
+    return new ConnectionRequest()
+    {
+      @Override
+      public HttpClientConnection get(long timeout, TimeUnit unit)
+          throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException
+      {
+        final long started = System.nanoTime();
+        final HttpClientConnection connection;
+        try
+        {
+          connection = lease.get(timeout, unit);
+        }
+        finally
+        {
+          TIMINGS.get().poolWaitNanos += System.nanoTime() - started;
+        }
+
+        if (request != null)
+        {
+          request.leased(connection);
+        }
+        return connection;
+      }
+
+      @Override
+      public boolean cancel()
+      {
+        return lease.cancel();
+      }
+    };
+  }
+
+  @Override
+  public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit)
+  {
+    this.delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+  }
+
+  @Override
+  public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+      throws IOException
+  {
+    final long started = System.nanoTime();
+    try
+    {
+      this.delegate.connect(conn, route, connectTimeout, context);
+    }
+    finally
+    {
+      TIMINGS.get().connectNanos += System.nanoTime() - started;
+    }
+  }
+
+  @Override
+  public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException
+  {
+    this.delegate.upgrade(conn, route, context);
+  }
+
+  @Override
+  public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException
+  {
+    this.delegate.routeComplete(conn, route, context);
+  }
+
+  @Override
+  public void closeIdleConnections(long idletime, TimeUnit tunit)
+  {
+    this.delegate.closeIdleConnections(idletime, tunit);
+  }
+
+  @Override
+  public void closeExpiredConnections()
+  {
+    this.delegate.closeExpiredConnections();
+  }
+
+  @Override
+  public void shutdown()
+  {
+    this.delegate.shutdown();
+  }
+
+  /**
+   * The time a thread's request spent waiting for a pooled connection and establishing a new one.  It is only read
+   * and written by the thread sending the request.
+   */
+  static final class Timings
+  {
+    /** The time spent waiting for a pooled connection, in nanoseconds. */
+    private long poolWaitNanos;
+
+    /** The time spent establishing a connection, in nanoseconds. */
+    private long connectNanos;
+
+    /**
+     * Gets the time spent waiting for a pooled connection.
+     * @return The time in nanoseconds.
+     */
+    long getPoolWaitNanos()
+    {
+      return this.poolWaitNanos;
+    }
+
+    /**
+     * Gets the time spent establishing a connection.
+     * @return The time in nanoseconds; zero if a pooled connection was reused.
+     */
+    long getConnectNanos()
+    {
+      return this.connectNanos;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Authenticates a user.  Implemented by {@link AuthenticationInteractor}, and by decorators that add behaviour
+ * (such as caching) in front of it.
+ */
+public interface AuthenticationInteraction
+{
+  /**
+   * Executes the interaction.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return Either a successful response, or the reason for the error.
+   */
+  Either<AuthenticationResponse, AuthenticationError> execute(String username, String password);
+
+  /**
+   * Executes the interaction asynchronously.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return The future result of {@link #execute}.
+   */
+  CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                      String password);
+}
@@ -23,36 +23,32 @@
 
 package com.fatboyindustrial.crowdcontrol;
 
+import com.fatboyindustrial.crowdcontrol.json.JsonCodec;
 import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
 import com.fatboyindustrial.crowdcontrol.model.AuthenticationRequest;
 import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.metrics.MetricsSink;
 import com.google.common.base.Preconditions;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
-
-import javax.annotation.concurrent.Immutable;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An interactor for authenticating a user.
  */
-@Immutable
-public class AuthenticationInteractor
+@ThreadSafe
+public class AuthenticationInteractor implements AuthenticationInteraction, AutoCloseable
 {
-  /** The base URL of the crowd server. */
-  private final String crowdBase;
+  /** The HTTP client used to talk to Crowd. */
+  private final CrowdClient client;
 
-  /** Crowd application name. */
-  private final String appName;
+  /** Does this interactor own (and therefore close) the client? */
+  private final boolean ownsClient;
 
-  /** Crowd application password. */
-  private final String appPassword;
+  /** Records the calls made. */
+  private final Instrumentation<AuthenticationResponse, AuthenticationError> instrumentation;
 
   /**
    * Constructor.
@@ -63,12 +59,49 @@ public class AuthenticationInteractor
    */
   public AuthenticationInteractor(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
   {
-    this.crowdBase = Preconditions.checkNotNull(crowdBase, "crowdBase cannot be null");
-    this.appName = Preconditions.checkNotNull(appName, "appName cannot be null");
-    this.appPassword = Preconditions.checkNotNull(appPassword, "appPassword cannot be null");
+    this(new CrowdClient(crowdBase, appName, appPassword), true, MetricsSink.NONE);
+  }
 
-    Preconditions.checkArgument(! appName.isEmpty(), "appName cannot be empty");
-    Preconditions.checkArgument(! appPassword.isEmpty(), "appPassword cannot be empty");
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   */
+  public AuthenticationInteractor(CrowdClient client)
+  {
+    this(client, false, MetricsSink.NONE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param metrics Receives measurements of each authentication.
+   */
+  public AuthenticationInteractor(CrowdClient client, MetricsSink metrics)
+  {
+    this(client, false, metrics);
+  }
+
+  /**
+   * Constructor.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param ownsClient Does this interactor own (and therefore close) the client?
+   * @param metrics Receives measurements of each authentication.
+   */
+  private AuthenticationInteractor(CrowdClient client, boolean ownsClient, MetricsSink metrics)
+  {
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.ownsClient = ownsClient;
+    this.instrumentation =
+        new Instrumentation<>(metrics, AuthenticationInteractor::buildResult, AuthenticationError::getReason);
+  }
+
+  /**
+   * Gets the sink that receives measurements of each authentication.
+   * @return The sink.
+   */
+  public MetricsSink getMetrics()
+  {
+    return this.instrumentation.getMetrics();
   }
 
   /**
@@ -77,49 +110,85 @@ public class AuthenticationInteractor
    * @param password The corresponding password.
    * @return Either a successful response, or the reason for the error.
    */
+  @Override
   public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
   {
     Preconditions.checkNotNull(username, "username cannot be null");
     Preconditions.checkNotNull(password, "password cannot be null");
-    
-    final WebTarget target = resource(newClient(), username);
-    final Response response = target.request()
-        .accept(MediaType.APPLICATION_JSON_TYPE)
-        .post(Entity.entity(json(password), MediaType.APPLICATION_JSON_TYPE), Response.class);
 
-    if (response.getStatus() == Response.Status.OK.getStatusCode())
+    try
     {
-      return Either.value(buildResponse(response.readEntity(String.class)));
+      return this.client.execute(request(username, password), this.instrumentation.handler());
     }
-    else
+    catch (TransportException e)
     {
-      return Either.error(buildError(response.readEntity(String.class)));
+      throw this.instrumentation.failed(e);
     }
   }
 
   /**
-   * Creates a new HTTP client configured with basic authentication.
-   * @return The HTTP client.
+   * Executes the interaction asynchronously.  Cancelling the returned future aborts the HTTP request.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                             String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    return this.instrumentation.watch(
+        this.client.executeAsync(request(username, password), this.instrumentation.handler()));
+  }
+
+  /**
+   * Executes the interaction, giving up if it is not answered before a deadline.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @param deadline The deadline, covering the wait for a pooled connection, connecting, reading the response and
+   *                 any retries.
+   * @return The result of {@link #execute(String, String)}, or a {@link Deadline#DEADLINE_EXCEEDED} error.
+   */
+  public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password,
+                                                                     Deadline deadline)
+  {
+    Preconditions.checkNotNull(deadline, "deadline cannot be null");
+
+    return deadline.await(() -> executeAsync(username, password), this::deadlineExceeded);
+  }
+
+  /**
+   * Executes the interaction asynchronously, giving up if it is not answered before a deadline.  Cancelling the
+   * returned future aborts the HTTP request.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @param deadline The deadline, covering the wait for a pooled connection, connecting, reading the response and
+   *                 any retries.
+   * @return The future result of {@link #execute(String, String, Deadline)}.
    */
-  private Client newClient()
+  public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                            String password,
+                                                                                            Deadline deadline)
   {
-    final Client client = ClientBuilder.newBuilder().build();
-    client.register(HttpAuthenticationFeature.basic(this.appName, this.appPassword));
+    Preconditions.checkNotNull(deadline, "deadline cannot be null");
 
-    return client;
+    return deadline.bound(() -> executeAsync(username, password), this::deadlineExceeded);
   }
 
   /**
-   * Creates a new web target for the authentication URL.
-   * @param client The HTTP client.
+   * Builds the authentication request.  Authentication changes nothing on the server, so although it is a POST it
+   * may safely be sent again.
    * @param username The username to authenticate.
-   * @return The web target.
+   * @param password The corresponding password.
+   * @return The request.
    */
-  private WebTarget resource(Client client, String username)
+  private TransportRequest request(String username, String password)
   {
-    return client.target(this.crowdBase)
-        .path("rest/usermanagement/latest/authentication")
-        .queryParam("username", username);
+    return this.client.resource("rest/usermanagement/latest/authentication")
+        .queryParam("username", username)
+        .post(json(password), true);
   }
 
   /**
@@ -129,29 +198,65 @@ public class AuthenticationInteractor
    */
   private static String json(String password)
   {
-    final Gson gson = new GsonBuilder().create();
-    return gson.toJson(new AuthenticationRequest(password));
+    return JsonCodec.getDefault().encode(new AuthenticationRequest(password));
   }
 
   /**
-   * Converts the given JSON into an authentication response object.
-   * @param json The JSON.
+   * Reads the result from a response.
+   * @param response The response.
+   * @return Either a successful response, or the reason for the error.
+   */
+  private static Either<AuthenticationResponse, AuthenticationError> buildResult(TransportResponse response)
+  {
+    if (response.getStatus() == HttpURLConnection.HTTP_OK)
+    {
+      return Either.value(buildResponse(response.getBody()));
+    }
+    else
+    {
+      return Either.error(buildError(response.getBody()));
+    }
+  }
+
+  /**
+   * Reads the given JSON stream into an authentication response object.
+   * @param json The JSON stream.
    * @return The object.
    */
-  private static AuthenticationResponse buildResponse(String json)
+  private static AuthenticationResponse buildResponse(InputStream json)
   {
-    final Gson gson = new GsonBuilder().create();
-    return gson.fromJson(json, AuthenticationResponse.class);
+    return JsonCodec.getDefault().decode(json, AuthenticationResponse.class);
   }
 
   /**
-   * Converts the given JSON into an authentication error object.
-   * @param json The JSON.
+   * Reads the given JSON stream into an authentication error object.
+   * @param json The JSON stream.
    * @return The object.
    */
-  private static AuthenticationError buildError(String json)
+  private static AuthenticationError buildError(InputStream json)
+  {
+    return JsonCodec.getDefault().decode(json, AuthenticationError.class);
+  }
+
+  /**
+   * Gets the result of a call that was not answered before its deadline.
+   * @return The error.
+   */
+  private Either<AuthenticationResponse, AuthenticationError> deadlineExceeded()
+  {
+    return this.instrumentation.error(new AuthenticationError(Deadline.DEADLINE_EXCEEDED,
+                                                              "Authentication was not answered before its deadline"));
+  }
+
+  /**
+   * Closes the interactor.  The underlying client is only closed if it is owned by this interactor.
+   */
+  @Override
+  public void close()
   {
-    final Gson gson = new GsonBuilder().create();
-    return gson.fromJson(json, AuthenticationError.class);
+    if (this.ownsClient)
+    {
+      this.client.close();
+    }
   }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.Credentials;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Authenticates many users, keeping at most a fixed number of authentications in flight at once.
+ * <p>
+ * Authentications are started through {@link AuthenticationInteraction#executeAsync}, so with an
+ * {@link AuthenticationInteractor} they share its client's connection pool and executor.  Throughput rises with the
+ * concurrency limit until either the pool's per-route connection limit or Crowd itself becomes the bottleneck, so
+ * the limit should not exceed {@link CrowdClientConfig#getMaxPerRoute()}.
+ * <p>
+ * If an authentication fails with an exception (for example, a transport failure), or the result callback throws,
+ * no further authentications are started, those in flight are cancelled, and the batch fails with that exception.
+ * Cancelling the batch's future likewise cancels the authentications in flight.
+ */
+@ThreadSafe
+public class BatchAuthenticator
+{
+  /** The interaction used to authenticate each user. */
+  private final AuthenticationInteraction delegate;
+
+  /** The maximum number of authentications in flight at once. */
+  private final int maxConcurrency;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used to authenticate each user.
+   * @param maxConcurrency The maximum number of authentications in flight at once.
+   */
+  public BatchAuthenticator(AuthenticationInteraction delegate, int maxConcurrency)
+  {
+    Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  /**
+   * Authenticates every user, waiting for all of the results.
+   * @param credentials The usernames and passwords.
+   * @return The results, in the same order as the credentials.
+   */
+  public List<Either<AuthenticationResponse, AuthenticationError>> execute(List<Credentials> credentials)
+  {
+    try
+    {
+      return executeAsync(credentials).join();
+    }
+    catch (CompletionException e)
+    {
+      if (e.getCause() instanceof RuntimeException)
+      {
+        throw (RuntimeException) e.getCause();
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Authenticates every user asynchronously.
+   * @param credentials The usernames and passwords.
+   * @return The future results, in the same order as the credentials.
+   */
+  public CompletableFuture<List<Either<AuthenticationResponse, AuthenticationError>>> executeAsync(
+      List<Credentials> credentials)
+  {
+    return executeAsync(credentials, (result, index) -> { });
+  }
+
+  /**
+   * Authenticates every user asynchronously, reporting each result as it completes.
+   * @param credentials The usernames and passwords.
+   * @param onResult Receives each result, with the index of its credentials, as soon as it completes.  It may be
+   *                 called concurrently from several threads.
+   * @return The future results, in the same order as the credentials.
+   */
+  public CompletableFuture<List<Either<AuthenticationResponse, AuthenticationError>>> executeAsync(
+      List<Credentials> credentials,
+      ObjIntConsumer<Either<AuthenticationResponse, AuthenticationError>> onResult)
+  {
+    Preconditions.checkNotNull(credentials, "credentials cannot be null");
+    Preconditions.checkNotNull(onResult, "onResult cannot be null");
+
+    final Batch batch = new Batch(ImmutableList.copyOf(credentials), onResult);
+    if (batch.credentials.isEmpty())
+    {
+      batch.result.complete(ImmutableList.of());
+    }
+
+    for (int i = 0; i < Math.min(this.maxConcurrency, batch.credentials.size()); i++)
+    {
+      startNext(batch);
+    }
+
+    return batch.result;
+  }
+
+  /**
+   * Starts the next authentication of a batch, if any remain.  Authentications that complete immediately (such as
+   * cache hits) are recorded in a loop rather than by recursion.
+   * @param batch The batch.
+   */
+  private void startNext(Batch batch)
+  {
+    while (! batch.result.isDone())
+    {
+      final int index = batch.next.getAndIncrement();
+      if (index >= batch.credentials.size())
+      {
+        return;
+      }
+
+      final Credentials credentials = batch.credentials.get(index);
+      final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> future;
+      try
+      {
+        future = this.delegate.executeAsync(credentials.getUsername(), credentials.getPassword());
+      }
+      catch (RuntimeException e)
+      {
+        batch.record(index, null, e);
+        return;
+      }
+
+      if (! future.isDone())
+      {
+        batch.inFlight.add(future);
+        future.whenComplete((result, error) -> {
+          batch.inFlight.remove(future);
+          if (batch.record(index, result, error))
+          {
+            startNext(batch);
+          }
+        });
+        return;
+      }
+
+      if (future.isCompletedExceptionally())
+      {
+        // a future that has already failed (or been cancelled) fails the batch, rather than throwing from getNow
+        future.whenComplete((result, error) -> batch.record(index, null, error));
+        return;
+      }
+
+      if (! batch.record(index, future.getNow(null), null))
+      {
+        return;
+      }
+    }
+  }
+
+  /**
+   * The progress of one batch.
+   */
+  private static class Batch
+  {
+    /** The credentials to authenticate. */
+    private final ImmutableList<Credentials> credentials;
+
+    /** Receives each result as it completes. */
+    private final ObjIntConsumer<Either<AuthenticationResponse, AuthenticationError>> onResult;
+
+    /** The results received so far, indexed by credentials. */
+    private final AtomicReferenceArray<Either<AuthenticationResponse, AuthenticationError>> results;
+
+    /** The index of the next credentials to authenticate. */
+    private final AtomicInteger next;
+
+    /** The number of results still to be received. */
+    private final AtomicInteger remaining;
+
+    /** The authentications in flight. */
+    private final Set<CompletableFuture<?>> inFlight;
+
+    /** The future results of the whole batch. */
+    private final CompletableFuture<List<Either<AuthenticationResponse, AuthenticationError>>> result;
+
+    /**
+     * Constructor.
+     * @param credentials The credentials to authenticate.
+     * @param onResult Receives each result as it completes.
+     */
+    private Batch(ImmutableList<Credentials> credentials,
+                  ObjIntConsumer<Either<AuthenticationResponse, AuthenticationError>> onResult)
+    {
+      this.credentials = credentials;
+      this.onResult = onResult;
+      this.results = new AtomicReferenceArray<>(credentials.size());
+      this.next = new AtomicInteger();
+      this.remaining = new AtomicInteger(credentials.size());
+      this.inFlight = ConcurrentHashMap.newKeySet();
+      this.result = new CompletableFuture<>();
+      this.result.whenComplete((results, error) -> {
+        if (error != null)
+        {
+          this.inFlight.forEach(future -> future.cancel(true));
+        }
+      });
+    }
+
+    /**
+     * Records the outcome of one authentication.
+     * @param index The index of the credentials.
+     * @param result The result, if the authentication completed normally.
+     * @param error The exception, if the authentication failed.
+     * @return True if the batch should continue.
+     */
+    private boolean record(int index, Either<AuthenticationResponse, AuthenticationError> result, Throwable error)
+    {
+      if (error != null)
+      {
+        this.result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+        return false;
+      }
+
+      this.results.set(index, result);
+      try
+      {
+        this.onResult.accept(result, index);
+      }
+      catch (RuntimeException e)
+      {
+        this.result.completeExceptionally(e);
+        return false;
+      }
+
+      if (this.remaining.decrementAndGet() == 0)
+      {
+        final ImmutableList.Builder<Either<AuthenticationResponse, AuthenticationError>> ordered =
+            ImmutableList.builder();
+        for (int i = 0; i < this.results.length(); i++)
+        {
+          ordered.add(this.results.get(i));
+        }
+
+        this.result.complete(ordered.build());
+      }
+
+      return (! this.result.isDone());
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Crowd nodes behind a {@link CrowdClient}, and the policy for spreading requests across them.
+ * <p>
+ * Each node's health is tracked passively: a node whose requests fail (because it cannot be reached, or answers with
+ * a server error) too many times in a row is ejected, and receives no requests until its ejection ends.  It is then
+ * readmitted on trial: one success restores it, and one further failure ejects it again.  If every node is ejected,
+ * requests go to the node due to be readmitted soonest rather than failing outright.
+ */
+@ThreadSafe
+public class Cluster
+{
+  /** The default number of consecutive failures after which a node is ejected. */
+  public static final int DEFAULT_EJECT_AFTER_FAILURES = 3;
+
+  /** The default time a node is ejected for, in milliseconds. */
+  public static final long DEFAULT_EJECTION_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  /** The nodes, in the order given. */
+  private final ImmutableList<Node> nodes;
+
+  /** Chooses the node for each request. */
+  private final LoadBalancer balancer;
+
+  /** The number of consecutive failures after which a node is ejected. */
+  private final int ejectAfterFailures;
+
+  /** The time a node is ejected for, in nanoseconds. */
+  private final long ejectionNanos;
+
+  /** The source of time. */
+  private final Ticker ticker;
+
+  /**
+   * Constructor, using round robin balancing and the default ejection policy.
+   * @param baseUrls The base URLs of the Crowd nodes.
+   * @throws IllegalArgumentException If no base URLs are given.
+   */
+  public Cluster(List<String> baseUrls) throws IllegalArgumentException
+  {
+    this(baseUrls, LoadBalancers.roundRobin(), DEFAULT_EJECT_AFTER_FAILURES, DEFAULT_EJECTION_MILLIS);
+  }
+
+  /**
+   * Constructor.
+   * @param baseUrls The base URLs of the Crowd nodes.
+   * @param balancer Chooses the node for each request.
+   * @param ejectAfterFailures The number of consecutive failures after which a node is ejected.
+   * @param ejectionMillis The time a node is ejected for, in milliseconds.
+   * @throws IllegalArgumentException If no base URLs are given, or ejectAfterFailures or ejectionMillis are not
+   * positive.
+   */
+  public Cluster(List<String> baseUrls, LoadBalancer balancer, int ejectAfterFailures, long ejectionMillis)
+      throws IllegalArgumentException
+  {
+    this(baseUrls, balancer, ejectAfterFailures, ejectionMillis, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param baseUrls The base URLs of the Crowd nodes.
+   * @param balancer Chooses the node for each request.
+   * @param ejectAfterFailures The number of consecutive failures after which a node is ejected.
+   * @param ejectionMillis The time a node is ejected for, in milliseconds.
+   * @param ticker The source of time.
+   * @throws IllegalArgumentException If no base URLs are given, or ejectAfterFailures or ejectionMillis are not
+   * positive.
+   */
+  @VisibleForTesting
+  Cluster(List<String> baseUrls, LoadBalancer balancer, int ejectAfterFailures, long ejectionMillis, Ticker ticker)
+      throws IllegalArgumentException
+  {
+    Preconditions.checkNotNull(baseUrls, "baseUrls cannot be null");
+    Preconditions.checkArgument(! baseUrls.isEmpty(), "baseUrls cannot be empty");
+    Preconditions.checkArgument(ejectAfterFailures > 0, "ejectAfterFailures must be positive");
+    Preconditions.checkArgument(ejectionMillis > 0, "ejectionMillis must be positive");
+
+    final ImmutableList.Builder<Node> nodes = ImmutableList.builder();
+    for (final String baseUrl : baseUrls)
+    {
+      nodes.add(new Node(baseUrl));
+    }
+
+    this.nodes = nodes.build();
+    this.balancer = Preconditions.checkNotNull(balancer, "balancer cannot be null");
+    this.ejectAfterFailures = ejectAfterFailures;
+    this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+    this.ticker = Preconditions.checkNotNull(ticker, "ticker cannot be null");
+  }
+
+  /**
+   * Creates a cluster of a single node.  Since there is nowhere else to send them, requests go to the node even while
+   * it is ejected.
+   * @param baseUrl The base URL of the Crowd server.
+   * @return The cluster.
+   */
+  static Cluster single(String baseUrl)
+  {
+    Preconditions.checkNotNull(baseUrl, "baseUrl cannot be null");
+    return new Cluster(ImmutableList.of(baseUrl));
+  }
+
+  /**
+   * Gets the nodes.
+   * @return The nodes, in the order given.
+   */
+  public ImmutableList<Node> getNodes()
+  {
+    return this.nodes;
+  }
+
+  /**
+   * Gets the nodes currently available to receive requests.
+   * @return The available nodes, in the order given.
+   */
+  public List<Node> getAvailableNodes()
+  {
+    final long now = this.ticker.read();
+
+    final List<Node> available = new ArrayList<>(this.nodes.size());
+    for (final Node node : this.nodes)
+    {
+      if (node.isAvailable(now))
+      {
+        available.add(node);
+      }
+    }
+
+    return available;
+  }
+
+  /**
+   * Chooses the node for a request.
+   * @param exclude The nodes already tried for the request.
+   * @return The node, or null if every node has been tried.
+   */
+  Node select(Set<Node> exclude)
+  {
+    final long now = this.ticker.read();
+
+    final List<Node> candidates = new ArrayList<>(this.nodes.size());
+    Node soonest = null;
+    for (final Node node : this.nodes)
+    {
+      if (exclude.contains(node))
+      {
+        continue;
+      }
+
+      if (node.isAvailable(now))
+      {
+        candidates.add(node);
+      }
+      else if (soonest == null || node.getEjectedUntil() - soonest.getEjectedUntil() < 0)
+      {
+        soonest = node;
+      }
+    }
+
+    if (candidates.isEmpty())
+    {
+      return soonest;
+    }
+
+    return this.balancer.select(candidates);
+  }
+
+  /**
+   * Reads the cluster's source of time.
+   * @return The ticker reading, in nanoseconds.
+   */
+  long now()
+  {
+    return this.ticker.read();
+  }
+
+  /**
+   * Records that a request to a node succeeded.
+   * @param node The node.
+   * @param started The ticker reading when the request started.
+   */
+  void succeeded(Node node, long started)
+  {
+    node.succeeded(this.ticker.read() - started);
+  }
+
+  /**
+   * Records that a request to a node failed, ejecting the node if it has failed too often.
+   * @param node The node.
+   */
+  void failed(Node node)
+  {
+    node.failed(this.ticker.read(), this.ejectAfterFailures, this.ejectionNanos);
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "Cluster{" +
+           "nodes=" + this.nodes +
+           '}';
+  }
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A long-lived HTTP client for a Crowd server.  A single client may be shared by any number of interactors and
+ * threads.  Close the client when it is no longer needed to release its connections.
+ * <p>
+ * Requests are sent by a {@link Transport}.  Unless one is supplied, the client uses a {@link JerseyTransport}, backed
+ * by a bounded keep-alive connection pool, whose asynchronous requests run on an executor.
+ * <p>
+ * A client may be given a {@link Cluster} of Crowd nodes rather than a single base URL.  Each request is then sent to
+ * the node chosen by the cluster's {@link LoadBalancer}, and an idempotent request that cannot be sent to one node is
+ * sent to the next, until every available node has been tried.  Requests that may have changed something on the
+ * server (such as creating a session) are never sent twice.
+ */
+@ThreadSafe
+public class CrowdClient implements AutoCloseable
+{
+  /** The Crowd nodes. */
+  private final Cluster cluster;
+
+  /** The headers sent with every request. */
+  private final ImmutableMap<String, String> headers;
+
+  /** The transport that sends requests. */
+  private final Transport transport;
+
+  /** Caps the retries and hedged requests of every interactor using this client. */
+  private final RetryBudget retryBudget;
+
+  /** Has this client been closed? */
+  private final AtomicBoolean closed;
+
+  /**
+   * Constructor, using the default pool configuration.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public CrowdClient(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
+  {
+    this(crowdBase, appName, appPassword, CrowdClientConfig.defaults());
+  }
+
+  /**
+   * Constructor.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The pool configuration.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public CrowdClient(String crowdBase, String appName, String appPassword, CrowdClientConfig config)
+      throws IllegalArgumentException
+  {
+    this(Cluster.single(crowdBase), appName, appPassword, config, Optional.<Executor>absent());
+  }
+
+  /**
+   * Constructor.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The pool configuration.
+   * @param executor The executor used to run asynchronous requests.  It is not shut down when the client is closed.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public CrowdClient(String crowdBase, String appName, String appPassword, CrowdClientConfig config, Executor executor)
+      throws IllegalArgumentException
+  {
+    this(Cluster.single(crowdBase), appName, appPassword, config,
+         Optional.of(Preconditions.checkNotNull(executor, "executor cannot be null")));
+  }
+
+  /**
+   * Constructor.  The client owns the transport, and closes it when the client is closed.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param transport The transport that sends requests.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public CrowdClient(String crowdBase, String appName, String appPassword, Transport transport)
+      throws IllegalArgumentException
+  {
+    this(Cluster.single(crowdBase), appName, appPassword, transport);
+  }
+
+  /**
+   * Constructor, spreading requests across a cluster of Crowd nodes.
+   * @param cluster The Crowd nodes.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The pool configuration.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public CrowdClient(Cluster cluster, String appName, String appPassword, CrowdClientConfig config)
+      throws IllegalArgumentException
+  {
+    this(cluster, appName, appPassword, config, Optional.<Executor>absent());
+  }
+
+  /**
+   * Constructor, spreading requests across a cluster of Crowd nodes.  The client owns the transport, and closes it
+   * when the client is closed.
+   * @param cluster The Crowd nodes.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param transport The transport that sends requests.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public CrowdClient(Cluster cluster, String appName, String appPassword, Transport transport)
+      throws IllegalArgumentException
+  {
+    this.cluster = Preconditions.checkNotNull(cluster, "cluster cannot be null");
+    this.headers = ImmutableMap.of("Authorization", authorization(appName, appPassword));
+    this.transport = Preconditions.checkNotNull(transport, "transport cannot be null");
+    this.retryBudget = new RetryBudget();
+    this.closed = new AtomicBoolean(false);
+  }
+
+  /**
+   * Constructor, using a {@link JerseyTransport}.
+   * @param cluster The Crowd nodes.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The pool configuration.
+   * @param executor The executor used to run asynchronous requests, or absent to create and own one.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  private CrowdClient(Cluster cluster,
+                      String appName,
+                      String appPassword,
+                      CrowdClientConfig config,
+                      Optional<Executor> executor) throws IllegalArgumentException
+  {
+    this(cluster, appName, appPassword, jersey(appName, appPassword, config, executor));
+  }
+
+  /**
+   * Gets the base URL of the crowd server.
+   * @return The base URL, or that of the first node of a cluster.
+   */
+  public String getCrowdBase()
+  {
+    return this.cluster.getNodes().get(0).getBaseUrl();
+  }
+
+  /**
+   * Gets the Crowd nodes.
+   * @return The cluster.
+   */
+  public Cluster getCluster()
+  {
+    return this.cluster;
+  }
+
+  /**
+   * Gets the pool configuration.
+   * @return The configuration.
+   */
+  public CrowdClientConfig getConfig()
+  {
+    return this.transport.getConfig();
+  }
+
+  /**
+   * Gets the transport that sends requests.
+   * @return The transport.
+   */
+  public Transport getTransport()
+  {
+    return this.transport;
+  }
+
+  /**
+   * Gets the budget that caps the retries and hedged requests of every interactor using this client.
+   * @return The retry budget.
+   */
+  public RetryBudget getRetryBudget()
+  {
+    return this.retryBudget;
+  }
+
+  /**
+   * Creates a resource for the given path, relative to the crowd base URL.
+   * @param path The path.
+   * @return The resource.
+   * @throws IllegalStateException If the client has been closed.
+   */
+  Resource resource(String path) throws IllegalStateException
+  {
+    Preconditions.checkState(! this.closed.get(), "client has been closed");
+    return new Resource(path, ImmutableList.<Map.Entry<String, String>>of(), this.headers);
+  }
+
+  /**
+   * Sends a request on the calling thread, failing over to another node if it is idempotent and cannot be sent.  The
+   * request earns its share of the retry budget, and each failover spends a token from it.
+   * @param request The request, with a URI relative to the crowd base URL.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The result of the handler.
+   * @throws TransportException If the request cannot be sent to any node, or the response cannot be received.
+   */
+  <T> T execute(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+      throws TransportException
+  {
+    this.retryBudget.deposit();
+    return resend(request, handler);
+  }
+
+  /**
+   * Sends a retry or hedged duplicate of a request on the calling thread, as {@link #execute} does, but without
+   * earning a share of the retry budget: the caller has already paid for it.
+   * @param request The request, with a URI relative to the crowd base URL.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The result of the handler.
+   * @throws TransportException If the request cannot be sent to any node, or the response cannot be received.
+   */
+  <T> T resend(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+      throws TransportException
+  {
+    final Set<Node> tried = new HashSet<>();
+    while (true)
+    {
+      final Attempt attempt = new Attempt(this.cluster.select(tried));
+      tried.add(attempt.node);
+
+      try
+      {
+        return this.transport.execute(attempt.resolve(request), attempt.handler(handler));
+      }
+      catch (TransportException e)
+      {
+        attempt.failed();
+        if (! canFailOver(request, tried))
+        {
+          throw e;
+        }
+      }
+      catch (RuntimeException e)
+      {
+        // a failure before any response was received counts against the node; once the status has been recorded,
+        // this is a no-op
+        attempt.failed();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Sends a request asynchronously, failing over to another node if it is idempotent and cannot be sent.  Cancelling
+   * the returned future aborts the request.  The request earns its share of the retry budget, and each failover
+   * spends a token from it.
+   * @param request The request, with a URI relative to the crowd base URL.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The future result of the handler.
+   */
+  <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                        Function<? super TransportResponse, ? extends T> handler)
+  {
+    this.retryBudget.deposit();
+    return resendAsync(request, handler);
+  }
+
+  /**
+   * Sends a retry or hedged duplicate of a request asynchronously, as {@link #executeAsync} does, but without earning
+   * a share of the retry budget: the caller has already paid for it.
+   * @param request The request, with a URI relative to the crowd base URL.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The future result of the handler.
+   */
+  <T> CompletableFuture<T> resendAsync(TransportRequest request,
+                                       Function<? super TransportResponse, ? extends T> handler)
+  {
+    final AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+    final CompletableFuture<T> future = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        final CompletableFuture<?> sent = current.get();
+        if (sent != null)
+        {
+          sent.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+      }
+    };
+
+    executeAsync(request, handler, ConcurrentHashMap.<Node>newKeySet(), current, future);
+    return future;
+  }
+
+  /**
+   * Sends a request asynchronously to the next untried node.
+   * @param request The request, with a URI relative to the crowd base URL.
+   * @param handler Reads the response.
+   * @param tried The nodes already tried.
+   * @param current Holds the request in flight, so that it can be cancelled.
+   * @param future The future to complete with the result.
+   * @param <T> The result type.
+   */
+  private <T> void executeAsync(TransportRequest request,
+                                Function<? super TransportResponse, ? extends T> handler,
+                                Set<Node> tried,
+                                AtomicReference<CompletableFuture<?>> current,
+                                CompletableFuture<T> future)
+  {
+    final Attempt attempt = new Attempt(this.cluster.select(tried));
+    tried.add(attempt.node);
+
+    final CompletableFuture<T> sent = this.transport.executeAsync(attempt.resolve(request), attempt.handler(handler));
+    current.set(sent);
+    if (future.isCancelled())
+    {
+      sent.cancel(true);
+    }
+
+    sent.whenComplete((value, error) -> {
+      if (error == null)
+      {
+        future.complete(value);
+        return;
+      }
+
+      final Throwable cause = (error instanceof CompletionException && error.getCause() != null
+          ? error.getCause()
+          : error);
+      if (cause instanceof CancellationException)
+      {
+        attempt.cancelled();
+        future.cancel(false);
+      }
+      else if (cause instanceof TransportException && ! future.isDone() && canFailOver(request, tried))
+      {
+        attempt.failed();
+        executeAsync(request, handler, tried, current, future);
+      }
+      else
+      {
+        attempt.failed();
+        future.completeExceptionally(cause);
+      }
+    });
+  }
+
+  /**
+   * Can a request that failed be sent to another node?  If so, a token is spent from the retry budget, so that
+   * failover cannot multiply the load on a struggling Crowd by more than the budget allows.
+   * @param request The request.
+   * @param tried The nodes already tried.
+   * @return True if the request is idempotent, there is a node left to try, and the budget had a token to spend.
+   */
+  private boolean canFailOver(TransportRequest request, Set<Node> tried)
+  {
+    return (request.isIdempotent() && tried.size() < this.cluster.getNodes().size() && this.retryBudget.tryWithdraw());
+  }
+
+  /**
+   * Creates the default transport, after checking the application credentials.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The pool configuration.
+   * @param executor The executor used to run asynchronous requests, or absent to create and own one.
+   * @return The transport.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  private static Transport jersey(String appName,
+                                  String appPassword,
+                                  CrowdClientConfig config,
+                                  Optional<Executor> executor) throws IllegalArgumentException
+  {
+    authorization(appName, appPassword);
+    Preconditions.checkNotNull(config, "config cannot be null");
+
+    return (executor.isPresent() ? new JerseyTransport(config, executor.get()) : new JerseyTransport(config));
+  }
+
+  /**
+   * Creates the value of the (preemptive, basic) {@code Authorization} header.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @return The header value.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  private static String authorization(String appName, String appPassword) throws IllegalArgumentException
+  {
+    Preconditions.checkNotNull(appName, "appName cannot be null");
+    Preconditions.checkNotNull(appPassword, "appPassword cannot be null");
+
+    Preconditions.checkArgument(! appName.isEmpty(), "appName cannot be empty");
+    Preconditions.checkArgument(! appPassword.isEmpty(), "appPassword cannot be empty");
+
+    final byte[] credentials = (appName + ':' + appPassword).getBytes(StandardCharsets.UTF_8);
+    return "Basic " + Base64.getEncoder().encodeToString(credentials);
+  }
+
+  /**
+   * One attempt to send a request to a node, recording its outcome in the node's statistics exactly once.
+   */
+  private class Attempt
+  {
+    /** The node. */
+    private final Node node;
+
+    /** The ticker reading when the attempt started. */
+    private final long started;
+
+    /** Has the outcome been recorded? */
+    private final AtomicBoolean recorded = new AtomicBoolean(false);
+
+    /**
+     * Constructor.
+     * @param node The node.
+     */
+    Attempt(Node node)
+    {
+      this.node = node;
+      this.started = CrowdClient.this.cluster.now();
+      node.started();
+    }
+
+    /**
+     * Resolves a request against the node's base URL.
+     * @param request The request, with a URI relative to the crowd base URL.
+     * @return The request to send.
+     */
+    TransportRequest resolve(TransportRequest request)
+    {
+      return request.withUri(this.node.resolve(request.getUri()));
+    }
+
+    /**
+     * Wraps a response handler so that the response's status is recorded before it is read.  A server error counts
+     * against the node's health, although the response is still returned to the caller.
+     * @param handler The handler.
+     * @param <T> The result type.
+     * @return The wrapped handler.
+     */
+    <T> Function<TransportResponse, T> handler(Function<? super TransportResponse, ? extends T> handler)
+    {
+      return response -> {
+        if (response.getStatus() >= HttpURLConnection.HTTP_INTERNAL_ERROR)
+        {
+          failed();
+        }
+        else if (this.recorded.compareAndSet(false, true))
+        {
+          CrowdClient.this.cluster.succeeded(this.node, this.started);
+        }
+        return handler.apply(response);
+      };
+    }
+
+    /**
+     * Records that the attempt failed, unless its outcome has already been recorded.
+     */
+    void failed()
+    {
+      if (this.recorded.compareAndSet(false, true))
+      {
+        CrowdClient.this.cluster.failed(this.node);
+      }
+    }
+
+    /**
+     * Records that the attempt was cancelled, unless its outcome has already been recorded.
+     */
+    void cancelled()
+    {
+      if (this.recorded.compareAndSet(false, true))
+      {
+        this.node.cancelled();
+      }
+    }
+  }
+
+  /**
+   * Closes the client, releasing all of its connections.  Calling this more than once has no effect.
+   */
+  @Override
+  public void close()
+  {
+    if (this.closed.compareAndSet(false, true))
+    {
+      this.transport.close();
+    }
+  }
+}
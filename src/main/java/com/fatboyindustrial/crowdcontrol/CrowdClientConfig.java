@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of the HTTP connection pool used to talk to Crowd, of how long a request may wait at each stage, and
+ * of how asynchronous requests are run.
+ */
+@Immutable
+public class CrowdClientConfig
+{
+  /** The default maximum number of pooled connections. */
+  public static final int DEFAULT_MAX_TOTAL = 64;
+
+  /** The default maximum number of pooled connections to a single Crowd node. */
+  public static final int DEFAULT_MAX_PER_ROUTE = 32;
+
+  /** The default time (in milliseconds) an idle connection is kept alive. */
+  public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  /** The default time (in milliseconds) allowed to establish a connection. */
+  public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  /** The default time (in milliseconds) allowed between packets of a response. */
+  public static final long DEFAULT_READ_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  /** The default time (in milliseconds) allowed to wait for a pooled connection. */
+  public static final long DEFAULT_POOL_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  /** The maximum number of pooled connections. */
+  private final int maxTotal;
+
+  /** The maximum number of pooled connections to a single Crowd node. */
+  private final int maxPerRoute;
+
+  /** The time (in milliseconds) after which an idle connection is evicted. */
+  private final long idleTimeoutMillis;
+
+  /** How asynchronous requests are run. */
+  private final ExecutionMode executionMode;
+
+  /** The time (in milliseconds) allowed to establish a connection. */
+  private final long connectTimeoutMillis;
+
+  /** The time (in milliseconds) allowed between packets of a response. */
+  private final long readTimeoutMillis;
+
+  /** The time (in milliseconds) allowed to wait for a pooled connection. */
+  private final long poolTimeoutMillis;
+
+  /**
+   * Constructor.
+   * @param maxTotal The maximum number of pooled connections.
+   * @param maxPerRoute The maximum number of pooled connections to a single Crowd node.
+   * @param idleTimeoutMillis The time (in milliseconds) after which an idle connection is evicted.
+   * @throws IllegalArgumentException If any value is not positive, or if maxPerRoute exceeds maxTotal.
+   */
+  public CrowdClientConfig(int maxTotal, int maxPerRoute, long idleTimeoutMillis) throws IllegalArgumentException
+  {
+    this(maxTotal, maxPerRoute, idleTimeoutMillis, ExecutionMode.PLATFORM);
+  }
+
+  /**
+   * Constructor.
+   * @param maxTotal The maximum number of pooled connections.
+   * @param maxPerRoute The maximum number of pooled connections to a single Crowd node.
+   * @param idleTimeoutMillis The time (in milliseconds) after which an idle connection is evicted.
+   * @param executionMode How asynchronous requests are run.
+   * @throws IllegalArgumentException If any value is not positive, if maxPerRoute exceeds maxTotal, or if the
+   *                                  execution mode is not supported by the running JDK.
+   */
+  public CrowdClientConfig(int maxTotal, int maxPerRoute, long idleTimeoutMillis, ExecutionMode executionMode)
+      throws IllegalArgumentException
+  {
+    this(maxTotal, maxPerRoute, idleTimeoutMillis, executionMode,
+         DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_POOL_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Constructor.
+   * @param maxTotal The maximum number of pooled connections.
+   * @param maxPerRoute The maximum number of pooled connections to a single Crowd node.
+   * @param idleTimeoutMillis The time (in milliseconds) after which an idle connection is evicted.
+   * @param executionMode How asynchronous requests are run.
+   * @param connectTimeoutMillis The time (in milliseconds) allowed to establish a connection.
+   * @param readTimeoutMillis The time (in milliseconds) allowed between packets of a response.
+   * @param poolTimeoutMillis The time (in milliseconds) allowed to wait for a pooled connection.
+   * @throws IllegalArgumentException If any value is not positive, if maxPerRoute exceeds maxTotal, or if the
+   *                                  execution mode is not supported by the running JDK.
+   */
+  public CrowdClientConfig(int maxTotal, int maxPerRoute, long idleTimeoutMillis, ExecutionMode executionMode,
+                           long connectTimeoutMillis, long readTimeoutMillis, long poolTimeoutMillis)
+      throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(maxTotal > 0, "maxTotal must be positive");
+    Preconditions.checkArgument(maxPerRoute > 0, "maxPerRoute must be positive");
+    Preconditions.checkArgument(maxPerRoute <= maxTotal, "maxPerRoute cannot exceed maxTotal");
+    Preconditions.checkArgument(idleTimeoutMillis > 0, "idleTimeoutMillis must be positive");
+    Preconditions.checkNotNull(executionMode, "executionMode cannot be null");
+    Preconditions.checkArgument(executionMode.isSupported(), "executionMode is not supported by this JDK");
+    Preconditions.checkArgument(connectTimeoutMillis > 0, "connectTimeoutMillis must be positive");
+    Preconditions.checkArgument(readTimeoutMillis > 0, "readTimeoutMillis must be positive");
+    Preconditions.checkArgument(poolTimeoutMillis > 0, "poolTimeoutMillis must be positive");
+
+    this.maxTotal = maxTotal;
+    this.maxPerRoute = maxPerRoute;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.executionMode = executionMode;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.readTimeoutMillis = readTimeoutMillis;
+    this.poolTimeoutMillis = poolTimeoutMillis;
+  }
+
+  /**
+   * Gets the default configuration.
+   * @return The default configuration.
+   */
+  public static CrowdClientConfig defaults()
+  {
+    return new CrowdClientConfig(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Gets the maximum number of pooled connections.
+   * @return The maximum number of pooled connections.
+   */
+  public int getMaxTotal()
+  {
+    return this.maxTotal;
+  }
+
+  /**
+   * Gets the maximum number of pooled connections to a single Crowd node.
+   * @return The maximum number of connections per route.
+   */
+  public int getMaxPerRoute()
+  {
+    return this.maxPerRoute;
+  }
+
+  /**
+   * Gets the time after which an idle connection is evicted.
+   * @return The idle timeout, in milliseconds.
+   */
+  public long getIdleTimeoutMillis()
+  {
+    return this.idleTimeoutMillis;
+  }
+
+  /**
+   * Gets how asynchronous requests are run.  This only applies when the transport creates its own executor.
+   * @return The execution mode.
+   */
+  public ExecutionMode getExecutionMode()
+  {
+    return this.executionMode;
+  }
+
+  /**
+   * Gets a copy of this configuration with different timeouts.
+   * @param connectTimeoutMillis The time (in milliseconds) allowed to establish a connection.
+   * @param readTimeoutMillis The time (in milliseconds) allowed between packets of a response.
+   * @param poolTimeoutMillis The time (in milliseconds) allowed to wait for a pooled connection.
+   * @return The new configuration.
+   * @throws IllegalArgumentException If any value is not positive.
+   */
+  public CrowdClientConfig withTimeouts(long connectTimeoutMillis, long readTimeoutMillis, long poolTimeoutMillis)
+      throws IllegalArgumentException
+  {
+    return new CrowdClientConfig(this.maxTotal, this.maxPerRoute, this.idleTimeoutMillis, this.executionMode,
+                                 connectTimeoutMillis, readTimeoutMillis, poolTimeoutMillis);
+  }
+
+  /**
+   * Gets the time allowed to establish a connection.
+   * @return The connect timeout, in milliseconds.
+   */
+  public long getConnectTimeoutMillis()
+  {
+    return this.connectTimeoutMillis;
+  }
+
+  /**
+   * Gets the time allowed between packets of a response.
+   * @return The read timeout, in milliseconds.
+   */
+  public long getReadTimeoutMillis()
+  {
+    return this.readTimeoutMillis;
+  }
+
+  /**
+   * Gets the time allowed to wait for a pooled connection.  The JDK's HTTP client has no pool limit to wait on,
+   * so {@link HttpClientTransport} ignores this.
+   * @return The pool timeout, in milliseconds.
+   */
+  public long getPoolTimeoutMillis()
+  {
+    return this.poolTimeoutMillis;
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "CrowdClientConfig{" +
+           "maxTotal=" + this.maxTotal +
+           ", maxPerRoute=" + this.maxPerRoute +
+           ", idleTimeoutMillis=" + this.idleTimeoutMillis +
+           ", executionMode=" + this.executionMode +
+           ", connectTimeoutMillis=" + this.connectTimeoutMillis +
+           ", readTimeoutMillis=" + this.readTimeoutMillis +
+           ", poolTimeoutMillis=" + this.poolTimeoutMillis +
+           '}';
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The time by which a call must be answered.  The deadline covers the whole call: waiting for a pooled connection,
+ * connecting, reading the response, and any retries.  A call still unanswered when its deadline passes is aborted
+ * and answered with a {@link #DEADLINE_EXCEEDED} error.
+ */
+@Immutable
+public final class Deadline
+{
+  /** The reason given when a call is not answered before its deadline. */
+  public static final String DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+
+  /** The {@link System#nanoTime()} at which the deadline passes. */
+  private final long expiresAt;
+
+  /**
+   * Constructor.
+   * @param expiresAt The {@link System#nanoTime()} at which the deadline passes.
+   */
+  private Deadline(long expiresAt)
+  {
+    this.expiresAt = expiresAt;
+  }
+
+  /**
+   * Gets a deadline the given time from now.
+   * @param duration The time allowed.
+   * @param unit The unit of the duration.
+   * @return The deadline.
+   * @throws IllegalArgumentException If the duration is negative.
+   */
+  public static Deadline after(long duration, TimeUnit unit) throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(duration >= 0, "duration cannot be negative");
+    Preconditions.checkNotNull(unit, "unit cannot be null");
+
+    return new Deadline(System.nanoTime() + unit.toNanos(duration));
+  }
+
+  /**
+   * Gets the time remaining before the deadline passes.
+   * @param unit The unit of the result.
+   * @return The time remaining, or zero if the deadline has passed.
+   */
+  public long remaining(TimeUnit unit)
+  {
+    return unit.convert(Math.max(0, this.expiresAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Determines whether the deadline has passed.
+   * @return {@code true} if the deadline has passed.
+   */
+  public boolean isExpired()
+  {
+    return this.expiresAt - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Makes a call and waits for its result until the deadline.  The call is not made if the deadline has already
+   * passed, and is cancelled if it has not been answered by the deadline.
+   * @param call Makes the call.
+   * @param expired Supplies the result when the deadline passes first.
+   * @param <T> The result type.
+   * @return The result of the call, or of {@code expired}.
+   * @throws TransportException If the call fails, or the calling thread is interrupted.
+   */
+  <T> T await(Supplier<CompletableFuture<T>> call, Supplier<T> expired) throws TransportException
+  {
+    if (isExpired())
+    {
+      return expired.get();
+    }
+
+    final CompletableFuture<T> future = call.get();
+    try
+    {
+      return future.get(remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException e)
+    {
+      future.cancel(true);
+      return expired.get();
+    }
+    catch (ExecutionException e)
+    {
+      throw rethrow(e.getCause());
+    }
+    catch (CancellationException e)
+    {
+      throw new TransportException("call cancelled", e);
+    }
+    catch (InterruptedException e)
+    {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new TransportException("interrupted waiting for call", e);
+    }
+  }
+
+  /**
+   * Makes a call whose future result is completed by the deadline.  The call is not made if the deadline has
+   * already passed, and is cancelled if it has not been answered by the deadline.  Cancelling the returned future
+   * cancels the call.
+   * @param call Makes the call.
+   * @param expired Supplies the result when the deadline passes first.
+   * @param <T> The result type.
+   * @return The future result of the call, or of {@code expired}.
+   */
+  <T> CompletableFuture<T> bound(Supplier<CompletableFuture<T>> call, Supplier<T> expired)
+  {
+    if (isExpired())
+    {
+      return CompletableFuture.completedFuture(expired.get());
+    }
+
+    final CompletableFuture<T> future = call.get();
+    final CompletableFuture<T> result = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        future.cancel(mayInterruptIfRunning);
+        return cancelled;
+      }
+    };
+
+    future.whenComplete((value, error) -> {
+      if (error == null)
+      {
+        result.complete(value);
+      }
+      else
+      {
+        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                         ? error.getCause() : error);
+      }
+    });
+
+    // the timer is cancelled as soon as the result completes; if it fires first, the call is abandoned
+    final CompletableFuture<Void> timer =
+        new CompletableFuture<Void>().completeOnTimeout(null, remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    timer.thenRun(() -> {
+      if (! result.isDone())
+      {
+        result.complete(expired.get());
+      }
+    });
+    result.whenComplete((value, error) -> {
+      timer.cancel(false);
+      future.cancel(true);
+    });
+
+    return result;
+  }
+
+  /**
+   * Gets the exception to throw for the failure of a call.
+   * @param cause The failure.
+   * @return The exception.
+   */
+  private static RuntimeException rethrow(Throwable cause)
+  {
+    if (cause instanceof RuntimeException)
+    {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error)
+    {
+      throw (Error) cause;
+    }
+    return new TransportException("call failed", cause);
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "Deadline{" +
+           "remainingMillis=" + remaining(TimeUnit.MILLISECONDS) +
+           '}';
+  }
+}
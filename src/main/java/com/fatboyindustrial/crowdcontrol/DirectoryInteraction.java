@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.google.common.base.Optional;
+
+import java.util.List;
+
+/**
+ * Reads the directory in bulk, and follows changes to it through Crowd's incremental event feed.  Implemented by
+ * {@link DirectoryInteractor}, and used to build and maintain local replicas of the directory.
+ */
+public interface DirectoryInteraction
+{
+  /**
+   * Gets the current event token.  Events that occur after this point can be fetched with {@link #events}.
+   * @return The event token, or a {@link DirectoryError} if an error occurs (for example, if incremental
+   *         synchronisation is not available).
+   */
+  Either<String, DirectoryError> eventToken();
+
+  /**
+   * Gets the events that have occurred since the given event token.
+   * @param eventToken The event token.
+   * @return The events, or a {@link DirectoryError} if an error occurs (for example, if the token has expired).
+   */
+  Either<EventBatch, DirectoryError> events(String eventToken);
+
+  /**
+   * Lists every user.
+   * @return The usernames, or a {@link DirectoryError} if an error occurs.
+   */
+  Either<List<String>, DirectoryError> users();
+
+  /**
+   * Lists every group.
+   * @return The group names, or a {@link DirectoryError} if an error occurs.
+   */
+  Either<List<String>, DirectoryError> groups();
+
+  /**
+   * Lists the direct user members of a group.
+   * @param groupname The group name.
+   * @return The usernames, or a {@link DirectoryError} if an error occurs.
+   */
+  Either<List<String>, DirectoryError> directMembersOf(String groupname);
+
+  /**
+   * Lists the direct child groups of a group.
+   * @param groupname The group name.
+   * @return The child group names, or a {@link DirectoryError} if an error occurs.
+   */
+  Either<List<String>, DirectoryError> childGroupsOf(String groupname);
+
+  /**
+   * Streams every direct group membership to the given sink.  The default implementation lists every group, then
+   * the members and child groups of each in turn; implementations should override it with a bulk read where Crowd
+   * offers one.
+   * @param sink The sink to receive the memberships.
+   * @return Absent on success, or a {@link DirectoryError} if an error occurs.  On error, the sink may have received
+   *         some of the memberships.
+   */
+  default Optional<DirectoryError> memberships(MembershipSink sink)
+  {
+    final Either<List<String>, DirectoryError> groups = groups();
+    if (groups.isError())
+    {
+      return Optional.of(groups.getError());
+    }
+
+    for (final String groupname : groups.getValue())
+    {
+      sink.group(groupname);
+
+      final Either<List<String>, DirectoryError> members = directMembersOf(groupname);
+      if (members.isError())
+      {
+        return Optional.of(members.getError());
+      }
+
+      for (final String username : members.getValue())
+      {
+        sink.userMember(groupname, username);
+      }
+
+      final Either<List<String>, DirectoryError> children = childGroupsOf(groupname);
+      if (children.isError())
+      {
+        return Optional.of(children.getError());
+      }
+
+      for (final String child : children.getValue())
+      {
+        sink.childGroup(groupname, child);
+      }
+    }
+
+    return Optional.absent();
+  }
+}
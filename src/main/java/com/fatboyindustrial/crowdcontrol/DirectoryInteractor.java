@@ -0,0 +1,434 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.json.JsonCodec;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.stream.XMLStreamException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * An interactor for reading the directory in bulk (with paginated listings, and a single streamed membership dump),
+ * for listing it lazily (see {@link Listing}) or reactively, and for following Crowd's incremental event feed.
+ */
+@ThreadSafe
+public class DirectoryInteractor implements DirectoryInteraction, AutoCloseable
+{
+  /** The default number of names fetched per page. */
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+
+  /** The HTTP client used to talk to Crowd. */
+  private final CrowdClient client;
+
+  /** Does this interactor own (and therefore close) the client? */
+  private final boolean ownsClient;
+
+  /** The number of names fetched per page. */
+  private final int pageSize;
+
+  /**
+   * Constructor.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public DirectoryInteractor(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
+  {
+    this(new CrowdClient(crowdBase, appName, appPassword), true, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   */
+  public DirectoryInteractor(CrowdClient client)
+  {
+    this(client, false, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param pageSize The number of names fetched per page.
+   */
+  public DirectoryInteractor(CrowdClient client, int pageSize)
+  {
+    this(client, false, pageSize);
+  }
+
+  /**
+   * Constructor.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param ownsClient Does this interactor own (and therefore close) the client?
+   * @param pageSize The number of names fetched per page.
+   */
+  private DirectoryInteractor(CrowdClient client, boolean ownsClient, int pageSize)
+  {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.ownsClient = ownsClient;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Gets the current event token.
+   * @return The event token, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Either<String, DirectoryError> eventToken()
+  {
+    final Either<EventBatch, DirectoryError> batch = get(this.client.resource("rest/usermanagement/latest/event"),
+                                                         EventBatch.class);
+    return (batch.isError()
+        ? Either.<String, DirectoryError>error(batch.getError())
+        : Either.<String, DirectoryError>value(batch.getValue().getNewEventToken()));
+  }
+
+  /**
+   * Gets the events that have occurred since the given event token.
+   * @param eventToken The event token.
+   * @return The events, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Either<EventBatch, DirectoryError> events(String eventToken)
+  {
+    Preconditions.checkNotNull(eventToken, "eventToken cannot be null");
+    return get(this.client.resource("rest/usermanagement/latest/event").path(eventToken), EventBatch.class);
+  }
+
+  /**
+   * Lists every user.
+   * @return The usernames, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Either<List<String>, DirectoryError> users()
+  {
+    return list(this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", "user"));
+  }
+
+  /**
+   * Lists every group.
+   * @return The group names, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Either<List<String>, DirectoryError> groups()
+  {
+    return list(this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", "group"));
+  }
+
+  /**
+   * Lists the direct user members of a group.
+   * @param groupname The group name.
+   * @return The usernames, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Either<List<String>, DirectoryError> directMembersOf(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    return list(this.client.resource("rest/usermanagement/latest/group/user/direct")
+                    .queryParam("groupname", groupname));
+  }
+
+  /**
+   * Lists the direct child groups of a group.
+   * @param groupname The group name.
+   * @return The child group names, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Either<List<String>, DirectoryError> childGroupsOf(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    return list(this.client.resource("rest/usermanagement/latest/group/child-group/direct")
+                    .queryParam("groupname", groupname));
+  }
+
+  /**
+   * Streams every direct group membership to the given sink, from Crowd's XML membership dump.  The whole directory
+   * is read with one request, and parsed incrementally as it arrives.
+   * @param sink The sink to receive the memberships.
+   * @return Absent on success, or a {@link DirectoryError} if an error occurs.
+   */
+  @Override
+  public Optional<DirectoryError> memberships(MembershipSink sink)
+  {
+    Preconditions.checkNotNull(sink, "sink cannot be null");
+
+    return this.client.execute(this.client.resource("rest/usermanagement/latest/group/membership")
+                                   .get(TransportRequest.APPLICATION_XML),
+                               response -> readMemberships(response, sink));
+  }
+
+  /**
+   * Lists users lazily, fetching pages in the background as the listing is consumed.
+   * @return The usernames.
+   */
+  public Listing listUsers()
+  {
+    return listing(this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", "user"));
+  }
+
+  /**
+   * Lists groups lazily, fetching pages in the background as the listing is consumed.
+   * @return The group names.
+   */
+  public Listing listGroups()
+  {
+    return listing(this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", "group"));
+  }
+
+  /**
+   * Lists the user members of a group lazily, fetching pages in the background as the listing is consumed.
+   * @param groupname The group name.
+   * @param mode Whether to list direct members only, or nested members too.
+   * @return The usernames.
+   */
+  public Listing listMembersOf(String groupname, MembershipMode mode)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    Preconditions.checkNotNull(mode, "mode cannot be null");
+
+    return listing(this.client.resource("rest/usermanagement/latest/group/user/" + mode.getPath())
+                       .queryParam("groupname", groupname));
+  }
+
+  /**
+   * Lists the child groups of a group lazily, fetching pages in the background as the listing is consumed.
+   * @param groupname The group name.
+   * @param mode Whether to list direct child groups only, or nested child groups too.
+   * @return The child group names.
+   */
+  public Listing listChildGroupsOf(String groupname, MembershipMode mode)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    Preconditions.checkNotNull(mode, "mode cannot be null");
+
+    return listing(this.client.resource("rest/usermanagement/latest/group/child-group/" + mode.getPath())
+                       .queryParam("groupname", groupname));
+  }
+
+  /**
+   * Publishes the usernames reactively, fetching no more names than the subscriber has requested.
+   * @return The usernames.
+   */
+  public Flow.Publisher<String> publishUsers()
+  {
+    return publisher(this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", "user"));
+  }
+
+  /**
+   * Publishes the group names reactively, fetching no more names than the subscriber has requested.
+   * @return The group names.
+   */
+  public Flow.Publisher<String> publishGroups()
+  {
+    return publisher(this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", "group"));
+  }
+
+  /**
+   * Publishes the user members of a group reactively, fetching no more names than the subscriber has requested.
+   * @param groupname The group name.
+   * @param mode Whether to list direct members only, or nested members too.
+   * @return The usernames.
+   */
+  public Flow.Publisher<String> publishMembersOf(String groupname, MembershipMode mode)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    Preconditions.checkNotNull(mode, "mode cannot be null");
+
+    return publisher(this.client.resource("rest/usermanagement/latest/group/user/" + mode.getPath())
+                         .queryParam("groupname", groupname));
+  }
+
+  /**
+   * Publishes the child groups of a group reactively, fetching no more names than the subscriber has requested.
+   * @param groupname The group name.
+   * @param mode Whether to list direct child groups only, or nested child groups too.
+   * @return The child group names.
+   */
+  public Flow.Publisher<String> publishChildGroupsOf(String groupname, MembershipMode mode)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    Preconditions.checkNotNull(mode, "mode cannot be null");
+
+    return publisher(this.client.resource("rest/usermanagement/latest/group/child-group/" + mode.getPath())
+                         .queryParam("groupname", groupname));
+  }
+
+  /**
+   * Reads every page of a name listing.
+   * @param target The listing resource.
+   * @return The names, or the error.
+   */
+  private Either<List<String>, DirectoryError> list(Resource target)
+  {
+    final ImmutableList.Builder<String> names = ImmutableList.builder();
+
+    for (int start = 0; ; start += this.pageSize)
+    {
+      final Either<NameList, DirectoryError> page = page(target, start, this.pageSize);
+      if (page.isError())
+      {
+        return Either.error(page.getError());
+      }
+
+      names.addAll(page.getValue().getNames());
+
+      if (page.getValue().getNames().size() < this.pageSize)
+      {
+        return Either.value(names.build());
+      }
+    }
+  }
+
+  /**
+   * Creates a lazy listing, with each page fetched asynchronously.
+   * @param target The listing resource.
+   * @return The listing.
+   */
+  private Listing listing(Resource target)
+  {
+    return new Listing(start -> pageAsync(target, start, this.pageSize), this.pageSize);
+  }
+
+  /**
+   * Creates a reactive listing, with each page fetched asynchronously as demand requires.
+   * @param target The listing resource.
+   * @return The publisher.
+   */
+  private Flow.Publisher<String> publisher(Resource target)
+  {
+    return new NamePublisher((start, max) -> pageAsync(target, start, max), this.pageSize);
+  }
+
+  /**
+   * Fetches one page of a name listing.
+   * @param target The listing resource.
+   * @param start The index of the first name on the page.
+   * @param max The maximum number of names on the page.
+   * @return The page, or the error.
+   */
+  private Either<NameList, DirectoryError> page(Resource target, int start, int max)
+  {
+    return get(target.queryParam("start-index", start).queryParam("max-results", max), NameList.class);
+  }
+
+  /**
+   * Fetches one page of a name listing asynchronously.  Cancelling the returned future aborts the request.
+   * @param target The listing resource.
+   * @param start The index of the first name on the page.
+   * @param max The maximum number of names on the page.
+   * @return The future page, or the error.
+   */
+  private CompletableFuture<Either<NameList, DirectoryError>> pageAsync(Resource target, int start, int max)
+  {
+    return this.client.executeAsync(target.queryParam("start-index", start).queryParam("max-results", max).get(),
+                                    response -> decode(response, NameList.class));
+  }
+
+  /**
+   * Gets a resource.
+   * @param target The resource.
+   * @param type The type of a successful response.
+   * @param <T> The type of a successful response.
+   * @return The response, or the error.
+   */
+  private <T> Either<T, DirectoryError> get(Resource target, Class<T> type)
+  {
+    return this.client.execute(target.get(), response -> decode(response, type));
+  }
+
+  /**
+   * Reads a JSON response.
+   * @param response The response.
+   * @param type The type of a successful response.
+   * @param <T> The type of a successful response.
+   * @return The response, or the error.
+   */
+  private static <T> Either<T, DirectoryError> decode(TransportResponse response, Class<T> type)
+  {
+    final InputStream json = response.getBody();
+
+    if (response.getStatus() == HttpURLConnection.HTTP_OK)
+    {
+      return Either.value(JsonCodec.getDefault().decode(json, type));
+    }
+    else
+    {
+      return Either.error(JsonCodec.getDefault().decode(json, DirectoryError.class));
+    }
+  }
+
+  /**
+   * Streams the memberships from an XML membership dump response to a sink.
+   * @param response The response.
+   * @param sink The sink to receive the memberships.
+   * @return Absent on success, or a {@link DirectoryError} if an error occurs.
+   */
+  private static Optional<DirectoryError> readMemberships(TransportResponse response, MembershipSink sink)
+  {
+    try
+    {
+      final InputStream xml = response.getBody();
+
+      if (response.getStatus() == HttpURLConnection.HTTP_OK)
+      {
+        MembershipDumpReader.readMemberships(xml, sink);
+        return Optional.absent();
+      }
+      else
+      {
+        return Optional.of(MembershipDumpReader.readError(xml));
+      }
+    }
+    catch (XMLStreamException e)
+    {
+      return Optional.of(new DirectoryError("OPERATION_FAILED", "Cannot read membership dump: " + e.getMessage()));
+    }
+  }
+
+  /**
+   * Closes the interactor.  The underlying client is only closed if it is owned by this interactor.
+   */
+  @Override
+  public void close()
+  {
+    if (this.ownsClient)
+    {
+      this.client.close();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How a {@link Transport} runs asynchronous requests, when it owns its executor.
+ */
+public enum ExecutionMode
+{
+  /** Requests run on a fixed pool of platform threads, one per pooled connection. */
+  PLATFORM,
+
+  /**
+   * Each request runs on a new virtual thread.  Blocking on the connection pool or the socket then costs no platform
+   * thread, so very large numbers of requests can be outstanding at once.  Requires a JDK with virtual threads
+   * (21 or later); see {@link #isSupported()}.
+   */
+  VIRTUAL;
+
+  /** The factory method for virtual thread executors, or null if this JDK has no virtual threads. */
+  private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+  /**
+   * Is this mode supported by the running JDK?
+   * @return True if the mode can be used.
+   */
+  public boolean isSupported()
+  {
+    return (this == PLATFORM || NEW_VIRTUAL_THREAD_EXECUTOR != null);
+  }
+
+  /**
+   * Creates an executor for this mode.
+   * @param platformThreads The number of threads in a platform thread pool.
+   * @return The executor.
+   * @throws UnsupportedOperationException If the mode is not supported by the running JDK.
+   */
+  ExecutorService createExecutor(int platformThreads) throws UnsupportedOperationException
+  {
+    if (this == PLATFORM)
+    {
+      return Executors.newFixedThreadPool(platformThreads, new ThreadFactoryBuilder()
+          .setNameFormat("crowd-control-async-%d")
+          .setDaemon(true)
+          .build());
+    }
+
+    if (NEW_VIRTUAL_THREAD_EXECUTOR == null)
+    {
+      throw new UnsupportedOperationException("virtual threads are not available on Java " +
+                                              System.getProperty("java.specification.version"));
+    }
+
+    try
+    {
+      return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+    }
+    catch (IllegalAccessException | InvocationTargetException e)
+    {
+      throw new UnsupportedOperationException("cannot create a virtual thread executor", e);
+    }
+  }
+
+  /**
+   * Finds {@code Executors.newVirtualThreadPerTaskExecutor()}, which only exists on JDKs with virtual threads.  It is
+   * looked up reflectively so that the library still builds and runs on older JDKs.
+   * @return The method, or null if it does not exist.
+   */
+  private static Method findVirtualThreadExecutorFactory()
+  {
+    try
+    {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    }
+    catch (NoSuchMethodException e)
+    {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Determines user group membership.  Implemented by {@link GroupInteractor}, and by decorators that add behaviour
+ * (such as caching) in front of it.
+ */
+public interface GroupInteraction
+{
+  /**
+   * Executes the interaction.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if an
+   *         error occurs.  If a user is not a member of a group, this is indicated by a {@link GroupError}.
+   */
+  Either<GroupResponse, GroupError> execute(String username, String groupname);
+
+  /**
+   * Executes the interaction asynchronously.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The future result of {@link #execute}.
+   */
+  CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname);
+}
@@ -23,32 +23,37 @@
 
 package com.fatboyindustrial.crowdcontrol;
 
+import com.fatboyindustrial.crowdcontrol.json.JsonCodec;
 import com.fatboyindustrial.crowdcontrol.model.GroupError;
 import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.metrics.MetricsSink;
 import com.google.common.base.Preconditions;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An interactor for determining user group membership.
  */
-public class GroupInteractor
+@ThreadSafe
+public class GroupInteractor implements GroupInteraction, AutoCloseable
 {
-  /** The base URL of the crowd server. */
-  private final String crowdBase;
+  /** The HTTP client used to talk to Crowd. */
+  private final CrowdClient client;
 
-  /** Crowd application name. */
-  private final String appName;
+  /** Does this interactor own (and therefore close) the client? */
+  private final boolean ownsClient;
 
-  /** Crowd application password. */
-  private final String appPassword;
+  /** How group membership is determined. */
+  private final MembershipMode mode;
+
+  /** Sends requests according to the retry policy. */
+  private final Retrier retrier;
+
+  /** Records the lookups made. */
+  private final Instrumentation<GroupResponse, GroupError> instrumentation;
 
   /**
    * Constructor.
@@ -59,12 +64,77 @@ public class GroupInteractor
    */
   public GroupInteractor(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
   {
-    this.crowdBase = Preconditions.checkNotNull(crowdBase, "crowdBase cannot be null");
-    this.appName = Preconditions.checkNotNull(appName, "appName cannot be null");
-    this.appPassword = Preconditions.checkNotNull(appPassword, "appPassword cannot be null");
+    this(new CrowdClient(crowdBase, appName, appPassword), true, MembershipMode.DIRECT, RetryPolicy.none(),
+         MetricsSink.NONE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   */
+  public GroupInteractor(CrowdClient client)
+  {
+    this(client, false, MembershipMode.DIRECT, RetryPolicy.none(), MetricsSink.NONE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param mode How group membership is determined.
+   */
+  public GroupInteractor(CrowdClient client, MembershipMode mode)
+  {
+    this(client, false, mode, RetryPolicy.none(), MetricsSink.NONE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param mode How group membership is determined.
+   * @param retryPolicy How failed or slow lookups are retried and hedged.
+   */
+  public GroupInteractor(CrowdClient client, MembershipMode mode, RetryPolicy retryPolicy)
+  {
+    this(client, false, mode, retryPolicy, MetricsSink.NONE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param mode How group membership is determined.
+   * @param retryPolicy How failed or slow lookups are retried and hedged.
+   * @param metrics Receives measurements of each lookup.
+   */
+  public GroupInteractor(CrowdClient client, MembershipMode mode, RetryPolicy retryPolicy, MetricsSink metrics)
+  {
+    this(client, false, mode, retryPolicy, metrics);
+  }
 
-    Preconditions.checkArgument(! appName.isEmpty(), "appName cannot be empty");
-    Preconditions.checkArgument(! appPassword.isEmpty(), "appPassword cannot be empty");
+  /**
+   * Constructor.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param ownsClient Does this interactor own (and therefore close) the client?
+   * @param mode How group membership is determined.
+   * @param retryPolicy How failed or slow lookups are retried and hedged.
+   * @param metrics Receives measurements of each lookup.
+   */
+  private GroupInteractor(CrowdClient client, boolean ownsClient, MembershipMode mode, RetryPolicy retryPolicy,
+                          MetricsSink metrics)
+  {
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.ownsClient = ownsClient;
+    this.mode = Preconditions.checkNotNull(mode, "mode cannot be null");
+    this.retrier = new Retrier(client, retryPolicy);
+    this.instrumentation = new Instrumentation<>(metrics, GroupInteractor::buildResult, GroupError::getReason);
+  }
+
+  /**
+   * Gets the sink that receives measurements of each lookup.
+   * @return The sink.
+   */
+  public MetricsSink getMetrics()
+  {
+    return this.instrumentation.getMetrics();
   }
 
   /**
@@ -74,71 +144,137 @@ public class GroupInteractor
    * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if an
    *         error occurs.  If a user is not a member of a group, this is indicated by a {@link GroupError}.
    */
+  @Override
   public Either<GroupResponse, GroupError> execute(String username, String groupname)
   {
     Preconditions.checkNotNull(username, "username cannot be null");
 
-    final WebTarget target = resource(newClient(), username, groupname);
-    final Response response = target.request()
-        .accept(MediaType.APPLICATION_JSON_TYPE)
-        .get();
-
-    if (response.getStatus() == Response.Status.OK.getStatusCode())
+    try
     {
-      return Either.value(buildResponse(response.readEntity(String.class)));
+      return this.retrier.execute(resource(username, groupname).get(), this.instrumentation.handler());
     }
-    else
+    catch (TransportException e)
     {
-      return Either.error(buildError(response.readEntity(String.class)));
+      throw this.instrumentation.failed(e);
     }
   }
 
   /**
-   * Creates a new HTTP client configured with basic authentication.
-   * @return The HTTP client.
+   * Executes the interaction asynchronously.  Cancelling the returned future aborts the HTTP request.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The future result of {@link #execute}.
    */
-  private Client newClient()
+  @Override
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
   {
-    final Client client = ClientBuilder.newBuilder().build();
-    client.register(HttpAuthenticationFeature.basic(this.appName, this.appPassword));
+    Preconditions.checkNotNull(username, "username cannot be null");
 
-    return client;
+    return this.instrumentation.watch(
+        this.retrier.executeAsync(resource(username, groupname).get(), this.instrumentation.handler()));
   }
 
   /**
-   * Creates a new web target for the group URL.
-   * @param client The HTTP client.
+   * Executes the interaction, giving up if it is not answered before a deadline.
    * @param username The username.
    * @param groupname The group name.
-   * @return The web target.
+   * @param deadline The deadline, covering the wait for a pooled connection, connecting, reading the response and
+   *                 any retries.
+   * @return The result of {@link #execute(String, String)}, or a {@link Deadline#DEADLINE_EXCEEDED} error.
    */
-  private WebTarget resource(Client client, String username, String groupname)
+  public Either<GroupResponse, GroupError> execute(String username, String groupname, Deadline deadline)
   {
-    return client.target(this.crowdBase)
-        .path("rest/usermanagement/latest/group/user/direct")
+    Preconditions.checkNotNull(deadline, "deadline cannot be null");
+
+    return deadline.await(() -> executeAsync(username, groupname), this::deadlineExceeded);
+  }
+
+  /**
+   * Executes the interaction asynchronously, giving up if it is not answered before a deadline.  Cancelling the
+   * returned future aborts the HTTP request.
+   * @param username The username.
+   * @param groupname The group name.
+   * @param deadline The deadline, covering the wait for a pooled connection, connecting, reading the response and
+   *                 any retries.
+   * @return The future result of {@link #execute(String, String, Deadline)}.
+   */
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname,
+                                                                           Deadline deadline)
+  {
+    Preconditions.checkNotNull(deadline, "deadline cannot be null");
+
+    return deadline.bound(() -> executeAsync(username, groupname), this::deadlineExceeded);
+  }
+
+  /**
+   * Creates the resource for the group URL.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The resource.
+   */
+  private Resource resource(String username, String groupname)
+  {
+    return this.client.resource("rest/usermanagement/latest/group/user/" + this.mode.getPath())
         .queryParam("groupname", groupname)
         .queryParam("username", username);
   }
 
   /**
-   * Converts the given JSON into an group response object.
-   * @param json The JSON.
+   * Reads the result from a response.
+   * @param response The response.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} otherwise.
+   */
+  private static Either<GroupResponse, GroupError> buildResult(TransportResponse response)
+  {
+    if (response.getStatus() == HttpURLConnection.HTTP_OK)
+    {
+      return Either.value(buildResponse(response.getBody()));
+    }
+    else
+    {
+      return Either.error(buildError(response.getBody()));
+    }
+  }
+
+  /**
+   * Reads the given JSON stream into a group response object.
+   * @param json The JSON stream.
    * @return The object.
    */
-  private static GroupResponse buildResponse(String json)
+  private static GroupResponse buildResponse(InputStream json)
   {
-    final Gson gson = new GsonBuilder().create();
-    return gson.fromJson(json, GroupResponse.class);
+    return JsonCodec.getDefault().decode(json, GroupResponse.class);
   }
 
   /**
-   * Converts the given JSON into an authentication error object.
-   * @param json The JSON.
+   * Reads the given JSON stream into a group error object.
+   * @param json The JSON stream.
    * @return The object.
    */
-  private static GroupError buildError(String json)
+  private static GroupError buildError(InputStream json)
+  {
+    return JsonCodec.getDefault().decode(json, GroupError.class);
+  }
+
+  /**
+   * Gets the result of a lookup that was not answered before its deadline.
+   * @return The error.
+   */
+  private Either<GroupResponse, GroupError> deadlineExceeded()
   {
-    final Gson gson = new GsonBuilder().create();
-    return gson.fromJson(json, GroupError.class);
+    return this.instrumentation.error(new GroupError(Deadline.DEADLINE_EXCEEDED,
+                                                     "The group lookup was not answered before its deadline"));
+  }
+
+  /**
+   * Closes the interactor.  The underlying client is only closed if it is owned by this interactor.
+   */
+  @Override
+  public void close()
+  {
+    if (this.ownsClient)
+    {
+      this.client.close();
+    }
   }
 }
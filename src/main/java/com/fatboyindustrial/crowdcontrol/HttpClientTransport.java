@@ -0,0 +1,343 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A transport using the JDK's {@link HttpClient}.  It negotiates HTTP/2 where the server supports it (through ALPN
+ * over TLS, or an upgrade over plain HTTP), multiplexing concurrent requests over a single connection per Crowd
+ * node; otherwise it falls back to HTTP/1.1 keep-alive connections.  It starts faster than {@link JerseyTransport},
+ * and asynchronous requests hold no thread while they wait for Crowd.
+ * <p>
+ * The JDK client manages its own connections, so the pool limits in the configuration do not apply; HTTP/1.1
+ * keep-alive is governed by the {@code jdk.httpclient.*} system properties.  The client's executor, used for
+ * asynchronous completion, is created according to the configured {@link ExecutionMode} unless one is supplied.
+ */
+@ThreadSafe
+public class HttpClientTransport implements Transport
+{
+  /** The configuration. */
+  private final CrowdClientConfig config;
+
+  /** The underlying HTTP client. */
+  private final HttpClient client;
+
+  /** The executor owned (and therefore shut down) by this transport, if any. */
+  private final ExecutorService ownedExecutor;
+
+  /** Has this transport been closed? */
+  private final AtomicBoolean closed;
+
+  /**
+   * Constructor.
+   * @param config The configuration.
+   */
+  public HttpClientTransport(CrowdClientConfig config)
+  {
+    this(config, Optional.<Executor>absent());
+  }
+
+  /**
+   * Constructor.
+   * @param config The configuration.
+   * @param executor The executor used by the client.  It is not shut down when the transport is closed.
+   */
+  public HttpClientTransport(CrowdClientConfig config, Executor executor)
+  {
+    this(config, Optional.of(Preconditions.checkNotNull(executor, "executor cannot be null")));
+  }
+
+  /**
+   * Constructor.
+   * @param config The configuration.
+   * @param executor The executor used by the client, or absent to create and own one.
+   */
+  private HttpClientTransport(CrowdClientConfig config, Optional<Executor> executor)
+  {
+    this.config = Preconditions.checkNotNull(config, "config cannot be null");
+
+    final Executor clientExecutor;
+    if (executor.isPresent())
+    {
+      clientExecutor = executor.get();
+      this.ownedExecutor = null;
+    }
+    else
+    {
+      this.ownedExecutor = config.getExecutionMode().createExecutor(config.getMaxTotal());
+      clientExecutor = this.ownedExecutor;
+    }
+
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+        .executor(clientExecutor)
+        .build();
+
+    this.closed = new AtomicBoolean(false);
+  }
+
+  /**
+   * Gets the configuration.
+   * @return The configuration.
+   */
+  @Override
+  public CrowdClientConfig getConfig()
+  {
+    return this.config;
+  }
+
+  /**
+   * Sends a request on the calling thread.  The response body is streamed to the handler.
+   * @param request The request.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The result of the handler.
+   * @throws TransportException If the request cannot be sent, the response cannot be received, or the calling
+   *                            thread is interrupted.
+   */
+  @Override
+  public <T> T execute(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+      throws TransportException
+  {
+    Preconditions.checkNotNull(handler, "handler cannot be null");
+
+    final HttpRequest built = build(request);
+    final long started = System.nanoTime();
+    final HttpResponse<InputStream> response;
+    try
+    {
+      response = this.client.send(built, HttpResponse.BodyHandlers.ofInputStream());
+    }
+    catch (IOException e)
+    {
+      throw failed(request, e);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw failed(request, e);
+    }
+
+    try (InputStream body = response.body())
+    {
+      return handler.apply(new JdkResponse(response.statusCode(), body, System.nanoTime() - started));
+    }
+    catch (IOException e)
+    {
+      throw failed(request, e);
+    }
+  }
+
+  /**
+   * Sends a request asynchronously.  No thread is held while waiting for the response; the body is received in
+   * full before it is handed to the handler.  Cancelling the returned future aborts the request.
+   * @param request The request.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The future result of the handler.
+   */
+  @Override
+  public <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                               Function<? super TransportResponse, ? extends T> handler)
+  {
+    Preconditions.checkNotNull(handler, "handler cannot be null");
+
+    final HttpRequest built = build(request);
+    final long started = System.nanoTime();
+    final AtomicLong serverNanos = new AtomicLong(-1);
+    final CompletableFuture<HttpResponse<byte[]>> sent = this.client.sendAsync(built, info -> {
+      serverNanos.set(System.nanoTime() - started);
+      return HttpResponse.BodySubscribers.ofByteArray();
+    });
+    final CompletableFuture<T> future = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        sent.cancel(mayInterruptIfRunning);
+        return cancelled;
+      }
+    };
+
+    sent.whenComplete((response, error) -> {
+      if (error != null)
+      {
+        final Throwable cause = (error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error);
+        future.completeExceptionally(cause instanceof IOException ? failed(request, cause) : cause);
+        return;
+      }
+
+      try
+      {
+        future.complete(handler.apply(new JdkResponse(response.statusCode(),
+                                                      new ByteArrayInputStream(response.body()),
+                                                      serverNanos.get())));
+      }
+      catch (Throwable e)
+      {
+        // complete the future whatever went wrong, so that callers are never left waiting on a dead callback
+        future.completeExceptionally(e);
+        if (e instanceof Error)
+        {
+          throw (Error) e;
+        }
+      }
+    });
+
+    return future;
+  }
+
+  /**
+   * Closes the transport.  Calling this more than once has no effect.  The JDK client's connections are released
+   * once it is no longer referenced.
+   */
+  @Override
+  public void close()
+  {
+    if (this.closed.compareAndSet(false, true) && this.ownedExecutor != null)
+    {
+      this.ownedExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Builds the JDK request.
+   * @param request The request.
+   * @return The JDK request.
+   */
+  private HttpRequest build(TransportRequest request)
+  {
+    Preconditions.checkNotNull(request, "request cannot be null");
+    Preconditions.checkState(! this.closed.get(), "transport has been closed");
+
+    final HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+        .timeout(Duration.ofMillis(this.config.getReadTimeoutMillis()))
+        .header("Accept", request.getAccept());
+
+    for (final Map.Entry<String, String> header : request.getHeaders().entrySet())
+    {
+      builder.header(header.getKey(), header.getValue());
+    }
+
+    if (request.getBody().isPresent())
+    {
+      builder.header("Content-Type", TransportRequest.APPLICATION_JSON)
+          .method(request.getMethod(),
+                  HttpRequest.BodyPublishers.ofString(request.getBody().get(), StandardCharsets.UTF_8));
+    }
+    else
+    {
+      builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Creates the exception reporting a failed request.
+   * @param request The request.
+   * @param cause The underlying failure.
+   * @return The exception.
+   */
+  private static TransportException failed(TransportRequest request, Throwable cause)
+  {
+    return new TransportException(request.getMethod() + " " + request.getUri() + " failed", cause);
+  }
+
+  /**
+   * A response received by the JDK client.
+   */
+  private static class JdkResponse implements TransportResponse
+  {
+    /** The HTTP status code. */
+    private final int status;
+
+    /** The response body. */
+    private final InputStream body;
+
+    /** The time from sending the request to receiving the response headers, in nanoseconds. */
+    private final long serverNanos;
+
+    /**
+     * Constructor.
+     * @param status The HTTP status code.
+     * @param body The response body.
+     * @param serverNanos The time from sending the request to receiving the response headers, in nanoseconds.
+     */
+    private JdkResponse(int status, InputStream body, long serverNanos)
+    {
+      this.status = status;
+      this.body = body;
+      this.serverNanos = serverNanos;
+    }
+
+    @Override
+    public int getStatus()
+    {
+      return this.status;
+    }
+
+    @Override
+    public InputStream getBody()
+    {
+      return this.body;
+    }
+
+    /**
+     * Gets the time from sending the request to receiving the response headers.  The JDK client does not expose
+     * its connection handling, so this includes any time spent connecting.
+     * @return The time in nanoseconds.
+     */
+    @Override
+    public long getServerNanos()
+    {
+      return this.serverNanos;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionRequest;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A handle on the connection used by a single HTTP request, allowing the request to be aborted from another thread.
+ * Aborting cancels a pending pool lease, or shuts down the leased connection so that a blocked read or write fails
+ * immediately.
+ * <p>
+ * State is guarded by an explicit lock rather than by {@code synchronized}, so that a request running on a virtual
+ * thread is never pinned to its carrier thread.
+ */
+@ThreadSafe
+class InFlightRequest
+{
+  /** Guards the state. */
+  private final Lock lock = new ReentrantLock();
+
+  /** The pending connection lease, if any. */
+  @GuardedBy("lock")
+  private ConnectionRequest lease;
+
+  /** The leased connection, if any. */
+  @GuardedBy("lock")
+  private HttpClientConnection connection;
+
+  /** Has the request been aborted? */
+  @GuardedBy("lock")
+  private boolean aborted;
+
+  /**
+   * Records the pending connection lease.
+   * @param lease The lease.
+   */
+  void leasing(ConnectionRequest lease)
+  {
+    this.lock.lock();
+    try
+    {
+      this.lease = lease;
+
+      if (this.aborted)
+      {
+        lease.cancel();
+      }
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Records the leased connection.  If the request has already been aborted, the connection is shut down.
+   * @param connection The connection.
+   */
+  void leased(HttpClientConnection connection)
+  {
+    this.lock.lock();
+    try
+    {
+      this.lease = null;
+      this.connection = connection;
+
+      if (this.aborted)
+      {
+        shutdown(connection);
+      }
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Is the request aborted?
+   * @return True if the request has been aborted.
+   */
+  boolean isAborted()
+  {
+    this.lock.lock();
+    try
+    {
+      return this.aborted;
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Aborts the request.  Calling this more than once has no effect.
+   */
+  void abort()
+  {
+    this.lock.lock();
+    try
+    {
+      if (! this.aborted)
+      {
+        this.aborted = true;
+
+        if (this.lease != null)
+        {
+          this.lease.cancel();
+        }
+
+        if (this.connection != null)
+        {
+          shutdown(this.connection);
+        }
+      }
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Shuts down the given connection, ignoring any error.
+   * @param connection The connection.
+   */
+  private static void shutdown(HttpClientConnection connection)
+  {
+    try
+    {
+      connection.shutdown();
+    }
+    catch (IOException e)
+    {
+      // the connection is being discarded, so there is nothing more to do
+    }
+  }
+}
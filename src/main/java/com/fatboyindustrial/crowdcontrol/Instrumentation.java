@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.metrics.MetricsSink;
+import com.fatboyindustrial.crowdcontrol.metrics.Phase;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Records an interactor's calls to a {@link MetricsSink}: the latency of each phase of every response, its status
+ * and the reason for any error, and calls that fail because Crowd cannot be reached.  Nothing is allocated per call
+ * beyond what the call itself allocates.
+ * @param <V> The type of a successful result.
+ * @param <E> The type of an error.
+ */
+@ThreadSafe
+class Instrumentation<V, E>
+{
+  /** The sink the measurements are recorded to. */
+  private final MetricsSink metrics;
+
+  /** Decodes a response. */
+  private final Function<TransportResponse, Either<V, E>> decoder;
+
+  /** Gets the reason for an error. */
+  private final Function<? super E, String> reason;
+
+  /** The instrumented response handler. */
+  private final Function<TransportResponse, Either<V, E>> handler;
+
+  /**
+   * Constructor.
+   * @param metrics The sink the measurements are recorded to.
+   * @param decoder Decodes a response.
+   * @param reason Gets the reason for an error.
+   */
+  Instrumentation(MetricsSink metrics, Function<TransportResponse, Either<V, E>> decoder,
+                  Function<? super E, String> reason)
+  {
+    this.metrics = Preconditions.checkNotNull(metrics, "metrics cannot be null");
+    this.decoder = Preconditions.checkNotNull(decoder, "decoder cannot be null");
+    this.reason = Preconditions.checkNotNull(reason, "reason cannot be null");
+    this.handler = this::decode;
+  }
+
+  /**
+   * Gets the sink the measurements are recorded to.
+   * @return The sink.
+   */
+  MetricsSink getMetrics()
+  {
+    return this.metrics;
+  }
+
+  /**
+   * Gets the response handler, which records each response as it decodes it.
+   * @return The handler.
+   */
+  Function<TransportResponse, Either<V, E>> handler()
+  {
+    return this.handler;
+  }
+
+  /**
+   * Records a call that failed because Crowd could not be reached, and returns the exception to rethrow.
+   * @param e The failure.
+   * @return The failure.
+   */
+  TransportException failed(TransportException e)
+  {
+    this.metrics.recordError(MetricsSink.TRANSPORT_FAILURE);
+    return e;
+  }
+
+  /**
+   * Records the failure of an asynchronous call, should it fail because Crowd cannot be reached.
+   * @param future The future result of the call.
+   * @return The same future.
+   */
+  CompletableFuture<Either<V, E>> watch(CompletableFuture<Either<V, E>> future)
+  {
+    future.whenComplete((result, error) -> {
+      final Throwable cause = (error instanceof CompletionException ? error.getCause() : error);
+      if (cause instanceof TransportException)
+      {
+        this.metrics.recordError(MetricsSink.TRANSPORT_FAILURE);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Records an error result produced without a response from Crowd.
+   * @param error The error.
+   * @return The result.
+   */
+  Either<V, E> error(E error)
+  {
+    this.metrics.recordError(this.reason.apply(error));
+    return Either.error(error);
+  }
+
+  /**
+   * Decodes a response, recording its phase latencies, its status and the reason for any error.
+   * @param response The response.
+   * @return The decoded result.
+   */
+  private Either<V, E> decode(TransportResponse response)
+  {
+    record(Phase.POOL_WAIT, response.getPoolWaitNanos());
+    record(Phase.CONNECT, response.getConnectNanos());
+    record(Phase.SERVER, response.getServerNanos());
+    this.metrics.recordStatus(response.getStatus());
+
+    final long started = System.nanoTime();
+    final Either<V, E> result = this.decoder.apply(response);
+    this.metrics.recordLatency(Phase.DESERIALISATION, System.nanoTime() - started);
+
+    if (result.isError())
+    {
+      this.metrics.recordError(this.reason.apply(result.getError()));
+    }
+    return result;
+  }
+
+  /**
+   * Records the latency of a phase, if the transport measured it.
+   * @param phase The phase.
+   * @param nanos The latency in nanoseconds, or a negative value if it was not measured.
+   */
+  private void record(Phase phase, long nanos)
+  {
+    if (nanos >= 0)
+    {
+      this.metrics.recordLatency(phase, nanos);
+    }
+  }
+}
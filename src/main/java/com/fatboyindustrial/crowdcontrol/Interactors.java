@@ -23,6 +23,8 @@
 
 package com.fatboyindustrial.crowdcontrol;
 
+import com.fatboyindustrial.crowdcontrol.metrics.MetricsSink;
+
 import javax.annotation.concurrent.Immutable;
 
 /**
@@ -54,4 +56,237 @@ public class Interactors
   {
     return new GroupInteractor(baseUrl, appName, appPassword);
   }
+
+  /**
+   * Creates a user groups interactor, useful for checking a user's membership of many groups at once.
+   * @param baseUrl The Crowd base URL.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @return The interactor.
+   */
+  public static UserGroupsInteractor checkUserGroups(String baseUrl, String appName, String appPassword)
+  {
+    return new UserGroupsInteractor(baseUrl, appName, appPassword);
+  }
+
+  /**
+   * Creates a directory interactor, useful for reading the directory in bulk and following its event feed.
+   * @param baseUrl The Crowd base URL.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @return The interactor.
+   */
+  public static DirectoryInteractor directory(String baseUrl, String appName, String appPassword)
+  {
+    return new DirectoryInteractor(baseUrl, appName, appPassword);
+  }
+
+  /**
+   * Creates a search interactor, useful for finding users and groups with CQL restrictions.
+   * @param baseUrl The Crowd base URL.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @return The interactor.
+   */
+  public static SearchInteractor search(String baseUrl, String appName, String appPassword)
+  {
+    return new SearchInteractor(baseUrl, appName, appPassword);
+  }
+
+  /**
+   * Creates a session interactor, useful for creating and validating SSO sessions.
+   * @param baseUrl The Crowd base URL.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @return The interactor.
+   */
+  public static SessionInteractor session(String baseUrl, String appName, String appPassword)
+  {
+    return new SessionInteractor(baseUrl, appName, appPassword);
+  }
+
+  /**
+   * Creates a pooled HTTP client that can be shared between interactors.  The caller is responsible for closing it.
+   * @param baseUrl The Crowd base URL.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The connection pool configuration.
+   * @return The client.
+   */
+  public static CrowdClient client(String baseUrl, String appName, String appPassword, CrowdClientConfig config)
+  {
+    return new CrowdClient(baseUrl, appName, appPassword, config);
+  }
+
+  /**
+   * Creates an HTTP client that sends requests with the given transport, and can be shared between interactors.
+   * The caller is responsible for closing it; closing it closes the transport.
+   * @param baseUrl The Crowd base URL.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param transport The transport, such as an {@link HttpClientTransport}.
+   * @return The client.
+   */
+  public static CrowdClient client(String baseUrl, String appName, String appPassword, Transport transport)
+  {
+    return new CrowdClient(baseUrl, appName, appPassword, transport);
+  }
+
+  /**
+   * Creates an HTTP client that spreads requests across a cluster of Crowd nodes, failing over between them, and can
+   * be shared between interactors.  The caller is responsible for closing it.
+   * @param cluster The Crowd nodes.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @param config The connection pool configuration.
+   * @return The client.
+   */
+  public static CrowdClient client(Cluster cluster, String appName, String appPassword, CrowdClientConfig config)
+  {
+    return new CrowdClient(cluster, appName, appPassword, config);
+  }
+
+  /**
+   * Creates an authentication interactor that uses a shared client.
+   * @param client The shared client.
+   * @return The interactor.
+   */
+  public static AuthenticationInteractor authentication(CrowdClient client)
+  {
+    return new AuthenticationInteractor(client);
+  }
+
+  /**
+   * Creates an authentication interactor that uses a shared client, and records its calls to the given sink.
+   * @param client The shared client.
+   * @param metrics Receives measurements of each authentication.
+   * @return The interactor.
+   */
+  public static AuthenticationInteractor authentication(CrowdClient client, MetricsSink metrics)
+  {
+    return new AuthenticationInteractor(client, metrics);
+  }
+
+  /**
+   * Creates a group interactor that uses a shared client.
+   * @param client The shared client.
+   * @return The interactor.
+   */
+  public static GroupInteractor checkUserGroup(CrowdClient client)
+  {
+    return new GroupInteractor(client);
+  }
+
+  /**
+   * Creates a user groups interactor that uses a shared client.
+   * @param client The shared client.
+   * @return The interactor.
+   */
+  public static UserGroupsInteractor checkUserGroups(CrowdClient client)
+  {
+    return new UserGroupsInteractor(client);
+  }
+
+  /**
+   * Creates a group interactor that uses a shared client and the given membership mode.
+   * @param client The shared client.
+   * @param mode How group membership is determined.
+   * @return The interactor.
+   */
+  public static GroupInteractor checkUserGroup(CrowdClient client, MembershipMode mode)
+  {
+    return new GroupInteractor(client, mode);
+  }
+
+  /**
+   * Creates a group interactor that uses a shared client, the given membership mode and the given retry policy.
+   * @param client The shared client.
+   * @param mode How group membership is determined.
+   * @param retryPolicy How failed or slow lookups are retried and hedged.
+   * @return The interactor.
+   */
+  public static GroupInteractor checkUserGroup(CrowdClient client, MembershipMode mode, RetryPolicy retryPolicy)
+  {
+    return new GroupInteractor(client, mode, retryPolicy);
+  }
+
+  /**
+   * Creates a group interactor that uses a shared client, the given membership mode and the given retry policy,
+   * and records its lookups to the given sink.
+   * @param client The shared client.
+   * @param mode How group membership is determined.
+   * @param retryPolicy How failed or slow lookups are retried and hedged.
+   * @param metrics Receives measurements of each lookup.
+   * @return The interactor.
+   */
+  public static GroupInteractor checkUserGroup(CrowdClient client, MembershipMode mode, RetryPolicy retryPolicy,
+                                               MetricsSink metrics)
+  {
+    return new GroupInteractor(client, mode, retryPolicy, metrics);
+  }
+
+  /**
+   * Creates a user groups interactor that uses a shared client and the given membership mode.
+   * @param client The shared client.
+   * @param mode How group membership is determined.
+   * @return The interactor.
+   */
+  public static UserGroupsInteractor checkUserGroups(CrowdClient client, MembershipMode mode)
+  {
+    return new UserGroupsInteractor(client, mode, UserGroupsInteractor.DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Creates a session interactor that uses a shared client.
+   * @param client The shared client.
+   * @param revalidationMillis The interval (in milliseconds) after which a cached session is revalidated with Crowd.
+   * @return The interactor.
+   */
+  public static SessionInteractor session(CrowdClient client, long revalidationMillis)
+  {
+    return new SessionInteractor(client, revalidationMillis, SessionInteractor.DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Creates a session interactor that uses a shared client and the given retry policy for validations.
+   * @param client The shared client.
+   * @param revalidationMillis The interval (in milliseconds) after which a cached session is revalidated with Crowd.
+   * @param retryPolicy How failed or slow validations are retried and hedged.
+   * @return The interactor.
+   */
+  public static SessionInteractor session(CrowdClient client, long revalidationMillis, RetryPolicy retryPolicy)
+  {
+    return new SessionInteractor(client, revalidationMillis, SessionInteractor.DEFAULT_MAXIMUM_SIZE, retryPolicy);
+  }
+
+  /**
+   * Creates a directory interactor that uses a shared client.
+   * @param client The shared client.
+   * @return The interactor.
+   */
+  public static DirectoryInteractor directory(CrowdClient client)
+  {
+    return new DirectoryInteractor(client);
+  }
+
+  /**
+   * Creates a search interactor that uses a shared client.
+   * @param client The shared client.
+   * @return The interactor.
+   */
+  public static SearchInteractor search(CrowdClient client)
+  {
+    return new SearchInteractor(client);
+  }
+
+  /**
+   * Creates a batch authenticator that uses a shared client.
+   * @param client The shared client.
+   * @param maxConcurrency The maximum number of authentications in flight at once.
+   * @return The batch authenticator.
+   */
+  public static BatchAuthenticator batchAuthentication(CrowdClient client, int maxConcurrency)
+  {
+    return new BatchAuthenticator(new AuthenticationInteractor(client), maxConcurrency);
+  }
 }
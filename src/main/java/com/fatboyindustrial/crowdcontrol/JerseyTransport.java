@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A transport using Jersey over Apache HttpClient, with a bounded keep-alive connection pool.
+ * <p>
+ * Asynchronous requests are run on an executor.  Unless one is supplied, the transport owns one, created according
+ * to the configured {@link ExecutionMode}; platform thread pools are sized to the maximum number of pooled
+ * connections, since no more requests than that can be in flight at once.
+ */
+@ThreadSafe
+public class JerseyTransport implements Transport
+{
+  /** The longest interval between idle connection sweeps, in milliseconds. */
+  private static final long MAX_EVICTION_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  /** The pool configuration. */
+  private final CrowdClientConfig config;
+
+  /** The pooled connection manager. */
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  /** The underlying HTTP client. */
+  private final Client client;
+
+  /** Periodically evicts idle and expired connections from the pool. */
+  private final ScheduledExecutorService evictor;
+
+  /** The executor used to run asynchronous requests. */
+  private final Executor executor;
+
+  /** The executor owned (and therefore shut down) by this transport, if any. */
+  private final ExecutorService ownedExecutor;
+
+  /** Has this transport been closed? */
+  private final AtomicBoolean closed;
+
+  /**
+   * Constructor.
+   * @param config The pool configuration.
+   */
+  public JerseyTransport(CrowdClientConfig config)
+  {
+    this(config, Optional.<Executor>absent());
+  }
+
+  /**
+   * Constructor.
+   * @param config The pool configuration.
+   * @param executor The executor used to run asynchronous requests.  It is not shut down when the transport is
+   *                 closed.
+   */
+  public JerseyTransport(CrowdClientConfig config, Executor executor)
+  {
+    this(config, Optional.of(Preconditions.checkNotNull(executor, "executor cannot be null")));
+  }
+
+  /**
+   * Constructor.
+   * @param config The pool configuration.
+   * @param executor The executor used to run asynchronous requests, or absent to create and own one.
+   */
+  private JerseyTransport(CrowdClientConfig config, Optional<Executor> executor)
+  {
+    this.config = Preconditions.checkNotNull(config, "config cannot be null");
+
+    this.connectionManager = new PoolingHttpClientConnectionManager();
+    this.connectionManager.setMaxTotal(config.getMaxTotal());
+    this.connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+
+    final ClientConfig clientConfig = new ClientConfig()
+        .connectorProvider(new ApacheConnectorProvider())
+        .property(ApacheClientProperties.CONNECTION_MANAGER, new AbortableConnectionManager(this.connectionManager))
+        .property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom()
+            .setConnectionRequestTimeout(Ints.saturatedCast(config.getPoolTimeoutMillis()))
+            .build())
+        .property(ClientProperties.CONNECT_TIMEOUT, Ints.saturatedCast(config.getConnectTimeoutMillis()))
+        .property(ClientProperties.READ_TIMEOUT, Ints.saturatedCast(config.getReadTimeoutMillis()));
+
+    this.client = ClientBuilder.newClient(clientConfig);
+
+    this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("crowd-control-evictor-%d")
+        .setDaemon(true)
+        .build());
+
+    final long interval = Math.min(config.getIdleTimeoutMillis(), MAX_EVICTION_INTERVAL_MILLIS);
+    this.evictor.scheduleWithFixedDelay(this::evictIdleConnections, interval, interval, TimeUnit.MILLISECONDS);
+
+    if (executor.isPresent())
+    {
+      this.executor = executor.get();
+      this.ownedExecutor = null;
+    }
+    else
+    {
+      this.ownedExecutor = config.getExecutionMode().createExecutor(config.getMaxTotal());
+      this.executor = this.ownedExecutor;
+    }
+
+    this.closed = new AtomicBoolean(false);
+  }
+
+  /**
+   * Gets the pool configuration.
+   * @return The configuration.
+   */
+  @Override
+  public CrowdClientConfig getConfig()
+  {
+    return this.config;
+  }
+
+  /**
+   * Sends a request on the calling thread.
+   * @param request The request.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The result of the handler.
+   * @throws TransportException If the request cannot be sent, or the response cannot be received.
+   */
+  @Override
+  public <T> T execute(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+      throws TransportException
+  {
+    Preconditions.checkNotNull(request, "request cannot be null");
+    Preconditions.checkNotNull(handler, "handler cannot be null");
+    Preconditions.checkState(! this.closed.get(), "transport has been closed");
+
+    final Invocation.Builder builder = this.client.target(request.getUri()).request(request.getAccept());
+    for (final Map.Entry<String, String> header : request.getHeaders().entrySet())
+    {
+      builder.header(header.getKey(), header.getValue());
+    }
+
+    final AbortableConnectionManager.Timings timings = AbortableConnectionManager.startTiming();
+    final long started = System.nanoTime();
+    final Response response;
+    try
+    {
+      response = (request.getBody().isPresent()
+          ? builder.method(request.getMethod(),
+                           Entity.entity(request.getBody().get(), TransportRequest.APPLICATION_JSON))
+          : builder.method(request.getMethod()));
+    }
+    catch (ProcessingException e)
+    {
+      throw new TransportException(request.getMethod() + " " + request.getUri() + " failed", e);
+    }
+
+    final long poolWaitNanos = timings.getPoolWaitNanos();
+    final long connectNanos = timings.getConnectNanos();
+    final long serverNanos = System.nanoTime() - started - poolWaitNanos - connectNanos;
+
+    try
+    {
+      return handler.apply(new JerseyResponse(response, poolWaitNanos, connectNanos, serverNanos));
+    }
+    finally
+    {
+      response.close();
+    }
+  }
+
+  /**
+   * Sends a request asynchronously, on the executor.  Cancelling the returned future aborts the request: if it has
+   * not yet started it is never sent, if it is waiting for a pooled connection the wait is cancelled, and if it is
+   * in flight its connection is shut down.
+   * @param request The request.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The future result of the handler.
+   */
+  @Override
+  public <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                               Function<? super TransportResponse, ? extends T> handler)
+  {
+    Preconditions.checkNotNull(request, "request cannot be null");
+    Preconditions.checkNotNull(handler, "handler cannot be null");
+
+    final InFlightRequest inFlight = new InFlightRequest();
+    final CompletableFuture<T> future = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        inFlight.abort();
+        return cancelled;
+      }
+    };
+
+    try
+    {
+      this.executor.execute(() -> {
+        if (future.isDone())
+        {
+          return;
+        }
+
+        AbortableConnectionManager.bind(inFlight);
+        try
+        {
+          future.complete(execute(request, handler));
+        }
+        catch (Throwable e)
+        {
+          // complete the future whatever went wrong, so that callers are never left waiting on a dead worker
+          future.completeExceptionally(e);
+          if (e instanceof Error)
+          {
+            throw (Error) e;
+          }
+        }
+        finally
+        {
+          AbortableConnectionManager.unbind();
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      future.completeExceptionally(e);
+    }
+
+    return future;
+  }
+
+  /**
+   * Closes expired connections and those that have been idle for longer than the configured idle timeout.
+   */
+  private void evictIdleConnections()
+  {
+    this.connectionManager.closeExpiredConnections();
+    this.connectionManager.closeIdleConnections(this.config.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Closes the transport, releasing all pooled connections.  Calling this more than once has no effect.
+   */
+  @Override
+  public void close()
+  {
+    if (this.closed.compareAndSet(false, true))
+    {
+      this.evictor.shutdownNow();
+      if (this.ownedExecutor != null)
+      {
+        this.ownedExecutor.shutdownNow();
+      }
+      this.client.close();
+      this.connectionManager.shutdown();
+    }
+  }
+
+  /**
+   * A Jersey response.
+   */
+  private static class JerseyResponse implements TransportResponse
+  {
+    /** The underlying response. */
+    private final Response response;
+
+    /** The time spent waiting for a pooled connection, in nanoseconds. */
+    private final long poolWaitNanos;
+
+    /** The time spent establishing a connection, in nanoseconds. */
+    private final long connectNanos;
+
+    /** The time from sending the request to receiving the response headers, in nanoseconds. */
+    private final long serverNanos;
+
+    /**
+     * Constructor.
+     * @param response The underlying response.
+     * @param poolWaitNanos The time spent waiting for a pooled connection, in nanoseconds.
+     * @param connectNanos The time spent establishing a connection, in nanoseconds.
+     * @param serverNanos The time from sending the request to receiving the response headers, in nanoseconds.
+     */
+    private JerseyResponse(Response response, long poolWaitNanos, long connectNanos, long serverNanos)
+    {
+      this.response = response;
+      this.poolWaitNanos = poolWaitNanos;
+      this.connectNanos = connectNanos;
+      this.serverNanos = serverNanos;
+    }
+
+    @Override
+    public int getStatus()
+    {
+      return this.response.getStatus();
+    }
+
+    @Override
+    public InputStream getBody()
+    {
+      return (this.response.hasEntity()
+          ? this.response.readEntity(InputStream.class)
+          : new ByteArrayInputStream(new byte[0]));
+    }
+
+    @Override
+    public long getPoolWaitNanos()
+    {
+      return this.poolWaitNanos;
+    }
+
+    @Override
+    public long getConnectNanos()
+    {
+      return this.connectNanos;
+    }
+
+    @Override
+    public long getServerNanos()
+    {
+      return this.serverNanos;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazily paged listing of user or group names.
+ * <p>
+ * No request is made until the listing is first iterated.  As soon as a page arrives, the request for the following
+ * page is started in the background, so that it is (ideally) ready by the time the caller has processed the current
+ * one.  At most two pages are held at once, however large the listing.  Closing the listing cancels (and aborts) any
+ * outstanding page request.
+ * <p>
+ * If Crowd reports an error fetching a page, iteration throws a {@link ListingException}.
+ */
+@NotThreadSafe
+public final class Listing implements Iterator<String>, AutoCloseable
+{
+  /** Fetches the page starting at the given index. */
+  private final IntFunction<CompletableFuture<Either<NameList, DirectoryError>>> fetch;
+
+  /** The number of names requested per page. */
+  private final int pageSize;
+
+  /** The names of the current page not yet returned. */
+  private Iterator<String> current;
+
+  /** The request for the next page, or null if there is none outstanding. */
+  private CompletableFuture<Either<NameList, DirectoryError>> next;
+
+  /** The start index of the page after the outstanding one. */
+  private int nextStart;
+
+  /** Has the first page been requested, or the listing closed before it was? */
+  private boolean started;
+
+  /**
+   * Constructor.
+   * @param fetch Fetches the page starting at the given index.
+   * @param pageSize The number of names requested per page.
+   */
+  Listing(IntFunction<CompletableFuture<Either<NameList, DirectoryError>>> fetch, int pageSize)
+  {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+
+    this.fetch = Preconditions.checkNotNull(fetch, "fetch cannot be null");
+    this.pageSize = pageSize;
+    this.current = Collections.emptyIterator();
+  }
+
+  /**
+   * Are there more names?  This waits for the next page if the current one is exhausted.
+   * @return True if there are more names.
+   * @throws ListingException If Crowd reports an error fetching the next page.
+   */
+  @Override
+  public boolean hasNext() throws ListingException
+  {
+    if (! this.started)
+    {
+      this.started = true;
+      this.next = this.fetch.apply(0);
+      this.nextStart = this.pageSize;
+    }
+
+    while (! this.current.hasNext())
+    {
+      if (this.next == null)
+      {
+        return false;
+      }
+
+      final Either<NameList, DirectoryError> page = await(this.next);
+      this.next = null;
+
+      if (page.isError())
+      {
+        throw new ListingException(page.getError());
+      }
+
+      if (page.getValue().getNames().size() == this.pageSize)
+      {
+        this.next = this.fetch.apply(this.nextStart);
+        this.nextStart += this.pageSize;
+      }
+
+      this.current = page.getValue().getNames().iterator();
+    }
+
+    return true;
+  }
+
+  /**
+   * Gets the next name.
+   * @return The name.
+   * @throws ListingException If Crowd reports an error fetching the next page.
+   */
+  @Override
+  public String next() throws ListingException
+  {
+    if (! hasNext())
+    {
+      throw new NoSuchElementException();
+    }
+
+    return this.current.next();
+  }
+
+  /**
+   * Gets a sequential stream over the remaining names.  Closing the stream closes the listing.
+   * @return The stream.
+   */
+  public Stream<String> stream()
+  {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                                false)
+        .onClose(this::close);
+  }
+
+  /**
+   * Closes the listing, cancelling any outstanding page request.
+   */
+  @Override
+  public void close()
+  {
+    this.started = true;
+
+    if (this.next != null)
+    {
+      this.next.cancel(true);
+      this.next = null;
+    }
+
+    this.current = Collections.emptyIterator();
+  }
+
+  /**
+   * Waits for a page, unwrapping any failure.
+   * @param page The page request.
+   * @return The page.
+   */
+  private static Either<NameList, DirectoryError> await(CompletableFuture<Either<NameList, DirectoryError>> page)
+  {
+    try
+    {
+      return page.join();
+    }
+    catch (CompletionException e)
+    {
+      if (e.getCause() instanceof RuntimeException)
+      {
+        throw (RuntimeException) e.getCause();
+      }
+
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.google.common.base.Preconditions;
+
+/**
+ * Thrown while iterating a {@link Listing} when Crowd reports an error fetching a page.  Iterators cannot return an
+ * {@link Either}, so the error is carried by this exception instead.
+ */
+public class ListingException extends RuntimeException
+{
+  /** The serialisation version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The error reported by Crowd. */
+  private final DirectoryError error;
+
+  /**
+   * Constructor.
+   * @param error The error reported by Crowd.
+   */
+  public ListingException(DirectoryError error)
+  {
+    super(Preconditions.checkNotNull(error, "error cannot be null").getReason() + ": " + error.getMessage());
+    this.error = error;
+  }
+
+  /**
+   * Gets the error reported by Crowd.
+   * @return The error.
+   */
+  public DirectoryError getError()
+  {
+    return this.error;
+  }
+}
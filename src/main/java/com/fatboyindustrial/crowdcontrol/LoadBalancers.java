@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The built-in {@link LoadBalancer} strategies.
+ */
+public final class LoadBalancers
+{
+  /**
+   * Constructor.  Not used.
+   */
+  private LoadBalancers()
+  {
+  }
+
+  /**
+   * Creates a balancer that takes the nodes in turn.
+   * @return The balancer.
+   */
+  public static LoadBalancer roundRobin()
+  {
+    return new RoundRobin();
+  }
+
+  /**
+   * Creates a balancer that chooses the node with the fewest requests in flight, taking tied nodes in turn.
+   * @return The balancer.
+   */
+  public static LoadBalancer leastOutstanding()
+  {
+    return new LeastOutstanding();
+  }
+
+  /**
+   * Creates a balancer that weighs each node's moving average latency by its requests in flight, and chooses the
+   * cheaper of two nodes picked at random.  Slow nodes receive proportionally less traffic, yet every node keeps
+   * receiving some, so that its latency estimate stays current.
+   * @return The balancer.
+   */
+  public static LoadBalancer latencyWeighted()
+  {
+    return new LatencyWeighted();
+  }
+
+  /**
+   * Takes the nodes in turn.
+   */
+  @ThreadSafe
+  private static class RoundRobin implements LoadBalancer
+  {
+    /** The number of selections made. */
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Node select(List<Node> candidates)
+    {
+      return candidates.get(Math.floorMod(this.next.getAndIncrement(), candidates.size()));
+    }
+  }
+
+  /**
+   * Chooses the node with the fewest requests in flight.
+   */
+  @ThreadSafe
+  private static class LeastOutstanding implements LoadBalancer
+  {
+    /** The number of selections made, used to rotate the starting point so that ties are shared. */
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Node select(List<Node> candidates)
+    {
+      final int start = Math.floorMod(this.next.getAndIncrement(), candidates.size());
+
+      Node best = candidates.get(start);
+      for (int i = 1; i < candidates.size(); i++)
+      {
+        final Node node = candidates.get((start + i) % candidates.size());
+        if (node.getOutstanding() < best.getOutstanding())
+        {
+          best = node;
+        }
+      }
+
+      return best;
+    }
+  }
+
+  /**
+   * Chooses the cheaper of two random nodes, by latency weighted by load.
+   */
+  @ThreadSafe
+  private static class LatencyWeighted implements LoadBalancer
+  {
+    @Override
+    public Node select(List<Node> candidates)
+    {
+      if (candidates.size() == 1)
+      {
+        return candidates.get(0);
+      }
+
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final int first = random.nextInt(candidates.size());
+      final int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+
+      final Node a = candidates.get(first);
+      final Node b = candidates.get(second);
+      final double neutral = meanLatency(candidates);
+      return (cost(a, neutral) <= cost(b, neutral) ? a : b);
+    }
+
+    /**
+     * Gets the mean latency of the nodes that have one, used in place of a latency for nodes yet to complete a
+     * request.  Without it, a new node would seem free and attract every request until its first completed.
+     * @param candidates The candidate nodes.
+     * @return The mean latency in nanoseconds, or one if no node has completed a request.
+     */
+    private static double meanLatency(List<Node> candidates)
+    {
+      double total = 0;
+      int sampled = 0;
+      for (final Node node : candidates)
+      {
+        if (node.getLatencyNanos() > 0)
+        {
+          total += node.getLatencyNanos();
+          sampled++;
+        }
+      }
+
+      return (sampled == 0 ? 1 : total / sampled);
+    }
+
+    /**
+     * Gets the cost of sending a request to a node.
+     * @param node The node.
+     * @param neutral The latency to assume if the node has yet to complete a request.
+     * @return The cost.
+     */
+    private static double cost(Node node, double neutral)
+    {
+      final double latency = node.getLatencyNanos();
+      return (latency > 0 ? latency : neutral) * (node.getOutstanding() + 1);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Reads Crowd's XML membership dump, streaming each membership to a {@link MembershipSink} as it is parsed.  Only
+ * the current element is held in memory, however large the dump.  The dump has the form:
+ * <pre>
+ * &lt;memberships&gt;
+ *   &lt;membership group="staff"&gt;
+ *     &lt;users&gt;&lt;user name="yoss"/&gt;&lt;/users&gt;
+ *     &lt;groups&gt;&lt;group name="engineering"/&gt;&lt;/groups&gt;
+ *   &lt;/membership&gt;
+ * &lt;/memberships&gt;
+ * </pre>
+ */
+@ThreadSafe
+final class MembershipDumpReader
+{
+  /** The StAX factory, configured not to process DTDs or external entities. */
+  private static final XMLInputFactory FACTORY = createFactory();
+
+  /**
+   * Constructor.
+   */
+  private MembershipDumpReader()
+  {
+  }
+
+  /**
+   * Reads a membership dump.  The stream is not closed.
+   * @param in The input stream.
+   * @param sink The sink to receive the memberships.
+   * @throws XMLStreamException If the XML cannot be read.
+   */
+  static void readMemberships(InputStream in, MembershipSink sink) throws XMLStreamException
+  {
+    Preconditions.checkNotNull(in, "in cannot be null");
+    Preconditions.checkNotNull(sink, "sink cannot be null");
+
+    final XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+    try
+    {
+      String group = null;
+      String list = null;
+
+      while (reader.hasNext())
+      {
+        switch (reader.next())
+        {
+          case XMLStreamConstants.START_ELEMENT:
+            final String element = reader.getLocalName();
+            if (element.equals("membership"))
+            {
+              group = attribute(reader, "group");
+              sink.group(group);
+            }
+            else if (group != null && (element.equals("users") || element.equals("groups")))
+            {
+              list = element;
+            }
+            else if (group != null && "users".equals(list) && element.equals("user"))
+            {
+              sink.userMember(group, attribute(reader, "name"));
+            }
+            else if (group != null && "groups".equals(list) && element.equals("group"))
+            {
+              sink.childGroup(group, attribute(reader, "name"));
+            }
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            if (reader.getLocalName().equals("membership"))
+            {
+              group = null;
+              list = null;
+            }
+            else if (reader.getLocalName().equals(list))
+            {
+              list = null;
+            }
+            break;
+
+          default:
+            break;
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads an XML error response.
+   * @param in The input stream.
+   * @return The error.
+   * @throws XMLStreamException If the XML cannot be read.
+   */
+  static DirectoryError readError(InputStream in) throws XMLStreamException
+  {
+    Preconditions.checkNotNull(in, "in cannot be null");
+
+    final XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+    try
+    {
+      String reason = "";
+      String message = "";
+
+      while (reader.hasNext())
+      {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT)
+        {
+          if (reader.getLocalName().equals("reason"))
+          {
+            reason = reader.getElementText();
+          }
+          else if (reader.getLocalName().equals("message"))
+          {
+            message = reader.getElementText();
+          }
+        }
+      }
+
+      return new DirectoryError(reason, message);
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /**
+   * Gets a required attribute of the current element.
+   * @param reader The reader, positioned at a start element.
+   * @param name The attribute name.
+   * @return The attribute value.
+   * @throws XMLStreamException If the attribute is missing.
+   */
+  private static String attribute(XMLStreamReader reader, String name) throws XMLStreamException
+  {
+    final String value = reader.getAttributeValue(null, name);
+    if (value == null)
+    {
+      throw new XMLStreamException("<" + reader.getLocalName() + "> has no " + name + " attribute",
+                                   reader.getLocation());
+    }
+
+    return value;
+  }
+
+  /**
+   * Creates the StAX factory.
+   * @return The factory.
+   */
+  private static XMLInputFactory createFactory()
+  {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
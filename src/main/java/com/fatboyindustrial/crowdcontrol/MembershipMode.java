@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+/**
+ * How group membership is determined.
+ */
+public enum MembershipMode
+{
+  /** Only direct membership counts. */
+  DIRECT("direct"),
+
+  /** Membership is transitive: a member of a group is also a member of every group that contains it. */
+  NESTED("nested");
+
+  /** The path segment Crowd uses for this mode. */
+  private final String path;
+
+  /**
+   * Constructor.
+   * @param path The path segment Crowd uses for this mode.
+   */
+  MembershipMode(String path)
+  {
+    this.path = path;
+  }
+
+  /**
+   * Gets the path segment Crowd uses for this mode.
+   * @return The path segment.
+   */
+  String getPath()
+  {
+    return this.path;
+  }
+}
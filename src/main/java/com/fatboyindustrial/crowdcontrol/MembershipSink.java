@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+/**
+ * Receives group memberships as they are read, so that the whole directory never needs to be held as a single
+ * response object.  Every group is reported by {@link #group} before its members.
+ */
+public interface MembershipSink
+{
+  /**
+   * Receives a group.
+   * @param groupname The group name.
+   */
+  void group(String groupname);
+
+  /**
+   * Receives a direct user membership.
+   * @param groupname The group name.
+   * @param username The name of the user that is a direct member of the group.
+   */
+  void userMember(String groupname, String username);
+
+  /**
+   * Receives a direct group membership.
+   * @param groupname The group name.
+   * @param childGroupname The name of the group that is a direct child of the group.
+   */
+  void childGroup(String groupname, String childGroupname);
+}
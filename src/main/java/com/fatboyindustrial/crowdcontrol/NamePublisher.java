@@ -0,0 +1,298 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A reactive, paged listing of user or group names.
+ * <p>
+ * Each subscription fetches pages only in response to demand, and asks Crowd for no more names than are currently
+ * requested (up to the page size), so names are never buffered beyond the subscriber's demand.  At most one page
+ * request is outstanding per subscription; cancelling the subscription cancels (and aborts) it.  If Crowd reports an
+ * error, the subscriber receives a {@link ListingException}.
+ */
+@ThreadSafe
+final class NamePublisher implements Flow.Publisher<String>
+{
+  /** Fetches the names starting at the given index, up to the given maximum. */
+  private final PageFetcher fetch;
+
+  /** The largest number of names requested at once. */
+  private final int pageSize;
+
+  /**
+   * Constructor.
+   * @param fetch Fetches the names starting at the given index, up to the given maximum.
+   * @param pageSize The largest number of names requested at once.
+   */
+  NamePublisher(PageFetcher fetch, int pageSize)
+  {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+
+    this.fetch = Preconditions.checkNotNull(fetch, "fetch cannot be null");
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Subscribes to the names.  Each subscription lists the names afresh.
+   * @param subscriber The subscriber.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super String> subscriber)
+  {
+    Preconditions.checkNotNull(subscriber, "subscriber cannot be null");
+
+    final NameSubscription subscription = new NameSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  /**
+   * Fetches one page of names.
+   */
+  interface PageFetcher
+  {
+    /**
+     * Fetches one page of names.
+     * @param startIndex The index of the first name.
+     * @param maxResults The maximum number of names.
+     * @return The future page, or the error.
+     */
+    CompletableFuture<Either<NameList, DirectoryError>> fetch(int startIndex, int maxResults);
+  }
+
+  /**
+   * The state of one subscription.  All signals to the subscriber are made from {@link #drain}, which is entered by
+   * one thread at a time.
+   */
+  private final class NameSubscription implements Flow.Subscription
+  {
+    /** The subscriber. */
+    private final Flow.Subscriber<? super String> subscriber;
+
+    /** The number of names requested but not yet delivered. */
+    private final AtomicLong demand = new AtomicLong();
+
+    /** The number of pending calls to drain; only the caller that raises it from zero drains. */
+    private final AtomicInteger work = new AtomicInteger();
+
+    /** The names fetched but not yet delivered (only accessed while draining). */
+    private final Queue<String> buffer = new ArrayDeque<>();
+
+    /** The index of the next name to fetch (only accessed while draining). */
+    private int nextStart;
+
+    /** The maximum number of names asked for by the outstanding fetch (only accessed while draining). */
+    private int asked;
+
+    /** Has the last page been fetched (only accessed while draining)? */
+    private boolean exhausted;
+
+    /** Has the subscriber received a terminal signal (only accessed while draining)? */
+    private boolean terminated;
+
+    /** The outstanding page fetch, if any. */
+    private volatile CompletableFuture<Either<NameList, DirectoryError>> pending;
+
+    /** The result of the outstanding fetch, once it has arrived. */
+    private volatile Either<NameList, DirectoryError> arrived;
+
+    /** The failure of the outstanding fetch, once it has arrived. */
+    private volatile Throwable failure;
+
+    /** An invalid request, to be reported to the subscriber. */
+    private volatile IllegalArgumentException invalidRequest;
+
+    /** Has the subscription been cancelled? */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor.
+     * @param subscriber The subscriber.
+     */
+    private NameSubscription(Flow.Subscriber<? super String> subscriber)
+    {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n)
+    {
+      if (n <= 0)
+      {
+        this.invalidRequest = new IllegalArgumentException("request must be positive: " + n);
+      }
+      else
+      {
+        this.demand.accumulateAndGet(n, (current, added) -> (current + added < 0 ? Long.MAX_VALUE : current + added));
+      }
+
+      drain();
+    }
+
+    @Override
+    public void cancel()
+    {
+      this.cancelled = true;
+
+      final CompletableFuture<Either<NameList, DirectoryError>> outstanding = this.pending;
+      if (outstanding != null)
+      {
+        outstanding.cancel(true);
+      }
+
+      drain();
+    }
+
+    /**
+     * Delivers buffered names against demand, and fetches the next page when the buffer is empty.
+     */
+    private void drain()
+    {
+      if (this.work.getAndIncrement() != 0)
+      {
+        return;
+      }
+
+      do
+      {
+        if (this.cancelled || this.terminated)
+        {
+          this.buffer.clear();
+          continue;
+        }
+
+        if (this.invalidRequest != null)
+        {
+          terminate();
+          this.subscriber.onError(this.invalidRequest);
+          continue;
+        }
+
+        if (this.failure != null)
+        {
+          terminate();
+          this.subscriber.onError(this.failure);
+          continue;
+        }
+
+        final Either<NameList, DirectoryError> page = this.arrived;
+        if (page != null)
+        {
+          this.arrived = null;
+          this.pending = null;
+
+          if (page.isError())
+          {
+            terminate();
+            this.subscriber.onError(new ListingException(page.getError()));
+            continue;
+          }
+
+          this.buffer.addAll(page.getValue().getNames());
+          this.nextStart += page.getValue().getNames().size();
+          this.exhausted = (page.getValue().getNames().size() < this.asked);
+        }
+
+        while (this.demand.get() > 0 && ! this.buffer.isEmpty() && ! this.cancelled)
+        {
+          this.demand.decrementAndGet();
+          this.subscriber.onNext(this.buffer.remove());
+        }
+
+        if (this.buffer.isEmpty() && this.exhausted && ! this.cancelled)
+        {
+          terminate();
+          this.subscriber.onComplete();
+        }
+        else if (this.buffer.isEmpty() && this.pending == null && this.demand.get() > 0 && ! this.cancelled)
+        {
+          fetchNext();
+        }
+      }
+      while (this.work.decrementAndGet() != 0);
+    }
+
+    /**
+     * Starts fetching the next page, asking for no more names than are currently requested.
+     */
+    private void fetchNext()
+    {
+      this.asked = (int) Math.min(this.demand.get(), NamePublisher.this.pageSize);
+
+      final CompletableFuture<Either<NameList, DirectoryError>> next;
+      try
+      {
+        next = NamePublisher.this.fetch.fetch(this.nextStart, this.asked);
+      }
+      catch (Throwable e)
+      {
+        // request must return normally, so a fetch that fails to start is reported on the next pass of the drain
+        this.failure = e;
+        drain();
+        return;
+      }
+
+      this.pending = next;
+
+      next.whenComplete((page, error) -> {
+        if (error != null)
+        {
+          this.failure = error;
+        }
+        else
+        {
+          this.arrived = page;
+        }
+
+        drain();
+      });
+    }
+
+    /**
+     * Marks the subscription as terminated, releasing any buffered names.
+     */
+    private void terminate()
+    {
+      this.terminated = true;
+      this.buffer.clear();
+
+      final CompletableFuture<Either<NameList, DirectoryError>> outstanding = this.pending;
+      if (outstanding != null)
+      {
+        outstanding.cancel(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One Crowd node in a {@link Cluster}, with the statistics used to balance load across nodes and to track its health
+ * passively, from the outcome of the requests sent to it.
+ */
+@ThreadSafe
+public final class Node
+{
+  /** The weight given to each new latency sample in the moving average. */
+  private static final double LATENCY_DECAY = 0.2;
+
+  /** The base URL of the node. */
+  private final String baseUrl;
+
+  /** The base URI of the node, ending with a slash so that relative paths resolve beneath it. */
+  private final URI base;
+
+  /** The number of requests in flight to the node. */
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  /** The bits of the exponentially weighted moving average latency, in nanoseconds (a double). */
+  private final AtomicLong latencyBits = new AtomicLong(Double.doubleToLongBits(0));
+
+  /** The number of consecutive failures. */
+  @GuardedBy("this")
+  private int consecutiveFailures;
+
+  /** The ticker reading at which the node is readmitted, if it is ejected. */
+  @GuardedBy("this")
+  private long ejectedUntil;
+
+  /** Is the node ejected? */
+  @GuardedBy("this")
+  private boolean ejected;
+
+  /**
+   * Constructor.
+   * @param baseUrl The base URL of the node.
+   */
+  Node(String baseUrl)
+  {
+    this.baseUrl = Preconditions.checkNotNull(baseUrl, "baseUrl cannot be null");
+    this.base = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + '/');
+  }
+
+  /**
+   * Gets the base URL of the node.
+   * @return The base URL.
+   */
+  public String getBaseUrl()
+  {
+    return this.baseUrl;
+  }
+
+  /**
+   * Gets the number of requests in flight to the node.
+   * @return The number of outstanding requests.
+   */
+  public int getOutstanding()
+  {
+    return this.outstanding.get();
+  }
+
+  /**
+   * Gets the exponentially weighted moving average latency of the node's requests.
+   * @param unit The unit of the result.
+   * @return The average latency, or zero if no request has completed.
+   */
+  public long getLatency(TimeUnit unit)
+  {
+    return unit.convert((long) getLatencyNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the number of consecutive failed requests to the node.
+   * @return The number of consecutive failures.
+   */
+  public synchronized int getConsecutiveFailures()
+  {
+    return this.consecutiveFailures;
+  }
+
+  /**
+   * Gets the moving average latency.
+   * @return The average latency, in nanoseconds.
+   */
+  double getLatencyNanos()
+  {
+    return Double.longBitsToDouble(this.latencyBits.get());
+  }
+
+  /**
+   * Resolves a relative request URI against the node's base.
+   * @param relative The relative URI.
+   * @return The absolute URI.
+   */
+  URI resolve(URI relative)
+  {
+    return this.base.resolve(relative);
+  }
+
+  /**
+   * Is the node available to receive requests?  An ejected node becomes available again once its ejection ends,
+   * when it is given a trial request; if that fails, it is ejected again at once.
+   * @param now The current ticker reading, in nanoseconds.
+   * @return True if the node is not ejected.
+   */
+  synchronized boolean isAvailable(long now)
+  {
+    return (! this.ejected || now - this.ejectedUntil >= 0);
+  }
+
+  /**
+   * Gets the ticker reading at which an ejected node is readmitted.
+   * @return The readmission time, in nanoseconds.
+   */
+  synchronized long getEjectedUntil()
+  {
+    return this.ejectedUntil;
+  }
+
+  /**
+   * Records that a request to the node has started.
+   */
+  void started()
+  {
+    this.outstanding.incrementAndGet();
+  }
+
+  /**
+   * Records that a request to the node succeeded.
+   * @param latencyNanos The time the request took, in nanoseconds.
+   */
+  void succeeded(long latencyNanos)
+  {
+    this.outstanding.decrementAndGet();
+    this.latencyBits.getAndUpdate(bits -> {
+      final double average = Double.longBitsToDouble(bits);
+      return Double.doubleToLongBits(average == 0 ? latencyNanos : average + LATENCY_DECAY * (latencyNanos - average));
+    });
+
+    synchronized (this)
+    {
+      this.consecutiveFailures = 0;
+      this.ejected = false;
+    }
+  }
+
+  /**
+   * Records that a request to the node was cancelled before it completed.  This says nothing about the node's health.
+   */
+  void cancelled()
+  {
+    this.outstanding.decrementAndGet();
+  }
+
+  /**
+   * Records that a request to the node failed, ejecting the node if it has failed too many times in a row.
+   * @param now The current ticker reading, in nanoseconds.
+   * @param ejectAfterFailures The number of consecutive failures after which the node is ejected.
+   * @param ejectionNanos How long the node is ejected for, in nanoseconds.
+   */
+  void failed(long now, int ejectAfterFailures, long ejectionNanos)
+  {
+    this.outstanding.decrementAndGet();
+
+    synchronized (this)
+    {
+      this.consecutiveFailures++;
+      if (this.consecutiveFailures >= ejectAfterFailures)
+      {
+        this.ejected = true;
+        this.ejectedUntil = now + ejectionNanos;
+      }
+    }
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "Node{" +
+           "baseUrl='" + this.baseUrl + '\'' +
+           ", outstanding=" + this.outstanding.get() +
+           ", latencyNanos=" + (long) getLatencyNanos() +
+           ", consecutiveFailures=" + getConsecutiveFailures() +
+           '}';
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A Crowd REST resource, from which requests are built.  Like a JAX-RS web target, it is immutable: adding a path
+ * segment or query parameter creates a new resource.
+ */
+@Immutable
+final class Resource
+{
+  /** The resource path, relative to the Crowd base URL, without its query. */
+  private final String url;
+
+  /** The query parameters, in order. */
+  private final ImmutableList<Map.Entry<String, String>> query;
+
+  /** The headers sent with every request (such as {@code Authorization}). */
+  private final ImmutableMap<String, String> headers;
+
+  /**
+   * Constructor.
+   * @param url The resource path, relative to the Crowd base URL, without its query.
+   * @param query The query parameters, in order.
+   * @param headers The headers sent with every request.
+   */
+  Resource(String url, ImmutableList<Map.Entry<String, String>> query, ImmutableMap<String, String> headers)
+  {
+    this.url = Preconditions.checkNotNull(url, "url cannot be null");
+    this.query = Preconditions.checkNotNull(query, "query cannot be null");
+    this.headers = Preconditions.checkNotNull(headers, "headers cannot be null");
+  }
+
+  /**
+   * Creates a resource with a path segment appended.  The segment is encoded.
+   * @param segment The path segment.
+   * @return The new resource.
+   */
+  Resource path(String segment)
+  {
+    Preconditions.checkNotNull(segment, "segment cannot be null");
+    return new Resource(this.url + '/' + encode(segment), this.query, this.headers);
+  }
+
+  /**
+   * Creates a resource with a query parameter added.  The value is encoded.
+   * @param name The parameter name.
+   * @param value The parameter value.
+   * @return The new resource.
+   */
+  Resource queryParam(String name, Object value)
+  {
+    Preconditions.checkNotNull(name, "name cannot be null");
+    Preconditions.checkNotNull(value, "value cannot be null");
+
+    return new Resource(this.url,
+                        ImmutableList.<Map.Entry<String, String>>builder()
+                            .addAll(this.query)
+                            .add(Maps.immutableEntry(name, value.toString()))
+                            .build(),
+                        this.headers);
+  }
+
+  /**
+   * Builds a GET request accepting JSON.
+   * @return The request.
+   */
+  TransportRequest get()
+  {
+    return get(TransportRequest.APPLICATION_JSON);
+  }
+
+  /**
+   * Builds a GET request.
+   * @param accept The media type accepted in the response.
+   * @return The request.
+   */
+  TransportRequest get(String accept)
+  {
+    return new TransportRequest("GET", toUri(), accept, this.headers, Optional.<String>absent());
+  }
+
+  /**
+   * Builds a POST request of a JSON body, accepting JSON.
+   * @param json The request body.
+   * @return The request.
+   */
+  TransportRequest post(String json)
+  {
+    return post(json, false);
+  }
+
+  /**
+   * Builds a POST request of a JSON body, accepting JSON.
+   * @param json The request body.
+   * @param idempotent May the request be sent more than once?
+   * @return The request.
+   */
+  TransportRequest post(String json, boolean idempotent)
+  {
+    Preconditions.checkNotNull(json, "json cannot be null");
+    return new TransportRequest("POST", toUri(), TransportRequest.APPLICATION_JSON, this.headers, Optional.of(json),
+                                idempotent);
+  }
+
+  /**
+   * Builds a DELETE request, accepting JSON.
+   * @return The request.
+   */
+  TransportRequest delete()
+  {
+    return new TransportRequest("DELETE", toUri(), TransportRequest.APPLICATION_JSON, this.headers,
+                                Optional.<String>absent());
+  }
+
+  /**
+   * Gets the URI of this resource, with its query, relative to the Crowd base URL.
+   * @return The URI.
+   */
+  URI toUri()
+  {
+    final StringBuilder uri = new StringBuilder(this.url);
+
+    char separator = '?';
+    for (final Map.Entry<String, String> parameter : this.query)
+    {
+      uri.append(separator).append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+      separator = '&';
+    }
+
+    return URI.create(uri.toString());
+  }
+
+  /**
+   * Percent-encodes a path segment or query component.
+   * @param value The value.
+   * @return The encoded value.
+   */
+  private static String encode(String value)
+  {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+  }
+}
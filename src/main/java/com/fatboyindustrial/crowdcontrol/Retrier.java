@@ -0,0 +1,414 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Sends an interactor's requests according to its {@link RetryPolicy}, spending the client's {@link RetryBudget} on
+ * retries and hedged duplicates.  Requests that are not idempotent are sent once.
+ */
+@ThreadSafe
+final class Retrier
+{
+  /** The number of recent latencies from which the hedging delay is derived. */
+  private static final int LATENCY_SAMPLES = 128;
+
+  /** The number of latencies needed before requests are hedged. */
+  private static final int MIN_LATENCY_SAMPLES = 20;
+
+  /** The client that sends requests. */
+  private final CrowdClient client;
+
+  /** The policy. */
+  private final RetryPolicy policy;
+
+  /** The recent latencies of hedged requests, in nanoseconds, as a ring. */
+  private final AtomicLongArray latencies;
+
+  /** The number of latencies recorded. */
+  private final AtomicInteger recorded;
+
+  /**
+   * Constructor.
+   * @param client The client that sends requests.
+   * @param policy The policy.
+   */
+  Retrier(CrowdClient client, RetryPolicy policy)
+  {
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.policy = Preconditions.checkNotNull(policy, "policy cannot be null");
+    this.latencies = new AtomicLongArray(LATENCY_SAMPLES);
+    this.recorded = new AtomicInteger();
+  }
+
+  /**
+   * Gets the policy.
+   * @return The policy.
+   */
+  RetryPolicy getPolicy()
+  {
+    return this.policy;
+  }
+
+  /**
+   * Sends a request on the calling thread, retrying it if the policy allows.  A hedged request is sent
+   * asynchronously, and the calling thread waits for the first answer.
+   * @param request The request.
+   * @param handler Reads the response.
+   * @param <T> The result type.
+   * @return The result of the handler.
+   * @throws TransportException If the request cannot be sent, or the response cannot be received, and the policy
+   * allows no further retry.
+   */
+  <T> T execute(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+      throws TransportException
+  {
+    if (! request.isIdempotent() || ! this.policy.isActive())
+    {
+      return this.client.execute(request, handler);
+    }
+
+    if (this.policy.isHedged())
+    {
+      try
+      {
+        return executeAsync(request, handler).join();
+      }
+      catch (CompletionException e)
+      {
+        if (e.getCause() instanceof RuntimeException)
+        {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    final RetryBudget budget = this.client.getRetryBudget();
+
+    for (int retry = 0; ; retry++)
+    {
+      final boolean retryable = (retry < this.policy.getMaxRetries() && budget.hasToken());
+      try
+      {
+        // only the first attempt earns a share of the budget; each retry has already spent a token
+        return (retry == 0
+            ? this.client.execute(request, unavailableAsFailure(handler, retryable))
+            : this.client.resend(request, unavailableAsFailure(handler, retryable)));
+      }
+      catch (TransportException e)
+      {
+        if (! retryable || ! budget.tryWithdraw())
+        {
+          throw e;
+        }
+
+        try
+        {
+          TimeUnit.NANOSECONDS.sleep(this.policy.backoffNanos(retry));
+        }
+        catch (InterruptedException interrupted)
+        {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a request asynchronously, retrying and hedging it if the policy allows.  Cancelling the returned future
+   * cancels the requests in flight and any pending retry.
+   * @param request The request.
+   * @param handler Reads the response.
+   * @param <T> The result type.
+   * @return The future result of the handler.
+   */
+  <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                        Function<? super TransportResponse, ? extends T> handler)
+  {
+    if (! request.isIdempotent() || ! this.policy.isActive())
+    {
+      return this.client.executeAsync(request, handler);
+    }
+
+    final AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+    final CompletableFuture<T> future = cancellable(current);
+    attemptAsync(request, handler, 0, current, future);
+    return future;
+  }
+
+  /**
+   * Makes one attempt to send a request asynchronously, scheduling a retry if it fails.
+   * @param request The request.
+   * @param handler Reads the response.
+   * @param retry The number of retries already made.
+   * @param current Holds the attempt in flight, so that it can be cancelled.
+   * @param future The future to complete with the result.
+   * @param <T> The result type.
+   */
+  private <T> void attemptAsync(TransportRequest request,
+                                Function<? super TransportResponse, ? extends T> handler,
+                                int retry,
+                                AtomicReference<CompletableFuture<T>> current,
+                                CompletableFuture<T> future)
+  {
+    final RetryBudget budget = this.client.getRetryBudget();
+    final boolean retryable = (retry < this.policy.getMaxRetries() && budget.hasToken());
+
+    final CompletableFuture<T> sent = send(request, unavailableAsFailure(handler, retryable), retry == 0);
+    current.set(sent);
+    if (future.isCancelled())
+    {
+      sent.cancel(true);
+    }
+
+    sent.whenComplete((value, error) -> {
+      if (error == null)
+      {
+        future.complete(value);
+        return;
+      }
+
+      final Throwable cause = unwrap(error);
+      if (cause instanceof TransportException && retryable && ! future.isDone() && budget.tryWithdraw())
+      {
+        CompletableFuture.delayedExecutor(this.policy.backoffNanos(retry), TimeUnit.NANOSECONDS).execute(() -> {
+          if (! future.isDone())
+          {
+            attemptAsync(request, handler, retry + 1, current, future);
+          }
+        });
+      }
+      else
+      {
+        future.completeExceptionally(cause);
+      }
+    });
+  }
+
+  /**
+   * Sends a request asynchronously, hedging it if the policy says so and enough latencies have been seen.
+   * @param request The request.
+   * @param handler Reads the response.
+   * @param first Is this the request's first attempt, which earns its share of the retry budget?  Retries and hedged
+   *              duplicates have already spent a token.
+   * @param <T> The result type.
+   * @return The future result of the first answer.
+   */
+  private <T> CompletableFuture<T> send(TransportRequest request,
+                                        Function<? super TransportResponse, ? extends T> handler,
+                                        boolean first)
+  {
+    final long started = System.nanoTime();
+    final long delay = (this.policy.isHedged() ? hedgingDelayNanos() : -1);
+
+    if (delay < 0)
+    {
+      final CompletableFuture<T> sent = (first
+          ? this.client.executeAsync(request, handler)
+          : this.client.resendAsync(request, handler));
+      if (this.policy.isHedged())
+      {
+        sent.thenRun(() -> record(System.nanoTime() - started));
+      }
+      return sent;
+    }
+
+    final AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+    final CompletableFuture<T> primary = (first
+        ? this.client.executeAsync(request, handler)
+        : this.client.resendAsync(request, handler));
+    final CompletableFuture<T> future = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        primary.cancel(mayInterruptIfRunning);
+        final CompletableFuture<T> duplicate = hedge.get();
+        if (duplicate != null)
+        {
+          duplicate.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+      }
+    };
+    final AtomicInteger pending = new AtomicInteger(1);
+
+    primary.whenComplete((value, error) -> settle(future, value, error, pending, started, hedge.get()));
+
+    CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+      if (future.isDone() || ! this.client.getRetryBudget().tryWithdraw())
+      {
+        return;
+      }
+
+      pending.incrementAndGet();
+      final CompletableFuture<T> duplicate = this.client.resendAsync(request, handler);
+      hedge.set(duplicate);
+      if (future.isDone())
+      {
+        duplicate.cancel(true);
+      }
+      duplicate.whenComplete((value, error) -> settle(future, value, error, pending, started, primary));
+    });
+
+    return future;
+  }
+
+  /**
+   * Settles a hedged request when one of its copies completes.  The first answer wins, and the other copy is
+   * cancelled; the request fails only if both copies fail.
+   * @param future The future of the hedged request.
+   * @param value The copy's result.
+   * @param error The copy's failure, or null if it succeeded.
+   * @param pending The number of copies still to complete.
+   * @param started The time the request started, from {@link System#nanoTime()}.
+   * @param other The other copy, or null if it has not been sent.
+   * @param <T> The result type.
+   */
+  private <T> void settle(CompletableFuture<T> future,
+                          T value,
+                          Throwable error,
+                          AtomicInteger pending,
+                          long started,
+                          CompletableFuture<T> other)
+  {
+    if (error == null)
+    {
+      // cancel the other copy first, so that it has been cancelled by the time the caller sees the answer
+      if (other != null && ! future.isDone())
+      {
+        other.cancel(true);
+      }
+      if (future.complete(value))
+      {
+        record(System.nanoTime() - started);
+      }
+    }
+    else if (pending.decrementAndGet() == 0)
+    {
+      future.completeExceptionally(unwrap(error));
+    }
+  }
+
+  /**
+   * Records the latency of a request.
+   * @param latencyNanos The latency, in nanoseconds.
+   */
+  private void record(long latencyNanos)
+  {
+    this.latencies.set(Math.floorMod(this.recorded.getAndIncrement(), LATENCY_SAMPLES), latencyNanos);
+  }
+
+  /**
+   * Gets the delay after which a request is hedged: the 95th percentile of the recent latencies.
+   * @return The delay, in nanoseconds, or -1 if too few latencies have been recorded.
+   */
+  private long hedgingDelayNanos()
+  {
+    final int count = Math.min(this.recorded.get(), LATENCY_SAMPLES);
+    if (count < MIN_LATENCY_SAMPLES)
+    {
+      return -1;
+    }
+
+    final long[] samples = new long[count];
+    for (int i = 0; i < count; i++)
+    {
+      samples[i] = this.latencies.get(i);
+    }
+    Arrays.sort(samples);
+
+    return samples[(int) Math.ceil(count * 0.95) - 1];
+  }
+
+  /**
+   * Wraps a response handler so that a response saying Crowd is temporarily unavailable (502, 503 or 504) fails
+   * like a request that cannot be sent, if the request may be retried.  The failure also counts against the node, and
+   * fails the request over to another node.
+   * @param handler The handler.
+   * @param retryable May the request be retried?
+   * @param <T> The result type.
+   * @return The wrapped handler.
+   */
+  private static <T> Function<TransportResponse, T> unavailableAsFailure(
+      Function<? super TransportResponse, ? extends T> handler, boolean retryable)
+  {
+    return response -> {
+      final int status = response.getStatus();
+      if (retryable && status >= 502 && status <= 504)
+      {
+        throw new TransportException("Crowd is unavailable (" + status + ")", null);
+      }
+      return handler.apply(response);
+    };
+  }
+
+  /**
+   * Creates a future that cancels the attempt in flight when it is cancelled.
+   * @param current Holds the attempt in flight.
+   * @param <T> The result type.
+   * @return The future.
+   */
+  private static <T> CompletableFuture<T> cancellable(AtomicReference<CompletableFuture<T>> current)
+  {
+    return new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        final CompletableFuture<T> sent = current.get();
+        if (sent != null)
+        {
+          sent.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+      }
+    };
+  }
+
+  /**
+   * Unwraps the cause of a failed future.
+   * @param error The failure.
+   * @return The cause.
+   */
+  private static Throwable unwrap(Throwable error)
+  {
+    return (error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+  }
+}
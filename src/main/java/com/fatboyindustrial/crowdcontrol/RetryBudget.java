@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the extra load that retries and hedged requests put on Crowd.
+ * <p>
+ * The budget is a token bucket shared by every interactor of a {@link CrowdClient}.  Each request earns a fraction
+ * of a token (the ratio), and each retry or hedged duplicate spends a whole one, so that over time retries add at most
+ * that fraction to the requests sent.  The bucket holds a limited number of tokens, allowing a short burst of retries
+ * after a quiet spell; it starts full.
+ */
+@ThreadSafe
+public class RetryBudget
+{
+  /** The default fraction of a token earned by each request. */
+  public static final double DEFAULT_RATIO = 0.1;
+
+  /** The default number of tokens the bucket holds. */
+  public static final int DEFAULT_MAX_TOKENS = 10;
+
+  /** The number of units in a token. */
+  private static final long UNITS = 1000;
+
+  /** The units earned by each request. */
+  private final long earned;
+
+  /** The units the bucket holds. */
+  private final long capacity;
+
+  /** The units in the bucket. */
+  private final AtomicLong units;
+
+  /**
+   * Constructor, using the default ratio and size.
+   */
+  public RetryBudget()
+  {
+    this(DEFAULT_RATIO, DEFAULT_MAX_TOKENS);
+  }
+
+  /**
+   * Constructor.
+   * @param ratio The fraction of a token earned by each request; the most that retries may add to the load.
+   * @param maxTokens The number of tokens the bucket holds.
+   * @throws IllegalArgumentException If the ratio lies outside [0, 1], or maxTokens is negative.
+   */
+  public RetryBudget(double ratio, int maxTokens) throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(ratio >= 0 && ratio <= 1, "ratio must lie in [0, 1]");
+    Preconditions.checkArgument(maxTokens >= 0, "maxTokens cannot be negative");
+
+    this.earned = Math.round(ratio * UNITS);
+    this.capacity = maxTokens * UNITS;
+    this.units = new AtomicLong(this.capacity);
+  }
+
+  /**
+   * Gets the number of retries the budget currently allows.
+   * @return The number of whole tokens available.
+   */
+  public long getAvailable()
+  {
+    return this.units.get() / UNITS;
+  }
+
+  /**
+   * Records a request, earning its fraction of a token.
+   */
+  void deposit()
+  {
+    this.units.getAndUpdate(current -> Math.min(this.capacity, current + this.earned));
+  }
+
+  /**
+   * Is there a token available?
+   * @return True if a retry would currently be allowed.
+   */
+  boolean hasToken()
+  {
+    return this.units.get() >= UNITS;
+  }
+
+  /**
+   * Spends a token on a retry or hedged request.
+   * @return True if a token was spent, or false if the budget is exhausted.
+   */
+  boolean tryWithdraw()
+  {
+    while (true)
+    {
+      final long current = this.units.get();
+      if (current < UNITS)
+      {
+        return false;
+      }
+      if (this.units.compareAndSet(current, current - UNITS))
+      {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "RetryBudget{" +
+           "available=" + getAvailable() +
+           '}';
+  }
+}
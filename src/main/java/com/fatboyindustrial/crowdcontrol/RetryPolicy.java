@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How an interactor retries and hedges its idempotent requests.
+ * <p>
+ * A request that cannot be sent (on any node), or that Crowd answers with 502, 503 or 504, is retried after an
+ * exponentially growing backoff with full jitter: the n<sup>th</sup> retry waits a random time of up to
+ * {@code min(maxBackoff, initialBackoff * 2^n)}.  Every retry is paid for from the client's {@link RetryBudget}, as is
+ * every failover to another node within an attempt, so retries can never multiply the load on a struggling Crowd by
+ * more than the budget allows.
+ * <p>
+ * A hedged request that has not been answered within the 95th percentile of the interactor's recent latencies is
+ * sent a second time, and the first answer is taken.  The duplicate is also paid for from the budget.  It goes to the
+ * node chosen by the cluster's {@link LoadBalancer}, which, since the original is still in flight, is normally
+ * another node.
+ */
+@Immutable
+public class RetryPolicy
+{
+  /** The default number of retries. */
+  public static final int DEFAULT_MAX_RETRIES = 2;
+
+  /** The default backoff before the first retry, in milliseconds. */
+  public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 50;
+
+  /** The default longest backoff, in milliseconds. */
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 1000;
+
+  /** A policy that never retries or hedges. */
+  private static final RetryPolicy NONE = new RetryPolicy(0, 1, 1, false);
+
+  /** The maximum number of retries after the first attempt. */
+  private final int maxRetries;
+
+  /** The backoff before the first retry, in milliseconds. */
+  private final long initialBackoffMillis;
+
+  /** The longest backoff, in milliseconds. */
+  private final long maxBackoffMillis;
+
+  /** Are requests hedged? */
+  private final boolean hedged;
+
+  /**
+   * Constructor.
+   * @param maxRetries The maximum number of retries after the first attempt.
+   * @param initialBackoffMillis The backoff before the first retry, in milliseconds.
+   * @param maxBackoffMillis The longest backoff, in milliseconds.
+   * @param hedged Are requests hedged?
+   * @throws IllegalArgumentException If maxRetries is negative, or the backoffs are not positive, or the longest
+   * backoff is less than the first.
+   */
+  public RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis, boolean hedged)
+      throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(maxRetries >= 0, "maxRetries cannot be negative");
+    Preconditions.checkArgument(initialBackoffMillis > 0, "initialBackoffMillis must be positive");
+    Preconditions.checkArgument(maxBackoffMillis >= initialBackoffMillis,
+                                "maxBackoffMillis cannot be less than initialBackoffMillis");
+
+    this.maxRetries = maxRetries;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.hedged = hedged;
+  }
+
+  /**
+   * Gets the policy that never retries or hedges.
+   * @return The policy.
+   */
+  public static RetryPolicy none()
+  {
+    return NONE;
+  }
+
+  /**
+   * Creates a policy with the default retries and backoff, without hedging.
+   * @return The policy.
+   */
+  public static RetryPolicy defaults()
+  {
+    return new RetryPolicy(DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, false);
+  }
+
+  /**
+   * Gets the maximum number of retries after the first attempt.
+   * @return The maximum number of retries.
+   */
+  public int getMaxRetries()
+  {
+    return this.maxRetries;
+  }
+
+  /**
+   * Gets the backoff before the first retry.
+   * @return The backoff, in milliseconds.
+   */
+  public long getInitialBackoffMillis()
+  {
+    return this.initialBackoffMillis;
+  }
+
+  /**
+   * Gets the longest backoff.
+   * @return The backoff, in milliseconds.
+   */
+  public long getMaxBackoffMillis()
+  {
+    return this.maxBackoffMillis;
+  }
+
+  /**
+   * Are requests hedged?
+   * @return True if slow requests are sent a second time.
+   */
+  public boolean isHedged()
+  {
+    return this.hedged;
+  }
+
+  /**
+   * Does this policy do anything?
+   * @return True if it retries or hedges.
+   */
+  boolean isActive()
+  {
+    return (this.maxRetries > 0 || this.hedged);
+  }
+
+  /**
+   * Chooses the backoff before a retry.
+   * @param retry The number of the retry, from zero.
+   * @return The backoff, in nanoseconds.
+   */
+  long backoffNanos(int retry)
+  {
+    final long ceiling = (retry < Long.numberOfLeadingZeros(this.initialBackoffMillis) - 1
+        ? Math.min(this.maxBackoffMillis, this.initialBackoffMillis << retry)
+        : this.maxBackoffMillis);
+    return ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(ceiling) + 1);
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "RetryPolicy{" +
+           "maxRetries=" + this.maxRetries +
+           ", initialBackoffMillis=" + this.initialBackoffMillis +
+           ", maxBackoffMillis=" + this.maxBackoffMillis +
+           ", hedged=" + this.hedged +
+           '}';
+  }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.json.JsonCodec;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.fatboyindustrial.crowdcontrol.model.UserList;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * An interactor for searching users and groups with Crowd Query Language (CQL) restrictions, such as
+ * {@code email = "yossarian@catch22.invalid"} or {@code active = true and name = "y*"}.
+ * <p>
+ * Name searches ask Crowd not to expand the results, and only the names are decoded, so they are cheap enough for
+ * bulk queries.  User searches expand each user's details.  An empty restriction matches everything.
+ */
+@ThreadSafe
+public class SearchInteractor implements AutoCloseable
+{
+  /** The default number of results fetched per page by listings. */
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+
+  /** The HTTP client used to talk to Crowd. */
+  private final CrowdClient client;
+
+  /** Does this interactor own (and therefore close) the client? */
+  private final boolean ownsClient;
+
+  /** The number of results fetched per page by listings. */
+  private final int pageSize;
+
+  /**
+   * Constructor.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public SearchInteractor(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
+  {
+    this(new CrowdClient(crowdBase, appName, appPassword), true, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   */
+  public SearchInteractor(CrowdClient client)
+  {
+    this(client, false, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param pageSize The number of results fetched per page by listings.
+   */
+  public SearchInteractor(CrowdClient client, int pageSize)
+  {
+    this(client, false, pageSize);
+  }
+
+  /**
+   * Constructor.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param ownsClient Does this interactor own (and therefore close) the client?
+   * @param pageSize The number of results fetched per page by listings.
+   */
+  private SearchInteractor(CrowdClient client, boolean ownsClient, int pageSize)
+  {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.ownsClient = ownsClient;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Finds the names of the users matching a restriction.
+   * @param restriction The CQL restriction.
+   * @param startIndex The index of the first result.
+   * @param maxResults The maximum number of results.
+   * @return The usernames, or a {@link DirectoryError} if an error occurs (for example, if the restriction is not
+   *         valid CQL).
+   */
+  public Either<List<String>, DirectoryError> userNames(String restriction, int startIndex, int maxResults)
+  {
+    return names(search("user", restriction, false), startIndex, maxResults);
+  }
+
+  /**
+   * Finds the users matching a restriction, with their details.
+   * @param restriction The CQL restriction.
+   * @param startIndex The index of the first result.
+   * @param maxResults The maximum number of results.
+   * @return The users, or a {@link DirectoryError} if an error occurs.
+   */
+  public Either<List<AuthenticationResponse>, DirectoryError> users(String restriction, int startIndex,
+                                                                    int maxResults)
+  {
+    final Either<UserList, DirectoryError> users = get(page(search("user", restriction, true), startIndex,
+                                                            maxResults),
+                                                       UserList.class);
+    return (users.isError()
+        ? Either.<List<AuthenticationResponse>, DirectoryError>error(users.getError())
+        : Either.<List<AuthenticationResponse>, DirectoryError>value(users.getValue().getUsers()));
+  }
+
+  /**
+   * Finds the names of the groups matching a restriction.
+   * @param restriction The CQL restriction.
+   * @param startIndex The index of the first result.
+   * @param maxResults The maximum number of results.
+   * @return The group names, or a {@link DirectoryError} if an error occurs.
+   */
+  public Either<List<String>, DirectoryError> groupNames(String restriction, int startIndex, int maxResults)
+  {
+    return names(search("group", restriction, false), startIndex, maxResults);
+  }
+
+  /**
+   * Lists the names of all users matching a restriction lazily, fetching pages in the background.
+   * @param restriction The CQL restriction.
+   * @return The usernames.
+   */
+  public Listing listUserNames(String restriction)
+  {
+    return listing(search("user", restriction, false));
+  }
+
+  /**
+   * Lists the names of all groups matching a restriction lazily, fetching pages in the background.
+   * @param restriction The CQL restriction.
+   * @return The group names.
+   */
+  public Listing listGroupNames(String restriction)
+  {
+    return listing(search("group", restriction, false));
+  }
+
+  /**
+   * Publishes the names of all users matching a restriction reactively, fetching no more names than the subscriber
+   * has requested.
+   * @param restriction The CQL restriction.
+   * @return The usernames.
+   */
+  public Flow.Publisher<String> publishUserNames(String restriction)
+  {
+    return publisher(search("user", restriction, false));
+  }
+
+  /**
+   * Publishes the names of all groups matching a restriction reactively, fetching no more names than the subscriber
+   * has requested.
+   * @param restriction The CQL restriction.
+   * @return The group names.
+   */
+  public Flow.Publisher<String> publishGroupNames(String restriction)
+  {
+    return publisher(search("group", restriction, false));
+  }
+
+  /**
+   * Builds a CQL restriction that a property equals a value, quoting the value.
+   * @param property The property, such as {@code email}.
+   * @param value The value.
+   * @return The restriction.
+   */
+  public static String equalTo(String property, String value)
+  {
+    Preconditions.checkNotNull(property, "property cannot be null");
+    Preconditions.checkNotNull(value, "value cannot be null");
+
+    return property + " = " + quote(value);
+  }
+
+  /**
+   * Quotes a value for use in a CQL restriction.
+   * @param value The value.
+   * @return The quoted value.
+   */
+  public static String quote(String value)
+  {
+    Preconditions.checkNotNull(value, "value cannot be null");
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  /**
+   * Gets the search resource.
+   * @param entityType The entity type: {@code user} or {@code group}.
+   * @param restriction The CQL restriction (empty for none).
+   * @param expand Should the entities be expanded?
+   * @return The resource.
+   */
+  private Resource search(String entityType, String restriction, boolean expand)
+  {
+    Preconditions.checkNotNull(restriction, "restriction cannot be null");
+
+    Resource target = this.client.resource("rest/usermanagement/latest/search").queryParam("entity-type", entityType);
+    if (! restriction.isEmpty())
+    {
+      target = target.queryParam("restriction", restriction);
+    }
+    if (expand)
+    {
+      target = target.queryParam("expand", entityType);
+    }
+
+    return target;
+  }
+
+  /**
+   * Fetches one page of names.
+   * @param target The search resource.
+   * @param startIndex The index of the first result.
+   * @param maxResults The maximum number of results.
+   * @return The names, or the error.
+   */
+  private Either<List<String>, DirectoryError> names(Resource target, int startIndex, int maxResults)
+  {
+    final Either<NameList, DirectoryError> names = get(page(target, startIndex, maxResults), NameList.class);
+    return (names.isError()
+        ? Either.<List<String>, DirectoryError>error(names.getError())
+        : Either.<List<String>, DirectoryError>value(names.getValue().getNames()));
+  }
+
+  /**
+   * Creates a lazy listing, with each page fetched asynchronously.
+   * @param target The search resource.
+   * @return The listing.
+   */
+  private Listing listing(Resource target)
+  {
+    return new Listing(start -> getAsync(page(target, start, this.pageSize), NameList.class), this.pageSize);
+  }
+
+  /**
+   * Creates a reactive listing, with each page fetched asynchronously as demand requires.
+   * @param target The search resource.
+   * @return The publisher.
+   */
+  private Flow.Publisher<String> publisher(Resource target)
+  {
+    return new NamePublisher((start, max) -> getAsync(page(target, start, max), NameList.class), this.pageSize);
+  }
+
+  /**
+   * Restricts a resource to one page of results.
+   * @param target The resource.
+   * @param startIndex The index of the first result.
+   * @param maxResults The maximum number of results.
+   * @return The restricted resource.
+   */
+  private static Resource page(Resource target, int startIndex, int maxResults)
+  {
+    Preconditions.checkArgument(startIndex >= 0, "startIndex cannot be negative");
+    Preconditions.checkArgument(maxResults > 0, "maxResults must be positive");
+
+    return target.queryParam("start-index", startIndex).queryParam("max-results", maxResults);
+  }
+
+  /**
+   * Gets a resource.
+   * @param target The resource.
+   * @param type The type of a successful response.
+   * @param <T> The type of a successful response.
+   * @return The response, or the error.
+   */
+  private <T> Either<T, DirectoryError> get(Resource target, Class<T> type)
+  {
+    return this.client.execute(target.get(), response -> decode(response, type));
+  }
+
+  /**
+   * Gets a resource asynchronously.  Cancelling the returned future aborts the request.
+   * @param target The resource.
+   * @param type The type of a successful response.
+   * @param <T> The type of a successful response.
+   * @return The future response, or the error.
+   */
+  private <T> CompletableFuture<Either<T, DirectoryError>> getAsync(Resource target, Class<T> type)
+  {
+    return this.client.executeAsync(target.get(), response -> decode(response, type));
+  }
+
+  /**
+   * Reads a JSON response.
+   * @param response The response.
+   * @param type The type of a successful response.
+   * @param <T> The type of a successful response.
+   * @return The response, or the error.
+   */
+  private static <T> Either<T, DirectoryError> decode(TransportResponse response, Class<T> type)
+  {
+    final InputStream json = response.getBody();
+
+    if (response.getStatus() == HttpURLConnection.HTTP_OK)
+    {
+      return Either.value(JsonCodec.getDefault().decode(json, type));
+    }
+    else
+    {
+      return Either.error(JsonCodec.getDefault().decode(json, DirectoryError.class));
+    }
+  }
+
+  /**
+   * Closes the interactor.  The underlying client is only closed if it is owned by this interactor.
+   */
+  @Override
+  public void close()
+  {
+    if (this.ownsClient)
+    {
+      this.client.close();
+    }
+  }
+}
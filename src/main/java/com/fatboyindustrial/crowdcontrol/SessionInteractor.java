@@ -0,0 +1,443 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.json.JsonCodec;
+import com.fatboyindustrial.crowdcontrol.model.Session;
+import com.fatboyindustrial.crowdcontrol.model.SessionError;
+import com.fatboyindustrial.crowdcontrol.model.SessionRequest;
+import com.fatboyindustrial.crowdcontrol.model.SessionValidationRequest;
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InputStream;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An interactor for creating, validating and invalidating Crowd SSO sessions.
+ * <p>
+ * Sessions that have been validated (or created) recently are held in a local cache.  A cached session is trusted
+ * without contacting Crowd until either the revalidation interval passes or the session's own expiry date is
+ * reached, whichever comes first, provided it is validated against the same validation factors (in any order, as
+ * Crowd itself treats them as a set).  A failed validation, or invalidating the session through this interactor,
+ * removes it from the cache.
+ */
+@ThreadSafe
+public class SessionInteractor implements AutoCloseable
+{
+  /** The default interval (in milliseconds) after which a cached session is revalidated with Crowd. */
+  public static final long DEFAULT_REVALIDATION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  /** The default maximum number of cached sessions. */
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+  /** The HTTP client used to talk to Crowd. */
+  private final CrowdClient client;
+
+  /** Does this interactor own (and therefore close) the client? */
+  private final boolean ownsClient;
+
+  /** The wall clock, used to honour session expiry dates. */
+  private final Clock clock;
+
+  /** The recently validated sessions, keyed by token. */
+  private final Cache<String, Validated> validated;
+
+  /** Sends validation requests according to the retry policy. */
+  private final Retrier retrier;
+
+  /**
+   * Constructor.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public SessionInteractor(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
+  {
+    this(new CrowdClient(crowdBase, appName, appPassword), true, DEFAULT_REVALIDATION_MILLIS, DEFAULT_MAXIMUM_SIZE,
+         RetryPolicy.none(), Clock.systemUTC(), Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   */
+  public SessionInteractor(CrowdClient client)
+  {
+    this(client, DEFAULT_REVALIDATION_MILLIS, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param revalidationMillis The interval (in milliseconds) after which a cached session is revalidated with Crowd;
+   *                           zero disables the cache.
+   * @param maximumSize The maximum number of cached sessions.
+   */
+  public SessionInteractor(CrowdClient client, long revalidationMillis, long maximumSize)
+  {
+    this(client, revalidationMillis, maximumSize, RetryPolicy.none());
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param revalidationMillis The interval (in milliseconds) after which a cached session is revalidated with Crowd;
+   *                           zero disables the cache.
+   * @param maximumSize The maximum number of cached sessions.
+   * @param retryPolicy How failed or slow validations are retried and hedged.  Session creation is never retried.
+   */
+  public SessionInteractor(CrowdClient client, long revalidationMillis, long maximumSize, RetryPolicy retryPolicy)
+  {
+    this(client, false, revalidationMillis, maximumSize, retryPolicy, Clock.systemUTC(), Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param ownsClient Does this interactor own (and therefore close) the client?
+   * @param revalidationMillis The interval (in milliseconds) after which a cached session is revalidated with Crowd.
+   * @param maximumSize The maximum number of cached sessions.
+   * @param retryPolicy How failed or slow validations are retried and hedged.
+   * @param clock The wall clock, used to honour session expiry dates.
+   * @param ticker The time source for the revalidation interval.
+   */
+  @VisibleForTesting
+  SessionInteractor(CrowdClient client,
+                    boolean ownsClient,
+                    long revalidationMillis,
+                    long maximumSize,
+                    RetryPolicy retryPolicy,
+                    Clock clock,
+                    Ticker ticker)
+  {
+    Preconditions.checkArgument(revalidationMillis >= 0, "revalidationMillis cannot be negative");
+    Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive");
+
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.ownsClient = ownsClient;
+    this.clock = Preconditions.checkNotNull(clock, "clock cannot be null");
+    this.retrier = new Retrier(client, retryPolicy);
+    this.validated = CacheBuilder.newBuilder()
+        .expireAfterWrite(revalidationMillis, TimeUnit.MILLISECONDS)
+        .maximumSize(maximumSize)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Authenticates a user and creates a new session.
+   * @param username The username.
+   * @param password The password.
+   * @param validationFactors The validation factors the session is bound to.
+   * @return The new session, or the reason for the error.
+   */
+  public Either<Session, SessionError> create(String username, String password,
+                                              List<ValidationFactor> validationFactors)
+  {
+    final SessionRequest request = new SessionRequest(username, password, validationFactors);
+    return this.client.execute(createRequest(request), response -> created(request, buildResult(response)));
+  }
+
+  /**
+   * Validates a session token.  A recently validated token is answered locally without contacting Crowd.
+   * @param token The session token.
+   * @param validationFactors The validation factors of the current request.
+   * @return The session, or the reason it is not valid.
+   */
+  public Either<Session, SessionError> validate(String token, List<ValidationFactor> validationFactors)
+  {
+    Preconditions.checkNotNull(token, "token cannot be null");
+
+    final SessionValidationRequest request = new SessionValidationRequest(validationFactors);
+    final Optional<Session> cached = cached(token, request);
+
+    if (cached.isPresent())
+    {
+      return Either.value(cached.get());
+    }
+
+    return this.retrier.execute(validateRequest(token, request),
+                               response -> validated(token, request, buildResult(response)));
+  }
+
+  /**
+   * Invalidates (logs out) a session.
+   * @param token The session token.
+   * @return Absent on success, or the reason for the error.
+   */
+  public Optional<SessionError> invalidate(String token)
+  {
+    Preconditions.checkNotNull(token, "token cannot be null");
+
+    this.validated.invalidate(token);
+    return this.client.execute(invalidateRequest(token), SessionInteractor::buildInvalidation);
+  }
+
+  /**
+   * Creates a session asynchronously.  Cancelling the returned future aborts the HTTP request.
+   * @param username The username.
+   * @param password The password.
+   * @param validationFactors The validation factors the session is bound to.
+   * @return The future result of {@link #create}.
+   */
+  public CompletableFuture<Either<Session, SessionError>> createAsync(String username, String password,
+                                                                      List<ValidationFactor> validationFactors)
+  {
+    final SessionRequest request = new SessionRequest(username, password, validationFactors);
+    return this.client.executeAsync(createRequest(request), response -> created(request, buildResult(response)));
+  }
+
+  /**
+   * Validates a session token asynchronously.  A recently validated token completes immediately.
+   * @param token The session token.
+   * @param validationFactors The validation factors of the current request.
+   * @return The future result of {@link #validate}.
+   */
+  public CompletableFuture<Either<Session, SessionError>> validateAsync(String token,
+                                                                        List<ValidationFactor> validationFactors)
+  {
+    Preconditions.checkNotNull(token, "token cannot be null");
+
+    final SessionValidationRequest request = new SessionValidationRequest(validationFactors);
+    final Optional<Session> cached = cached(token, request);
+
+    if (cached.isPresent())
+    {
+      return CompletableFuture.completedFuture(Either.value(cached.get()));
+    }
+
+    return this.retrier.executeAsync(validateRequest(token, request),
+                                    response -> validated(token, request, buildResult(response)));
+  }
+
+  /**
+   * Invalidates a session asynchronously.  Cancelling the returned future aborts the HTTP request.
+   * @param token The session token.
+   * @return The future result of {@link #invalidate}.
+   */
+  public CompletableFuture<Optional<SessionError>> invalidateAsync(String token)
+  {
+    Preconditions.checkNotNull(token, "token cannot be null");
+
+    this.validated.invalidate(token);
+    return this.client.executeAsync(invalidateRequest(token), SessionInteractor::buildInvalidation);
+  }
+
+  /**
+   * Gets a recently validated session, if it may be trusted without contacting Crowd.
+   * @param token The session token.
+   * @param request The validation request.
+   * @return The session, or absent if it must be validated with Crowd.
+   */
+  private Optional<Session> cached(String token, SessionValidationRequest request)
+  {
+    final Validated cached = this.validated.getIfPresent(token);
+
+    if (cached != null
+        && cached.validationFactors.equals(ImmutableSet.copyOf(request.getValidationFactors()))
+        && this.clock.millis() < cached.session.getExpiryDate())
+    {
+      return Optional.of(cached.session);
+    }
+
+    return Optional.absent();
+  }
+
+  /**
+   * Builds the request to create a session.
+   * @param request The session request.
+   * @return The request.
+   */
+  private TransportRequest createRequest(SessionRequest request)
+  {
+    return this.client.resource("rest/usermanagement/latest/session")
+        .queryParam("validate-password", true)
+        .post(JsonCodec.getDefault().encode(request));
+  }
+
+  /**
+   * Builds the request to validate a session.  Validation only reads the session (and extends its expiry), so it may
+   * safely be sent again.
+   * @param token The session token.
+   * @param request The validation request.
+   * @return The request.
+   */
+  private TransportRequest validateRequest(String token, SessionValidationRequest request)
+  {
+    return this.client.resource("rest/usermanagement/latest/session")
+        .path(token)
+        .post(JsonCodec.getDefault().encode(request), true);
+  }
+
+  /**
+   * Builds the request to invalidate a session.
+   * @param token The session token.
+   * @return The request.
+   */
+  private TransportRequest invalidateRequest(String token)
+  {
+    return this.client.resource("rest/usermanagement/latest/session")
+        .path(token)
+        .delete();
+  }
+
+  /**
+   * Records a newly created session.
+   * @param request The session request.
+   * @param result The session, or the error.
+   * @return The result.
+   */
+  private Either<Session, SessionError> created(SessionRequest request, Either<Session, SessionError> result)
+  {
+    if (! result.isError())
+    {
+      remember(result.getValue(), request.getValidationFactors());
+    }
+
+    return result;
+  }
+
+  /**
+   * Records the result of validating a session with Crowd.
+   * @param token The session token.
+   * @param request The validation request.
+   * @param result The session, or the reason it is not valid.
+   * @return The result.
+   */
+  private Either<Session, SessionError> validated(String token,
+                                                  SessionValidationRequest request,
+                                                  Either<Session, SessionError> result)
+  {
+    if (result.isError())
+    {
+      this.validated.invalidate(token);
+    }
+    else
+    {
+      remember(result.getValue(), request.getValidationFactors());
+    }
+
+    return result;
+  }
+
+  /**
+   * Records a session as recently validated.
+   * @param session The session.
+   * @param validationFactors The validation factors it was validated against.
+   */
+  private void remember(Session session, List<ValidationFactor> validationFactors)
+  {
+    this.validated.put(session.getToken(), new Validated(session, ImmutableSet.copyOf(validationFactors)));
+  }
+
+  /**
+   * Reads a session or error from the given response.
+   * @param response The response.
+   * @return The session, or the error.
+   */
+  private static Either<Session, SessionError> buildResult(TransportResponse response)
+  {
+    final InputStream json = response.getBody();
+
+    if (isSuccessful(response))
+    {
+      return Either.value(JsonCodec.getDefault().decode(json, Session.class));
+    }
+    else
+    {
+      return Either.error(JsonCodec.getDefault().decode(json, SessionError.class));
+    }
+  }
+
+  /**
+   * Reads the result of invalidating a session from the given response.
+   * @param response The response.
+   * @return Absent on success, or the reason for the error.
+   */
+  private static Optional<SessionError> buildInvalidation(TransportResponse response)
+  {
+    return (isSuccessful(response)
+        ? Optional.<SessionError>absent()
+        : Optional.of(JsonCodec.getDefault().decode(response.getBody(), SessionError.class)));
+  }
+
+  /**
+   * Does the response have a successful (2xx) status?
+   * @param response The response.
+   * @return True if the request succeeded.
+   */
+  private static boolean isSuccessful(TransportResponse response)
+  {
+    return (response.getStatus() / 100 == 2);
+  }
+
+  /**
+   * Closes the interactor.  The underlying client is only closed if it is owned by this interactor.
+   */
+  @Override
+  public void close()
+  {
+    if (this.ownsClient)
+    {
+      this.client.close();
+    }
+  }
+
+  /**
+   * A recently validated session.
+   */
+  @Immutable
+  private static class Validated
+  {
+    /** The session. */
+    private final Session session;
+
+    /** The validation factors the session was validated against. */
+    private final ImmutableSet<ValidationFactor> validationFactors;
+
+    /**
+     * Constructor.
+     * @param session The session.
+     * @param validationFactors The validation factors the session was validated against.
+     */
+    private Validated(Session session, ImmutableSet<ValidationFactor> validationFactors)
+    {
+      this.session = session;
+      this.validationFactors = validationFactors;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * The HTTP transport beneath a {@link CrowdClient}.  Implementations send fully formed requests and hand the
+ * response to a handler, closing the response once the handler returns.  {@link JerseyTransport} is the default;
+ * {@link HttpClientTransport} uses the JDK's own client, which supports HTTP/2.
+ * <p>
+ * Implementations must be thread safe.
+ */
+public interface Transport extends AutoCloseable
+{
+  /**
+   * Gets the configuration the transport was created with.
+   * @return The configuration.
+   */
+  CrowdClientConfig getConfig();
+
+  /**
+   * Sends a request on the calling thread.
+   * @param request The request.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The result of the handler.
+   * @throws TransportException If the request cannot be sent, or the response cannot be received.
+   */
+  <T> T execute(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+      throws TransportException;
+
+  /**
+   * Sends a request asynchronously.  Cancelling the returned future aborts the request.
+   * @param request The request.
+   * @param handler Reads the response.  The response is closed when the handler returns.
+   * @param <T> The result type.
+   * @return The future result of the handler.  If the request fails, the future completes exceptionally with a
+   *         {@link TransportException}.
+   */
+  <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                        Function<? super TransportResponse, ? extends T> handler);
+
+  /**
+   * Closes the transport, releasing its connections.  Calling this more than once has no effect.
+   */
+  @Override
+  void close();
+}
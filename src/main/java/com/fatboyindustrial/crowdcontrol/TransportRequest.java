@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * A fully formed HTTP request to Crowd, ready to be sent by a {@link Transport}.
+ */
+@Immutable
+public class TransportRequest
+{
+  /** The media type of JSON request and response bodies. */
+  public static final String APPLICATION_JSON = "application/json";
+
+  /** The media type of XML response bodies. */
+  public static final String APPLICATION_XML = "application/xml";
+
+  /** The HTTP methods that are idempotent by definition. */
+  private static final ImmutableSet<String> IDEMPOTENT_METHODS =
+      ImmutableSet.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS");
+
+  /** The HTTP method. */
+  private final String method;
+
+  /** The absolute request URI, with its query. */
+  private final URI uri;
+
+  /** The media type accepted in the response. */
+  private final String accept;
+
+  /** Any other request headers (such as {@code Authorization}). */
+  private final ImmutableMap<String, String> headers;
+
+  /** The JSON request body, if any. */
+  private final Optional<String> body;
+
+  /** May the request be sent more than once? */
+  private final boolean idempotent;
+
+  /**
+   * Constructor.  The request is idempotent if its method is.
+   * @param method The HTTP method.
+   * @param uri The absolute request URI, with its query.
+   * @param accept The media type accepted in the response.
+   * @param headers Any other request headers (such as {@code Authorization}).
+   * @param body The JSON request body, if any.
+   */
+  public TransportRequest(String method, URI uri, String accept, Map<String, String> headers, Optional<String> body)
+  {
+    this(method, uri, accept, headers, body, IDEMPOTENT_METHODS.contains(method));
+  }
+
+  /**
+   * Constructor.
+   * @param method The HTTP method.
+   * @param uri The absolute request URI, with its query.
+   * @param accept The media type accepted in the response.
+   * @param headers Any other request headers (such as {@code Authorization}).
+   * @param body The JSON request body, if any.
+   * @param idempotent May the request be sent more than once?  Some Crowd requests use {@code POST} without changing
+   * anything on the server (authentication, for example).
+   */
+  public TransportRequest(String method,
+                          URI uri,
+                          String accept,
+                          Map<String, String> headers,
+                          Optional<String> body,
+                          boolean idempotent)
+  {
+    this.method = Preconditions.checkNotNull(method, "method cannot be null");
+    this.uri = Preconditions.checkNotNull(uri, "uri cannot be null");
+    this.accept = Preconditions.checkNotNull(accept, "accept cannot be null");
+    this.headers = ImmutableMap.copyOf(Preconditions.checkNotNull(headers, "headers cannot be null"));
+    this.body = Preconditions.checkNotNull(body, "body cannot be null");
+    this.idempotent = idempotent;
+  }
+
+  /**
+   * Gets the HTTP method.
+   * @return The method, such as {@code GET}.
+   */
+  public String getMethod()
+  {
+    return this.method;
+  }
+
+  /**
+   * Gets the absolute request URI.
+   * @return The URI, with its query.
+   */
+  public URI getUri()
+  {
+    return this.uri;
+  }
+
+  /**
+   * Gets the media type accepted in the response.
+   * @return The media type.
+   */
+  public String getAccept()
+  {
+    return this.accept;
+  }
+
+  /**
+   * Gets any other request headers.
+   * @return The headers.
+   */
+  public ImmutableMap<String, String> getHeaders()
+  {
+    return this.headers;
+  }
+
+  /**
+   * Gets the JSON request body.
+   * @return The body, if any.
+   */
+  public Optional<String> getBody()
+  {
+    return this.body;
+  }
+
+  /**
+   * May the request be sent more than once?  Only idempotent requests are failed over to another node.
+   * @return True if sending the request twice has the same effect as sending it once.
+   */
+  public boolean isIdempotent()
+  {
+    return this.idempotent;
+  }
+
+  /**
+   * Creates a copy of this request, sent to another URI.
+   * @param uri The request URI.
+   * @return The new request.
+   */
+  TransportRequest withUri(URI uri)
+  {
+    return new TransportRequest(this.method, uri, this.accept, this.headers, this.body, this.idempotent);
+  }
+
+  /**
+   * Gets a string representation.  Headers and the body are omitted, since they may hold credentials.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "TransportRequest{" +
+           "method='" + this.method + '\'' +
+           ", uri=" + this.uri +
+           ", accept='" + this.accept + '\'' +
+           ", idempotent=" + this.idempotent +
+           '}';
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import java.io.InputStream;
+
+/**
+ * A response received by a {@link Transport}.  It is only valid while the handler it was given to is running.
+ */
+public interface TransportResponse
+{
+  /**
+   * Gets the HTTP status code.
+   * @return The status code.
+   */
+  int getStatus();
+
+  /**
+   * Gets the response body.
+   * @return The body, which is empty if the response has none.
+   */
+  InputStream getBody();
+
+  /**
+   * Gets the time the request waited for a pooled connection.
+   * @return The time in nanoseconds, or -1 if the transport does not measure it.
+   */
+  default long getPoolWaitNanos()
+  {
+    return -1;
+  }
+
+  /**
+   * Gets the time taken to establish the connection.  This is zero when a pooled connection was reused.
+   * @return The time in nanoseconds, or -1 if the transport does not measure it.
+   */
+  default long getConnectNanos()
+  {
+    return -1;
+  }
+
+  /**
+   * Gets the time from sending the request to receiving the response headers.  Where the transport does not measure
+   * the pool wait and connection separately, they are included.
+   * @return The time in nanoseconds, or -1 if the transport does not measure it.
+   */
+  default long getServerNanos()
+  {
+    return -1;
+  }
+}
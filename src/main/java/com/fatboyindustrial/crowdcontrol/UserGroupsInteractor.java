@@ -0,0 +1,391 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.json.JsonCodec;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.Memberships;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimaps;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An interactor for determining which of many groups a user belongs to, using a single (paginated) listing of the
+ * user's groups rather than one request per group.  Group names are matched case-insensitively, as Crowd does.
+ * In {@link MembershipMode#NESTED} mode, Crowd resolves the group hierarchy and lists every group the user is a
+ * member of, directly or transitively.
+ */
+@ThreadSafe
+public class UserGroupsInteractor implements AutoCloseable
+{
+  /** The default number of groups fetched per page. */
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+
+  /** The HTTP client used to talk to Crowd. */
+  private final CrowdClient client;
+
+  /** Does this interactor own (and therefore close) the client? */
+  private final boolean ownsClient;
+
+  /** How group membership is determined. */
+  private final MembershipMode mode;
+
+  /** The number of groups fetched per page. */
+  private final int pageSize;
+
+  /**
+   * Constructor.
+   * @param crowdBase The base URL of the crowd server.
+   * @param appName The application name as defined in Crowd.
+   * @param appPassword The application password as defined in Crowd.
+   * @throws IllegalArgumentException If either appName or appPassword are zero length.
+   */
+  public UserGroupsInteractor(String crowdBase, String appName, String appPassword) throws IllegalArgumentException
+  {
+    this(new CrowdClient(crowdBase, appName, appPassword), true, MembershipMode.DIRECT, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   */
+  public UserGroupsInteractor(CrowdClient client)
+  {
+    this(client, false, MembershipMode.DIRECT, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructor.  The interactor shares the given client, and does not close it.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param mode How group membership is determined.
+   * @param pageSize The number of groups fetched per page.
+   */
+  public UserGroupsInteractor(CrowdClient client, MembershipMode mode, int pageSize)
+  {
+    this(client, false, mode, pageSize);
+  }
+
+  /**
+   * Constructor.
+   * @param client The HTTP client used to talk to Crowd.
+   * @param ownsClient Does this interactor own (and therefore close) the client?
+   * @param mode How group membership is determined.
+   * @param pageSize The number of groups fetched per page.
+   */
+  private UserGroupsInteractor(CrowdClient client, boolean ownsClient, MembershipMode mode, int pageSize)
+  {
+    Preconditions.checkArgument(pageSize > 0, "pageSize must be positive");
+
+    this.client = Preconditions.checkNotNull(client, "client cannot be null");
+    this.ownsClient = ownsClient;
+    this.mode = Preconditions.checkNotNull(mode, "mode cannot be null");
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Executes the interaction.  Paging stops as soon as every requested group has been found.
+   * @param username The username.
+   * @param groupnames The group names to check.
+   * @return The requested groups the user is a member of, or a {@link GroupError} if an error occurs (for example,
+   *         if the user does not exist).
+   */
+  public Either<Memberships, GroupError> execute(String username, Collection<String> groupnames)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupnames, "groupnames cannot be null");
+
+    final Matching matching = new Matching(username, groupnames, this.pageSize);
+
+    for (int start = 0; ! matching.isDone(); start += this.pageSize)
+    {
+      final Either<NameList, GroupError> page = page(username, start);
+      if (page.isError())
+      {
+        return Either.error(page.getError());
+      }
+
+      matching.accept(page.getValue());
+    }
+
+    return Either.value(matching.getMemberships());
+  }
+
+  /**
+   * Executes the interaction asynchronously.  Cancelling the returned future aborts the HTTP request.
+   * @param username The username.
+   * @param groupnames The group names to check.
+   * @return The future result of {@link #execute}.
+   */
+  public CompletableFuture<Either<Memberships, GroupError>> executeAsync(String username,
+                                                                         Collection<String> groupnames)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupnames, "groupnames cannot be null");
+
+    final Matching matching = new Matching(username, groupnames, this.pageSize);
+    final AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+    final CompletableFuture<Either<Memberships, GroupError>> future =
+        new CompletableFuture<Either<Memberships, GroupError>>()
+        {
+          @Override
+          public boolean cancel(boolean mayInterruptIfRunning)
+          {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            final CompletableFuture<?> page = current.get();
+            if (page != null)
+            {
+              page.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+          }
+        };
+
+    fetchAsync(matching, 0, current, future);
+    return future;
+  }
+
+  /**
+   * Lists every group the user is a member of, according to the membership mode.
+   * @param username The username.
+   * @return The group names, or a {@link GroupError} if an error occurs.
+   */
+  public Either<Set<String>, GroupError> groupsOf(String username)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+
+    final ImmutableSet.Builder<String> groups = ImmutableSet.builder();
+
+    for (int start = 0; ; start += this.pageSize)
+    {
+      final Either<NameList, GroupError> page = page(username, start);
+      if (page.isError())
+      {
+        return Either.error(page.getError());
+      }
+
+      groups.addAll(page.getValue().getNames());
+
+      if (page.getValue().getNames().size() < this.pageSize)
+      {
+        return Either.value(groups.build());
+      }
+    }
+  }
+
+  /**
+   * Fetches the pages of the user's groups asynchronously, one after another, until matching is done.
+   * @param matching The matching in progress.
+   * @param start The index of the first group on the next page.
+   * @param current Holds the page request in flight, so that cancelling the result can abort it.
+   * @param future The future result, completed once matching is done.
+   */
+  private void fetchAsync(Matching matching,
+                          int start,
+                          AtomicReference<CompletableFuture<?>> current,
+                          CompletableFuture<Either<Memberships, GroupError>> future)
+  {
+    if (matching.isDone())
+    {
+      future.complete(Either.value(matching.getMemberships()));
+      return;
+    }
+
+    final CompletableFuture<Either<NameList, GroupError>> page =
+        this.client.executeAsync(pageRequest(matching.username, start), UserGroupsInteractor::buildPage);
+    current.set(page);
+    if (future.isCancelled())
+    {
+      page.cancel(true);
+      return;
+    }
+
+    page.whenComplete((result, error) -> {
+      if (error != null)
+      {
+        future.completeExceptionally(error);
+      }
+      else if (result.isError())
+      {
+        future.complete(Either.error(result.getError()));
+      }
+      else
+      {
+        matching.accept(result.getValue());
+        fetchAsync(matching, start + this.pageSize, current, future);
+      }
+    });
+  }
+
+  /**
+   * Fetches one page of the user's groups.
+   * @param username The username.
+   * @param start The index of the first group on the page.
+   * @return The page, or the error.
+   */
+  private Either<NameList, GroupError> page(String username, int start)
+  {
+    return this.client.execute(pageRequest(username, start), UserGroupsInteractor::buildPage);
+  }
+
+  /**
+   * Builds the request for one page of the user's groups.
+   * @param username The username.
+   * @param start The index of the first group on the page.
+   * @return The request.
+   */
+  private TransportRequest pageRequest(String username, int start)
+  {
+    return this.client.resource("rest/usermanagement/latest/user/group/" + this.mode.getPath())
+        .queryParam("username", username)
+        .queryParam("start-index", start)
+        .queryParam("max-results", this.pageSize)
+        .get();
+  }
+
+  /**
+   * Reads a page of the user's groups from a response.
+   * @param response The response.
+   * @return The page, or the error.
+   */
+  private static Either<NameList, GroupError> buildPage(TransportResponse response)
+  {
+    final InputStream json = response.getBody();
+
+    if (response.getStatus() == HttpURLConnection.HTTP_OK)
+    {
+      return Either.value(JsonCodec.getDefault().decode(json, NameList.class));
+    }
+    else
+    {
+      return Either.error(JsonCodec.getDefault().decode(json, GroupError.class));
+    }
+  }
+
+  /**
+   * Gets the key used to match a group name case-insensitively.
+   * @param groupname The group name.
+   * @return The key.
+   */
+  private static String key(String groupname)
+  {
+    return groupname.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Closes the interactor.  The underlying client is only closed if it is owned by this interactor.
+   */
+  @Override
+  public void close()
+  {
+    if (this.ownsClient)
+    {
+      this.client.close();
+    }
+  }
+
+  /**
+   * The matching of a user's groups against the requested groups, page by page.  It is used by one request at a
+   * time.
+   */
+  private static class Matching
+  {
+    /** The username. */
+    private final String username;
+
+    /** The requested groups. */
+    private final ImmutableSet<String> requested;
+
+    /** The requested groups, by matching key. */
+    private final ImmutableListMultimap<String, String> byKey;
+
+    /** The number of groups fetched per page. */
+    private final int pageSize;
+
+    /** The requested groups found so far. */
+    private final Set<String> found;
+
+    /** Is matching done, either because every requested group has been found or the last page has been read? */
+    private boolean done;
+
+    /**
+     * Constructor.
+     * @param username The username.
+     * @param groupnames The requested groups.
+     * @param pageSize The number of groups fetched per page.
+     */
+    private Matching(String username, Collection<String> groupnames, int pageSize)
+    {
+      this.username = username;
+      this.requested = ImmutableSet.copyOf(groupnames);
+      this.byKey = Multimaps.index(this.requested, UserGroupsInteractor::key);
+      this.pageSize = pageSize;
+      this.found = new HashSet<>();
+      this.done = this.requested.isEmpty();
+    }
+
+    /**
+     * Matches a page of the user's groups.
+     * @param page The page.
+     */
+    private void accept(NameList page)
+    {
+      for (final String group : page.getNames())
+      {
+        this.found.addAll(this.byKey.get(key(group)));
+      }
+
+      this.done = (this.found.size() == this.requested.size() || page.getNames().size() < this.pageSize);
+    }
+
+    /**
+     * Is matching done?
+     * @return True if no more pages are needed.
+     */
+    private boolean isDone()
+    {
+      return this.done;
+    }
+
+    /**
+     * Gets the memberships found.
+     * @return The memberships.
+     */
+    private Memberships getMemberships()
+    {
+      return new Memberships(this.username, this.requested, this.found);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.breaker;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.TransportException;
+import com.fatboyindustrial.crowdcontrol.cache.CachingAuthenticationInteractor;
+import com.fatboyindustrial.crowdcontrol.cache.PasswordVerifier;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An authentication interaction that makes its authentications through a {@link CircuitBreaker}.
+ * <p>
+ * While the breaker is open, an authentication is answered with an {@link AuthenticationError} whose reason is
+ * {@link CircuitBreaker#CIRCUIT_OPEN}.  If a fallback is configured, the last successful authentication of the user
+ * is returned instead, both while the breaker is open and when an authentication fails, provided that the password
+ * matches the one that authenticated.  As in {@link CachingAuthenticationInteractor}, only a salted verifier of the
+ * password is kept, and a user is forgotten as soon as Crowd answers an authentication of them with an error.
+ * <p>
+ * An authentication that fails because Crowd cannot be reached, with no fallback to return, is answered with an error
+ * whose reason is {@link CircuitBreaker#TRANSPORT_FAILURE} rather than by throwing.
+ */
+@ThreadSafe
+public class BreakingAuthenticationInteractor implements AuthenticationInteraction
+{
+  /** The interaction that performs the authentications. */
+  private final AuthenticationInteraction delegate;
+
+  /** The breaker. */
+  private final CircuitBreaker breaker;
+
+  /** The last successful authentications, keyed by username, if a fallback is configured. */
+  private final Optional<Cache<String, Entry>> lastKnownGood;
+
+  /**
+   * Constructor, without a fallback.
+   * @param delegate The interaction that performs the authentications.
+   * @param breaker The breaker.
+   */
+  public BreakingAuthenticationInteractor(AuthenticationInteraction delegate, CircuitBreaker breaker)
+  {
+    this(delegate, breaker, Optional.<Cache<String, Entry>>absent());
+  }
+
+  /**
+   * Constructor, falling back to the last successful authentication.
+   * @param delegate The interaction that performs the authentications.
+   * @param breaker The breaker.
+   * @param fallbackSize The maximum number of users remembered for the fallback.
+   */
+  public BreakingAuthenticationInteractor(AuthenticationInteraction delegate, CircuitBreaker breaker, long fallbackSize)
+  {
+    this(delegate, breaker, Optional.of(fallback(fallbackSize)));
+  }
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the authentications.
+   * @param breaker The breaker.
+   * @param lastKnownGood The last successful authentications, if a fallback is configured.
+   */
+  private BreakingAuthenticationInteractor(AuthenticationInteraction delegate,
+                                           CircuitBreaker breaker,
+                                           Optional<Cache<String, Entry>> lastKnownGood)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.breaker = Preconditions.checkNotNull(breaker, "breaker cannot be null");
+    this.lastKnownGood = lastKnownGood;
+  }
+
+  /**
+   * Executes the interaction through the breaker.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return Either a successful response, or the reason for the error.
+   */
+  @Override
+  public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    return this.breaker.execute(() -> remember(username, password, this.delegate.execute(username, password)),
+                                () -> fallback(username, password),
+                                BreakingAuthenticationInteractor::open,
+                                BreakingAuthenticationInteractor::failed);
+  }
+
+  /**
+   * Executes the interaction asynchronously through the breaker.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                             String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    return this.breaker.executeAsync(() -> {
+                                       final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>>
+                                           future = this.delegate.executeAsync(username, password);
+                                       future.thenAccept(result -> remember(username, password, result));
+                                       return future;
+                                     },
+                                     () -> fallback(username, password),
+                                     BreakingAuthenticationInteractor::open,
+                                     BreakingAuthenticationInteractor::failed);
+  }
+
+  /**
+   * Gets the breaker.
+   * @return The breaker.
+   */
+  public CircuitBreaker getBreaker()
+  {
+    return this.breaker;
+  }
+
+  /**
+   * Records the result of an authentication for the fallback.
+   * @param username The username.
+   * @param password The password.
+   * @param result The result.
+   * @return The result.
+   */
+  private Either<AuthenticationResponse, AuthenticationError> remember(
+      String username, String password, Either<AuthenticationResponse, AuthenticationError> result)
+  {
+    if (this.lastKnownGood.isPresent())
+    {
+      if (result.isError())
+      {
+        this.lastKnownGood.get().invalidate(username);
+      }
+      else
+      {
+        this.lastKnownGood.get().put(username, new Entry(
+            result.getValue(),
+            PasswordVerifier.create(password, CachingAuthenticationInteractor.DEFAULT_HASH_ITERATIONS)));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Gets the fallback result of an authentication.
+   * @param username The username.
+   * @param password The password, which must match the remembered verifier.
+   * @return The last successful authentication, if there is one.
+   */
+  private Optional<Either<AuthenticationResponse, AuthenticationError>> fallback(String username, String password)
+  {
+    if (! this.lastKnownGood.isPresent())
+    {
+      return Optional.absent();
+    }
+
+    final Entry entry = this.lastKnownGood.get().getIfPresent(username);
+    return (entry != null && entry.verifier.matches(password)
+        ? Optional.of(Either.<AuthenticationResponse, AuthenticationError>value(entry.response))
+        : Optional.<Either<AuthenticationResponse, AuthenticationError>>absent());
+  }
+
+  /**
+   * Creates the result of an authentication refused by the open breaker.
+   * @return The error.
+   */
+  private static Either<AuthenticationResponse, AuthenticationError> open()
+  {
+    return Either.error(new AuthenticationError(CircuitBreaker.CIRCUIT_OPEN,
+                                                "Crowd is unavailable; the circuit is open"));
+  }
+
+  /**
+   * Maps the failure of an authentication to its result.
+   * @param failure The failure.
+   * @return An error if Crowd could not be reached, or absent to pass on any other failure.
+   */
+  private static Optional<Either<AuthenticationResponse, AuthenticationError>> failed(Throwable failure)
+  {
+    return (failure instanceof TransportException
+        ? Optional.of(Either.<AuthenticationResponse, AuthenticationError>error(
+            new AuthenticationError(CircuitBreaker.TRANSPORT_FAILURE,
+                                    "Crowd could not be reached: " + failure.getMessage())))
+        : Optional.<Either<AuthenticationResponse, AuthenticationError>>absent());
+  }
+
+  /**
+   * Creates the store of successful authentications.
+   * @param fallbackSize The maximum number of users remembered.
+   * @return The store.
+   */
+  private static Cache<String, Entry> fallback(long fallbackSize)
+  {
+    Preconditions.checkArgument(fallbackSize > 0, "fallbackSize must be positive");
+    return CacheBuilder.newBuilder().maximumSize(fallbackSize).build();
+  }
+
+  /**
+   * A successful authentication.
+   */
+  @Immutable
+  private static class Entry
+  {
+    /** The authentication response. */
+    private final AuthenticationResponse response;
+
+    /** The verifier of the password used to authenticate. */
+    private final PasswordVerifier verifier;
+
+    /**
+     * Constructor.
+     * @param response The authentication response.
+     * @param verifier The verifier of the password used to authenticate.
+     */
+    private Entry(AuthenticationResponse response, PasswordVerifier verifier)
+    {
+      this.response = response;
+      this.verifier = verifier;
+    }
+  }
+}
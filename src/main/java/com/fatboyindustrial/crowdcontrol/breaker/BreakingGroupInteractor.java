@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.breaker;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.TransportException;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A group interaction that makes its lookups through a {@link CircuitBreaker}.
+ * <p>
+ * While the breaker is open, a lookup is answered with a {@link GroupError} whose reason is
+ * {@link CircuitBreaker#CIRCUIT_OPEN}.  If a fallback is configured, the last membership Crowd confirmed for the user
+ * and group is returned instead, both while the breaker is open and when a lookup fails; a membership is forgotten
+ * as soon as Crowd answers a lookup of it with an error.
+ * <p>
+ * A lookup that fails because Crowd cannot be reached, with no fallback to return, is answered with an error whose
+ * reason is {@link CircuitBreaker#TRANSPORT_FAILURE} rather than by throwing.
+ */
+@ThreadSafe
+public class BreakingGroupInteractor implements GroupInteraction
+{
+  /** The interaction that performs the lookups. */
+  private final GroupInteraction delegate;
+
+  /** The breaker. */
+  private final CircuitBreaker breaker;
+
+  /** The last confirmed memberships, keyed by username and group name, if a fallback is configured. */
+  private final Optional<Cache<List<String>, GroupResponse>> lastKnownGood;
+
+  /**
+   * Constructor, without a fallback.
+   * @param delegate The interaction that performs the lookups.
+   * @param breaker The breaker.
+   */
+  public BreakingGroupInteractor(GroupInteraction delegate, CircuitBreaker breaker)
+  {
+    this(delegate, breaker, Optional.<Cache<List<String>, GroupResponse>>absent());
+  }
+
+  /**
+   * Constructor, falling back to the last confirmed membership.
+   * @param delegate The interaction that performs the lookups.
+   * @param breaker The breaker.
+   * @param fallbackSize The maximum number of memberships remembered for the fallback.
+   */
+  public BreakingGroupInteractor(GroupInteraction delegate, CircuitBreaker breaker, long fallbackSize)
+  {
+    this(delegate, breaker, Optional.of(fallback(fallbackSize)));
+  }
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the lookups.
+   * @param breaker The breaker.
+   * @param lastKnownGood The last confirmed memberships, if a fallback is configured.
+   */
+  private BreakingGroupInteractor(GroupInteraction delegate,
+                                  CircuitBreaker breaker,
+                                  Optional<Cache<List<String>, GroupResponse>> lastKnownGood)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.breaker = Preconditions.checkNotNull(breaker, "breaker cannot be null");
+    this.lastKnownGood = lastKnownGood;
+  }
+
+  /**
+   * Executes the interaction through the breaker.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if an
+   *         error occurs.  If a user is not a member of a group, this is indicated by a {@link GroupError}.
+   */
+  @Override
+  public Either<GroupResponse, GroupError> execute(String username, String groupname)
+  {
+    final List<String> key = key(username, groupname);
+    return this.breaker.execute(() -> remember(key, this.delegate.execute(username, groupname)),
+                                () -> fallback(key),
+                                BreakingGroupInteractor::open,
+                                BreakingGroupInteractor::failed);
+  }
+
+  /**
+   * Executes the interaction asynchronously through the breaker.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+  {
+    final List<String> key = key(username, groupname);
+    return this.breaker.executeAsync(() -> {
+                                       final CompletableFuture<Either<GroupResponse, GroupError>> future =
+                                           this.delegate.executeAsync(username, groupname);
+                                       future.thenAccept(result -> remember(key, result));
+                                       return future;
+                                     },
+                                     () -> fallback(key),
+                                     BreakingGroupInteractor::open,
+                                     BreakingGroupInteractor::failed);
+  }
+
+  /**
+   * Gets the breaker.
+   * @return The breaker.
+   */
+  public CircuitBreaker getBreaker()
+  {
+    return this.breaker;
+  }
+
+  /**
+   * Records the result of a lookup for the fallback.
+   * @param key The username and group name.
+   * @param result The result.
+   * @return The result.
+   */
+  private Either<GroupResponse, GroupError> remember(List<String> key, Either<GroupResponse, GroupError> result)
+  {
+    if (this.lastKnownGood.isPresent())
+    {
+      if (result.isError())
+      {
+        this.lastKnownGood.get().invalidate(key);
+      }
+      else
+      {
+        this.lastKnownGood.get().put(key, result.getValue());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Gets the fallback result of a lookup.
+   * @param key The username and group name.
+   * @return The last confirmed membership, if there is one.
+   */
+  private Optional<Either<GroupResponse, GroupError>> fallback(List<String> key)
+  {
+    if (! this.lastKnownGood.isPresent())
+    {
+      return Optional.absent();
+    }
+
+    final GroupResponse response = this.lastKnownGood.get().getIfPresent(key);
+    return (response == null
+        ? Optional.<Either<GroupResponse, GroupError>>absent()
+        : Optional.of(Either.<GroupResponse, GroupError>value(response)));
+  }
+
+  /**
+   * Creates the result of a lookup refused by the open breaker.
+   * @return The error.
+   */
+  private static Either<GroupResponse, GroupError> open()
+  {
+    return Either.error(new GroupError(CircuitBreaker.CIRCUIT_OPEN, "Crowd is unavailable; the circuit is open"));
+  }
+
+  /**
+   * Maps the failure of a lookup to its result.
+   * @param failure The failure.
+   * @return An error if Crowd could not be reached, or absent to pass on any other failure.
+   */
+  private static Optional<Either<GroupResponse, GroupError>> failed(Throwable failure)
+  {
+    return (failure instanceof TransportException
+        ? Optional.of(Either.<GroupResponse, GroupError>error(
+            new GroupError(CircuitBreaker.TRANSPORT_FAILURE, "Crowd could not be reached: " + failure.getMessage())))
+        : Optional.<Either<GroupResponse, GroupError>>absent());
+  }
+
+  /**
+   * Creates the store of confirmed memberships.
+   * @param fallbackSize The maximum number of memberships remembered.
+   * @return The store.
+   */
+  private static Cache<List<String>, GroupResponse> fallback(long fallbackSize)
+  {
+    Preconditions.checkArgument(fallbackSize > 0, "fallbackSize must be positive");
+    return CacheBuilder.newBuilder().maximumSize(fallbackSize).build();
+  }
+
+  /**
+   * Creates the key identifying a lookup.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The key.
+   */
+  private static List<String> key(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    return ImmutableList.of(username, groupname);
+  }
+}
@@ -0,0 +1,561 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.breaker;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A circuit breaker for calls to Crowd.
+ * <p>
+ * While the breaker is {@link State#CLOSED}, calls pass through, and the outcome of the last {@code windowSize} calls
+ * is recorded.  A call fails if it throws (because Crowd cannot be reached, or answers with something other than
+ * JSON), and is slow if it takes longer than the slow call threshold.  Once the window is full, the breaker trips
+ * {@link State#OPEN} if the proportion of failed calls or of slow calls reaches its threshold.  While open, calls are
+ * answered at once without contacting Crowd.  After the open time passes, the breaker is {@link State#HALF_OPEN}: a
+ * few trial calls pass through, and the breaker closes if they all succeed promptly, or opens again if any does not.
+ * <p>
+ * A call answered without contacting Crowd receives a fallback result if one is available, and otherwise an error
+ * whose reason is {@link #CIRCUIT_OPEN}.  A call that fails likewise receives the fallback result if there is one, and
+ * otherwise the result its failure maps to (an error whose reason is {@link #TRANSPORT_FAILURE}, for the breaking
+ * interactors), so that callers are answered rather than thrown at.
+ */
+@ThreadSafe
+public class CircuitBreaker
+{
+  /** The symbolic reason of the error returned while the breaker is open. */
+  public static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+
+  /** The symbolic reason of the error returned by the breaking interactors when Crowd cannot be reached. */
+  public static final String TRANSPORT_FAILURE = "TRANSPORT_FAILURE";
+
+  /** The default number of calls whose outcome is considered. */
+  public static final int DEFAULT_WINDOW_SIZE = 20;
+
+  /** The default proportion of failed calls at which the breaker opens. */
+  public static final double DEFAULT_FAILURE_RATE = 0.5;
+
+  /** The default time, in milliseconds, beyond which a call is slow. */
+  public static final long DEFAULT_SLOW_CALL_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+  /** The default proportion of slow calls at which the breaker opens. */
+  public static final double DEFAULT_SLOW_CALL_RATE = 0.5;
+
+  /** The default time, in milliseconds, the breaker stays open before allowing trial calls. */
+  public static final long DEFAULT_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /** The default number of trial calls made while half open. */
+  public static final int DEFAULT_TRIAL_CALLS = 3;
+
+  /**
+   * The state of a breaker.
+   */
+  public enum State
+  {
+    /** Calls pass through. */
+    CLOSED,
+
+    /** Calls are answered without contacting Crowd. */
+    OPEN,
+
+    /** A limited number of trial calls pass through. */
+    HALF_OPEN
+  }
+
+  /** The proportion of failed calls at which the breaker opens. */
+  private final double failureRate;
+
+  /** The time, in nanoseconds, beyond which a call is slow. */
+  private final long slowCallNanos;
+
+  /** The proportion of slow calls at which the breaker opens. */
+  private final double slowCallRate;
+
+  /** The time, in nanoseconds, the breaker stays open. */
+  private final long openNanos;
+
+  /** The number of trial calls made while half open. */
+  private final int trialCalls;
+
+  /** The source of time. */
+  private final Ticker ticker;
+
+  /** The outcomes of the recent calls: a ring of bit sets, where bit 0 marks a failure and bit 1 a slow call. */
+  @GuardedBy("this")
+  private final byte[] window;
+
+  /** The number of outcomes recorded in the window. */
+  @GuardedBy("this")
+  private int recorded;
+
+  /** The index of the next outcome in the window. */
+  @GuardedBy("this")
+  private int next;
+
+  /** The number of failures in the window. */
+  @GuardedBy("this")
+  private int failures;
+
+  /** The number of slow calls in the window. */
+  @GuardedBy("this")
+  private int slowCalls;
+
+  /** The state.  Volatile so that an open breaker can answer without taking the lock. */
+  private volatile State state;
+
+  /** The ticker reading at which an open breaker allows trial calls. */
+  private volatile long openUntil;
+
+  /** The number of trial calls started while half open. */
+  @GuardedBy("this")
+  private int trialsStarted;
+
+  /** The number of trial calls that succeeded while half open. */
+  @GuardedBy("this")
+  private int trialsSucceeded;
+
+  /**
+   * Constructor, using the default thresholds.
+   */
+  public CircuitBreaker()
+  {
+    this(DEFAULT_WINDOW_SIZE, DEFAULT_FAILURE_RATE, DEFAULT_SLOW_CALL_MILLIS, DEFAULT_SLOW_CALL_RATE,
+         DEFAULT_OPEN_MILLIS, DEFAULT_TRIAL_CALLS);
+  }
+
+  /**
+   * Constructor.
+   * @param windowSize The number of calls whose outcome is considered.
+   * @param failureRate The proportion of failed calls at which the breaker opens.
+   * @param slowCallMillis The time, in milliseconds, beyond which a call is slow.
+   * @param slowCallRate The proportion of slow calls at which the breaker opens.
+   * @param openMillis The time, in milliseconds, the breaker stays open before allowing trial calls.
+   * @param trialCalls The number of trial calls made while half open.
+   * @throws IllegalArgumentException If a count or time is not positive, or a proportion lies outside (0, 1].
+   */
+  public CircuitBreaker(int windowSize,
+                        double failureRate,
+                        long slowCallMillis,
+                        double slowCallRate,
+                        long openMillis,
+                        int trialCalls) throws IllegalArgumentException
+  {
+    this(windowSize, failureRate, slowCallMillis, slowCallRate, openMillis, trialCalls, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param windowSize The number of calls whose outcome is considered.
+   * @param failureRate The proportion of failed calls at which the breaker opens.
+   * @param slowCallMillis The time, in milliseconds, beyond which a call is slow.
+   * @param slowCallRate The proportion of slow calls at which the breaker opens.
+   * @param openMillis The time, in milliseconds, the breaker stays open before allowing trial calls.
+   * @param trialCalls The number of trial calls made while half open.
+   * @param ticker The source of time.
+   * @throws IllegalArgumentException If a count or time is not positive, or a proportion lies outside (0, 1].
+   */
+  @VisibleForTesting
+  CircuitBreaker(int windowSize,
+                 double failureRate,
+                 long slowCallMillis,
+                 double slowCallRate,
+                 long openMillis,
+                 int trialCalls,
+                 Ticker ticker) throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(windowSize > 0, "windowSize must be positive");
+    Preconditions.checkArgument(failureRate > 0 && failureRate <= 1, "failureRate must lie in (0, 1]");
+    Preconditions.checkArgument(slowCallMillis > 0, "slowCallMillis must be positive");
+    Preconditions.checkArgument(slowCallRate > 0 && slowCallRate <= 1, "slowCallRate must lie in (0, 1]");
+    Preconditions.checkArgument(openMillis > 0, "openMillis must be positive");
+    Preconditions.checkArgument(trialCalls > 0, "trialCalls must be positive");
+
+    this.window = new byte[windowSize];
+    this.failureRate = failureRate;
+    this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    this.slowCallRate = slowCallRate;
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    this.trialCalls = trialCalls;
+    this.ticker = Preconditions.checkNotNull(ticker, "ticker cannot be null");
+    this.state = State.CLOSED;
+  }
+
+  /**
+   * Makes a call through the breaker.
+   * @param call Makes the call.
+   * @param fallback Gets the fallback result, if there is one.
+   * @param open Creates the result of a call refused by an open breaker, when there is no fallback.
+   * @param <T> The result type.
+   * @return The result of the call, or the fallback or refusal if the breaker is open.
+   * @throws RuntimeException If the call fails and there is no fallback.
+   */
+  public <T> T execute(Supplier<T> call, Supplier<Optional<T>> fallback, Supplier<T> open) throws RuntimeException
+  {
+    return execute(call, fallback, open, failure -> Optional.<T>absent());
+  }
+
+  /**
+   * Makes a call through the breaker, mapping failures to results.
+   * @param call Makes the call.
+   * @param fallback Gets the fallback result, if there is one.
+   * @param open Creates the result of a call refused by an open breaker, when there is no fallback.
+   * @param failed Maps the failure of a call to its result, when there is no fallback, or gives absent to rethrow it.
+   * @param <T> The result type.
+   * @return The result of the call, the fallback or refusal if the breaker is open, or the mapped failure.
+   * @throws RuntimeException If the call fails, there is no fallback, and the failure is not mapped.
+   */
+  public <T> T execute(Supplier<T> call,
+                       Supplier<Optional<T>> fallback,
+                       Supplier<T> open,
+                       Function<? super Throwable, Optional<T>> failed) throws RuntimeException
+  {
+    if (! tryAcquire())
+    {
+      return refuse(fallback, open);
+    }
+
+    final long started = this.ticker.read();
+    final T result;
+    try
+    {
+      result = call.get();
+    }
+    catch (RuntimeException e)
+    {
+      onFailure();
+      final Optional<T> alternative = fallback.get().or(failed.apply(e));
+      if (alternative.isPresent())
+      {
+        return alternative.get();
+      }
+      throw e;
+    }
+
+    onSuccess(this.ticker.read() - started);
+    return result;
+  }
+
+  /**
+   * Makes an asynchronous call through the breaker.  Cancelling the returned future cancels the call.
+   * @param call Makes the call.
+   * @param fallback Gets the fallback result, if there is one.
+   * @param open Creates the result of a call refused by an open breaker, when there is no fallback.
+   * @param <T> The result type.
+   * @return The future result of the call, or the fallback or refusal if the breaker is open.
+   */
+  public <T> CompletableFuture<T> executeAsync(Supplier<? extends CompletableFuture<T>> call,
+                                               Supplier<Optional<T>> fallback,
+                                               Supplier<T> open)
+  {
+    return executeAsync(call, fallback, open, failure -> Optional.<T>absent());
+  }
+
+  /**
+   * Makes an asynchronous call through the breaker, mapping failures to results.  Cancelling the returned future
+   * cancels the call.
+   * @param call Makes the call.
+   * @param fallback Gets the fallback result, if there is one.
+   * @param open Creates the result of a call refused by an open breaker, when there is no fallback.
+   * @param failed Maps the failure of a call to its result, when there is no fallback, or gives absent to fail with it.
+   * @param <T> The result type.
+   * @return The future result of the call, the fallback or refusal if the breaker is open, or the mapped failure.
+   */
+  public <T> CompletableFuture<T> executeAsync(Supplier<? extends CompletableFuture<T>> call,
+                                               Supplier<Optional<T>> fallback,
+                                               Supplier<T> open,
+                                               Function<? super Throwable, Optional<T>> failed)
+  {
+    if (! tryAcquire())
+    {
+      return CompletableFuture.completedFuture(refuse(fallback, open));
+    }
+
+    final long started = this.ticker.read();
+    final AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+    final CompletableFuture<T> future = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        final CompletableFuture<T> sent = current.get();
+        if (sent != null)
+        {
+          sent.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+      }
+    };
+
+    final CompletableFuture<T> sent;
+    try
+    {
+      sent = call.get();
+    }
+    catch (RuntimeException e)
+    {
+      onFailure();
+      final Optional<T> alternative = fallback.get().or(failed.apply(e));
+      if (alternative.isPresent())
+      {
+        future.complete(alternative.get());
+      }
+      else
+      {
+        future.completeExceptionally(e);
+      }
+      return future;
+    }
+    current.set(sent);
+
+    sent.whenComplete((value, error) -> {
+      if (error == null)
+      {
+        onSuccess(this.ticker.read() - started);
+        future.complete(value);
+        return;
+      }
+
+      final Throwable cause = (error instanceof CompletionException && error.getCause() != null
+          ? error.getCause()
+          : error);
+      if (cause instanceof CancellationException)
+      {
+        onAbandon();
+        future.completeExceptionally(cause);
+        return;
+      }
+
+      onFailure();
+      final Optional<T> alternative = fallback.get().or(failed.apply(cause));
+      if (alternative.isPresent())
+      {
+        future.complete(alternative.get());
+      }
+      else
+      {
+        future.completeExceptionally(cause);
+      }
+    });
+
+    return future;
+  }
+
+  /**
+   * Gets the state of the breaker.  An open breaker whose open time has passed is reported as half open.
+   * @return The state.
+   */
+  public State getState()
+  {
+    final State current = this.state;
+    return (current == State.OPEN && this.ticker.read() - this.openUntil >= 0 ? State.HALF_OPEN : current);
+  }
+
+  /**
+   * Asks to make a call.
+   * @return True if the call may be made, or false if the breaker is open.
+   */
+  boolean tryAcquire()
+  {
+    // an open breaker answers without taking the lock
+    if (this.state == State.OPEN && this.ticker.read() - this.openUntil < 0)
+    {
+      return false;
+    }
+
+    synchronized (this)
+    {
+      switch (this.state)
+      {
+        case CLOSED:
+          return true;
+
+        case OPEN:
+          if (this.ticker.read() - this.openUntil < 0)
+          {
+            return false;
+          }
+          // the open time has passed: go half open, and take the first trial
+          this.state = State.HALF_OPEN;
+          this.trialsStarted = 1;
+          this.trialsSucceeded = 0;
+          return true;
+
+        case HALF_OPEN:
+        default:
+          if (this.trialsStarted >= this.trialCalls)
+          {
+            return false;
+          }
+          this.trialsStarted++;
+          return true;
+      }
+    }
+  }
+
+  /**
+   * Records a call that completed.
+   * @param latencyNanos The time the call took, in nanoseconds.
+   */
+  synchronized void onSuccess(long latencyNanos)
+  {
+    final boolean slow = (latencyNanos > this.slowCallNanos);
+
+    if (this.state == State.HALF_OPEN)
+    {
+      if (slow)
+      {
+        open();
+      }
+      else if (++this.trialsSucceeded >= this.trialCalls)
+      {
+        close();
+      }
+    }
+    else if (this.state == State.CLOSED)
+    {
+      record(false, slow);
+    }
+  }
+
+  /**
+   * Records a call that failed.
+   */
+  synchronized void onFailure()
+  {
+    if (this.state == State.HALF_OPEN)
+    {
+      open();
+    }
+    else if (this.state == State.CLOSED)
+    {
+      record(true, false);
+    }
+  }
+
+  /**
+   * Records a call that was cancelled before it completed, which says nothing about Crowd.
+   */
+  synchronized void onAbandon()
+  {
+    if (this.state == State.HALF_OPEN && this.trialsStarted > this.trialsSucceeded)
+    {
+      this.trialsStarted--;
+    }
+  }
+
+  /**
+   * Answers a call refused by an open breaker.
+   * @param fallback Gets the fallback result, if there is one.
+   * @param open Creates the result of a refused call, when there is no fallback.
+   * @param <T> The result type.
+   * @return The fallback result, or the refusal.
+   */
+  private static <T> T refuse(Supplier<Optional<T>> fallback, Supplier<T> open)
+  {
+    final Optional<T> alternative = fallback.get();
+    return (alternative.isPresent() ? alternative.get() : open.get());
+  }
+
+  /**
+   * Records the outcome of a call while closed, opening the breaker if too many recent calls failed or were slow.
+   * @param failed Did the call fail?
+   * @param slow Was the call slow?
+   */
+  @GuardedBy("this")
+  private void record(boolean failed, boolean slow)
+  {
+    if (this.recorded == this.window.length)
+    {
+      final byte evicted = this.window[this.next];
+      this.failures -= (evicted & 1);
+      this.slowCalls -= (evicted >> 1) & 1;
+    }
+    else
+    {
+      this.recorded++;
+    }
+
+    this.window[this.next] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+    this.failures += (failed ? 1 : 0);
+    this.slowCalls += (slow ? 1 : 0);
+    this.next = (this.next + 1) % this.window.length;
+
+    if (this.recorded == this.window.length &&
+        (this.failures >= this.failureRate * this.recorded || this.slowCalls >= this.slowCallRate * this.recorded))
+    {
+      open();
+    }
+  }
+
+  /**
+   * Opens the breaker.
+   */
+  @GuardedBy("this")
+  private void open()
+  {
+    this.openUntil = this.ticker.read() + this.openNanos;
+    this.state = State.OPEN;
+  }
+
+  /**
+   * Closes the breaker, forgetting the calls made before it opened.
+   */
+  @GuardedBy("this")
+  private void close()
+  {
+    this.recorded = 0;
+    this.next = 0;
+    this.failures = 0;
+    this.slowCalls = 0;
+    this.state = State.CLOSED;
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public synchronized String toString()
+  {
+    return "CircuitBreaker{" +
+           "state=" + getState() +
+           ", failures=" + this.failures +
+           ", slowCalls=" + this.slowCalls +
+           ", recorded=" + this.recorded +
+           '}';
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.cache;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A point-in-time snapshot of cache statistics.
+ */
+@Immutable
+public class CacheStatistics
+{
+  /** The number of lookups answered from the cache. */
+  private final long hitCount;
+
+  /** The number of lookups that went to Crowd. */
+  private final long missCount;
+
+  /** The number of entries evicted because of size or age. */
+  private final long evictionCount;
+
+  /**
+   * Constructor.
+   * @param hitCount The number of lookups answered from the cache.
+   * @param missCount The number of lookups that went to Crowd.
+   * @param evictionCount The number of entries evicted because of size or age.
+   */
+  public CacheStatistics(long hitCount, long missCount, long evictionCount)
+  {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+  }
+
+  /**
+   * Gets the number of lookups answered from the cache.
+   * @return The hit count.
+   */
+  public long getHitCount()
+  {
+    return this.hitCount;
+  }
+
+  /**
+   * Gets the number of lookups that went to Crowd.
+   * @return The miss count.
+   */
+  public long getMissCount()
+  {
+    return this.missCount;
+  }
+
+  /**
+   * Gets the number of entries evicted because of size or age.
+   * @return The eviction count.
+   */
+  public long getEvictionCount()
+  {
+    return this.evictionCount;
+  }
+
+  /**
+   * Gets the proportion of lookups answered from the cache.
+   * @return The hit rate, between 0 and 1 (or 1 if there have been no lookups).
+   */
+  public double getHitRate()
+  {
+    final long total = this.hitCount + this.missCount;
+    return (total == 0 ? 1.0 : (double) this.hitCount / total);
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "CacheStatistics{" +
+           "hitCount=" + this.hitCount +
+           ", missCount=" + this.missCount +
+           ", evictionCount=" + this.evictionCount +
+           '}';
+  }
+}
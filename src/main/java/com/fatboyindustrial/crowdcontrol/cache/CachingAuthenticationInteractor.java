@@ -0,0 +1,297 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.cache;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An authentication interaction that caches successful authentications in front of another interaction.
+ * <p>
+ * Entries are keyed by username and hold the {@link AuthenticationResponse} together with a salted PBKDF2 verifier
+ * of the password; the password itself is never stored.  A later authentication with a matching password is
+ * answered from the cache, while a mismatched password goes to Crowd.  Failed authentications are never cached, and
+ * a failure that concerns the user's credentials (one of {@link #CREDENTIAL_FAILURES}) evicts any cached entry for
+ * the user.  Transient failures, such as an open circuit or a missed deadline, leave the entry in place.  Entries
+ * expire a fixed time after they are written, and the least recently used entries are evicted once the cache is full.
+ * <p>
+ * The cost of a cache hit is dominated by the verifier's PBKDF2 iterations, which trade hit latency against the
+ * work needed to brute-force a password from a heap dump.
+ */
+@ThreadSafe
+public class CachingAuthenticationInteractor implements AuthenticationInteraction
+{
+  /** The default number of PBKDF2 iterations used for password verifiers. */
+  public static final int DEFAULT_HASH_ITERATIONS = 1024;
+
+  /** The reasons for failure that show the user's credentials are no longer good, and so evict a cached entry. */
+  public static final Set<String> CREDENTIAL_FAILURES = ImmutableSet.of(
+      "INVALID_USER_AUTHENTICATION", "USER_NOT_FOUND", "INVALID_USER", "EXPIRED_CREDENTIAL", "INACTIVE_ACCOUNT");
+
+  /** The interaction used on a cache miss. */
+  private final AuthenticationInteraction delegate;
+
+  /** The cached authentications, keyed by username. */
+  private final Cache<String, Entry> cache;
+
+  /** The number of PBKDF2 iterations used for password verifiers. */
+  private final int hashIterations;
+
+  /** The number of authentications answered from the cache. */
+  private final LongAdder hits;
+
+  /** The number of authentications that went to the delegate. */
+  private final LongAdder misses;
+
+  /** The number of entries evicted because of size or age. */
+  private final LongAdder evictions;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used on a cache miss.
+   * @param ttlMillis How long (in milliseconds) a successful authentication is cached.
+   * @param maximumSize The maximum number of cached users.
+   */
+  public CachingAuthenticationInteractor(AuthenticationInteraction delegate, long ttlMillis, long maximumSize)
+  {
+    this(delegate, ttlMillis, maximumSize, DEFAULT_HASH_ITERATIONS);
+  }
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used on a cache miss.
+   * @param ttlMillis How long (in milliseconds) a successful authentication is cached.
+   * @param maximumSize The maximum number of cached users.
+   * @param hashIterations The number of PBKDF2 iterations used for password verifiers.
+   */
+  public CachingAuthenticationInteractor(AuthenticationInteraction delegate,
+                                         long ttlMillis,
+                                         long maximumSize,
+                                         int hashIterations)
+  {
+    this(delegate, ttlMillis, maximumSize, hashIterations, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used on a cache miss.
+   * @param ttlMillis How long (in milliseconds) a successful authentication is cached.
+   * @param maximumSize The maximum number of cached users.
+   * @param hashIterations The number of PBKDF2 iterations used for password verifiers.
+   * @param ticker The time source.
+   */
+  @VisibleForTesting
+  CachingAuthenticationInteractor(AuthenticationInteraction delegate,
+                                  long ttlMillis,
+                                  long maximumSize,
+                                  int hashIterations,
+                                  Ticker ticker)
+  {
+    Preconditions.checkArgument(ttlMillis > 0, "ttlMillis must be positive");
+    Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive");
+    Preconditions.checkArgument(hashIterations > 0, "hashIterations must be positive");
+
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.hashIterations = hashIterations;
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .maximumSize(maximumSize)
+        .ticker(Preconditions.checkNotNull(ticker, "ticker cannot be null"))
+        .<String, Entry>removalListener(notification -> {
+          if (notification.wasEvicted())
+          {
+            this.evictions.increment();
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Executes the interaction, answering from the cache if possible.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return Either a successful response, or the reason for the error.
+   */
+  @Override
+  public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    final Either<AuthenticationResponse, AuthenticationError> cached = lookup(username, password);
+    if (cached != null)
+    {
+      return cached;
+    }
+
+    final Either<AuthenticationResponse, AuthenticationError> result = this.delegate.execute(username, password);
+    record(username, password, result);
+
+    return result;
+  }
+
+  /**
+   * Executes the interaction asynchronously, answering from the cache if possible.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                             String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    final Either<AuthenticationResponse, AuthenticationError> cached = lookup(username, password);
+    if (cached != null)
+    {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> future =
+        this.delegate.executeAsync(username, password);
+    future.thenAccept(result -> record(username, password, result));
+
+    return future;
+  }
+
+  /**
+   * Removes any cached authentication for the given user.
+   * @param username The username.
+   */
+  public void invalidate(String username)
+  {
+    this.cache.invalidate(Preconditions.checkNotNull(username, "username cannot be null"));
+  }
+
+  /**
+   * Removes all cached authentications.
+   */
+  public void invalidateAll()
+  {
+    this.cache.invalidateAll();
+  }
+
+  /**
+   * Gets the number of cached users.
+   * @return The approximate number of cached users.
+   */
+  public long size()
+  {
+    return this.cache.size();
+  }
+
+  /**
+   * Gets a snapshot of the cache statistics.
+   * @return The statistics.
+   */
+  public CacheStatistics getStatistics()
+  {
+    return new CacheStatistics(this.hits.sum(), this.misses.sum(), this.evictions.sum());
+  }
+
+  /**
+   * Looks up a cached authentication.
+   * @param username The username.
+   * @param password The password, which must match the cached verifier.
+   * @return The cached result, or null on a miss.
+   */
+  private Either<AuthenticationResponse, AuthenticationError> lookup(String username, String password)
+  {
+    final Entry entry = this.cache.getIfPresent(username);
+
+    if (entry != null && entry.verifier.matches(password))
+    {
+      this.hits.increment();
+      return Either.value(entry.response);
+    }
+
+    this.misses.increment();
+    return null;
+  }
+
+  /**
+   * Records the result of an authentication that went to the delegate.
+   * @param username The username.
+   * @param password The password.
+   * @param result The result.
+   */
+  private void record(String username, String password, Either<AuthenticationResponse, AuthenticationError> result)
+  {
+    if (result.isError())
+    {
+      if (CREDENTIAL_FAILURES.contains(result.getError().getReason()))
+      {
+        this.cache.invalidate(username);
+      }
+    }
+    else
+    {
+      this.cache.put(username, new Entry(result.getValue(), PasswordVerifier.create(password, this.hashIterations)));
+    }
+  }
+
+  /**
+   * A cached authentication.
+   */
+  @Immutable
+  private static class Entry
+  {
+    /** The authentication response. */
+    private final AuthenticationResponse response;
+
+    /** The verifier of the password used to authenticate. */
+    private final PasswordVerifier verifier;
+
+    /**
+     * Constructor.
+     * @param response The authentication response.
+     * @param verifier The verifier of the password used to authenticate.
+     */
+    private Entry(AuthenticationResponse response, PasswordVerifier verifier)
+    {
+      this.response = response;
+      this.verifier = verifier;
+    }
+  }
+}
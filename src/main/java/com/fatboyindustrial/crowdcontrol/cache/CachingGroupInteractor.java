@@ -0,0 +1,416 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.cache;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A group interaction that caches membership results in front of another interaction.
+ * <p>
+ * Both positive results and negative results (where Crowd reports that the user, group or membership does not
+ * exist) are cached, each with their own time-to-live.  Other errors are never cached.  Once an entry has been cached
+ * for a configurable fraction of its time-to-live, the next read triggers a background refresh while continuing to
+ * serve the cached result; if the refresh is still in flight when the entry expires, the stale result continues to
+ * be served until the refresh completes.
+ */
+@ThreadSafe
+public class CachingGroupInteractor implements GroupInteraction
+{
+  /** The default fraction of an entry's time-to-live after which it is refreshed. */
+  public static final double DEFAULT_REFRESH_RATIO = 0.75;
+
+  /** The error reasons that indicate the user is definitely not a member of the group. */
+  private static final Set<String> NEGATIVE_REASONS =
+      ImmutableSet.of("MEMBERSHIP_NOT_FOUND", "USER_NOT_FOUND", "GROUP_NOT_FOUND");
+
+  /** The interaction used on a cache miss, and for refreshes. */
+  private final GroupInteraction delegate;
+
+  /** How long (in nanoseconds) a positive result is cached. */
+  private final long positiveTtlNanos;
+
+  /** How long (in nanoseconds) a negative result is cached. */
+  private final long negativeTtlNanos;
+
+  /** The fraction of an entry's time-to-live after which it is refreshed. */
+  private final double refreshRatio;
+
+  /** The time source. */
+  private final Ticker ticker;
+
+  /** The cached results. */
+  private final Cache<Key, Entry> cache;
+
+  /** The number of lookups answered from the cache. */
+  private final LongAdder hits;
+
+  /** The number of lookups that went to the delegate. */
+  private final LongAdder misses;
+
+  /** The number of entries evicted because of size or age. */
+  private final LongAdder evictions;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used on a cache miss, and for refreshes.
+   * @param positiveTtlMillis How long (in milliseconds) a positive result is cached.
+   * @param negativeTtlMillis How long (in milliseconds) a negative result is cached.
+   * @param maximumSize The maximum number of cached results.
+   */
+  public CachingGroupInteractor(GroupInteraction delegate,
+                                long positiveTtlMillis,
+                                long negativeTtlMillis,
+                                long maximumSize)
+  {
+    this(delegate, positiveTtlMillis, negativeTtlMillis, maximumSize, DEFAULT_REFRESH_RATIO);
+  }
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used on a cache miss, and for refreshes.
+   * @param positiveTtlMillis How long (in milliseconds) a positive result is cached.
+   * @param negativeTtlMillis How long (in milliseconds) a negative result is cached.
+   * @param maximumSize The maximum number of cached results.
+   * @param refreshRatio The fraction of an entry's time-to-live after which it is refreshed.
+   */
+  public CachingGroupInteractor(GroupInteraction delegate,
+                                long positiveTtlMillis,
+                                long negativeTtlMillis,
+                                long maximumSize,
+                                double refreshRatio)
+  {
+    this(delegate, positiveTtlMillis, negativeTtlMillis, maximumSize, refreshRatio, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param delegate The interaction used on a cache miss, and for refreshes.
+   * @param positiveTtlMillis How long (in milliseconds) a positive result is cached.
+   * @param negativeTtlMillis How long (in milliseconds) a negative result is cached.
+   * @param maximumSize The maximum number of cached results.
+   * @param refreshRatio The fraction of an entry's time-to-live after which it is refreshed.
+   * @param ticker The time source.
+   */
+  @VisibleForTesting
+  CachingGroupInteractor(GroupInteraction delegate,
+                         long positiveTtlMillis,
+                         long negativeTtlMillis,
+                         long maximumSize,
+                         double refreshRatio,
+                         Ticker ticker)
+  {
+    Preconditions.checkArgument(positiveTtlMillis > 0, "positiveTtlMillis must be positive");
+    Preconditions.checkArgument(negativeTtlMillis > 0, "negativeTtlMillis must be positive");
+    Preconditions.checkArgument(maximumSize > 0, "maximumSize must be positive");
+    Preconditions.checkArgument(refreshRatio > 0 && refreshRatio <= 1, "refreshRatio must be in (0, 1]");
+
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.positiveTtlNanos = TimeUnit.MILLISECONDS.toNanos(positiveTtlMillis);
+    this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+    this.refreshRatio = refreshRatio;
+    this.ticker = Preconditions.checkNotNull(ticker, "ticker cannot be null");
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+
+    // entries expire logically per their own time-to-live; this is only a backstop for stale entries whose
+    // refresh never completes
+    this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(2 * Math.max(this.positiveTtlNanos, this.negativeTtlNanos), TimeUnit.NANOSECONDS)
+        .maximumSize(maximumSize)
+        .ticker(ticker)
+        .<Key, Entry>removalListener(notification -> {
+          if (notification.wasEvicted())
+          {
+            this.evictions.increment();
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Executes the interaction, answering from the cache if possible.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if an
+   *         error occurs.  If a user is not a member of a group, this is indicated by a {@link GroupError}.
+   */
+  @Override
+  public Either<GroupResponse, GroupError> execute(String username, String groupname)
+  {
+    final Key key = new Key(username, groupname);
+    final Either<GroupResponse, GroupError> cached = lookup(key);
+
+    if (cached != null)
+    {
+      return cached;
+    }
+
+    final Either<GroupResponse, GroupError> result = this.delegate.execute(username, groupname);
+    store(key, result);
+
+    return result;
+  }
+
+  /**
+   * Executes the interaction asynchronously, answering from the cache if possible.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+  {
+    final Key key = new Key(username, groupname);
+    final Either<GroupResponse, GroupError> cached = lookup(key);
+
+    if (cached != null)
+    {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    final CompletableFuture<Either<GroupResponse, GroupError>> future =
+        this.delegate.executeAsync(username, groupname);
+    future.thenAccept(result -> store(key, result));
+
+    return future;
+  }
+
+  /**
+   * Removes any cached result for the given membership.
+   * @param username The username.
+   * @param groupname The group name.
+   */
+  public void invalidate(String username, String groupname)
+  {
+    this.cache.invalidate(new Key(username, groupname));
+  }
+
+  /**
+   * Removes all cached results.
+   */
+  public void invalidateAll()
+  {
+    this.cache.invalidateAll();
+  }
+
+  /**
+   * Gets the number of cached results.
+   * @return The approximate number of cached results.
+   */
+  public long size()
+  {
+    return this.cache.size();
+  }
+
+  /**
+   * Gets a snapshot of the cache statistics.
+   * @return The statistics.
+   */
+  public CacheStatistics getStatistics()
+  {
+    return new CacheStatistics(this.hits.sum(), this.misses.sum(), this.evictions.sum());
+  }
+
+  /**
+   * Looks up a cached result, starting a background refresh if it is due.
+   * @param key The membership key.
+   * @return The cached result, or null on a miss.
+   */
+  private Either<GroupResponse, GroupError> lookup(Key key)
+  {
+    final Entry entry = this.cache.getIfPresent(key);
+    final long now = this.ticker.read();
+
+    if (entry != null && (now - entry.expiresAt < 0 || entry.refreshing.get()))
+    {
+      if (now - entry.refreshAt >= 0)
+      {
+        refresh(key, entry);
+      }
+
+      this.hits.increment();
+      return entry.result;
+    }
+
+    this.misses.increment();
+    return null;
+  }
+
+  /**
+   * Refreshes an entry in the background, unless a refresh is already in flight.
+   * @param key The membership key.
+   * @param entry The entry.
+   */
+  private void refresh(Key key, Entry entry)
+  {
+    if (entry.refreshing.compareAndSet(false, true))
+    {
+      final CompletableFuture<Either<GroupResponse, GroupError>> future;
+      try
+      {
+        future = this.delegate.executeAsync(key.username, key.groupname);
+      }
+      catch (RuntimeException e)
+      {
+        // the refresh could not even be started (the client may have been closed, say); let the next read try again
+        entry.refreshing.set(false);
+        return;
+      }
+
+      future.whenComplete((result, failure) -> {
+        if (failure != null || ! store(key, result))
+        {
+          // keep serving the existing entry until it expires; the next read will try again
+          entry.refreshing.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * Caches a result, if it is cacheable.
+   * @param key The membership key.
+   * @param result The result.
+   * @return True if the result was cached.
+   */
+  private boolean store(Key key, Either<GroupResponse, GroupError> result)
+  {
+    final long ttl;
+
+    if (! result.isError())
+    {
+      ttl = this.positiveTtlNanos;
+    }
+    else if (NEGATIVE_REASONS.contains(result.getError().getReason()))
+    {
+      ttl = this.negativeTtlNanos;
+    }
+    else
+    {
+      return false;
+    }
+
+    final long now = this.ticker.read();
+    this.cache.put(key, new Entry(result, now + (long) (ttl * this.refreshRatio), now + ttl));
+
+    return true;
+  }
+
+  /**
+   * A cache key identifying a membership.
+   */
+  @Immutable
+  private static class Key
+  {
+    /** The username. */
+    private final String username;
+
+    /** The group name. */
+    private final String groupname;
+
+    /**
+     * Constructor.
+     * @param username The username.
+     * @param groupname The group name.
+     */
+    private Key(String username, String groupname)
+    {
+      this.username = Preconditions.checkNotNull(username, "username cannot be null");
+      this.groupname = Preconditions.checkNotNull(groupname, "groupname cannot be null");
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o)
+      {
+        return true;
+      }
+      if (! (o instanceof Key))
+      {
+        return false;
+      }
+
+      final Key other = (Key) o;
+      return this.username.equals(other.username) && this.groupname.equals(other.groupname);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(this.username, this.groupname);
+    }
+  }
+
+  /**
+   * A cached result.
+   */
+  private static class Entry
+  {
+    /** The result. */
+    private final Either<GroupResponse, GroupError> result;
+
+    /** The time (in ticker nanoseconds) after which the entry is refreshed. */
+    private final long refreshAt;
+
+    /** The time (in ticker nanoseconds) after which the entry expires. */
+    private final long expiresAt;
+
+    /** Is a refresh in flight? */
+    private final AtomicBoolean refreshing;
+
+    /**
+     * Constructor.
+     * @param result The result.
+     * @param refreshAt The time (in ticker nanoseconds) after which the entry is refreshed.
+     * @param expiresAt The time (in ticker nanoseconds) after which the entry expires.
+     */
+    private Entry(Either<GroupResponse, GroupError> result, long refreshAt, long expiresAt)
+    {
+      this.result = result;
+      this.refreshAt = refreshAt;
+      this.expiresAt = expiresAt;
+      this.refreshing = new AtomicBoolean(false);
+    }
+  }
+}
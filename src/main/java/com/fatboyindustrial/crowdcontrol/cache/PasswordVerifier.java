@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.cache;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * A salted PBKDF2 verifier for a password.  The password itself is never retained.
+ */
+@Immutable
+public class PasswordVerifier
+{
+  /** The key derivation algorithm. */
+  private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+  /** The salt length, in bytes. */
+  private static final int SALT_BYTES = 16;
+
+  /** The derived key length, in bits. */
+  private static final int KEY_BITS = 256;
+
+  /** Source of salts. */
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  /** The salt. */
+  private final byte[] salt;
+
+  /** The derived key. */
+  private final byte[] hash;
+
+  /** The number of PBKDF2 iterations. */
+  private final int iterations;
+
+  /**
+   * Constructor.
+   * @param salt The salt.
+   * @param hash The derived key.
+   * @param iterations The number of PBKDF2 iterations.
+   */
+  private PasswordVerifier(byte[] salt, byte[] hash, int iterations)
+  {
+    this.salt = salt;
+    this.hash = hash;
+    this.iterations = iterations;
+  }
+
+  /**
+   * Creates a verifier for the given password, using a fresh random salt.
+   * @param password The password.
+   * @param iterations The number of PBKDF2 iterations.
+   * @return The verifier.
+   */
+  public static PasswordVerifier create(String password, int iterations)
+  {
+    Preconditions.checkNotNull(password, "password cannot be null");
+    Preconditions.checkArgument(iterations > 0, "iterations must be positive");
+
+    final byte[] salt = new byte[SALT_BYTES];
+    RANDOM.nextBytes(salt);
+
+    return new PasswordVerifier(salt, derive(password, salt, iterations), iterations);
+  }
+
+  /**
+   * Does the given password match the password this verifier was created from?
+   * @param password The candidate password.
+   * @return True if the password matches.
+   */
+  public boolean matches(String password)
+  {
+    Preconditions.checkNotNull(password, "password cannot be null");
+    return MessageDigest.isEqual(this.hash, derive(password, this.salt, this.iterations));
+  }
+
+  /**
+   * Derives a key from the given password.
+   * @param password The password.
+   * @param salt The salt.
+   * @param iterations The number of PBKDF2 iterations.
+   * @return The derived key.
+   */
+  private static byte[] derive(String password, byte[] salt, int iterations)
+  {
+    final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+
+    try
+    {
+      return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+    }
+    catch (GeneralSecurityException e)
+    {
+      throw new IllegalStateException(ALGORITHM + " is not available", e);
+    }
+    finally
+    {
+      spec.clearPassword();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.coalescing;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An authentication interaction that coalesces concurrent identical authentications, so that only one request per
+ * username and password is in flight at a time and every caller receives the same result.  Calls with different
+ * passwords are never coalesced; passwords are only held for as long as their request is in flight.
+ */
+@ThreadSafe
+public class CoalescingAuthenticationInteractor implements AuthenticationInteraction
+{
+  /** The interaction that performs the authentications. */
+  private final AuthenticationInteraction delegate;
+
+  /** The authentications in flight, keyed by username and password. */
+  private final SingleFlight<List<String>, Either<AuthenticationResponse, AuthenticationError>> flights;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the authentications.
+   */
+  public CoalescingAuthenticationInteractor(AuthenticationInteraction delegate)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.flights = new SingleFlight<>();
+  }
+
+  /**
+   * Executes the interaction, joining an identical authentication if one is already in flight.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return Either a successful response, or the reason for the error.
+   */
+  @Override
+  public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+  {
+    return this.flights.execute(key(username, password),
+                                () -> this.delegate.execute(username, password));
+  }
+
+  /**
+   * Executes the interaction asynchronously, joining an identical authentication if one is already in flight.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                             String password)
+  {
+    return this.flights.executeAsync(key(username, password),
+                                     () -> this.delegate.executeAsync(username, password));
+  }
+
+  /**
+   * Gets the number of authentications that joined an identical authentication already in flight.
+   * @return The number of coalesced authentications.
+   */
+  public long getCoalescedCount()
+  {
+    return this.flights.getCoalescedCount();
+  }
+
+  /**
+   * Creates the key identifying a call.
+   * @param username The username.
+   * @param password The corresponding password.
+   * @return The key.
+   */
+  private static List<String> key(String username, String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    return ImmutableList.of(username, password);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.coalescing;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A group interaction that coalesces concurrent identical lookups, so that only one request per username and group
+ * name is in flight at a time and every caller receives the same result.
+ */
+@ThreadSafe
+public class CoalescingGroupInteractor implements GroupInteraction
+{
+  /** The interaction that performs the lookups. */
+  private final GroupInteraction delegate;
+
+  /** The lookups in flight, keyed by username and group name. */
+  private final SingleFlight<List<String>, Either<GroupResponse, GroupError>> flights;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the lookups.
+   */
+  public CoalescingGroupInteractor(GroupInteraction delegate)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.flights = new SingleFlight<>();
+  }
+
+  /**
+   * Executes the interaction, joining an identical lookup if one is already in flight.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if an
+   *         error occurs.  If a user is not a member of a group, this is indicated by a {@link GroupError}.
+   */
+  @Override
+  public Either<GroupResponse, GroupError> execute(String username, String groupname)
+  {
+    return this.flights.execute(key(username, groupname),
+                                () -> this.delegate.execute(username, groupname));
+  }
+
+  /**
+   * Executes the interaction asynchronously, joining an identical lookup if one is already in flight.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+  {
+    return this.flights.executeAsync(key(username, groupname),
+                                     () -> this.delegate.executeAsync(username, groupname));
+  }
+
+  /**
+   * Gets the number of lookups that joined an identical lookup already in flight.
+   * @return The number of coalesced lookups.
+   */
+  public long getCoalescedCount()
+  {
+    return this.flights.getCoalescedCount();
+  }
+
+  /**
+   * Creates the key identifying a call.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The key.
+   */
+  private static List<String> key(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    return ImmutableList.of(username, groupname);
+  }
+}
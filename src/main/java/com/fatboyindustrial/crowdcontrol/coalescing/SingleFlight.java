@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.coalescing;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key, so that only one call is in flight per key and every caller
+ * receives its result.  Nothing is retained once a call completes.
+ *
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+@ThreadSafe
+class SingleFlight<K, V>
+{
+  /** The calls currently in flight. */
+  private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+  /** The number of calls that joined another call already in flight. */
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Makes a blocking call, or joins an identical call already in flight.
+   * @param key The call's key.
+   * @param call The call.
+   * @return The result.
+   */
+  V execute(K key, Supplier<V> call)
+  {
+    Preconditions.checkNotNull(key, "key cannot be null");
+
+    final Flight<V> mine = new Flight<>();
+    final Flight<V> existing = enter(key, mine);
+
+    if (existing != mine)
+    {
+      this.coalesced.increment();
+      return join(existing);
+    }
+
+    final V result;
+    try
+    {
+      result = call.get();
+    }
+    catch (Throwable e)
+    {
+      // whatever the call throws, the key is released and its joiners are woken
+      this.inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+
+    this.inFlight.remove(key, mine);
+    mine.complete(result);
+    return result;
+  }
+
+  /**
+   * Makes an asynchronous call, or joins an identical call already in flight.  Each caller receives its own future,
+   * so cancelling one caller's future does not affect the others; once every caller has cancelled, the shared call
+   * is cancelled too.
+   * @param key The call's key.
+   * @param call The call.
+   * @return The future result.
+   */
+  CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call)
+  {
+    Preconditions.checkNotNull(key, "key cannot be null");
+
+    final Flight<V> mine = new Flight<>();
+    final Flight<V> existing = enter(key, mine);
+
+    if (existing != mine)
+    {
+      this.coalesced.increment();
+      return caller(key, existing);
+    }
+
+    final CompletableFuture<V> source;
+    try
+    {
+      source = call.get();
+    }
+    catch (Throwable e)
+    {
+      this.inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+
+    mine.source = source;
+    source.whenComplete((result, failure) -> {
+      this.inFlight.remove(key, mine);
+      if (failure != null)
+      {
+        mine.completeExceptionally(failure);
+      }
+      else
+      {
+        mine.complete(result);
+      }
+    });
+
+    return caller(key, mine);
+  }
+
+  /**
+   * Gets the number of calls that joined another call already in flight.
+   * @return The number of coalesced calls.
+   */
+  long getCoalescedCount()
+  {
+    return this.coalesced.sum();
+  }
+
+  /**
+   * Joins the call in flight for a key, or registers a new one.  A call that every caller has abandoned is replaced.
+   * @param key The call's key.
+   * @param mine The new call, registered if no other is in flight.
+   * @return The call joined, which is {@code mine} if it was registered.
+   */
+  private Flight<V> enter(K key, Flight<V> mine)
+  {
+    while (true)
+    {
+      final Flight<V> existing = this.inFlight.putIfAbsent(key, mine);
+      if (existing == null)
+      {
+        return mine;
+      }
+      if (existing.enlist())
+      {
+        return existing;
+      }
+
+      this.inFlight.remove(key, existing);
+    }
+  }
+
+  /**
+   * Creates a caller's own future of a shared call.  Cancelling it leaves the call, and cancels the call if no
+   * caller remains.
+   * @param key The call's key.
+   * @param flight The shared call.
+   * @return The caller's future.
+   */
+  private CompletableFuture<V> caller(K key, Flight<V> flight)
+  {
+    final CompletableFuture<V> future = new CompletableFuture<V>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled && flight.leave())
+        {
+          SingleFlight.this.inFlight.remove(key, flight);
+          final CompletableFuture<V> source = flight.source;
+          if (source != null)
+          {
+            source.cancel(mayInterruptIfRunning);
+          }
+        }
+        return cancelled;
+      }
+    };
+
+    flight.whenComplete((result, failure) -> {
+      if (failure != null)
+      {
+        future.completeExceptionally(failure);
+      }
+      else
+      {
+        future.complete(result);
+      }
+    });
+
+    return future;
+  }
+
+  /**
+   * Waits for a shared call to complete, rethrowing its failure unwrapped where possible.
+   * @param future The shared call.
+   * @return The result.
+   */
+  private static <V> V join(CompletableFuture<V> future)
+  {
+    try
+    {
+      return future.join();
+    }
+    catch (CompletionException e)
+    {
+      if (e.getCause() instanceof RuntimeException)
+      {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error)
+      {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * A call in flight, with the number of callers still waiting for it.
+   *
+   * @param <V> The result type.
+   */
+  private static class Flight<V> extends CompletableFuture<V>
+  {
+    /** The number of callers still waiting; once it reaches zero, the call is abandoned and cannot be joined. */
+    private final AtomicInteger callers = new AtomicInteger(1);
+
+    /** The asynchronous call, once started; absent for a blocking call, which cannot be cancelled. */
+    private volatile CompletableFuture<V> source;
+
+    /**
+     * Joins the call as another caller.
+     * @return True if joined, or false if every caller has already abandoned the call.
+     */
+    private boolean enlist()
+    {
+      while (true)
+      {
+        final int current = this.callers.get();
+        if (current == 0)
+        {
+          return false;
+        }
+        if (this.callers.compareAndSet(current, current + 1))
+        {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Leaves the call, as a caller that has cancelled.
+     * @return True if that was the last caller, so the call should be cancelled.
+     */
+    private boolean leave()
+    {
+      return (this.callers.decrementAndGet() == 0);
+    }
+  }
+}
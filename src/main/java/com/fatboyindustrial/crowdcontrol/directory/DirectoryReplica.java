@@ -0,0 +1,646 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.fatboyindustrial.crowdcontrol.DirectoryInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.MembershipMode;
+import com.fatboyindustrial.crowdcontrol.MembershipSink;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryEvent;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A local, in-memory replica of the directory's users, groups and memberships, answering group membership queries
+ * without contacting Crowd.
+ * <p>
+ * The replica is loaded in full from a {@link DirectoryInteraction}, and then kept current by polling Crowd's
+ * incremental event feed.  If the event token expires (or Crowd reports that incremental synchronisation is no
+ * longer possible), the replica is reloaded in full.  Membership queries are hash lookups against the most recently
+ * applied state, held in a {@link MembershipIndex}; how far that state may lag behind Crowd is reported by
+ * {@link #getStaleness}.
+ * <p>
+ * Names are matched case-insensitively, as Crowd does.  In {@link MembershipMode#NESTED} mode, the group hierarchy
+ * is replicated too, and membership is resolved transitively through a {@link GroupHierarchy}.
+ */
+@ThreadSafe
+public class DirectoryReplica implements GroupInteraction, AutoCloseable
+{
+  /** The default interval (in milliseconds) between polls of the event feed. */
+  public static final long DEFAULT_POLL_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  /** The error reasons that mean the replica must be reloaded in full. */
+  private static final ImmutableSet<String> RESYNC_REASONS =
+      ImmutableSet.of("EVENT_TOKEN_EXPIRED", "INCREMENTAL_SYNC_NOT_AVAILABLE");
+
+  /** The link reported in locally answered membership responses. */
+  private static final Link NO_LINK = new Link("", "");
+
+  /** The source of directory data and events. */
+  private final DirectoryInteraction source;
+
+  /** How group membership is determined. */
+  private final MembershipMode mode;
+
+  /** The interval (in milliseconds) between polls of the event feed. */
+  private final long pollIntervalMillis;
+
+  /** The time source used to measure staleness. */
+  private final Ticker ticker;
+
+  /** Polls the event feed once the replica is started. */
+  private final ScheduledExecutorService poller;
+
+  /** Serialises synchronisations; an explicit lock, so that synchronising on a virtual thread does not pin it. */
+  private final Lock lock;
+
+  /** The number of full synchronisations performed. */
+  private final AtomicLong fullSynchronisations;
+
+  /** The number of events applied. */
+  private final AtomicLong eventsApplied;
+
+  /** The replicated directory, or null until the first synchronisation completes. */
+  private volatile State state;
+
+  /** The ticker reading at the start of the last successful synchronisation. */
+  private volatile long synchronisedAt;
+
+  /** The error from the last synchronisation, if it failed. */
+  private volatile Optional<DirectoryError> lastError;
+
+  /** The token from which to read the next events, or null if a full synchronisation is required. */
+  @GuardedBy("lock")
+  private String eventToken;
+
+  /**
+   * Constructor.
+   * @param source The source of directory data and events.
+   * @param mode How group membership is determined.
+   */
+  public DirectoryReplica(DirectoryInteraction source, MembershipMode mode)
+  {
+    this(source, mode, DEFAULT_POLL_INTERVAL_MILLIS, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param source The source of directory data and events.
+   * @param mode How group membership is determined.
+   * @param pollIntervalMillis The interval (in milliseconds) between polls of the event feed.
+   */
+  public DirectoryReplica(DirectoryInteraction source, MembershipMode mode, long pollIntervalMillis)
+  {
+    this(source, mode, pollIntervalMillis, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param source The source of directory data and events.
+   * @param mode How group membership is determined.
+   * @param pollIntervalMillis The interval (in milliseconds) between polls of the event feed.
+   * @param ticker The time source used to measure staleness.
+   */
+  @VisibleForTesting
+  DirectoryReplica(DirectoryInteraction source, MembershipMode mode, long pollIntervalMillis, Ticker ticker)
+  {
+    Preconditions.checkArgument(pollIntervalMillis > 0, "pollIntervalMillis must be positive");
+
+    this.source = Preconditions.checkNotNull(source, "source cannot be null");
+    this.mode = Preconditions.checkNotNull(mode, "mode cannot be null");
+    this.pollIntervalMillis = pollIntervalMillis;
+    this.ticker = Preconditions.checkNotNull(ticker, "ticker cannot be null");
+    this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("crowd-control-replica-%d")
+        .setDaemon(true)
+        .build());
+    this.lock = new ReentrantLock();
+    this.fullSynchronisations = new AtomicLong();
+    this.eventsApplied = new AtomicLong();
+    this.lastError = Optional.absent();
+  }
+
+  /**
+   * Performs the initial synchronisation, then starts polling the event feed in the background.  Polling continues
+   * (and retries) even if the initial synchronisation fails.
+   * @return Absent if the initial synchronisation succeeded, or the reason it failed.
+   */
+  public Optional<DirectoryError> start()
+  {
+    final Optional<DirectoryError> result = synchronise();
+    this.poller.scheduleWithFixedDelay(this::poll, this.pollIntervalMillis, this.pollIntervalMillis,
+                                       TimeUnit.MILLISECONDS);
+    return result;
+  }
+
+  /**
+   * Brings the replica up to date: applies the events since the last synchronisation, or reloads the directory in
+   * full if there is no usable event token.
+   * @return Absent on success, or the reason for the failure.  On failure, the replica keeps its previous state.
+   */
+  public Optional<DirectoryError> synchronise()
+  {
+    this.lock.lock();
+    try
+    {
+      final long startedAt = this.ticker.read();
+
+      if (this.eventToken == null || this.state == null)
+      {
+        return fullSynchronise(startedAt);
+      }
+
+      final Either<EventBatch, DirectoryError> batch = this.source.events(this.eventToken);
+      if (batch.isError())
+      {
+        return (RESYNC_REASONS.contains(batch.getError().getReason())
+            ? fullSynchronise(startedAt)
+            : failed(batch.getError()));
+      }
+
+      if (! batch.getValue().isIncrementalSynchronisationAvailable())
+      {
+        return fullSynchronise(startedAt);
+      }
+
+      apply(this.state, batch.getValue().getEvents());
+      this.eventToken = batch.getValue().getNewEventToken();
+      return succeeded(startedAt);
+    }
+    finally
+    {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Is the user a member of the given group, according to the replica?
+   * @param username The username.
+   * @param groupname The group name.
+   * @return True if the user is a member of the group; false if not, or if the replica has not yet been loaded.
+   */
+  public boolean isMember(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final State current = this.state;
+    if (current == null)
+    {
+      return false;
+    }
+
+    return isMember(current, key(username), key(groupname));
+  }
+
+  /**
+   * Determines group membership from the replica, reporting errors as Crowd would.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if not (or if the
+   *         replica has not yet been loaded).
+   */
+  @Override
+  public Either<GroupResponse, GroupError> execute(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final State current = this.state;
+    if (current == null)
+    {
+      return Either.error(new GroupError("OPERATION_FAILED", "The directory replica has not been loaded"));
+    }
+
+    if (! current.index.containsUser(key(username)))
+    {
+      return Either.error(new GroupError("USER_NOT_FOUND", "User <" + username + "> does not exist"));
+    }
+
+    if (! current.index.containsGroup(key(groupname)))
+    {
+      return Either.error(new GroupError("GROUP_NOT_FOUND", "Group <" + groupname + "> does not exist"));
+    }
+
+    if (! isMember(current, key(username), key(groupname)))
+    {
+      return Either.error(new GroupError("MEMBERSHIP_NOT_FOUND",
+                                         "<" + username + "> is not a member of <" + groupname + ">"));
+    }
+
+    return Either.value(new GroupResponse(NO_LINK, username));
+  }
+
+  /**
+   * Determines group membership from the replica.  The returned future is always complete.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+  {
+    return CompletableFuture.completedFuture(execute(username, groupname));
+  }
+
+  /**
+   * Is the replica loaded?
+   * @return True once the first synchronisation has completed.
+   */
+  public boolean isLoaded()
+  {
+    return (this.state != null);
+  }
+
+  /**
+   * Gets the staleness bound: the time since the start of the last successful synchronisation.  Changes made in
+   * Crowd before then are reflected in the replica.
+   * @param unit The unit of the result.
+   * @return The staleness, or {@link Long#MAX_VALUE} if the replica has not been loaded.
+   */
+  public long getStaleness(TimeUnit unit)
+  {
+    Preconditions.checkNotNull(unit, "unit cannot be null");
+
+    if (this.state == null)
+    {
+      return Long.MAX_VALUE;
+    }
+
+    return unit.convert(this.ticker.read() - this.synchronisedAt, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the number of full synchronisations performed (including the initial load).
+   * @return The count.
+   */
+  public long getFullSynchronisations()
+  {
+    return this.fullSynchronisations.get();
+  }
+
+  /**
+   * Gets the number of events applied incrementally.
+   * @return The count.
+   */
+  public long getEventsApplied()
+  {
+    return this.eventsApplied.get();
+  }
+
+  /**
+   * Gets the error from the last synchronisation.
+   * @return The error, or absent if the last synchronisation succeeded.
+   */
+  public Optional<DirectoryError> getLastError()
+  {
+    return this.lastError;
+  }
+
+  /**
+   * Stops polling the event feed.  The replica continues to answer queries from its last state.
+   */
+  @Override
+  public void close()
+  {
+    this.poller.shutdownNow();
+  }
+
+  /**
+   * Synchronises in the background.  Failures (including transport failures) are recorded, and retried at the next
+   * poll.
+   */
+  private void poll()
+  {
+    try
+    {
+      synchronise();
+    }
+    catch (RuntimeException e)
+    {
+      this.lastError = Optional.of(new DirectoryError("OPERATION_FAILED", String.valueOf(e)));
+    }
+  }
+
+  /**
+   * Reloads the directory in full, streaming the memberships into a new index.  The event token is taken first, so
+   * that changes made during the load are applied by the next incremental synchronisation.
+   * @param startedAt The ticker reading at the start of the synchronisation.
+   * @return Absent on success, or the reason for the failure.
+   */
+  @GuardedBy("lock")
+  private Optional<DirectoryError> fullSynchronise(long startedAt)
+  {
+    final Either<String, DirectoryError> token = this.source.eventToken();
+    if (token.isError() && ! RESYNC_REASONS.contains(token.getError().getReason()))
+    {
+      return failed(token.getError());
+    }
+
+    final Either<List<String>, DirectoryError> users = this.source.users();
+    if (users.isError())
+    {
+      return failed(users.getError());
+    }
+
+    final State loaded = new State();
+    for (final String username : users.getValue())
+    {
+      loaded.index.addUser(key(username));
+    }
+
+    final Optional<DirectoryError> memberships = this.source.memberships(new Loader(loaded, this.mode));
+    if (memberships.isPresent())
+    {
+      return failed(memberships.get());
+    }
+
+    loaded.rebuildHierarchy();
+
+    this.state = loaded;
+    this.eventToken = (token.isError() ? null : token.getValue());
+    this.fullSynchronisations.incrementAndGet();
+    return succeeded(startedAt);
+  }
+
+  /**
+   * Applies events to the replicated directory.  Each change is visible to readers as soon as it is applied.
+   * @param state The replicated directory.
+   * @param events The events, in the order they occurred.
+   */
+  @GuardedBy("lock")
+  private void apply(State state, List<DirectoryEvent> events)
+  {
+    boolean hierarchyChanged = false;
+
+    for (final DirectoryEvent event : events)
+    {
+      final String name = key(event.getName());
+      final ImmutableSet<String> parents = keys(event.getParentGroups());
+
+      switch (event.getType())
+      {
+        case USER:
+          if (event.getOperation() == DirectoryEvent.Operation.DELETED)
+          {
+            state.index.removeUser(name);
+          }
+          else
+          {
+            state.index.addUser(name);
+          }
+          break;
+
+        case GROUP:
+          if (event.getOperation() == DirectoryEvent.Operation.DELETED)
+          {
+            state.index.removeGroup(name);
+            state.childGroups.removeAll(name);
+            state.childGroups.entries().removeIf(edge -> edge.getValue().equals(name));
+            hierarchyChanged = true;
+          }
+          else
+          {
+            state.index.addGroup(name);
+          }
+          break;
+
+        case USER_MEMBERSHIP:
+          applyUserMembership(state.index, event.getOperation(), name, parents);
+          break;
+
+        case GROUP_MEMBERSHIP:
+          if (this.mode != MembershipMode.NESTED)
+          {
+            break;
+          }
+          if (event.getOperation() != DirectoryEvent.Operation.CREATED)
+          {
+            state.childGroups.entries().removeIf(edge -> edge.getValue().equals(name)
+                && (event.getOperation() == DirectoryEvent.Operation.UPDATED || parents.contains(edge.getKey())));
+          }
+          if (event.getOperation() != DirectoryEvent.Operation.DELETED)
+          {
+            for (final String parent : parents)
+            {
+              state.childGroups.put(parent, name);
+            }
+          }
+          hierarchyChanged = true;
+          break;
+      }
+
+      this.eventsApplied.incrementAndGet();
+    }
+
+    if (hierarchyChanged && this.mode == MembershipMode.NESTED)
+    {
+      state.rebuildHierarchy();
+    }
+  }
+
+  /**
+   * Applies a user membership event to the index.
+   * @param index The membership index.
+   * @param operation The kind of change.
+   * @param username The user key.
+   * @param parents The group keys named by the event.
+   */
+  private static void applyUserMembership(MembershipIndex index, DirectoryEvent.Operation operation, String username,
+                                          ImmutableSet<String> parents)
+  {
+    switch (operation)
+    {
+      case CREATED:
+        for (final String parent : parents)
+        {
+          index.addMembership(username, parent);
+        }
+        break;
+      case DELETED:
+        for (final String parent : parents)
+        {
+          index.removeMembership(username, parent);
+        }
+        break;
+      default:
+        index.setGroups(username, parents);
+    }
+  }
+
+  /**
+   * Is a user a member of a group, according to the membership mode?
+   * @param state The replicated directory.
+   * @param user The user key.
+   * @param group The group key.
+   * @return True if the user is a member.
+   */
+  private boolean isMember(State state, String user, String group)
+  {
+    return (this.mode == MembershipMode.DIRECT
+        ? state.index.isMember(user, group)
+        : state.hierarchy.isMember(state.index.groupsOf(user), group));
+  }
+
+  /**
+   * Records a successful synchronisation.
+   * @param startedAt The ticker reading at the start of the synchronisation.
+   * @return Absent.
+   */
+  private Optional<DirectoryError> succeeded(long startedAt)
+  {
+    this.synchronisedAt = startedAt;
+    this.lastError = Optional.absent();
+    return this.lastError;
+  }
+
+  /**
+   * Records a failed synchronisation.
+   * @param error The reason for the failure.
+   * @return The error.
+   */
+  private Optional<DirectoryError> failed(DirectoryError error)
+  {
+    this.lastError = Optional.of(error);
+    return this.lastError;
+  }
+
+  /**
+   * Gets the keys used to match names case-insensitively.
+   * @param names The names.
+   * @return The keys.
+   */
+  private static ImmutableSet<String> keys(List<String> names)
+  {
+    final ImmutableSet.Builder<String> keys = ImmutableSet.builder();
+    for (final String name : names)
+    {
+      keys.add(key(name));
+    }
+
+    return keys.build();
+  }
+
+  /**
+   * Gets the key used to match a name case-insensitively.
+   * @param name The user or group name.
+   * @return The key.
+   */
+  private static String key(String name)
+  {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Loads streamed memberships into a new replicated directory.
+   */
+  private static class Loader implements MembershipSink
+  {
+    /** The replicated directory being loaded. */
+    private final State state;
+
+    /** How group membership is determined. */
+    private final MembershipMode mode;
+
+    /**
+     * Constructor.
+     * @param state The replicated directory being loaded.
+     * @param mode How group membership is determined.
+     */
+    private Loader(State state, MembershipMode mode)
+    {
+      this.state = state;
+      this.mode = mode;
+    }
+
+    @Override
+    public void group(String groupname)
+    {
+      this.state.index.addGroup(key(groupname));
+    }
+
+    @Override
+    public void userMember(String groupname, String username)
+    {
+      this.state.index.addMembership(key(username), key(groupname));
+    }
+
+    @Override
+    public void childGroup(String groupname, String childGroupname)
+    {
+      if (this.mode == MembershipMode.NESTED)
+      {
+        this.state.childGroups.put(key(groupname), key(childGroupname));
+      }
+    }
+  }
+
+  /**
+   * The replicated directory.  Only the synchronising thread writes; readers see each change as it is applied.
+   */
+  private static class State
+  {
+    /** The users, groups and direct memberships. */
+    private final MembershipIndex index = new MembershipIndex();
+
+    /** The direct child groups of each group (only maintained in nested mode). */
+    private final SetMultimap<String, String> childGroups = HashMultimap.create();
+
+    /** The group hierarchy built from the child groups. */
+    private volatile GroupHierarchy hierarchy = new GroupHierarchy(ImmutableSetMultimap.of());
+
+    /**
+     * Rebuilds the group hierarchy from the child groups.
+     */
+    private void rebuildHierarchy()
+    {
+      this.hierarchy = new GroupHierarchy(ImmutableSetMultimap.copyOf(this.childGroups));
+    }
+  }
+}
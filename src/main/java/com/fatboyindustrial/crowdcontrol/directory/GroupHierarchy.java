@@ -0,0 +1,287 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A locally held group hierarchy, used to compute transitive (nested) group membership without asking Crowd.
+ * <p>
+ * Group names are interned into dense integer identifiers, and the hierarchy is held as child-to-parent adjacency
+ * arrays.  The set of groups containing a given group is found with a breadth-first search (which tolerates cycles)
+ * the first time it is needed, and is then memoised against the group's identifier, so repeated queries against deep
+ * hierarchies cost a single lookup.  The memo holds at most one ancestor set per group, so for G groups it is O(G)
+ * sets but O(G<sup>2</sup>) identifiers in the worst case, when most groups are nested inside most others.
+ * <p>
+ * Names are matched case-insensitively, as Crowd does; the name first seen is the one reported.
+ */
+@ThreadSafe
+public class GroupHierarchy
+{
+  /** An empty adjacency list. */
+  private static final int[] NONE = new int[0];
+
+  /** The group names, indexed by identifier. */
+  private final List<String> names;
+
+  /** The group identifiers, keyed by case-folded name. */
+  private final Map<String, Integer> ids;
+
+  /** The direct parents of each group, indexed by identifier. */
+  private final int[][] parents;
+
+  /** The memoised ancestors of each group queried so far, indexed by identifier. */
+  private final AtomicReferenceArray<Ancestors> ancestors;
+
+  /**
+   * Constructor.
+   * @param childGroups The direct child groups of each group, keyed by parent group name.
+   */
+  public GroupHierarchy(Multimap<String, String> childGroups)
+  {
+    Preconditions.checkNotNull(childGroups, "childGroups cannot be null");
+
+    this.names = new ArrayList<>();
+    this.ids = new HashMap<>();
+
+    final Map<Integer, List<Integer>> parentLists = new HashMap<>();
+    for (final Map.Entry<String, String> edge : childGroups.entries())
+    {
+      final int parent = intern(edge.getKey());
+      final int child = intern(edge.getValue());
+      parentLists.computeIfAbsent(child, k -> new ArrayList<>()).add(parent);
+    }
+
+    this.parents = new int[this.names.size()][];
+    for (int i = 0; i < this.parents.length; i++)
+    {
+      final List<Integer> list = parentLists.get(i);
+      this.parents[i] = (list == null ? NONE : list.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    this.ancestors = new AtomicReferenceArray<>(this.names.size());
+  }
+
+  /**
+   * Gets every group that contains the given group, directly or transitively.  A group is only its own ancestor
+   * if the hierarchy contains a cycle.
+   * @param groupname The group name.
+   * @return The ancestor groups (empty if the group is not part of the hierarchy).
+   */
+  public ImmutableSet<String> ancestorsOf(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Integer id = this.ids.get(key(groupname));
+    return (id == null ? ImmutableSet.<String>of() : ancestors(id).names);
+  }
+
+  /**
+   * Gets the effective groups of a user, given the groups they are a direct member of.
+   * @param directGroups The groups the user is a direct member of.
+   * @return The direct groups together with all of their ancestors, each group listed once.
+   */
+  public ImmutableSet<String> effectiveGroups(Collection<String> directGroups)
+  {
+    Preconditions.checkNotNull(directGroups, "directGroups cannot be null");
+
+    final Set<String> keys = new HashSet<>();
+    final ImmutableSet.Builder<String> effective = ImmutableSet.builder();
+    for (final String group : directGroups)
+    {
+      if (keys.add(key(group)))
+      {
+        effective.add(group);
+      }
+
+      for (final String ancestor : ancestorsOf(group))
+      {
+        if (keys.add(key(ancestor)))
+        {
+          effective.add(ancestor);
+        }
+      }
+    }
+
+    return effective.build();
+  }
+
+  /**
+   * Is a user a (possibly nested) member of the given group?
+   * @param directGroups The groups the user is a direct member of.
+   * @param groupname The group name.
+   * @return True if the user is a member of the group, directly or transitively.
+   */
+  public boolean isMember(Collection<String> directGroups, String groupname)
+  {
+    Preconditions.checkNotNull(directGroups, "directGroups cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final String target = key(groupname);
+    for (final String group : directGroups)
+    {
+      if (key(group).equals(target))
+      {
+        return true;
+      }
+    }
+
+    final Integer targetId = this.ids.get(target);
+    if (targetId == null)
+    {
+      return false;
+    }
+
+    for (final String group : directGroups)
+    {
+      final Integer id = this.ids.get(key(group));
+      if (id != null && ancestors(id).ids.get(targetId))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Interns a group name.
+   * @param groupname The group name.
+   * @return The group's identifier.
+   */
+  private int intern(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "group names cannot be null");
+
+    final String key = key(groupname);
+    final Integer existing = this.ids.get(key);
+    if (existing != null)
+    {
+      return existing;
+    }
+
+    final int id = this.names.size();
+    this.names.add(groupname);
+    this.ids.put(key, id);
+
+    return id;
+  }
+
+  /**
+   * Gets the ancestors of a group, searching for them the first time.  Concurrent first queries may each search, but
+   * reach the same result.
+   * @param id The group's identifier.
+   * @return The ancestors.
+   */
+  private Ancestors ancestors(int id)
+  {
+    Ancestors result = this.ancestors.get(id);
+    if (result == null)
+    {
+      result = search(id);
+      this.ancestors.set(id, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Searches for the ancestors of a group.
+   * @param start The group's identifier.
+   * @return The ancestors.
+   */
+  private Ancestors search(int start)
+  {
+    final BitSet visited = new BitSet(this.names.size());
+    final Deque<Integer> queue = new ArrayDeque<>();
+    final ImmutableSet.Builder<String> result = ImmutableSet.builder();
+
+    queue.add(start);
+    while (! queue.isEmpty())
+    {
+      for (final int parent : this.parents[queue.remove()])
+      {
+        if (! visited.get(parent))
+        {
+          visited.set(parent);
+          result.add(this.names.get(parent));
+          queue.add(parent);
+        }
+      }
+    }
+
+    return new Ancestors(result.build(), visited);
+  }
+
+  /**
+   * Gets the key used to match a group name case-insensitively.
+   * @param groupname The group name.
+   * @return The key.
+   */
+  private static String key(String groupname)
+  {
+    return groupname.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The ancestors of a group, by name and by identifier.
+   */
+  @Immutable
+  private static class Ancestors
+  {
+    /** The ancestor names. */
+    private final ImmutableSet<String> names;
+
+    /** The ancestor identifiers.  Never modified once constructed. */
+    private final BitSet ids;
+
+    /**
+     * Constructor.
+     * @param names The ancestor names.
+     * @param ids The ancestor identifiers.
+     */
+    private Ancestors(ImmutableSet<String> names, BitSet ids)
+    {
+      this.names = names;
+      this.ids = ids;
+    }
+  }
+}
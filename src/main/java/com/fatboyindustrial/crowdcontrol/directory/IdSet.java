@@ -0,0 +1,674 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative integer identifiers, laid out in the manner of a roaring bitmap.
+ * <p>
+ * Identifiers are split into chunks of 65536 by their upper 16 bits.  Each chunk holding at most
+ * {@link #MAX_ARRAY_SIZE} identifiers is a sorted array of their lower 16 bits, costing two bytes per identifier; a
+ * denser chunk is a fixed 8 KB bitmap.  A sparse set therefore costs in proportion to its size rather than to its
+ * largest identifier, while a dense one is no larger than a plain bitmap.  Intersections and unions work chunk by
+ * chunk, word-wise between bitmaps.
+ * <p>
+ * Not thread safe; {@link MembershipIndex} guards its sets.
+ */
+@NotThreadSafe
+final class IdSet
+{
+  /** The largest number of identifiers a chunk holds as an array before it becomes a bitmap. */
+  static final int MAX_ARRAY_SIZE = 4096;
+
+  /** The number of 64-bit words in a bitmap chunk. */
+  private static final int BITMAP_WORDS = 1024;
+
+  /** The approximate size of an object header and array length, in bytes. */
+  private static final int OVERHEAD_BYTES = 16;
+
+  /** The upper 16 bits of each chunk present, in ascending order. */
+  private char[] keys;
+
+  /** The chunks, parallel to {@link #keys}. */
+  private Chunk[] chunks;
+
+  /** The number of chunks present. */
+  private int size;
+
+  /**
+   * Constructor.  The set is initially empty.
+   */
+  IdSet()
+  {
+    this.keys = new char[0];
+    this.chunks = new Chunk[0];
+    this.size = 0;
+  }
+
+  /**
+   * Is the identifier in the set?
+   * @param id The identifier.
+   * @return True if present.
+   */
+  boolean contains(int id)
+  {
+    final int index = find(high(id));
+    return (index >= 0 && this.chunks[index].contains(low(id)));
+  }
+
+  /**
+   * Adds an identifier.
+   * @param id The identifier, which must not be negative.
+   */
+  void add(int id)
+  {
+    Preconditions.checkArgument(id >= 0, "id cannot be negative");
+
+    final char high = high(id);
+    int index = find(high);
+    if (index < 0)
+    {
+      index = -index - 1;
+      insert(index, high, new ArrayChunk());
+    }
+
+    this.chunks[index] = this.chunks[index].add(low(id));
+  }
+
+  /**
+   * Removes an identifier.
+   * @param id The identifier.
+   */
+  void remove(int id)
+  {
+    final int index = find(high(id));
+    if (index >= 0)
+    {
+      final Chunk chunk = this.chunks[index].remove(low(id));
+      if (chunk.cardinality() == 0)
+      {
+        delete(index);
+      }
+      else
+      {
+        this.chunks[index] = chunk;
+      }
+    }
+  }
+
+  /**
+   * Removes every identifier.
+   */
+  void clear()
+  {
+    this.keys = new char[0];
+    this.chunks = new Chunk[0];
+    this.size = 0;
+  }
+
+  /**
+   * Gets the number of identifiers in the set.
+   * @return The count.
+   */
+  int cardinality()
+  {
+    int cardinality = 0;
+    for (int i = 0; i < this.size; i++)
+    {
+      cardinality += this.chunks[i].cardinality();
+    }
+    return cardinality;
+  }
+
+  /**
+   * Gets a copy of the set.
+   * @return The copy.
+   */
+  IdSet copy()
+  {
+    final IdSet copy = new IdSet();
+    copy.keys = Arrays.copyOf(this.keys, this.size);
+    copy.chunks = new Chunk[this.size];
+    for (int i = 0; i < this.size; i++)
+    {
+      copy.chunks[i] = this.chunks[i].copy();
+    }
+    copy.size = this.size;
+    return copy;
+  }
+
+  /**
+   * Keeps only the identifiers that are also in another set.
+   * @param other The other set.
+   */
+  void and(IdSet other)
+  {
+    final char[] keys = new char[Math.min(this.size, other.size)];
+    final Chunk[] chunks = new Chunk[keys.length];
+    int size = 0;
+
+    for (int i = 0, j = 0; i < this.size && j < other.size; )
+    {
+      if (this.keys[i] < other.keys[j])
+      {
+        i++;
+      }
+      else if (this.keys[i] > other.keys[j])
+      {
+        j++;
+      }
+      else
+      {
+        final Chunk chunk = this.chunks[i].and(other.chunks[j]);
+        if (chunk.cardinality() > 0)
+        {
+          keys[size] = this.keys[i];
+          chunks[size] = chunk;
+          size++;
+        }
+        i++;
+        j++;
+      }
+    }
+
+    this.keys = keys;
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  /**
+   * Adds every identifier in another set.
+   * @param other The other set.
+   */
+  void or(IdSet other)
+  {
+    final char[] keys = new char[this.size + other.size];
+    final Chunk[] chunks = new Chunk[keys.length];
+    int size = 0;
+
+    int i = 0;
+    int j = 0;
+    while (i < this.size || j < other.size)
+    {
+      if (j == other.size || (i < this.size && this.keys[i] < other.keys[j]))
+      {
+        keys[size] = this.keys[i];
+        chunks[size++] = this.chunks[i++];
+      }
+      else if (i == this.size || this.keys[i] > other.keys[j])
+      {
+        keys[size] = other.keys[j];
+        chunks[size++] = other.chunks[j++].copy();
+      }
+      else
+      {
+        keys[size] = this.keys[i];
+        chunks[size++] = this.chunks[i++].or(other.chunks[j++]);
+      }
+    }
+
+    this.keys = keys;
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  /**
+   * Passes each identifier in the set, in ascending order, to an action.  The set must not be modified meanwhile.
+   * @param action The action.
+   */
+  void forEach(IntConsumer action)
+  {
+    for (int i = 0; i < this.size; i++)
+    {
+      this.chunks[i].forEach(this.keys[i] << 16, action);
+    }
+  }
+
+  /**
+   * Estimates the heap occupied by the set.
+   * @return The approximate size, in bytes.
+   */
+  long sizeInBytes()
+  {
+    long bytes = OVERHEAD_BYTES + OVERHEAD_BYTES + 2L * this.keys.length + OVERHEAD_BYTES + 4L * this.chunks.length;
+    for (int i = 0; i < this.size; i++)
+    {
+      bytes += this.chunks[i].sizeInBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Finds a chunk.
+   * @param high The upper 16 bits of the chunk's identifiers.
+   * @return The chunk's index, or {@code -(insertion point) - 1} if absent.
+   */
+  private int find(char high)
+  {
+    return Arrays.binarySearch(this.keys, 0, this.size, high);
+  }
+
+  /**
+   * Inserts a chunk.
+   * @param index The index at which to insert it.
+   * @param high The upper 16 bits of the chunk's identifiers.
+   * @param chunk The chunk.
+   */
+  private void insert(int index, char high, Chunk chunk)
+  {
+    if (this.size == this.keys.length)
+    {
+      final int capacity = Math.max(4, this.size * 2);
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.chunks = Arrays.copyOf(this.chunks, capacity);
+    }
+
+    System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+    System.arraycopy(this.chunks, index, this.chunks, index + 1, this.size - index);
+    this.keys[index] = high;
+    this.chunks[index] = chunk;
+    this.size++;
+  }
+
+  /**
+   * Deletes a chunk.
+   * @param index The chunk's index.
+   */
+  private void delete(int index)
+  {
+    System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+    System.arraycopy(this.chunks, index + 1, this.chunks, index, this.size - index - 1);
+    this.size--;
+    this.chunks[this.size] = null;
+  }
+
+  /**
+   * Gets the upper 16 bits of an identifier.
+   * @param id The identifier.
+   * @return The upper bits.
+   */
+  private static char high(int id)
+  {
+    return (char) (id >>> 16);
+  }
+
+  /**
+   * Gets the lower 16 bits of an identifier.
+   * @param id The identifier.
+   * @return The lower bits.
+   */
+  private static char low(int id)
+  {
+    return (char) id;
+  }
+
+  /**
+   * The identifiers sharing their upper 16 bits.  Operations return the chunk to use afterwards, which may be a new
+   * chunk of the other kind.
+   */
+  private interface Chunk
+  {
+    /**
+     * Is the value present?
+     * @param value The lower 16 bits of the identifier.
+     * @return True if present.
+     */
+    boolean contains(char value);
+
+    /**
+     * Adds a value.
+     * @param value The lower 16 bits of the identifier.
+     * @return The resulting chunk.
+     */
+    Chunk add(char value);
+
+    /**
+     * Removes a value.
+     * @param value The lower 16 bits of the identifier.
+     * @return The resulting chunk.
+     */
+    Chunk remove(char value);
+
+    /**
+     * Intersects with another chunk, leaving both unchanged.
+     * @param other The other chunk.
+     * @return The intersection.
+     */
+    Chunk and(Chunk other);
+
+    /**
+     * Unites with another chunk, leaving the other unchanged.
+     * @param other The other chunk.
+     * @return The union.
+     */
+    Chunk or(Chunk other);
+
+    /**
+     * Gets the number of values present.
+     * @return The count.
+     */
+    int cardinality();
+
+    /**
+     * Gets a copy of the chunk.
+     * @return The copy.
+     */
+    Chunk copy();
+
+    /**
+     * Passes each identifier in the chunk, in ascending order, to an action.
+     * @param base The chunk's upper 16 bits, shifted into place.
+     * @param action The action.
+     */
+    void forEach(int base, IntConsumer action);
+
+    /**
+     * Estimates the heap occupied by the chunk.
+     * @return The approximate size, in bytes.
+     */
+    long sizeInBytes();
+  }
+
+  /**
+   * A sparse chunk: a sorted array of values.
+   */
+  private static final class ArrayChunk implements Chunk
+  {
+    /** The values, in ascending order. */
+    private char[] values;
+
+    /** The number of values present. */
+    private int cardinality;
+
+    /**
+     * Constructor.  The chunk is initially empty.
+     */
+    private ArrayChunk()
+    {
+      this(new char[4], 0);
+    }
+
+    /**
+     * Constructor.
+     * @param values The values, in ascending order.
+     * @param cardinality The number of values present.
+     */
+    private ArrayChunk(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    public boolean contains(char value)
+    {
+      return (Arrays.binarySearch(this.values, 0, this.cardinality, value) >= 0);
+    }
+
+    @Override
+    public Chunk add(char value)
+    {
+      final int index = Arrays.binarySearch(this.values, 0, this.cardinality, value);
+      if (index >= 0)
+      {
+        return this;
+      }
+      if (this.cardinality == MAX_ARRAY_SIZE)
+      {
+        return toBitmap().add(value);
+      }
+
+      final int insertion = -index - 1;
+      if (this.cardinality == this.values.length)
+      {
+        this.values = Arrays.copyOf(this.values, Math.min(MAX_ARRAY_SIZE, this.cardinality * 2));
+      }
+      System.arraycopy(this.values, insertion, this.values, insertion + 1, this.cardinality - insertion);
+      this.values[insertion] = value;
+      this.cardinality++;
+      return this;
+    }
+
+    @Override
+    public Chunk remove(char value)
+    {
+      final int index = Arrays.binarySearch(this.values, 0, this.cardinality, value);
+      if (index >= 0)
+      {
+        System.arraycopy(this.values, index + 1, this.values, index, this.cardinality - index - 1);
+        this.cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    public Chunk and(Chunk other)
+    {
+      final char[] result = new char[this.cardinality];
+      int count = 0;
+      for (int i = 0; i < this.cardinality; i++)
+      {
+        if (other.contains(this.values[i]))
+        {
+          result[count++] = this.values[i];
+        }
+      }
+      return new ArrayChunk(result, count);
+    }
+
+    @Override
+    public Chunk or(Chunk other)
+    {
+      Chunk result = other.copy();
+      for (int i = 0; i < this.cardinality; i++)
+      {
+        result = result.add(this.values[i]);
+      }
+      return result;
+    }
+
+    @Override
+    public int cardinality()
+    {
+      return this.cardinality;
+    }
+
+    @Override
+    public Chunk copy()
+    {
+      return new ArrayChunk(Arrays.copyOf(this.values, Math.max(1, this.cardinality)), this.cardinality);
+    }
+
+    @Override
+    public void forEach(int base, IntConsumer action)
+    {
+      for (int i = 0; i < this.cardinality; i++)
+      {
+        action.accept(base | this.values[i]);
+      }
+    }
+
+    @Override
+    public long sizeInBytes()
+    {
+      return OVERHEAD_BYTES + 8 + OVERHEAD_BYTES + 2L * this.values.length;
+    }
+
+    /**
+     * Converts the chunk to a bitmap.
+     * @return The bitmap.
+     */
+    private BitmapChunk toBitmap()
+    {
+      final BitmapChunk bitmap = new BitmapChunk(new long[BITMAP_WORDS], 0);
+      for (int i = 0; i < this.cardinality; i++)
+      {
+        bitmap.add(this.values[i]);
+      }
+      return bitmap;
+    }
+  }
+
+  /**
+   * A dense chunk: a bitmap of all 65536 possible values.
+   */
+  private static final class BitmapChunk implements Chunk
+  {
+    /** The bitmap. */
+    private final long[] words;
+
+    /** The number of values present. */
+    private int cardinality;
+
+    /**
+     * Constructor.
+     * @param words The bitmap.
+     * @param cardinality The number of values present.
+     */
+    private BitmapChunk(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    public boolean contains(char value)
+    {
+      return ((this.words[value >>> 6] & (1L << value)) != 0);
+    }
+
+    @Override
+    public Chunk add(char value)
+    {
+      final long before = this.words[value >>> 6];
+      final long after = before | (1L << value);
+      if (before != after)
+      {
+        this.words[value >>> 6] = after;
+        this.cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    public Chunk remove(char value)
+    {
+      final long before = this.words[value >>> 6];
+      final long after = before & ~(1L << value);
+      if (before != after)
+      {
+        this.words[value >>> 6] = after;
+        this.cardinality--;
+      }
+      return (this.cardinality <= MAX_ARRAY_SIZE ? toArray() : this);
+    }
+
+    @Override
+    public Chunk and(Chunk other)
+    {
+      if (! (other instanceof BitmapChunk))
+      {
+        return other.and(this);
+      }
+
+      final long[] words = new long[BITMAP_WORDS];
+      int cardinality = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        words[i] = this.words[i] & ((BitmapChunk) other).words[i];
+        cardinality += Long.bitCount(words[i]);
+      }
+
+      final BitmapChunk result = new BitmapChunk(words, cardinality);
+      return (cardinality <= MAX_ARRAY_SIZE ? result.toArray() : result);
+    }
+
+    @Override
+    public Chunk or(Chunk other)
+    {
+      if (! (other instanceof BitmapChunk))
+      {
+        return other.or(this);
+      }
+
+      final long[] words = new long[BITMAP_WORDS];
+      int cardinality = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        words[i] = this.words[i] | ((BitmapChunk) other).words[i];
+        cardinality += Long.bitCount(words[i]);
+      }
+      return new BitmapChunk(words, cardinality);
+    }
+
+    @Override
+    public int cardinality()
+    {
+      return this.cardinality;
+    }
+
+    @Override
+    public Chunk copy()
+    {
+      return new BitmapChunk(this.words.clone(), this.cardinality);
+    }
+
+    @Override
+    public void forEach(int base, IntConsumer action)
+    {
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        long word = this.words[i];
+        while (word != 0)
+        {
+          action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    public long sizeInBytes()
+    {
+      return OVERHEAD_BYTES + 8 + OVERHEAD_BYTES + 8L * BITMAP_WORDS;
+    }
+
+    /**
+     * Converts the chunk to an array.
+     * @return The array.
+     */
+    private ArrayChunk toArray()
+    {
+      final char[] values = new char[Math.max(1, this.cardinality)];
+      final int[] count = new int[1];
+      forEach(0, value -> values[count[0]++] = (char) value);
+      return new ArrayChunk(values, this.cardinality);
+    }
+  }
+}
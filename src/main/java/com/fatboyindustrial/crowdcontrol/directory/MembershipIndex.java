@@ -0,0 +1,612 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A compact, in-memory index of direct group memberships.
+ * <p>
+ * Usernames and group names are interned into dense integer identifiers, and memberships are held twice as compressed
+ * {@link IdSet}s: the members of each group (indexed by user identifier) and the groups of each user (indexed by group
+ * identifier).  A small group or a user in a few groups costs a couple of bytes per membership rather than a bit per
+ * user or group in the directory, while large groups fall back to bitmaps; set operations across groups work on the
+ * compressed form, with no per-membership objects on the heap.
+ * <p>
+ * Names are matched case-insensitively, as Crowd does; the name first seen is the one reported.  Identifiers are
+ * never reused, so a removed user or group keeps its (empty) slot until the index is discarded.
+ */
+@ThreadSafe
+public class MembershipIndex
+{
+  /** The user identifiers and names. */
+  @GuardedBy("lock")
+  private final NameTable users;
+
+  /** The group identifiers and names. */
+  @GuardedBy("lock")
+  private final NameTable groups;
+
+  /** The groups of each user, indexed by user identifier. */
+  @GuardedBy("lock")
+  private final List<IdSet> groupsByUser;
+
+  /** The members of each group, indexed by group identifier. */
+  @GuardedBy("lock")
+  private final List<IdSet> membersByGroup;
+
+  /** Guards the index: many readers, or a single writer. */
+  private final ReadWriteLock lock;
+
+  /**
+   * Constructor.  The index is initially empty.
+   */
+  public MembershipIndex()
+  {
+    this.users = new NameTable();
+    this.groups = new NameTable();
+    this.groupsByUser = new ArrayList<>();
+    this.membersByGroup = new ArrayList<>();
+    this.lock = new ReentrantReadWriteLock();
+  }
+
+  /**
+   * Adds a user (with no memberships, if the user is new).
+   * @param username The username.
+   */
+  public void addUser(String username)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      this.users.add(username, this.groupsByUser);
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Adds a group (with no members, if the group is new).
+   * @param groupname The group name.
+   */
+  public void addGroup(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      this.groups.add(groupname, this.membersByGroup);
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Removes a user and all of their memberships.
+   * @param username The username.
+   */
+  public void removeUser(String username)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      final int user = this.users.find(username);
+      if (user >= 0)
+      {
+        final IdSet groupIds = this.groupsByUser.get(user);
+        groupIds.forEach(group -> this.membersByGroup.get(group).remove(user));
+        groupIds.clear();
+        this.users.remove(user);
+      }
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Removes a group and all of its memberships.
+   * @param groupname The group name.
+   */
+  public void removeGroup(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      final int group = this.groups.find(groupname);
+      if (group >= 0)
+      {
+        final IdSet userIds = this.membersByGroup.get(group);
+        userIds.forEach(user -> this.groupsByUser.get(user).remove(group));
+        userIds.clear();
+        this.groups.remove(group);
+      }
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Adds a direct membership, adding the user and group if necessary.
+   * @param username The username.
+   * @param groupname The group name.
+   */
+  public void addMembership(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      final int user = this.users.add(username, this.groupsByUser);
+      final int group = this.groups.add(groupname, this.membersByGroup);
+      this.groupsByUser.get(user).add(group);
+      this.membersByGroup.get(group).add(user);
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Removes a direct membership.
+   * @param username The username.
+   * @param groupname The group name.
+   */
+  public void removeMembership(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      final int user = this.users.find(username);
+      final int group = this.groups.find(groupname);
+      if (user >= 0 && group >= 0)
+      {
+        this.groupsByUser.get(user).remove(group);
+        this.membersByGroup.get(group).remove(user);
+      }
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Replaces a user's direct memberships, adding the user and groups if necessary.
+   * @param username The username.
+   * @param groupnames The groups the user is now a direct member of.
+   */
+  public void setGroups(String username, Collection<String> groupnames)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupnames, "groupnames cannot be null");
+
+    final Lock write = this.lock.writeLock();
+    write.lock();
+    try
+    {
+      final int user = this.users.add(username, this.groupsByUser);
+      final IdSet groupIds = this.groupsByUser.get(user);
+      groupIds.forEach(group -> this.membersByGroup.get(group).remove(user));
+      groupIds.clear();
+      for (final String groupname : groupnames)
+      {
+        final int group = this.groups.add(groupname, this.membersByGroup);
+        groupIds.add(group);
+        this.membersByGroup.get(group).add(user);
+      }
+    }
+    finally
+    {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Is the user in the index?
+   * @param username The username.
+   * @return True if the user is present.
+   */
+  public boolean containsUser(String username)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      return (this.users.find(username) >= 0);
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Is the group in the index?
+   * @param groupname The group name.
+   * @return True if the group is present.
+   */
+  public boolean containsGroup(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      return (this.groups.find(groupname) >= 0);
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Is the user a direct member of the group?
+   * @param username The username.
+   * @param groupname The group name.
+   * @return True if the user is a direct member of the group.
+   */
+  public boolean isMember(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      final int user = this.users.find(username);
+      final int group = this.groups.find(groupname);
+      return (user >= 0 && group >= 0 && this.groupsByUser.get(user).contains(group));
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the groups a user is a direct member of.
+   * @param username The username.
+   * @return The group names (empty if the user is not present).
+   */
+  public ImmutableSet<String> groupsOf(String username)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      final int user = this.users.find(username);
+      return (user < 0 ? ImmutableSet.<String>of() : this.groups.names(this.groupsByUser.get(user)));
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the direct members of a group.
+   * @param groupname The group name.
+   * @return The usernames (empty if the group is not present).
+   */
+  public ImmutableSet<String> membersOf(String groupname)
+  {
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      final int group = this.groups.find(groupname);
+      return (group < 0 ? ImmutableSet.<String>of() : this.users.names(this.membersByGroup.get(group)));
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the users that are direct members of every one of the given groups.
+   * @param groupnames The group names.
+   * @return The usernames (empty if no groups are given, or any of them is not present).
+   */
+  public ImmutableSet<String> membersOfAll(Collection<String> groupnames)
+  {
+    Preconditions.checkNotNull(groupnames, "groupnames cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      IdSet members = null;
+      for (final String groupname : groupnames)
+      {
+        final int group = this.groups.find(groupname);
+        if (group < 0)
+        {
+          return ImmutableSet.of();
+        }
+
+        if (members == null)
+        {
+          members = this.membersByGroup.get(group).copy();
+        }
+        else
+        {
+          members.and(this.membersByGroup.get(group));
+        }
+      }
+
+      return (members == null ? ImmutableSet.<String>of() : this.users.names(members));
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the users that are direct members of at least one of the given groups.
+   * @param groupnames The group names.
+   * @return The usernames.
+   */
+  public ImmutableSet<String> membersOfAny(Collection<String> groupnames)
+  {
+    Preconditions.checkNotNull(groupnames, "groupnames cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      final IdSet members = new IdSet();
+      for (final String groupname : groupnames)
+      {
+        final int group = this.groups.find(groupname);
+        if (group >= 0)
+        {
+          members.or(this.membersByGroup.get(group));
+        }
+      }
+
+      return this.users.names(members);
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the groups that every one of the given users is a direct member of.
+   * @param usernames The usernames.
+   * @return The group names (empty if no users are given, or any of them is not present).
+   */
+  public ImmutableSet<String> commonGroups(Collection<String> usernames)
+  {
+    Preconditions.checkNotNull(usernames, "usernames cannot be null");
+
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      IdSet common = null;
+      for (final String username : usernames)
+      {
+        final int user = this.users.find(username);
+        if (user < 0)
+        {
+          return ImmutableSet.of();
+        }
+
+        if (common == null)
+        {
+          common = this.groupsByUser.get(user).copy();
+        }
+        else
+        {
+          common.and(this.groupsByUser.get(user));
+        }
+      }
+
+      return (common == null ? ImmutableSet.<String>of() : this.groups.names(common));
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of users in the index.
+   * @return The user count.
+   */
+  public int getUserCount()
+  {
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      return this.users.size();
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of groups in the index.
+   * @return The group count.
+   */
+  public int getGroupCount()
+  {
+    final Lock read = this.lock.readLock();
+    read.lock();
+    try
+    {
+      return this.groups.size();
+    }
+    finally
+    {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Interns names into dense identifiers, tracking which identifiers are currently present.  Not thread safe; the
+   * enclosing index guards it.
+   */
+  private static class NameTable
+  {
+    /** The names, indexed by identifier. */
+    private final List<String> names = new ArrayList<>();
+
+    /** The identifiers, keyed by case-folded name. */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /** The identifiers currently present. */
+    private final BitSet present = new BitSet();
+
+    /**
+     * Finds a present name.
+     * @param name The name.
+     * @return The identifier, or -1 if the name is not present.
+     */
+    private int find(String name)
+    {
+      final Integer id = this.ids.get(key(name));
+      return (id != null && this.present.get(id) ? id : -1);
+    }
+
+    /**
+     * Adds a name, interning it if necessary.
+     * @param name The name.
+     * @param sets The per-identifier sets, extended with an empty set when a new identifier is allocated.
+     * @return The identifier.
+     */
+    private int add(String name, List<IdSet> sets)
+    {
+      final String key = key(name);
+      Integer id = this.ids.get(key);
+      if (id == null)
+      {
+        id = this.names.size();
+        this.names.add(name);
+        this.ids.put(key, id);
+        sets.add(new IdSet());
+      }
+
+      this.present.set(id);
+      return id;
+    }
+
+    /**
+     * Marks an identifier as no longer present.
+     * @param id The identifier.
+     */
+    private void remove(int id)
+    {
+      this.present.clear(id);
+    }
+
+    /**
+     * Gets the names of the given identifiers.
+     * @param ids The identifiers.
+     * @return The names.
+     */
+    private ImmutableSet<String> names(IdSet ids)
+    {
+      final ImmutableSet.Builder<String> result = ImmutableSet.builder();
+      ids.forEach(id -> result.add(this.names.get(id)));
+      return result.build();
+    }
+
+    /**
+     * Gets the number of names present.
+     * @return The count.
+     */
+    private int size()
+    {
+      return this.present.cardinality();
+    }
+
+    /**
+     * Gets the key used to match a name case-insensitively.
+     * @param name The name.
+     * @return The key.
+     */
+    private static String key(String name)
+    {
+      return name.toLowerCase(Locale.ROOT);
+    }
+  }
+}
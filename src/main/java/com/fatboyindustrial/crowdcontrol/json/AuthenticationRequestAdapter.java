@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationRequest;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+
+/**
+ * Type adapter for {@link AuthenticationRequest}.
+ */
+@Immutable
+class AuthenticationRequestAdapter extends ModelAdapter<AuthenticationRequest>
+{
+  /**
+   * Writes the request.
+   * @param out The writer.
+   * @param value The request.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, AuthenticationRequest value) throws IOException
+  {
+    out.beginObject();
+    out.name("value").value(value.getPassword());
+    out.endObject();
+  }
+
+  /**
+   * Reads a request.
+   * @param in The reader.
+   * @return The request.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public AuthenticationRequest read(JsonReader in) throws IOException
+  {
+    String value = "";
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      if (in.nextName().equals("value"))
+      {
+        value = readString(in);
+      }
+      else
+      {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new AuthenticationRequest(value);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+
+/**
+ * Type adapter for {@link AuthenticationResponse}.
+ */
+@Immutable
+class AuthenticationResponseAdapter extends ModelAdapter<AuthenticationResponse>
+{
+  /** The adapter for the nested link. */
+  private final LinkAdapter linkAdapter = new LinkAdapter();
+
+  /**
+   * Writes the response.
+   * @param out The writer.
+   * @param value The response.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, AuthenticationResponse value) throws IOException
+  {
+    out.beginObject();
+    out.name("expand").value(value.getExpand());
+    out.name("link");
+    this.linkAdapter.write(out, value.getLink());
+    out.name("name").value(value.getUsername());
+    out.name("first-name").value(value.getGivenName());
+    out.name("last-name").value(value.getFamilyName());
+    out.name("display-name").value(value.getDisplayName());
+    out.name("email").value(value.getEmail());
+    out.name("key").value(value.getKey());
+    out.name("active").value(value.isActive());
+    out.endObject();
+  }
+
+  /**
+   * Reads a response.
+   * @param in The reader.
+   * @return The response.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public AuthenticationResponse read(JsonReader in) throws IOException
+  {
+    String expand = "";
+    Link link = LinkAdapter.EMPTY;
+    String name = "";
+    String firstName = "";
+    String lastName = "";
+    String displayName = "";
+    String email = "";
+    String key = "";
+    boolean active = false;
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "expand":
+          expand = readString(in);
+          break;
+        case "link":
+          link = this.linkAdapter.readOrEmpty(in);
+          break;
+        case "name":
+          name = readString(in);
+          break;
+        case "first-name":
+          firstName = readString(in);
+          break;
+        case "last-name":
+          lastName = readString(in);
+          break;
+        case "display-name":
+          displayName = readString(in);
+          break;
+        case "email":
+          email = readString(in);
+          break;
+        case "key":
+          key = readString(in);
+          break;
+        case "active":
+          active = readBoolean(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new AuthenticationResponse(expand, link, name, firstName, lastName, displayName, email, key, active);
+  }
+}
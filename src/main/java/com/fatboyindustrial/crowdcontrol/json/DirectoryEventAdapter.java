@@ -0,0 +1,258 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryEvent;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Type adapter for {@link DirectoryEvent}.  An event names its entity in a field that depends on the kind of event:
+ * {@code "user"}, {@code "group"}, {@code "childUser"} (user membership) or {@code "childGroup"} (group membership).
+ * Membership events carry their {@code "parentGroups"} as a group list.  The {@code "type"} field is optional; when
+ * it is missing, the type is inferred from the entity field.
+ */
+@Immutable
+class DirectoryEventAdapter extends ModelAdapter<DirectoryEvent>
+{
+  /** The entity field used by each type of event. */
+  private static final Map<DirectoryEvent.Type, String> ENTITY_FIELDS = ImmutableMap.of(
+      DirectoryEvent.Type.USER, "user",
+      DirectoryEvent.Type.GROUP, "group",
+      DirectoryEvent.Type.USER_MEMBERSHIP, "childUser",
+      DirectoryEvent.Type.GROUP_MEMBERSHIP, "childGroup");
+
+  /**
+   * Writes the event.
+   * @param out The writer.
+   * @param value The event.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, DirectoryEvent value) throws IOException
+  {
+    out.beginObject();
+    out.name("type").value(value.getType().name());
+    out.name("operation").value(value.getOperation().name());
+    out.name(ENTITY_FIELDS.get(value.getType())).beginObject().name("name").value(value.getName()).endObject();
+
+    if (value.getType() == DirectoryEvent.Type.USER_MEMBERSHIP
+        || value.getType() == DirectoryEvent.Type.GROUP_MEMBERSHIP)
+    {
+      out.name("parentGroups").beginObject().name("groups").beginArray();
+      for (final String group : value.getParentGroups())
+      {
+        out.beginObject().name("name").value(group).endObject();
+      }
+      out.endArray().endObject();
+    }
+
+    out.endObject();
+  }
+
+  /**
+   * Reads an event.
+   * @param in The reader.
+   * @return The event, or null if its type or operation is not recognised.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public DirectoryEvent read(JsonReader in) throws IOException
+  {
+    String type = "";
+    String operation = "";
+    String name = "";
+    DirectoryEvent.Type inferred = null;
+    List<String> parentGroups = Collections.emptyList();
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "type":
+          type = readString(in);
+          break;
+        case "operation":
+          operation = readString(in);
+          break;
+        case "user":
+          inferred = DirectoryEvent.Type.USER;
+          name = readName(in);
+          break;
+        case "group":
+          inferred = DirectoryEvent.Type.GROUP;
+          name = readName(in);
+          break;
+        case "childUser":
+          inferred = DirectoryEvent.Type.USER_MEMBERSHIP;
+          name = readName(in);
+          break;
+        case "childGroup":
+          inferred = DirectoryEvent.Type.GROUP_MEMBERSHIP;
+          name = readName(in);
+          break;
+        case "parentGroups":
+          parentGroups = readGroups(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    final DirectoryEvent.Type resolvedType = (type.isEmpty() ? inferred : parse(DirectoryEvent.Type.class, type));
+    final DirectoryEvent.Operation resolvedOperation = parse(DirectoryEvent.Operation.class, operation);
+
+    if (resolvedType == null || resolvedOperation == null)
+    {
+      return null;
+    }
+
+    return new DirectoryEvent(resolvedType, resolvedOperation, name, parentGroups);
+  }
+
+  /**
+   * Writes a list of events as a JSON array.
+   * @param out The writer.
+   * @param events The events.
+   * @throws IOException If writing fails.
+   */
+  void writeAll(JsonWriter out, List<DirectoryEvent> events) throws IOException
+  {
+    out.beginArray();
+    for (final DirectoryEvent event : events)
+    {
+      write(out, event);
+    }
+    out.endArray();
+  }
+
+  /**
+   * Reads a JSON array of events, dropping any that are not recognised.
+   * @param in The reader, positioned at the array.
+   * @return The events.
+   * @throws IOException If reading fails.
+   */
+  List<DirectoryEvent> readAll(JsonReader in) throws IOException
+  {
+    final List<DirectoryEvent> events = new ArrayList<>();
+
+    in.beginArray();
+    while (in.hasNext())
+    {
+      final DirectoryEvent event = read(in);
+      if (event != null)
+      {
+        events.add(event);
+      }
+    }
+    in.endArray();
+
+    return events;
+  }
+
+  /**
+   * Reads a list of group names, given either as {@code {"groups": [...]}} or as a bare array.
+   * @param in The reader, positioned at the object, array or null.
+   * @return The group names.
+   * @throws IOException If reading fails.
+   */
+  private static List<String> readGroups(JsonReader in) throws IOException
+  {
+    final List<String> groups = new ArrayList<>();
+
+    if (in.peek() == JsonToken.BEGIN_ARRAY)
+    {
+      readNames(in, groups);
+    }
+    else if (in.peek() == JsonToken.BEGIN_OBJECT)
+    {
+      in.beginObject();
+      while (in.hasNext())
+      {
+        if (in.nextName().equals("groups") && in.peek() == JsonToken.BEGIN_ARRAY)
+        {
+          readNames(in, groups);
+        }
+        else
+        {
+          in.skipValue();
+        }
+      }
+      in.endObject();
+    }
+    else
+    {
+      in.skipValue();
+    }
+
+    return groups;
+  }
+
+  /**
+   * Reads the names from an array of named entities.
+   * @param in The reader, positioned at the array.
+   * @param names The list to add the names to.
+   * @throws IOException If reading fails.
+   */
+  private static void readNames(JsonReader in, List<String> names) throws IOException
+  {
+    in.beginArray();
+    while (in.hasNext())
+    {
+      names.add(readName(in));
+    }
+    in.endArray();
+  }
+
+  /**
+   * Parses an enum constant case-insensitively.
+   * @param type The enum type.
+   * @param value The value.
+   * @param <E> The enum type.
+   * @return The constant, or null if the value is not recognised.
+   */
+  private static <E extends Enum<E>> E parse(Class<E> type, String value)
+  {
+    try
+    {
+      return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+    }
+    catch (IllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+}
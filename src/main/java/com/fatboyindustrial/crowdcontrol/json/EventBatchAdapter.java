@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryEvent;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Type adapter for {@link EventBatch}.  The response to a request for the current event token has the same shape,
+ * without any events.
+ */
+@Immutable
+class EventBatchAdapter extends ModelAdapter<EventBatch>
+{
+  /** The adapter used for the individual events. */
+  private final DirectoryEventAdapter eventAdapter = new DirectoryEventAdapter();
+
+  /**
+   * Writes the batch.
+   * @param out The writer.
+   * @param value The batch.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, EventBatch value) throws IOException
+  {
+    out.beginObject();
+    out.name("newEventToken").value(value.getNewEventToken());
+    out.name("incrementalSynchronisationAvailable").value(value.isIncrementalSynchronisationAvailable());
+    out.name("events");
+    this.eventAdapter.writeAll(out, value.getEvents());
+    out.endObject();
+  }
+
+  /**
+   * Reads a batch.  Incremental synchronisation is assumed to be available unless Crowd says otherwise.
+   * @param in The reader.
+   * @return The batch.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public EventBatch read(JsonReader in) throws IOException
+  {
+    String newEventToken = "";
+    boolean incrementalSynchronisationAvailable = true;
+    List<DirectoryEvent> events = Collections.emptyList();
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "newEventToken":
+          newEventToken = readString(in);
+          break;
+        case "incrementalSynchronisationAvailable":
+          incrementalSynchronisationAvailable = readBoolean(in);
+          break;
+        case "events":
+          events = this.eventAdapter.readAll(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new EventBatch(newEventToken, incrementalSynchronisationAvailable, events);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+
+/**
+ * Type adapter for {@link GroupError}.
+ */
+@Immutable
+class GroupErrorAdapter extends ModelAdapter<GroupError>
+{
+  /**
+   * Writes the error.
+   * @param out The writer.
+   * @param value The error.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, GroupError value) throws IOException
+  {
+    out.beginObject();
+    out.name("reason").value(value.getReason());
+    out.name("message").value(value.getMessage());
+    out.endObject();
+  }
+
+  /**
+   * Reads an error.
+   * @param in The reader.
+   * @return The error.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public GroupError read(JsonReader in) throws IOException
+  {
+    String reason = "";
+    String message = "";
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "reason":
+          reason = readString(in);
+          break;
+        case "message":
+          message = readString(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new GroupError(reason, message);
+  }
+}
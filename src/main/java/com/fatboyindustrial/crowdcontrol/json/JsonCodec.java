@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationRequest;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryEvent;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.fatboyindustrial.crowdcontrol.model.Session;
+import com.fatboyindustrial.crowdcontrol.model.SessionError;
+import com.fatboyindustrial.crowdcontrol.model.SessionRequest;
+import com.fatboyindustrial.crowdcontrol.model.SessionValidationRequest;
+import com.fatboyindustrial.crowdcontrol.model.UserList;
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes and decodes the Crowd model objects.  The codec is built once and is safe to share between threads.
+ * Model types are handled by hand-written type adapters rather than by reflection; unknown fields are skipped, and
+ * absent or null string fields are decoded as the empty string.
+ */
+@ThreadSafe
+public final class JsonCodec
+{
+  /** The shared codec instance. */
+  private static final JsonCodec DEFAULT = new JsonCodec();
+
+  /** The underlying GSON instance. */
+  private final Gson gson;
+
+  /**
+   * Constructor.
+   */
+  private JsonCodec()
+  {
+    this.gson = new GsonBuilder()
+        .registerTypeAdapter(Link.class, new LinkAdapter().nullSafe())
+        .registerTypeAdapter(AuthenticationRequest.class, new AuthenticationRequestAdapter().nullSafe())
+        .registerTypeAdapter(AuthenticationResponse.class, new AuthenticationResponseAdapter().nullSafe())
+        .registerTypeAdapter(AuthenticationError.class, new AuthenticationErrorAdapter().nullSafe())
+        .registerTypeAdapter(GroupResponse.class, new GroupResponseAdapter().nullSafe())
+        .registerTypeAdapter(GroupError.class, new GroupErrorAdapter().nullSafe())
+        .registerTypeAdapter(NameList.class, new NameListAdapter().nullSafe())
+        .registerTypeAdapter(ValidationFactor.class, new ValidationFactorAdapter().nullSafe())
+        .registerTypeAdapter(SessionRequest.class, new SessionRequestAdapter().nullSafe())
+        .registerTypeAdapter(SessionValidationRequest.class, new SessionValidationRequestAdapter().nullSafe())
+        .registerTypeAdapter(Session.class, new SessionAdapter().nullSafe())
+        .registerTypeAdapter(SessionError.class, new SessionErrorAdapter().nullSafe())
+        .registerTypeAdapter(DirectoryEvent.class, new DirectoryEventAdapter().nullSafe())
+        .registerTypeAdapter(EventBatch.class, new EventBatchAdapter().nullSafe())
+        .registerTypeAdapter(DirectoryError.class, new DirectoryErrorAdapter().nullSafe())
+        .registerTypeAdapter(UserList.class, new UserListAdapter().nullSafe())
+        .create();
+  }
+
+  /**
+   * Gets the shared codec.
+   * @return The codec.
+   */
+  public static JsonCodec getDefault()
+  {
+    return DEFAULT;
+  }
+
+  /**
+   * Encodes the given object as JSON.
+   * @param value The object.
+   * @return The JSON.
+   */
+  public String encode(Object value)
+  {
+    Preconditions.checkNotNull(value, "value cannot be null");
+    return this.gson.toJson(value);
+  }
+
+  /**
+   * Decodes the given JSON.
+   * @param json The JSON.
+   * @param type The type to decode.
+   * @param <T> The type to decode.
+   * @return The decoded object.
+   * @throws JsonParseException If the JSON cannot be decoded.
+   */
+  public <T> T decode(String json, Class<T> type) throws JsonParseException
+  {
+    Preconditions.checkNotNull(json, "json cannot be null");
+    Preconditions.checkNotNull(type, "type cannot be null");
+
+    return this.gson.fromJson(json, type);
+  }
+
+  /**
+   * Decodes UTF-8 encoded JSON directly from the given stream, without first reading it into a string.  Unknown
+   * fields are skipped as they are encountered.  The stream is not closed.
+   * @param in The input stream.
+   * @param type The type to decode.
+   * @param <T> The type to decode.
+   * @return The decoded object.
+   * @throws JsonParseException If the JSON cannot be read or decoded.
+   */
+  public <T> T decode(InputStream in, Class<T> type) throws JsonParseException
+  {
+    Preconditions.checkNotNull(in, "in cannot be null");
+    Preconditions.checkNotNull(type, "type cannot be null");
+
+    return this.gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), type);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+
+/**
+ * Type adapter for {@link Link}.
+ */
+@Immutable
+class LinkAdapter extends ModelAdapter<Link>
+{
+  /** An empty link, used when a link is absent. */
+  static final Link EMPTY = new Link("", "");
+
+  /**
+   * Writes the link.
+   * @param out The writer.
+   * @param value The link.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, Link value) throws IOException
+  {
+    out.beginObject();
+    out.name("rel").value(value.getRel());
+    out.name("href").value(value.getHref());
+    out.endObject();
+  }
+
+  /**
+   * Reads a link.
+   * @param in The reader.
+   * @return The link.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public Link read(JsonReader in) throws IOException
+  {
+    String rel = "";
+    String href = "";
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "rel":
+          rel = readString(in);
+          break;
+        case "href":
+          href = readString(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Link(rel, href);
+  }
+
+  /**
+   * Reads a link, mapping a JSON null to the empty link.
+   * @param in The reader, positioned at a link object or null value.
+   * @return The link.
+   * @throws IOException If reading fails.
+   */
+  Link readOrEmpty(JsonReader in) throws IOException
+  {
+    if (in.peek() == JsonToken.NULL)
+    {
+      in.nextNull();
+      return EMPTY;
+    }
+
+    return read(in);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Base class for the hand-written model type adapters.
+ *
+ * @param <T> The model type.
+ */
+abstract class ModelAdapter<T> extends TypeAdapter<T>
+{
+  /**
+   * Reads a string value, mapping a JSON null to the empty string.
+   * @param in The reader, positioned at a string or null value.
+   * @return The string.
+   * @throws IOException If the value cannot be read.
+   */
+  static String readString(JsonReader in) throws IOException
+  {
+    if (in.peek() == JsonToken.NULL)
+    {
+      in.nextNull();
+      return "";
+    }
+
+    return in.nextString();
+  }
+
+  /**
+   * Reads a boolean value, mapping a JSON null to false.
+   * @param in The reader, positioned at a boolean or null value.
+   * @return The boolean.
+   * @throws IOException If the value cannot be read.
+   */
+  static boolean readBoolean(JsonReader in) throws IOException
+  {
+    if (in.peek() == JsonToken.NULL)
+    {
+      in.nextNull();
+      return false;
+    }
+
+    return in.nextBoolean();
+  }
+
+  /**
+   * Reads the name of a named entity (such as {@code {"name": "yoss", "link": ...}}), skipping its other fields.
+   * @param in The reader, positioned at the entity object or null.
+   * @return The name (empty if the entity is null or unnamed).
+   * @throws IOException If reading fails.
+   */
+  static String readName(JsonReader in) throws IOException
+  {
+    if (in.peek() == JsonToken.NULL)
+    {
+      in.nextNull();
+      return "";
+    }
+
+    String name = "";
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      if (in.nextName().equals("name"))
+      {
+        name = readString(in);
+      }
+      else
+      {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return name;
+  }
+}
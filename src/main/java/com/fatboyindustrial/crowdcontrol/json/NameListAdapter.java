@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type adapter for {@link NameList}.  Crowd returns user lists as {@code {"users": [{"name": ...}]}} and group
+ * lists as {@code {"groups": [{"name": ...}]}}; both are read, keeping only the names.
+ */
+@Immutable
+class NameListAdapter extends ModelAdapter<NameList>
+{
+  /**
+   * Writes the list, as a list of groups.
+   * @param out The writer.
+   * @param value The list.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, NameList value) throws IOException
+  {
+    out.beginObject();
+    out.name("groups").beginArray();
+    for (final String name : value.getNames())
+    {
+      out.beginObject().name("name").value(name).endObject();
+    }
+    out.endArray();
+    out.endObject();
+  }
+
+  /**
+   * Reads a list.
+   * @param in The reader.
+   * @return The list.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public NameList read(JsonReader in) throws IOException
+  {
+    final List<String> names = new ArrayList<>();
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      final String field = in.nextName();
+      if ((field.equals("users") || field.equals("groups")) && in.peek() == JsonToken.BEGIN_ARRAY)
+      {
+        readNames(in, names);
+      }
+      else
+      {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new NameList(names);
+  }
+
+  /**
+   * Reads the names from an array of named entities.
+   * @param in The reader, positioned at the array.
+   * @param names The list to add the names to.
+   * @throws IOException If reading fails.
+   */
+  private static void readNames(JsonReader in, List<String> names) throws IOException
+  {
+    in.beginArray();
+    while (in.hasNext())
+    {
+      in.beginObject();
+      while (in.hasNext())
+      {
+        if (in.nextName().equals("name"))
+        {
+          names.add(readString(in));
+        }
+        else
+        {
+          in.skipValue();
+        }
+      }
+      in.endObject();
+    }
+    in.endArray();
+  }
+}
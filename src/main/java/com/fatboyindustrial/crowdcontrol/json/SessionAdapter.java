@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.Session;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+
+/**
+ * Type adapter for {@link Session}.  Of the embedded user, only the name is kept.
+ */
+@Immutable
+class SessionAdapter extends ModelAdapter<Session>
+{
+  /**
+   * Writes the session.
+   * @param out The writer.
+   * @param value The session.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, Session value) throws IOException
+  {
+    out.beginObject();
+    out.name("token").value(value.getToken());
+    out.name("user").beginObject().name("name").value(value.getUsername()).endObject();
+    out.name("created-date").value(value.getCreatedDate());
+    out.name("expiry-date").value(value.getExpiryDate());
+    out.endObject();
+  }
+
+  /**
+   * Reads a session.
+   * @param in The reader.
+   * @return The session.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public Session read(JsonReader in) throws IOException
+  {
+    String token = "";
+    String username = "";
+    long createdDate = 0;
+    long expiryDate = 0;
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "token":
+          token = readString(in);
+          break;
+        case "user":
+          username = readUsername(in);
+          break;
+        case "created-date":
+          createdDate = readLong(in);
+          break;
+        case "expiry-date":
+          expiryDate = readLong(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Session(token, username, createdDate, expiryDate);
+  }
+
+  /**
+   * Reads the name of the embedded user, skipping the rest of the user.
+   * @param in The reader, positioned at the user object or null.
+   * @return The username.
+   * @throws IOException If reading fails.
+   */
+  private static String readUsername(JsonReader in) throws IOException
+  {
+    if (in.peek() == JsonToken.NULL)
+    {
+      in.nextNull();
+      return "";
+    }
+
+    String username = "";
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      if (in.nextName().equals("name"))
+      {
+        username = readString(in);
+      }
+      else
+      {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return username;
+  }
+
+  /**
+   * Reads a long value, mapping a JSON null to zero.
+   * @param in The reader, positioned at a number or null value.
+   * @return The value.
+   * @throws IOException If the value cannot be read.
+   */
+  private static long readLong(JsonReader in) throws IOException
+  {
+    if (in.peek() == JsonToken.NULL)
+    {
+      in.nextNull();
+      return 0;
+    }
+
+    return in.nextLong();
+  }
+}
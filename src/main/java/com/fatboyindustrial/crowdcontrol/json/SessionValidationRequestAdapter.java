@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.SessionValidationRequest;
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Type adapter for {@link SessionValidationRequest}.
+ */
+@Immutable
+class SessionValidationRequestAdapter extends ModelAdapter<SessionValidationRequest>
+{
+  /** The adapter for the validation factors. */
+  private final ValidationFactorAdapter factorAdapter = new ValidationFactorAdapter();
+
+  /**
+   * Writes the request.
+   * @param out The writer.
+   * @param value The request.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, SessionValidationRequest value) throws IOException
+  {
+    out.beginObject();
+    out.name("validationFactors");
+    this.factorAdapter.writeAll(out, value.getValidationFactors());
+    out.endObject();
+  }
+
+  /**
+   * Reads a request.
+   * @param in The reader.
+   * @return The request.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public SessionValidationRequest read(JsonReader in) throws IOException
+  {
+    List<ValidationFactor> factors = Collections.emptyList();
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      if (in.nextName().equals("validationFactors"))
+      {
+        factors = this.factorAdapter.readAll(in);
+      }
+      else
+      {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new SessionValidationRequest(factors);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.UserList;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type adapter for {@link UserList}.  Crowd returns expanded users as {@code {"expand": "user", "users": [...]}}.
+ */
+@Immutable
+class UserListAdapter extends ModelAdapter<UserList>
+{
+  /** The adapter for each user. */
+  private final AuthenticationResponseAdapter userAdapter = new AuthenticationResponseAdapter();
+
+  /**
+   * Writes the list.
+   * @param out The writer.
+   * @param value The list.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, UserList value) throws IOException
+  {
+    out.beginObject();
+    out.name("expand").value("user");
+    out.name("users").beginArray();
+    for (final AuthenticationResponse user : value.getUsers())
+    {
+      this.userAdapter.write(out, user);
+    }
+    out.endArray();
+    out.endObject();
+  }
+
+  /**
+   * Reads a list.
+   * @param in The reader.
+   * @return The list.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public UserList read(JsonReader in) throws IOException
+  {
+    final List<AuthenticationResponse> users = new ArrayList<>();
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      if (in.nextName().equals("users") && in.peek() == JsonToken.BEGIN_ARRAY)
+      {
+        in.beginArray();
+        while (in.hasNext())
+        {
+          users.add(this.userAdapter.read(in));
+        }
+        in.endArray();
+      }
+      else
+      {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new UserList(users);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type adapter for {@link ValidationFactor}.
+ */
+@Immutable
+class ValidationFactorAdapter extends ModelAdapter<ValidationFactor>
+{
+  /**
+   * Writes the factor.
+   * @param out The writer.
+   * @param value The factor.
+   * @throws IOException If writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, ValidationFactor value) throws IOException
+  {
+    out.beginObject();
+    out.name("name").value(value.getName());
+    out.name("value").value(value.getValue());
+    out.endObject();
+  }
+
+  /**
+   * Reads a factor.
+   * @param in The reader.
+   * @return The factor.
+   * @throws IOException If reading fails.
+   */
+  @Override
+  public ValidationFactor read(JsonReader in) throws IOException
+  {
+    String name = "";
+    String value = "";
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      switch (in.nextName())
+      {
+        case "name":
+          name = readString(in);
+          break;
+        case "value":
+          value = readString(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new ValidationFactor(name, value);
+  }
+
+  /**
+   * Writes a list of factors as a JSON array.
+   * @param out The writer.
+   * @param factors The factors.
+   * @throws IOException If writing fails.
+   */
+  void writeAll(JsonWriter out, List<ValidationFactor> factors) throws IOException
+  {
+    out.beginArray();
+    for (final ValidationFactor factor : factors)
+    {
+      write(out, factor);
+    }
+    out.endArray();
+  }
+
+  /**
+   * Reads a JSON array of factors.
+   * @param in The reader, positioned at the array.
+   * @return The factors.
+   * @throws IOException If reading fails.
+   */
+  List<ValidationFactor> readAll(JsonReader in) throws IOException
+  {
+    final List<ValidationFactor> factors = new ArrayList<>();
+
+    in.beginArray();
+    while (in.hasNext())
+    {
+      factors.add(read(in));
+    }
+    in.endArray();
+
+    return factors;
+  }
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.limit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of calls to Crowd in flight, adapting the limit to the latency Crowd is observed to deliver.
+ * <p>
+ * The limit follows the additive increase, multiplicative decrease scheme of TCP congestion control.  Each call's
+ * latency is compared with a long-term moving average: while calls complete within {@link #LATENCY_TOLERANCE} times
+ * the average and the limit is being used, it grows by one per limit's worth of calls; when a call is slower than
+ * that, or fails, the limit shrinks by {@link #BACKOFF_RATIO} (at most once per average latency, so that one burst of
+ * slow calls counts as one signal).  When Crowd slows down, callers are therefore turned away rather than adding to
+ * its queue.
+ * <p>
+ * A call beyond the limit waits up to a maximum time for a call in flight to finish, and is rejected if none does.  A
+ * maximum wait of zero rejects it at once.  Rejected calls are answered with an error whose reason is
+ * {@link #LIMIT_EXCEEDED}; asynchronous calls wait without holding a thread.
+ * <p>
+ * Each limiter is a bulkhead: give interactive and background interactions their own limiters, so that a backlog of
+ * one can never starve the other.
+ */
+@ThreadSafe
+public class AdaptiveLimiter
+{
+  /** The symbolic reason of the error returned when a call is rejected. */
+  public static final String LIMIT_EXCEEDED = "LIMIT_EXCEEDED";
+
+  /** The factor by which the limit shrinks when Crowd is overloaded. */
+  public static final double BACKOFF_RATIO = 0.9;
+
+  /** How many times slower than average a call must be to count as a sign of overload. */
+  public static final double LATENCY_TOLERANCE = 2.0;
+
+  /** The number of calls over which the long-term average latency is smoothed. */
+  private static final int LATENCY_WINDOW = 100;
+
+  /** The smallest the limit may shrink to. */
+  private final int minLimit;
+
+  /** The largest the limit may grow to. */
+  private final int maxLimit;
+
+  /** The longest a call waits for a permit, in nanoseconds. */
+  private final long maxWaitNanos;
+
+  /** The source of time. */
+  private final Ticker ticker;
+
+  /** The current limit.  Only its integer part limits calls; the fraction accumulates additive increases. */
+  @GuardedBy("this")
+  private double limit;
+
+  /** The number of calls in flight. */
+  @GuardedBy("this")
+  private int inFlight;
+
+  /** The long-term moving average latency, in nanoseconds, or zero before the first call completes. */
+  @GuardedBy("this")
+  private double averageLatency;
+
+  /** The ticker reading of the last decrease of the limit. */
+  @GuardedBy("this")
+  private long lastDecrease;
+
+  /** The calls waiting for a permit, in order of arrival. */
+  @GuardedBy("this")
+  private final ArrayDeque<CompletableFuture<Optional<Permit>>> waiters;
+
+  /** The number of calls rejected. */
+  private final LongAdder rejected;
+
+  /**
+   * Constructor.
+   * @param initialLimit The limit to start with.
+   * @param minLimit The smallest the limit may shrink to.
+   * @param maxLimit The largest the limit may grow to.
+   * @param maxWaitMillis The longest a call waits for a permit before it is rejected, or zero to reject at once.
+   * @throws IllegalArgumentException If the limits are not positive, or the initial limit lies outside them, or the
+   * maximum wait is negative.
+   */
+  public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long maxWaitMillis)
+      throws IllegalArgumentException
+  {
+    this(initialLimit, minLimit, maxLimit, maxWaitMillis, Ticker.systemTicker());
+  }
+
+  /**
+   * Constructor.
+   * @param initialLimit The limit to start with.
+   * @param minLimit The smallest the limit may shrink to.
+   * @param maxLimit The largest the limit may grow to.
+   * @param maxWaitMillis The longest a call waits for a permit before it is rejected, or zero to reject at once.
+   * @param ticker The source of time.
+   * @throws IllegalArgumentException If the limits are not positive, or the initial limit lies outside them, or the
+   * maximum wait is negative.
+   */
+  @VisibleForTesting
+  AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long maxWaitMillis, Ticker ticker)
+      throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(minLimit > 0, "minLimit must be positive");
+    Preconditions.checkArgument(maxLimit >= minLimit, "maxLimit cannot be less than minLimit");
+    Preconditions.checkArgument(initialLimit >= minLimit && initialLimit <= maxLimit,
+                                "initialLimit must lie between minLimit and maxLimit");
+    Preconditions.checkArgument(maxWaitMillis >= 0, "maxWaitMillis cannot be negative");
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    this.ticker = Preconditions.checkNotNull(ticker, "ticker cannot be null");
+    this.limit = initialLimit;
+    this.waiters = new ArrayDeque<>();
+    this.rejected = new LongAdder();
+    this.lastDecrease = ticker.read();
+  }
+
+  /**
+   * Makes a call within the limit, waiting for a permit if necessary.
+   * @param call Makes the call.
+   * @param rejection Creates the result of a rejected call.
+   * @param <T> The result type.
+   * @return The result of the call, or of the rejection.
+   */
+  public <T> T execute(Supplier<T> call, Supplier<T> rejection)
+  {
+    final Optional<Permit> permit = acquire().join();
+    if (! permit.isPresent())
+    {
+      return rejection.get();
+    }
+
+    boolean completed = false;
+    try
+    {
+      final T result = call.get();
+      completed = true;
+      return result;
+    }
+    finally
+    {
+      permit.get().release(! completed);
+    }
+  }
+
+  /**
+   * Makes an asynchronous call within the limit, waiting for a permit if necessary.  Cancelling the returned future
+   * withdraws a waiting call, or cancels the call in flight.
+   * @param call Makes the call.
+   * @param rejection Creates the result of a rejected call.
+   * @param <T> The result type.
+   * @return The future result of the call, or of the rejection.
+   */
+  public <T> CompletableFuture<T> executeAsync(Supplier<? extends CompletableFuture<T>> call, Supplier<T> rejection)
+  {
+    final CompletableFuture<Optional<Permit>> acquired = acquire();
+    final AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+    final CompletableFuture<T> future = new CompletableFuture<T>()
+    {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        acquired.cancel(mayInterruptIfRunning);
+        final CompletableFuture<T> sent = current.get();
+        if (sent != null)
+        {
+          sent.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+      }
+    };
+
+    acquired.thenAccept(permit -> {
+      if (! permit.isPresent())
+      {
+        future.complete(rejection.get());
+        return;
+      }
+
+      if (future.isDone())
+      {
+        permit.get().abandon();
+        return;
+      }
+
+      final CompletableFuture<T> sent;
+      try
+      {
+        sent = call.get();
+      }
+      catch (Throwable e)
+      {
+        permit.get().release(true);
+        future.completeExceptionally(e);
+        if (e instanceof Error)
+        {
+          throw (Error) e;
+        }
+        return;
+      }
+
+      current.set(sent);
+      if (future.isCancelled())
+      {
+        sent.cancel(true);
+      }
+
+      sent.whenComplete((value, error) -> {
+        if (error == null)
+        {
+          permit.get().release(false);
+          future.complete(value);
+          return;
+        }
+
+        final Throwable cause = (error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error);
+        if (cause instanceof CancellationException)
+        {
+          permit.get().abandon();
+        }
+        else
+        {
+          permit.get().release(true);
+        }
+        future.completeExceptionally(cause);
+      });
+    });
+
+    return future;
+  }
+
+  /**
+   * Gets the current limit.
+   * @return The number of calls allowed in flight.
+   */
+  public synchronized int getLimit()
+  {
+    return (int) this.limit;
+  }
+
+  /**
+   * Gets the number of calls in flight.
+   * @return The number of calls holding a permit.
+   */
+  public synchronized int getInFlight()
+  {
+    return this.inFlight;
+  }
+
+  /**
+   * Gets the number of calls waiting for a permit.
+   * @return The number of waiting calls.
+   */
+  public synchronized int getWaiting()
+  {
+    return this.waiters.size();
+  }
+
+  /**
+   * Gets the number of calls rejected since the limiter was created.
+   * @return The number of rejected calls.
+   */
+  public long getRejectedCount()
+  {
+    return this.rejected.sum();
+  }
+
+  /**
+   * Acquires a permit, waiting up to the maximum wait if none is free.
+   * @return The future permit, which is absent if the call is rejected.
+   */
+  CompletableFuture<Optional<Permit>> acquire()
+  {
+    final CompletableFuture<Optional<Permit>> waiter;
+    synchronized (this)
+    {
+      if (this.inFlight < (int) this.limit && this.waiters.isEmpty())
+      {
+        this.inFlight++;
+        return CompletableFuture.completedFuture(Optional.of(new Permit()));
+      }
+
+      if (this.maxWaitNanos == 0)
+      {
+        this.rejected.increment();
+        return CompletableFuture.completedFuture(Optional.<Permit>absent());
+      }
+
+      waiter = new CompletableFuture<>();
+      this.waiters.add(waiter);
+    }
+
+    waiter.completeOnTimeout(Optional.<Permit>absent(), this.maxWaitNanos, TimeUnit.NANOSECONDS);
+    waiter.whenComplete((permit, error) -> {
+      if (permit == null || ! permit.isPresent())
+      {
+        withdraw(waiter, permit != null);
+      }
+    });
+
+    return waiter;
+  }
+
+  /**
+   * Removes a waiter that timed out or was cancelled.
+   * @param waiter The waiter.
+   * @param timedOut Did the waiter time out (rather than being cancelled)?
+   */
+  private void withdraw(CompletableFuture<Optional<Permit>> waiter, boolean timedOut)
+  {
+    synchronized (this)
+    {
+      this.waiters.remove(waiter);
+    }
+
+    if (timedOut)
+    {
+      this.rejected.increment();
+    }
+    admit();
+  }
+
+  /**
+   * Releases a permit, adjusting the limit and handing the permit to the next waiter if there is room.
+   * @param latencyNanos The latency of the call, or absent if the call was abandoned and says nothing about Crowd.
+   * @param failed Did the call fail?
+   */
+  private void release(Optional<Long> latencyNanos, boolean failed)
+  {
+    synchronized (this)
+    {
+      if (latencyNanos.isPresent())
+      {
+        adjust(latencyNanos.get(), failed);
+      }
+      this.inFlight--;
+    }
+
+    admit();
+  }
+
+  /**
+   * Grants permits to waiters while there is room under the limit.
+   */
+  private void admit()
+  {
+    while (true)
+    {
+      final CompletableFuture<Optional<Permit>> next;
+      synchronized (this)
+      {
+        next = (this.inFlight < (int) this.limit ? nextWaiter() : null);
+        if (next == null)
+        {
+          return;
+        }
+        this.inFlight++;
+      }
+
+      // complete the waiter outside the lock, since it runs the waiting call
+      if (! next.complete(Optional.of(new Permit())))
+      {
+        // the waiter timed out or was cancelled in the meantime
+        synchronized (this)
+        {
+          this.inFlight--;
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes the next waiter that has not timed out.
+   * @return The waiter, or null if there is none.
+   */
+  @GuardedBy("this")
+  private CompletableFuture<Optional<Permit>> nextWaiter()
+  {
+    final Iterator<CompletableFuture<Optional<Permit>>> iterator = this.waiters.iterator();
+    while (iterator.hasNext())
+    {
+      final CompletableFuture<Optional<Permit>> waiter = iterator.next();
+      iterator.remove();
+      if (! waiter.isDone())
+      {
+        return waiter;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Adjusts the limit after a call completes.
+   * @param latencyNanos The latency of the call, in nanoseconds.
+   * @param failed Did the call fail?
+   */
+  @GuardedBy("this")
+  private void adjust(long latencyNanos, boolean failed)
+  {
+    final long now = this.ticker.read();
+    final boolean overloaded = (failed ||
+        (this.averageLatency > 0 && latencyNanos > LATENCY_TOLERANCE * this.averageLatency));
+
+    if (! failed)
+    {
+      this.averageLatency = (this.averageLatency == 0
+          ? latencyNanos
+          : this.averageLatency + (latencyNanos - this.averageLatency) / LATENCY_WINDOW);
+    }
+
+    if (overloaded)
+    {
+      if (now - this.lastDecrease >= this.averageLatency)
+      {
+        this.limit = Math.max(this.minLimit, this.limit * BACKOFF_RATIO);
+        this.lastDecrease = now;
+      }
+    }
+    else if (this.inFlight * 2 >= (int) this.limit)
+    {
+      this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+    }
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public synchronized String toString()
+  {
+    return "AdaptiveLimiter{" +
+           "limit=" + (int) this.limit +
+           ", inFlight=" + this.inFlight +
+           ", waiting=" + this.waiters.size() +
+           ", rejected=" + this.rejected.sum() +
+           '}';
+  }
+
+  /**
+   * Permission for one call to be in flight.  Exactly one of the release methods takes effect.
+   */
+  final class Permit
+  {
+    /** The ticker reading when the permit was granted. */
+    private final long granted = AdaptiveLimiter.this.ticker.read();
+
+    /** Has the permit been released? */
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * Releases the permit after the call completed.
+     * @param failed Did the call fail?
+     */
+    void release(boolean failed)
+    {
+      if (this.released.compareAndSet(false, true))
+      {
+        AdaptiveLimiter.this.release(Optional.of(AdaptiveLimiter.this.ticker.read() - this.granted), failed);
+      }
+    }
+
+    /**
+     * Releases the permit of a call that was cancelled or never made, without adjusting the limit.
+     */
+    void abandon()
+    {
+      if (this.released.compareAndSet(false, true))
+      {
+        AdaptiveLimiter.this.release(Optional.<Long>absent(), false);
+      }
+    }
+  }
+}
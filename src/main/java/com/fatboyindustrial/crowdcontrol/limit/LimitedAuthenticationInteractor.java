@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.limit;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An authentication interaction that limits the number of authentications in flight with an
+ * {@link AdaptiveLimiter}.  An authentication beyond the limit is answered with an {@link AuthenticationError} whose
+ * reason is {@link AdaptiveLimiter#LIMIT_EXCEEDED}.
+ */
+@ThreadSafe
+public class LimitedAuthenticationInteractor implements AuthenticationInteraction
+{
+  /** The interaction that performs the authentications. */
+  private final AuthenticationInteraction delegate;
+
+  /** The limiter. */
+  private final AdaptiveLimiter limiter;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the authentications.
+   * @param limiter The limiter.  It should not be shared with background interactions.
+   */
+  public LimitedAuthenticationInteractor(AuthenticationInteraction delegate, AdaptiveLimiter limiter)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.limiter = Preconditions.checkNotNull(limiter, "limiter cannot be null");
+  }
+
+  /**
+   * Executes the interaction, if the limit allows.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return Either a successful response, or the reason for the error.
+   */
+  @Override
+  public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+  {
+    return this.limiter.execute(() -> this.delegate.execute(username, password),
+                                LimitedAuthenticationInteractor::rejected);
+  }
+
+  /**
+   * Executes the interaction asynchronously, if the limit allows.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                             String password)
+  {
+    return this.limiter.executeAsync(() -> this.delegate.executeAsync(username, password),
+                                     LimitedAuthenticationInteractor::rejected);
+  }
+
+  /**
+   * Gets the limiter.
+   * @return The limiter.
+   */
+  public AdaptiveLimiter getLimiter()
+  {
+    return this.limiter;
+  }
+
+  /**
+   * Creates the result of a rejected authentication.
+   * @return The error.
+   */
+  private static Either<AuthenticationResponse, AuthenticationError> rejected()
+  {
+    return Either.error(new AuthenticationError(AdaptiveLimiter.LIMIT_EXCEEDED,
+                                                "Too many authentications are in flight to Crowd"));
+  }
+}
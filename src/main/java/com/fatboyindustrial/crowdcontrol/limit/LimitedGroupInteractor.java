@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.limit;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A group interaction that limits the number of lookups in flight with an {@link AdaptiveLimiter}.  A lookup beyond
+ * the limit is answered with a {@link GroupError} whose reason is {@link AdaptiveLimiter#LIMIT_EXCEEDED}.
+ */
+@ThreadSafe
+public class LimitedGroupInteractor implements GroupInteraction
+{
+  /** The interaction that performs the lookups. */
+  private final GroupInteraction delegate;
+
+  /** The limiter. */
+  private final AdaptiveLimiter limiter;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the lookups.
+   * @param limiter The limiter.  It should not be shared with interactive authentications.
+   */
+  public LimitedGroupInteractor(GroupInteraction delegate, AdaptiveLimiter limiter)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+    this.limiter = Preconditions.checkNotNull(limiter, "limiter cannot be null");
+  }
+
+  /**
+   * Executes the interaction, if the limit allows.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A {@link GroupResponse} if the user is a member of the group, or a {@link GroupError} if an
+   *         error occurs.  If a user is not a member of a group, this is indicated by a {@link GroupError}.
+   */
+  @Override
+  public Either<GroupResponse, GroupError> execute(String username, String groupname)
+  {
+    return this.limiter.execute(() -> this.delegate.execute(username, groupname), LimitedGroupInteractor::rejected);
+  }
+
+  /**
+   * Executes the interaction asynchronously, if the limit allows.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return The future result of {@link #execute}.
+   */
+  @Override
+  public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+  {
+    return this.limiter.executeAsync(() -> this.delegate.executeAsync(username, groupname),
+                                     LimitedGroupInteractor::rejected);
+  }
+
+  /**
+   * Gets the limiter.
+   * @return The limiter.
+   */
+  public AdaptiveLimiter getLimiter()
+  {
+    return this.limiter;
+  }
+
+  /**
+   * Creates the result of a rejected lookup.
+   * @return The error.
+   */
+  private static Either<GroupResponse, GroupError> rejected()
+  {
+    return Either.error(new GroupError(AdaptiveLimiter.LIMIT_EXCEEDED,
+                                       "Too many group lookups are in flight to Crowd"));
+  }
+}
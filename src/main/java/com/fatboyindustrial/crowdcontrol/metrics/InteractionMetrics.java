@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.metrics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link MetricsSink} that keeps a {@link LatencyHistogram} for each phase, and counts responses by HTTP status and
+ * errors by reason.  Recording is lock-free; it does not allocate, except the first time an error reason is seen.
+ */
+@ThreadSafe
+public class InteractionMetrics implements MetricsSink
+{
+  /** The lowest valid HTTP status. */
+  private static final int MIN_STATUS = 100;
+
+  /** The highest valid HTTP status. */
+  private static final int MAX_STATUS = 599;
+
+  /** The latency histograms, indexed by phase. */
+  private final LatencyHistogram[] histograms;
+
+  /** The count of responses with each status, indexed by status; invalid statuses are counted at zero. */
+  private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS + 1);
+
+  /** The count of errors, by reason. */
+  private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   */
+  public InteractionMetrics()
+  {
+    this.histograms = new LatencyHistogram[Phase.values().length];
+    for (int i = 0; i < this.histograms.length; i++)
+    {
+      this.histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  @Override
+  public void recordLatency(Phase phase, long nanos)
+  {
+    this.histograms[phase.ordinal()].record(nanos);
+  }
+
+  @Override
+  public void recordStatus(int status)
+  {
+    this.statuses.incrementAndGet(status >= MIN_STATUS && status <= MAX_STATUS ? status : 0);
+  }
+
+  @Override
+  public void recordError(String reason)
+  {
+    LongAdder count = this.errors.get(reason);
+    if (count == null)
+    {
+      count = this.errors.computeIfAbsent(reason, r -> new LongAdder());
+    }
+    count.increment();
+  }
+
+  /**
+   * Gets the latency histogram for a phase.
+   * @param phase The phase.
+   * @return The histogram.
+   */
+  public LatencyHistogram getHistogram(Phase phase)
+  {
+    return this.histograms[Preconditions.checkNotNull(phase, "phase cannot be null").ordinal()];
+  }
+
+  /**
+   * Gets the number of responses with a status.
+   * @param status The status code.
+   * @return The count.
+   */
+  public long getStatusCount(int status)
+  {
+    return (status >= MIN_STATUS && status <= MAX_STATUS ? this.statuses.get(status) : 0);
+  }
+
+  /**
+   * Gets the number of responses with each status seen.
+   * @return The counts, by status code.
+   */
+  public Map<Integer, Long> getStatusCounts()
+  {
+    final ImmutableMap.Builder<Integer, Long> counts = ImmutableMap.builder();
+    for (int status = MIN_STATUS; status <= MAX_STATUS; status++)
+    {
+      final long count = this.statuses.get(status);
+      if (count > 0)
+      {
+        counts.put(status, count);
+      }
+    }
+    return counts.build();
+  }
+
+  /**
+   * Gets the number of errors with a reason.
+   * @param reason The reason.
+   * @return The count.
+   */
+  public long getErrorCount(String reason)
+  {
+    final LongAdder count = this.errors.get(Preconditions.checkNotNull(reason, "reason cannot be null"));
+    return (count == null ? 0 : count.sum());
+  }
+
+  /**
+   * Gets the number of errors with each reason seen.
+   * @return The counts, by reason.
+   */
+  public Map<String, Long> getErrorCounts()
+  {
+    final ImmutableMap.Builder<String, Long> counts = ImmutableMap.builder();
+    for (final Map.Entry<String, LongAdder> entry : this.errors.entrySet())
+    {
+      counts.put(entry.getKey(), entry.getValue().sum());
+    }
+    return counts.build();
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder latencies = new StringBuilder();
+    for (final Phase phase : Phase.values())
+    {
+      latencies.append(", ").append(phase).append('=').append(getHistogram(phase));
+    }
+
+    return "InteractionMetrics{" +
+           "statuses=" + getStatusCounts() +
+           ", errors=" + getErrorCounts() +
+           latencies +
+           '}';
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.metrics;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, with buckets spaced logarithmically so that every recorded value is known to within 25%.
+ * Recording is lock-free and does not allocate; reads are not atomic across buckets, so a percentile taken while
+ * values are being recorded is approximate.
+ */
+@ThreadSafe
+public class LatencyHistogram
+{
+  /** The number of buckets per power of two, as a power of two. */
+  private static final int SUB_BUCKET_BITS = 2;
+
+  /** The number of buckets per power of two. */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The number of buckets, enough for any non-negative long. */
+  private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS);
+
+  /** The count of values in each bucket. */
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /** The number of values recorded. */
+  private final AtomicLong count = new AtomicLong();
+
+  /** The sum of the values recorded, in nanoseconds. */
+  private final AtomicLong sum = new AtomicLong();
+
+  /** The largest value recorded, in nanoseconds. */
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value.  A negative value is recorded as zero.
+   * @param nanos The value, in nanoseconds.
+   */
+  public void record(long nanos)
+  {
+    final long value = Math.max(0, nanos);
+
+    this.counts.incrementAndGet(bucket(value));
+    this.count.incrementAndGet();
+    this.sum.addAndGet(value);
+
+    long current = this.max.get();
+    while (value > current && ! this.max.compareAndSet(current, value))
+    {
+      current = this.max.get();
+    }
+  }
+
+  /**
+   * Gets the number of values recorded.
+   * @return The count.
+   */
+  public long getCount()
+  {
+    return this.count.get();
+  }
+
+  /**
+   * Gets the mean of the values recorded.
+   * @param unit The unit of the result.
+   * @return The mean, or zero if nothing has been recorded.
+   */
+  public double getMean(TimeUnit unit)
+  {
+    final long count = this.count.get();
+    return (count == 0 ? 0 : (double) this.sum.get() / count / unit.toNanos(1));
+  }
+
+  /**
+   * Gets the largest value recorded.
+   * @param unit The unit of the result.
+   * @return The largest value, or zero if nothing has been recorded.
+   */
+  public long getMax(TimeUnit unit)
+  {
+    return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets a percentile of the values recorded.  The result is the upper bound of the bucket holding the percentile,
+   * capped at the largest value recorded.
+   * @param percentile The percentile, between 0 and 100.
+   * @param unit The unit of the result.
+   * @return The percentile, or zero if nothing has been recorded.
+   * @throws IllegalArgumentException If the percentile is out of range.
+   */
+  public long getPercentile(double percentile, TimeUnit unit) throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++)
+    {
+      total += this.counts.get(i);
+    }
+    if (total == 0)
+    {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++)
+    {
+      seen += this.counts.get(i);
+      if (seen >= rank)
+      {
+        final long upper = (i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE);
+        return unit.convert(Math.min(upper, this.max.get()), TimeUnit.NANOSECONDS);
+      }
+    }
+    return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the bucket for a value.  Values below {@link #SUB_BUCKETS} have a bucket each; above that, each power of two
+   * is split into {@link #SUB_BUCKETS} equal buckets.
+   * @param value The value, which is not negative.
+   * @return The bucket index.
+   */
+  static int bucket(long value)
+  {
+    if (value < SUB_BUCKETS)
+    {
+      return (int) value;
+    }
+
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + sub;
+  }
+
+  /**
+   * Gets the smallest value in a bucket.
+   * @param bucket The bucket index.
+   * @return The smallest value.
+   */
+  static long lowerBound(int bucket)
+  {
+    if (bucket < SUB_BUCKETS)
+    {
+      return bucket;
+    }
+
+    final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final long sub = bucket % SUB_BUCKETS;
+    return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "LatencyHistogram{" +
+           "count=" + getCount() +
+           ", p50Micros=" + getPercentile(50, TimeUnit.MICROSECONDS) +
+           ", p99Micros=" + getPercentile(99, TimeUnit.MICROSECONDS) +
+           ", maxMicros=" + getMax(TimeUnit.MICROSECONDS) +
+           '}';
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.metrics;
+
+/**
+ * Receives measurements of the calls made by an interactor.  Implement this to bridge to a monitoring system, or use
+ * {@link InteractionMetrics} to keep them in memory.
+ * <p>
+ * Methods are called on the threads making the calls, once or more for every call, so implementations must be
+ * thread safe and should be cheap: ideally lock-free, and without allocating.
+ */
+public interface MetricsSink
+{
+  /** The reason recorded for a call that failed because Crowd could not be reached. */
+  String TRANSPORT_FAILURE = "TRANSPORT_FAILURE";
+
+  /** A sink that discards every measurement. */
+  MetricsSink NONE = new MetricsSink()
+  {
+    @Override
+    public void recordLatency(Phase phase, long nanos)
+    {
+    }
+
+    @Override
+    public void recordStatus(int status)
+    {
+    }
+
+    @Override
+    public void recordError(String reason)
+    {
+    }
+  };
+
+  /**
+   * Records the latency of a phase of a call.  A phase the transport does not measure is not recorded.
+   * @param phase The phase.
+   * @param nanos The latency, in nanoseconds.
+   */
+  void recordLatency(Phase phase, long nanos);
+
+  /**
+   * Records the HTTP status of a response.
+   * @param status The status code.
+   */
+  void recordStatus(int status);
+
+  /**
+   * Records a call that ended in an error.
+   * @param reason The reason for the error: Crowd's reason, a reason given by this library (such as
+   *               {@code DEADLINE_EXCEEDED}), or {@link #TRANSPORT_FAILURE}.
+   */
+  void recordError(String reason);
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Model representing a username and password to be authenticated.
+ */
+@Immutable
+public class Credentials
+{
+  /** The username. */
+  private final String username;
+
+  /** The password. */
+  private final String password;
+
+  /**
+   * Constructor.
+   * @param username The username.
+   * @param password The password.
+   */
+  public Credentials(String username, String password)
+  {
+    this.username = Preconditions.checkNotNull(username, "username cannot be null");
+    this.password = Preconditions.checkNotNull(password, "password cannot be null");
+  }
+
+  /**
+   * Gets the username.
+   * @return The username.
+   */
+  public String getUsername()
+  {
+    return this.username;
+  }
+
+  /**
+   * Gets the password.
+   * @return The password.
+   */
+  public String getPassword()
+  {
+    return this.password;
+  }
+
+  /**
+   * Gets a string representation.  The password is not included.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "Credentials{" +
+           "username='" + this.username + '\'' +
+           '}';
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * Model representing a single change to the directory, as reported by Crowd's incremental event feed.
+ */
+@Immutable
+public class DirectoryEvent
+{
+  /**
+   * The kind of entity that changed.
+   */
+  public enum Type
+  {
+    /** A user was created, updated or deleted. */
+    USER,
+
+    /** A group was created, updated or deleted. */
+    GROUP,
+
+    /** A user's direct group memberships changed. */
+    USER_MEMBERSHIP,
+
+    /** A group's direct parent groups changed. */
+    GROUP_MEMBERSHIP
+  }
+
+  /**
+   * The kind of change.
+   */
+  public enum Operation
+  {
+    /** The entity (or membership) was created. */
+    CREATED,
+
+    /** The entity was updated.  For membership events, the parent groups are the complete new set. */
+    UPDATED,
+
+    /** The entity (or membership) was deleted. */
+    DELETED
+  }
+
+  /** The kind of entity that changed. */
+  private final Type type;
+
+  /** The kind of change. */
+  private final Operation operation;
+
+  /** The name of the user or group that changed (for membership events, the child). */
+  private final String name;
+
+  /** For membership events, the parent groups; otherwise empty. */
+  private final ImmutableList<String> parentGroups;
+
+  /**
+   * Constructor.
+   * @param type The kind of entity that changed.
+   * @param operation The kind of change.
+   * @param name The name of the user or group that changed (for membership events, the child).
+   * @param parentGroups For membership events, the parent groups; otherwise empty.
+   */
+  public DirectoryEvent(Type type, Operation operation, String name, List<String> parentGroups)
+  {
+    this.type = Preconditions.checkNotNull(type, "type cannot be null");
+    this.operation = Preconditions.checkNotNull(operation, "operation cannot be null");
+    this.name = Preconditions.checkNotNull(name, "name cannot be null");
+    this.parentGroups = ImmutableList.copyOf(Preconditions.checkNotNull(parentGroups, "parentGroups cannot be null"));
+  }
+
+  /**
+   * Gets the kind of entity that changed.
+   * @return The type.
+   */
+  public Type getType()
+  {
+    return this.type;
+  }
+
+  /**
+   * Gets the kind of change.
+   * @return The operation.
+   */
+  public Operation getOperation()
+  {
+    return this.operation;
+  }
+
+  /**
+   * Gets the name of the user or group that changed.  For membership events, this is the child.
+   * @return The name.
+   */
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * Gets the parent groups of a membership event.
+   * @return The parent groups (empty for user and group events).
+   */
+  public List<String> getParentGroups()
+  {
+    return this.parentGroups;
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "DirectoryEvent{" +
+           "type=" + this.type +
+           ", operation=" + this.operation +
+           ", name='" + this.name + '\'' +
+           ", parentGroups=" + this.parentGroups +
+           '}';
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * Model representing the directory events that have occurred since a given event token, along with the token to
+ * use when asking for the next batch.
+ */
+@Immutable
+public class EventBatch
+{
+  /** The token to use when asking for the next batch. */
+  private final String newEventToken;
+
+  /** Can the directory still be synchronised incrementally? */
+  private final boolean incrementalSynchronisationAvailable;
+
+  /** The events, in the order they occurred. */
+  private final ImmutableList<DirectoryEvent> events;
+
+  /**
+   * Constructor.
+   * @param newEventToken The token to use when asking for the next batch.
+   * @param incrementalSynchronisationAvailable Can the directory still be synchronised incrementally?
+   * @param events The events, in the order they occurred.
+   */
+  public EventBatch(String newEventToken, boolean incrementalSynchronisationAvailable, List<DirectoryEvent> events)
+  {
+    this.newEventToken = Preconditions.checkNotNull(newEventToken, "newEventToken cannot be null");
+    this.incrementalSynchronisationAvailable = incrementalSynchronisationAvailable;
+    this.events = ImmutableList.copyOf(Preconditions.checkNotNull(events, "events cannot be null"));
+  }
+
+  /**
+   * Gets the token to use when asking for the next batch.
+   * @return The event token.
+   */
+  public String getNewEventToken()
+  {
+    return this.newEventToken;
+  }
+
+  /**
+   * Can the directory still be synchronised incrementally?  If not, a full synchronisation is required.
+   * @return True if incremental synchronisation is available.
+   */
+  public boolean isIncrementalSynchronisationAvailable()
+  {
+    return this.incrementalSynchronisationAvailable;
+  }
+
+  /**
+   * Gets the events.
+   * @return The events, in the order they occurred.
+   */
+  public List<DirectoryEvent> getEvents()
+  {
+    return this.events;
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "EventBatch{" +
+           "newEventToken='" + this.newEventToken + '\'' +
+           ", incrementalSynchronisationAvailable=" + this.incrementalSynchronisationAvailable +
+           ", events=" + this.events.size() +
+           '}';
+  }
+}
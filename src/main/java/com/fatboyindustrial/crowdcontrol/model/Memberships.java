@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Set;
+
+/**
+ * Model representing which of a set of requested groups a user is a member of.
+ */
+@Immutable
+public class Memberships
+{
+  /** The username. */
+  private final String username;
+
+  /** The groups that were asked about. */
+  private final ImmutableSet<String> requested;
+
+  /** The requested groups the user is a member of. */
+  private final ImmutableSet<String> groups;
+
+  /**
+   * Constructor.
+   * @param username The username.
+   * @param requested The groups that were asked about.
+   * @param groups The requested groups the user is a member of.
+   * @throws IllegalArgumentException If a group is not one of the requested groups.
+   */
+  public Memberships(String username, Set<String> requested, Set<String> groups) throws IllegalArgumentException
+  {
+    this.username = Preconditions.checkNotNull(username, "username cannot be null");
+    this.requested = ImmutableSet.copyOf(Preconditions.checkNotNull(requested, "requested cannot be null"));
+    this.groups = ImmutableSet.copyOf(Preconditions.checkNotNull(groups, "groups cannot be null"));
+
+    Preconditions.checkArgument(this.requested.containsAll(this.groups), "groups must all have been requested");
+  }
+
+  /**
+   * Gets the username.
+   * @return The username.
+   */
+  public String getUsername()
+  {
+    return this.username;
+  }
+
+  /**
+   * Gets the requested groups the user is a member of.
+   * @return The groups.
+   */
+  public Set<String> getGroups()
+  {
+    return this.groups;
+  }
+
+  /**
+   * Is the user a member of the given group?
+   * @param groupname The group name, which must be one of the requested groups.
+   * @return True if the user is a member.
+   * @throws IllegalArgumentException If the group was not requested.
+   */
+  public boolean isMember(String groupname) throws IllegalArgumentException
+  {
+    Preconditions.checkArgument(this.requested.contains(groupname), "group was not requested: %s", groupname);
+    return this.groups.contains(groupname);
+  }
+
+  /**
+   * Is the user a member of any of the requested groups?
+   * @return True if the user is a member of at least one requested group.
+   */
+  public boolean isMemberOfAny()
+  {
+    return ! this.groups.isEmpty();
+  }
+
+  /**
+   * Is the user a member of all of the requested groups?
+   * @return True if the user is a member of every requested group.
+   */
+  public boolean isMemberOfAll()
+  {
+    return this.groups.size() == this.requested.size();
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "Memberships{" +
+           "username='" + this.username + '\'' +
+           ", requested=" + this.requested +
+           ", groups=" + this.groups +
+           '}';
+  }
+}
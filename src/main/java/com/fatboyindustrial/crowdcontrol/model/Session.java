@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Model representing a Crowd SSO session.
+ */
+@Immutable
+public class Session
+{
+  /** The session token. */
+  private final String token;
+
+  /** The username of the session's user. */
+  private final String username;
+
+  /** When the session was created, in milliseconds since the epoch. */
+  private final long createdDate;
+
+  /** When the session expires, in milliseconds since the epoch. */
+  private final long expiryDate;
+
+  /**
+   * Constructor.
+   * @param token The session token.
+   * @param username The username of the session's user.
+   * @param createdDate When the session was created, in milliseconds since the epoch.
+   * @param expiryDate When the session expires, in milliseconds since the epoch.
+   */
+  public Session(String token, String username, long createdDate, long expiryDate)
+  {
+    this.token = Preconditions.checkNotNull(token, "token cannot be null");
+    this.username = Preconditions.checkNotNull(username, "username cannot be null");
+    this.createdDate = createdDate;
+    this.expiryDate = expiryDate;
+  }
+
+  /**
+   * Gets the session token.
+   * @return The token.
+   */
+  public String getToken()
+  {
+    return this.token;
+  }
+
+  /**
+   * Gets the username of the session's user.
+   * @return The username.
+   */
+  public String getUsername()
+  {
+    return this.username;
+  }
+
+  /**
+   * Gets when the session was created.
+   * @return The creation time, in milliseconds since the epoch.
+   */
+  public long getCreatedDate()
+  {
+    return this.createdDate;
+  }
+
+  /**
+   * Gets when the session expires.
+   * @return The expiry time, in milliseconds since the epoch.
+   */
+  public long getExpiryDate()
+  {
+    return this.expiryDate;
+  }
+
+  /**
+   * Gets a string representation.  The token is deliberately omitted.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "Session{" +
+           "username='" + this.username + '\'' +
+           ", createdDate=" + this.createdDate +
+           ", expiryDate=" + this.expiryDate +
+           '}';
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * Model representing a request to validate an SSO session.
+ */
+@Immutable
+public class SessionValidationRequest
+{
+  /** The validation factors to check the session against. */
+  private final ImmutableList<ValidationFactor> validationFactors;
+
+  /**
+   * Constructor.
+   * @param validationFactors The validation factors to check the session against.
+   */
+  public SessionValidationRequest(List<ValidationFactor> validationFactors)
+  {
+    this.validationFactors = ImmutableList.copyOf(
+        Preconditions.checkNotNull(validationFactors, "validationFactors cannot be null"));
+  }
+
+  /**
+   * Gets the validation factors to check the session against.
+   * @return The validation factors.
+   */
+  public List<ValidationFactor> getValidationFactors()
+  {
+    return this.validationFactors;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Objects;
+
+/**
+ * Model representing a session validation factor, such as the remote address of the user.
+ */
+@Immutable
+public class ValidationFactor
+{
+  /** The name of the remote address validation factor. */
+  public static final String REMOTE_ADDRESS = "remote_address";
+
+  /** The factor name. */
+  private final String name;
+
+  /** The factor value. */
+  private final String value;
+
+  /**
+   * Constructor.
+   * @param name The factor name.
+   * @param value The factor value.
+   */
+  public ValidationFactor(String name, String value)
+  {
+    this.name = Preconditions.checkNotNull(name, "name cannot be null");
+    this.value = Preconditions.checkNotNull(value, "value cannot be null");
+  }
+
+  /**
+   * Gets the factor name.
+   * @return The name.
+   */
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * Gets the factor value.
+   * @return The value.
+   */
+  public String getValue()
+  {
+    return this.value;
+  }
+
+  /**
+   * Tests for equality.
+   * @param o The other object.
+   * @return True if the other object is a factor with the same name and value.
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this == o)
+    {
+      return true;
+    }
+    if (! (o instanceof ValidationFactor))
+    {
+      return false;
+    }
+
+    final ValidationFactor other = (ValidationFactor) o;
+    return this.name.equals(other.name) && this.value.equals(other.value);
+  }
+
+  /**
+   * Gets the hash code.
+   * @return The hash code.
+   */
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(this.name, this.value);
+  }
+
+  /**
+   * Gets a string representation.
+   * @return The object as a String.
+   */
+  @Override
+  public String toString()
+  {
+    return "ValidationFactor{" +
+           "name='" + this.name + '\'' +
+           ", value='" + this.value + '\'' +
+           '}';
+  }
+}
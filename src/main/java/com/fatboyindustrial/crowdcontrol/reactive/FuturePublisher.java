@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.reactive;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A publisher of the single result of an asynchronous call.
+ * <p>
+ * Each subscription makes its own call, and makes it only once the subscriber requests the result.  Cancelling the
+ * subscription cancels the call's future; for the interactors, that aborts the HTTP request.
+ * @param <T> The type of result.
+ */
+@ThreadSafe
+final class FuturePublisher<T> implements Flow.Publisher<T>
+{
+  /** Makes the call. */
+  private final Supplier<CompletableFuture<T>> call;
+
+  /**
+   * Constructor.
+   * @param call Makes the call.
+   */
+  FuturePublisher(Supplier<CompletableFuture<T>> call)
+  {
+    this.call = Preconditions.checkNotNull(call, "call cannot be null");
+  }
+
+  /**
+   * Subscribes to the result.  Each subscription makes the call afresh.
+   * @param subscriber The subscriber.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber)
+  {
+    Preconditions.checkNotNull(subscriber, "subscriber cannot be null");
+    subscriber.onSubscribe(new FutureSubscription(subscriber));
+  }
+
+  /**
+   * The state of one subscription.
+   */
+  private final class FutureSubscription implements Flow.Subscription
+  {
+    /** The subscriber. */
+    private final Flow.Subscriber<? super T> subscriber;
+
+    /** Has the subscription started (or been ended without starting)? */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /** Has the subscription been cancelled? */
+    private volatile boolean cancelled;
+
+    /** The call, once started. */
+    private volatile CompletableFuture<T> future;
+
+    /**
+     * Constructor.
+     * @param subscriber The subscriber.
+     */
+    private FutureSubscription(Flow.Subscriber<? super T> subscriber)
+    {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n)
+    {
+      if (! this.started.compareAndSet(false, true))
+      {
+        return;
+      }
+
+      if (n <= 0)
+      {
+        this.cancelled = true;
+        this.subscriber.onError(new IllegalArgumentException("request must be positive: " + n));
+        return;
+      }
+
+      final CompletableFuture<T> started;
+      try
+      {
+        started = FuturePublisher.this.call.get();
+      }
+      catch (Throwable e)
+      {
+        // request must return normally, so a call that fails to start is signalled as an error instead
+        this.cancelled = true;
+        this.subscriber.onError(e);
+        return;
+      }
+
+      this.future = started;
+      if (this.cancelled)
+      {
+        started.cancel(true);
+        return;
+      }
+
+      started.whenComplete((result, error) -> {
+        if (this.cancelled)
+        {
+          return;
+        }
+
+        if (error != null)
+        {
+          this.subscriber.onError(error);
+        }
+        else
+        {
+          this.subscriber.onNext(result);
+          this.subscriber.onComplete();
+        }
+      });
+    }
+
+    @Override
+    public void cancel()
+    {
+      this.cancelled = true;
+      this.started.set(true);
+
+      final CompletableFuture<T> started = this.future;
+      if (started != null)
+      {
+        started.cancel(true);
+      }
+    }
+  }
+}
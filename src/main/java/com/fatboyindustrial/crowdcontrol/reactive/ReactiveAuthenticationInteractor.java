@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.reactive;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Flow;
+
+/**
+ * Authenticates users reactively.  Each publisher authenticates once per subscriber, only when the subscriber
+ * requests the result, and cancelling the subscription aborts the request.
+ */
+@ThreadSafe
+public class ReactiveAuthenticationInteractor
+{
+  /** The interaction that performs the authentication. */
+  private final AuthenticationInteraction delegate;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the authentication.
+   */
+  public ReactiveAuthenticationInteractor(AuthenticationInteraction delegate)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+  }
+
+  /**
+   * Creates a publisher of the result of authenticating a user.
+   * @param username The username to authenticate.
+   * @param password The corresponding password.
+   * @return A publisher of either a successful response, or the reason for the error.
+   */
+  public Flow.Publisher<Either<AuthenticationResponse, AuthenticationError>> execute(String username, String password)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(password, "password cannot be null");
+
+    return new FuturePublisher<>(() -> this.delegate.executeAsync(username, password));
+  }
+}
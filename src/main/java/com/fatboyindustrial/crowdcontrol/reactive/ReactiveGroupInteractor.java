@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.reactive;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Flow;
+
+/**
+ * Checks group membership reactively.  Each publisher performs its check once per subscriber, only when the
+ * subscriber requests the result, and cancelling the subscription aborts the request.
+ */
+@ThreadSafe
+public class ReactiveGroupInteractor
+{
+  /** The interaction that performs the lookups. */
+  private final GroupInteraction delegate;
+
+  /**
+   * Constructor.
+   * @param delegate The interaction that performs the lookups.
+   */
+  public ReactiveGroupInteractor(GroupInteraction delegate)
+  {
+    this.delegate = Preconditions.checkNotNull(delegate, "delegate cannot be null");
+  }
+
+  /**
+   * Creates a publisher of the result of checking whether a user is a member of a group.
+   * @param username The username.
+   * @param groupname The group name.
+   * @return A publisher of a {@link GroupResponse} if the user is a member of the group, or a {@link GroupError}
+   *         otherwise.
+   */
+  public Flow.Publisher<Either<GroupResponse, GroupError>> execute(String username, String groupname)
+  {
+    Preconditions.checkNotNull(username, "username cannot be null");
+    Preconditions.checkNotNull(groupname, "groupname cannot be null");
+
+    return new FuturePublisher<>(() -> this.delegate.executeAsync(username, groupname));
+  }
+}
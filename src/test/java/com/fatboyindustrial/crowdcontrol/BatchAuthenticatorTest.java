@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.Credentials;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link BatchAuthenticator}.
+ */
+public class BatchAuthenticatorTest
+{
+  /**
+   * Tests that results are returned in order, and that the concurrency limit is respected and reached.
+   */
+  @Test
+  public void testOrderAndConcurrency()
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(16);
+    try
+    {
+      final StubAuthentication stub = new StubAuthentication(executor);
+      final List<Integer> reported = new ArrayList<>();
+      final List<Either<AuthenticationResponse, AuthenticationError>> results =
+          new BatchAuthenticator(stub, 4).executeAsync(credentials(40), (result, index) -> {
+            synchronized (reported)
+            {
+              reported.add(index);
+            }
+          }).join();
+
+      assertThat(results.size(), is(40));
+      for (int i = 0; i < results.size(); i++)
+      {
+        assertThat(results.get(i).isError(), is(i % 2 == 1));
+        assertThat(results.get(i).isError() ? results.get(i).getError().getMessage()
+                                            : results.get(i).getValue().getUsername(), is("user" + i));
+      }
+
+      assertThat(reported.size(), is(40));
+      assertThat(stub.maxActive.get(), is(4));
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that results that complete immediately (such as cache hits) do not exhaust the stack.
+   */
+  @Test
+  public void testImmediateResults()
+  {
+    final StubAuthentication stub = new StubAuthentication(null);
+    final List<Either<AuthenticationResponse, AuthenticationError>> results =
+        new BatchAuthenticator(stub, 2).execute(credentials(100000));
+
+    assertThat(results.size(), is(100000));
+    assertThat(results.get(99998).getValue().getUsername(), is("user99998"));
+    assertThat(stub.maxActive.get(), lessThanOrEqualTo(2));
+  }
+
+  /**
+   * Tests that an exception fails the batch, and stops further authentications.
+   */
+  @Test
+  public void testFailure()
+  {
+    final StubAuthentication stub = new StubAuthentication(null);
+    stub.failAt = 3;
+
+    try
+    {
+      new BatchAuthenticator(stub, 1).execute(credentials(10));
+      fail("expected an IllegalStateException");
+    }
+    catch (IllegalStateException e)
+    {
+      assertThat(e.getMessage(), is("user3"));
+    }
+
+    assertThat(stub.calls.get(), is(4));
+  }
+
+  /**
+   * Tests that a delegate returning an already failed future fails the batch, both when the authentication is started
+   * directly and when it is started as another completes, rather than throwing or leaving the batch incomplete.
+   */
+  @Test
+  public void testAlreadyFailedFuture()
+  {
+    final StubAuthentication immediate = new StubAuthentication(null);
+    immediate.failAt = 0;
+    final CompletableFuture<List<Either<AuthenticationResponse, AuthenticationError>>> direct =
+        new BatchAuthenticator(immediate, 1).executeAsync(credentials(3));
+    assertThat(direct.isCompletedExceptionally(), is(true));
+
+    final StubAuthentication deferred = new StubAuthentication(null);
+    deferred.first = new CompletableFuture<>();
+    deferred.failAt = 1;
+    final CompletableFuture<List<Either<AuthenticationResponse, AuthenticationError>>> chained =
+        new BatchAuthenticator(deferred, 1).executeAsync(credentials(3));
+    assertThat(chained.isDone(), is(false));
+
+    deferred.first.complete(StubAuthentication.authenticated("user0"));
+    assertThat(chained.isCompletedExceptionally(), is(true));
+    assertThat(deferred.calls.get(), is(2));
+  }
+
+  /**
+   * Tests that an empty batch completes immediately.
+   */
+  @Test
+  public void testEmpty()
+  {
+    assertThat(new BatchAuthenticator(new StubAuthentication(null), 4).execute(new ArrayList<>()).isEmpty(),
+               is(true));
+  }
+
+  /**
+   * Creates numbered credentials.
+   * @param count The number of credentials.
+   * @return The credentials.
+   */
+  private static List<Credentials> credentials(int count)
+  {
+    final List<Credentials> credentials = new ArrayList<>();
+    for (int i = 0; i < count; i++)
+    {
+      credentials.add(new Credentials("user" + i, i % 2 == 0 ? "good" : "bad"));
+    }
+
+    return credentials;
+  }
+
+  /**
+   * Authenticates "good" passwords, tracking the number of authentications in flight.
+   */
+  private static class StubAuthentication implements AuthenticationInteraction
+  {
+    /** Runs the authentications, or null to complete them immediately. */
+    private final ExecutorService executor;
+
+    /** The number of authentications in flight. */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /** The most authentications in flight at once. */
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    /** The number of authentications started. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** The index of the call that throws, or -1. */
+    private int failAt = -1;
+
+    /** The future returned for the first call, or null to authenticate it like any other. */
+    private CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> first;
+
+    /**
+     * Constructor.
+     * @param executor Runs the authentications, or null to complete them immediately.
+     */
+    private StubAuthentication(ExecutorService executor)
+    {
+      this.executor = executor;
+    }
+
+    @Override
+    public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+    {
+      if (this.calls.getAndIncrement() == this.failAt)
+      {
+        throw new IllegalStateException(username);
+      }
+
+      return (password.equals("good")
+          ? authenticated(username)
+          : Either.<AuthenticationResponse, AuthenticationError>error(
+              new AuthenticationError("INVALID_USER_AUTHENTICATION", username)));
+    }
+
+    @Override
+    public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                               String password)
+    {
+      if (this.first != null && this.calls.compareAndSet(0, 1))
+      {
+        return this.first;
+      }
+
+      this.maxActive.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+
+      if (this.executor == null)
+      {
+        final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> future =
+            new CompletableFuture<>();
+        try
+        {
+          future.complete(execute(username, password));
+        }
+        catch (RuntimeException e)
+        {
+          future.completeExceptionally(e);
+        }
+        this.active.decrementAndGet();
+        return future;
+      }
+
+      return CompletableFuture.supplyAsync(() -> {
+        try
+        {
+          TimeUnit.MILLISECONDS.sleep(5);
+          return execute(username, password);
+        }
+        catch (InterruptedException e)
+        {
+          throw new IllegalStateException(e);
+        }
+        finally
+        {
+          this.active.decrementAndGet();
+        }
+      }, this.executor);
+    }
+
+    /**
+     * Creates a successful authentication.
+     * @param username The username.
+     * @return The result.
+     */
+    private static Either<AuthenticationResponse, AuthenticationError> authenticated(String username)
+    {
+      return Either.value(new AuthenticationResponse("", new Link("", ""), username, "", "", "", "", "", true));
+    }
+  }
+}
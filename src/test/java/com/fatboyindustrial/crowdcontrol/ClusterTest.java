@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Cluster} and the {@link LoadBalancers}.
+ */
+public class ClusterTest
+{
+  /** The node URLs. */
+  private static final ImmutableList<String> URLS = ImmutableList.of("http://a", "http://b", "http://c");
+
+  /**
+   * Tests that round robin balancing takes the nodes in turn, skipping those already tried.
+   */
+  @Test
+  public void testRoundRobin()
+  {
+    final Cluster cluster = new Cluster(URLS);
+    final ImmutableList<Node> nodes = cluster.getNodes();
+
+    assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(0)));
+    assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(1)));
+    assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(2)));
+    assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(0)));
+    assertThat(cluster.select(ImmutableSet.of(nodes.get(0), nodes.get(1))), is(nodes.get(2)));
+    assertThat(cluster.select(ImmutableSet.copyOf(nodes)), is(nullValue()));
+  }
+
+  /**
+   * Tests that least outstanding balancing avoids busy nodes.
+   */
+  @Test
+  public void testLeastOutstanding()
+  {
+    final Cluster cluster = new Cluster(URLS, LoadBalancers.leastOutstanding(), 3, 1000);
+    final ImmutableList<Node> nodes = cluster.getNodes();
+
+    nodes.get(0).started();
+    nodes.get(2).started();
+    for (int i = 0; i < 5; i++)
+    {
+      assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(1)));
+    }
+  }
+
+  /**
+   * Tests that latency weighted balancing prefers the faster of any two nodes.
+   */
+  @Test
+  public void testLatencyWeighted()
+  {
+    final Cluster cluster = new Cluster(URLS.subList(0, 2), LoadBalancers.latencyWeighted(), 3, 1000);
+    final ImmutableList<Node> nodes = cluster.getNodes();
+
+    nodes.get(0).started();
+    nodes.get(0).succeeded(TimeUnit.MILLISECONDS.toNanos(50));
+    nodes.get(1).started();
+    nodes.get(1).succeeded(TimeUnit.MILLISECONDS.toNanos(5));
+
+    assertThat(nodes.get(1).getLatency(TimeUnit.MILLISECONDS), is(5L));
+    for (int i = 0; i < 5; i++)
+    {
+      assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(1)));
+    }
+  }
+
+  /**
+   * Tests that latency weighted balancing treats a node yet to complete a request as having the mean latency, rather
+   * than none, so that it is not given every request.
+   */
+  @Test
+  public void testLatencyWeightedUnsampledNode()
+  {
+    final Cluster cluster = new Cluster(URLS.subList(0, 2), LoadBalancers.latencyWeighted(), 3, 1000);
+    final ImmutableList<Node> nodes = cluster.getNodes();
+
+    nodes.get(0).started();
+    nodes.get(0).succeeded(TimeUnit.MILLISECONDS.toNanos(5));
+    nodes.get(1).started();
+
+    assertThat(nodes.get(1).getLatency(TimeUnit.MILLISECONDS), is(0L));
+    for (int i = 0; i < 5; i++)
+    {
+      assertThat(cluster.select(ImmutableSet.<Node>of()), is(nodes.get(0)));
+    }
+  }
+
+  /**
+   * Tests that a node is ejected after consecutive failures, readmitted when its ejection ends, and ejected again at
+   * once if its trial request fails.
+   */
+  @Test
+  public void testEjection()
+  {
+    final AtomicLong nanos = new AtomicLong();
+    final Ticker ticker = new Ticker()
+    {
+      @Override
+      public long read()
+      {
+        return nanos.get();
+      }
+    };
+
+    final Cluster cluster = new Cluster(URLS.subList(0, 2), LoadBalancers.roundRobin(), 2, 1000, ticker);
+    final Node a = cluster.getNodes().get(0);
+    final Node b = cluster.getNodes().get(1);
+
+    fail(cluster, a);
+    assertThat(cluster.getAvailableNodes(), contains(a, b));
+    fail(cluster, a);
+    assertThat(cluster.getAvailableNodes(), contains(b));
+
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    assertThat(cluster.getAvailableNodes(), contains(a, b));
+    fail(cluster, a);
+    assertThat(cluster.getAvailableNodes(), contains(b));
+
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    a.started();
+    cluster.succeeded(a, nanos.get());
+    fail(cluster, a);
+    assertThat(cluster.getAvailableNodes(), contains(a, b));
+    assertThat(a.getConsecutiveFailures(), is(1));
+  }
+
+  /**
+   * Tests that the node due to be readmitted soonest is chosen when every node is ejected.
+   */
+  @Test
+  public void testAllEjected()
+  {
+    final AtomicLong nanos = new AtomicLong();
+    final Ticker ticker = new Ticker()
+    {
+      @Override
+      public long read()
+      {
+        return nanos.get();
+      }
+    };
+
+    final Cluster cluster = new Cluster(URLS.subList(0, 2), LoadBalancers.roundRobin(), 1, 1000, ticker);
+    final Node a = cluster.getNodes().get(0);
+    final Node b = cluster.getNodes().get(1);
+
+    fail(cluster, b);
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    fail(cluster, a);
+
+    assertThat(cluster.getAvailableNodes().isEmpty(), is(true));
+    assertThat(cluster.select(ImmutableSet.<Node>of()), is(b));
+  }
+
+  /**
+   * Records a failed request to a node.
+   * @param cluster The cluster.
+   * @param node The node.
+   */
+  private static void fail(Cluster cluster, Node node)
+  {
+    node.started();
+    cluster.failed(node);
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CrowdClient}, using a stub {@link Transport}.
+ */
+public class CrowdClientTest
+{
+  /** The error returned by the stub. */
+  private static final String NOT_FOUND = "{ \"reason\": \"MEMBERSHIP_NOT_FOUND\", \"message\": \"Not found\" }";
+
+  /**
+   * Tests that requests are resolved against the base URL, with encoded query parameters and basic authentication.
+   */
+  @Test
+  public void testRequest()
+  {
+    final StubTransport transport = new StubTransport(request -> new StubTransport.Reply(404, NOT_FOUND));
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd/", "app", "secret", transport))
+    {
+      final Either<GroupResponse, GroupError> result = new GroupInteractor(client).execute("yo ss", "a&b");
+
+      assertThat(result.getError().getReason(), is("MEMBERSHIP_NOT_FOUND"));
+    }
+
+    final TransportRequest request = transport.getRequests().get(0);
+    assertThat(request.getMethod(), is("GET"));
+    assertThat(request.getUri(), is(URI.create(
+        "http://localhost/crowd/rest/usermanagement/latest/group/user/direct?groupname=a%26b&username=yo%20ss")));
+    assertThat(request.getAccept(), is(TransportRequest.APPLICATION_JSON));
+    assertThat(request.getHeaders().get("Authorization"), is("Basic YXBwOnNlY3JldA=="));
+    assertThat(transport.isClosed(), is(true));
+  }
+
+  /**
+   * Tests that a JSON body is sent, and that the asynchronous path decodes the response the same way.
+   */
+  @Test
+  public void testAsyncPost()
+  {
+    final StubTransport transport = new StubTransport(
+        request -> new StubTransport.Reply(200, "{ \"name\": \"yoss\", \"active\": true }"));
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      assertThat(new AuthenticationInteractor(client).executeAsync("yoss", "pw").join().getValue().getUsername(),
+                 is("yoss"));
+    }
+
+    final TransportRequest request = transport.getRequests().get(0);
+    assertThat(request.getMethod(), is("POST"));
+    assertThat(request.getBody().get(), is("{\"value\":\"pw\"}"));
+  }
+
+  /**
+   * Tests that an idempotent request that cannot be sent to one node is sent to the next, and that the failing node
+   * is ejected after repeated failures.
+   */
+  @Test
+  public void testFailover()
+  {
+    final StubTransport transport = new StubTransport(unreachable("down", new StubTransport.Reply(404, NOT_FOUND)));
+    final Cluster cluster = new Cluster(ImmutableList.of("http://down/crowd", "http://up/crowd"),
+                                        LoadBalancers.roundRobin(), 2, 60000);
+
+    try (CrowdClient client = new CrowdClient(cluster, "app", "secret", transport))
+    {
+      for (int i = 0; i < 4; i++)
+      {
+        final Either<GroupResponse, GroupError> result = new GroupInteractor(client).execute("yoss", "staff");
+        assertThat(result.getError().getReason(), is("MEMBERSHIP_NOT_FOUND"));
+      }
+    }
+
+    // down then up; down then up, after which down is ejected; up; up
+    assertThat(transport.getRequests().size(), is(6));
+    assertThat(transport.getRequests().get(5).getUri().getHost(), is("up"));
+    assertThat(cluster.getAvailableNodes().size(), is(1));
+    assertThat(cluster.getNodes().get(1).getOutstanding(), is(0));
+  }
+
+  /**
+   * Tests that each failover spends a token from the retry budget, and that failover stops once the budget is empty.
+   */
+  @Test
+  public void testFailoverSpendsBudget()
+  {
+    final StubTransport transport = new StubTransport(request -> {
+      throw new TransportException("connection refused", null);
+    });
+    final Cluster cluster = new Cluster(ImmutableList.of("http://a/crowd", "http://b/crowd", "http://c/crowd"),
+                                        LoadBalancers.roundRobin(), 100, 60000);
+
+    try (CrowdClient client = new CrowdClient(cluster, "app", "secret", transport))
+    {
+      final long available = client.getRetryBudget().getAvailable();
+      assertThat(failed(new GroupInteractor(client)), is(true));
+      assertThat(transport.getRequests().size(), is(3));
+      assertThat(client.getRetryBudget().getAvailable(), is(available - 2));
+
+      while (client.getRetryBudget().tryWithdraw())
+      {
+        // drain the budget
+      }
+      assertThat(failed(new GroupInteractor(client)), is(true));
+      assertThat(transport.getRequests().size(), is(4));
+    }
+  }
+
+  /**
+   * Tests that an asynchronous idempotent POST fails over too.
+   */
+  @Test
+  public void testAsyncFailover()
+  {
+    final StubTransport transport = new StubTransport(
+        unreachable("down", new StubTransport.Reply(200, "{ \"name\": \"yoss\", \"active\": true }")));
+    final Cluster cluster = new Cluster(ImmutableList.of("http://down/crowd", "http://up/crowd"));
+
+    try (CrowdClient client = new CrowdClient(cluster, "app", "secret", transport))
+    {
+      final Either<AuthenticationResponse, AuthenticationError> result =
+          new AuthenticationInteractor(client).executeAsync("yoss", "pw").join();
+      assertThat(result.getValue().getUsername(), is("yoss"));
+    }
+
+    assertThat(transport.getRequests().size(), is(2));
+  }
+
+  /**
+   * Tests that a request that is not idempotent is never sent twice.
+   */
+  @Test
+  public void testNoFailoverWhenNotIdempotent()
+  {
+    final StubTransport transport = new StubTransport(unreachable("down", new StubTransport.Reply(404, NOT_FOUND)));
+    final Cluster cluster = new Cluster(ImmutableList.of("http://down/crowd", "http://up/crowd"));
+
+    boolean failed = false;
+    try (CrowdClient client = new CrowdClient(cluster, "app", "secret", transport))
+    {
+      new SessionInteractor(client).create("yoss", "pw", ImmutableList.<ValidationFactor>of());
+    }
+    catch (TransportException e)
+    {
+      failed = true;
+    }
+
+    assertThat(failed, is(true));
+    assertThat(transport.getRequests().size(), is(1));
+  }
+
+  /**
+   * Makes a lookup, reporting whether it threw because Crowd could not be reached.
+   * @param interactor The interactor.
+   * @return True if the lookup threw.
+   */
+  private static boolean failed(GroupInteractor interactor)
+  {
+    try
+    {
+      interactor.execute("yoss", "staff");
+      return false;
+    }
+    catch (TransportException e)
+    {
+      return true;
+    }
+  }
+
+  /**
+   * Creates stub replies for a cluster in which one host cannot be reached.
+   * @param host The unreachable host.
+   * @param reply The reply from every other host.
+   * @return The replies.
+   */
+  private static Function<TransportRequest, StubTransport.Reply> unreachable(String host, StubTransport.Reply reply)
+  {
+    return request -> {
+      if (request.getUri().getHost().equals(host))
+      {
+        throw new TransportException("connection refused", null);
+      }
+      return reply;
+    };
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Deadline}, through the interactors that accept one.
+ */
+public class DeadlineTest
+{
+  /** A confirmed membership. */
+  private static final String MEMBER = "{ \"name\": \"yoss\" }";
+
+  /**
+   * Tests that a call answered in time returns its result.
+   */
+  @Test
+  public void testAnsweredInTime()
+  {
+    final StubTransport transport = new StubTransport(request -> new StubTransport.Reply(200, MEMBER));
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final Either<GroupResponse, GroupError> result =
+          new GroupInteractor(client).execute("yoss", "staff", Deadline.after(10, TimeUnit.SECONDS));
+
+      assertThat(result.getValue().getUsername(), is("yoss"));
+    }
+  }
+
+  /**
+   * Tests that a call not answered in time is aborted promptly and answered with a timeout error.
+   */
+  @Test
+  public void testDeadlineExceeded()
+  {
+    final HangingTransport transport = new HangingTransport();
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final long started = System.nanoTime();
+      final Either<AuthenticationResponse, AuthenticationError> result =
+          new AuthenticationInteractor(client).execute("yoss", "secret", Deadline.after(50, TimeUnit.MILLISECONDS));
+
+      assertThat(result.getError().getReason(), is(Deadline.DEADLINE_EXCEEDED));
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), is(lessThan(1000L)));
+      assertThat(transport.hung.size(), is(1));
+      assertThat(transport.hung.get(0).isCancelled(), is(true));
+    }
+  }
+
+  /**
+   * Tests that an asynchronous call not answered in time completes with a timeout error and aborts the request.
+   */
+  @Test
+  public void testAsyncDeadlineExceeded()
+  {
+    final HangingTransport transport = new HangingTransport();
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final CompletableFuture<Either<GroupResponse, GroupError>> result =
+          new GroupInteractor(client).executeAsync("yoss", "staff", Deadline.after(50, TimeUnit.MILLISECONDS));
+
+      assertThat(result.join().getError().getReason(), is(Deadline.DEADLINE_EXCEEDED));
+      assertThat(transport.hung.get(0).isCancelled(), is(true));
+    }
+  }
+
+  /**
+   * Tests that a call whose deadline has already passed is not sent, and that retries stop at the deadline.
+   */
+  @Test
+  public void testNoRequestsAfterDeadline() throws InterruptedException
+  {
+    final StubTransport transport = new StubTransport(
+        request -> new StubTransport.Reply(503, "{ \"reason\": \"UNAVAILABLE\", \"message\": \"Try again\" }"));
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final GroupInteractor interactor =
+          new GroupInteractor(client, MembershipMode.DIRECT, new RetryPolicy(3, 300, 300, false));
+
+      final Either<GroupResponse, GroupError> expired =
+          interactor.execute("yoss", "staff", Deadline.after(0, TimeUnit.MILLISECONDS));
+      assertThat(expired.getError().getReason(), is(Deadline.DEADLINE_EXCEEDED));
+      assertThat(transport.getRequests().size(), is(0));
+
+      final Either<GroupResponse, GroupError> retried =
+          interactor.execute("yoss", "staff", Deadline.after(1, TimeUnit.MILLISECONDS));
+      assertThat(retried.getError().getReason(), is(Deadline.DEADLINE_EXCEEDED));
+      final int sent = transport.getRequests().size();
+
+      Thread.sleep(400);
+      assertThat(transport.getRequests().size(), is(sent));
+    }
+  }
+
+  /**
+   * A transport whose asynchronous requests are never answered.
+   */
+  private static class HangingTransport extends StubTransport
+  {
+    /** The requests left hanging. */
+    private final List<CompletableFuture<?>> hung = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor.
+     */
+    HangingTransport()
+    {
+      super(request -> new StubTransport.Reply(200, MEMBER));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                                 Function<? super TransportResponse, ? extends T> handler)
+    {
+      final CompletableFuture<T> future = new CompletableFuture<>();
+      this.hung.add(future);
+      return future;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simple benchmark comparing the throughput of {@link ExecutionMode#PLATFORM} and {@link ExecutionMode#VIRTUAL}
+ * for many concurrent logins against a local stub server that answers after a fixed delay.  Run the {@code main}
+ * method directly; it is not part of the test suite.  The virtual thread run is skipped on JDKs without virtual
+ * threads.
+ */
+public class ExecutionModeBenchmark
+{
+  /** The number of concurrent logins per run. */
+  private static final int LOGINS = 10_000;
+
+  /** The number of pooled connections (and platform threads). */
+  private static final int CONNECTIONS = 200;
+
+  /** The simulated Crowd response time, in milliseconds. */
+  private static final long LATENCY_MILLIS = 10;
+
+  /** A successful authentication response. */
+  private static final byte[] USER = ("{ \"name\": \"yoss\", \"active\": true }").getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Entry point.
+   * @param args Unused.
+   * @throws IOException If the stub server cannot be started.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    final ExecutorService serverThreads = Executors.newCachedThreadPool();
+    final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    server.setExecutor(serverThreads);
+    server.createContext("/", exchange -> {
+      try (InputStream in = exchange.getRequestBody(); OutputStream out = exchange.getResponseBody())
+      {
+        in.readAllBytes();
+        TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, USER.length);
+        out.write(USER);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    });
+    server.start();
+
+    try
+    {
+      final String base = "http://localhost:" + server.getAddress().getPort() + "/crowd";
+      for (final ExecutionMode mode : ExecutionMode.values())
+      {
+        if (mode.isSupported())
+        {
+          run(base, mode);
+          run(base, mode);
+        }
+        else
+        {
+          System.out.printf("%-8s skipped (not supported on Java %s)%n",
+                            mode, System.getProperty("java.specification.version"));
+        }
+      }
+    }
+    finally
+    {
+      server.stop(0);
+      serverThreads.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs and reports a single benchmark.
+   * @param base The stub server base URL.
+   * @param mode The execution mode under test.
+   */
+  private static void run(String base, ExecutionMode mode)
+  {
+    final CrowdClientConfig config = new CrowdClientConfig(CONNECTIONS, CONNECTIONS,
+                                                           CrowdClientConfig.DEFAULT_IDLE_TIMEOUT_MILLIS, mode);
+
+    try (CrowdClient client = new CrowdClient(base, "app", "secret", config))
+    {
+      final AuthenticationInteractor interactor = new AuthenticationInteractor(client);
+      final List<CompletableFuture<Either<AuthenticationResponse, AuthenticationError>>> logins = new ArrayList<>();
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < LOGINS; i++)
+      {
+        logins.add(interactor.executeAsync("yoss", "secret"));
+      }
+
+      int succeeded = 0;
+      for (final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> login : logins)
+      {
+        succeeded += (login.join().isError() ? 0 : 1);
+      }
+
+      final long elapsed = System.nanoTime() - start;
+      System.out.printf("%-8s %8.0f logins/s (%d of %d succeeded)%n",
+                        mode, LOGINS / (elapsed / 1e9), succeeded, LOGINS);
+    }
+  }
+}
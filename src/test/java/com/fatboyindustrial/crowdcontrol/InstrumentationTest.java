@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.metrics.InteractionMetrics;
+import com.fatboyindustrial.crowdcontrol.metrics.MetricsSink;
+import com.fatboyindustrial.crowdcontrol.metrics.Phase;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Instrumentation}, through the interactors that use it.
+ */
+public class InstrumentationTest
+{
+  /** A confirmed membership. */
+  private static final String MEMBER = "{ \"name\": \"yoss\" }";
+
+  /** A missing membership. */
+  private static final String NOT_MEMBER = "{ \"reason\": \"MEMBERSHIP_NOT_FOUND\", \"message\": \"Not found\" }";
+
+  /**
+   * Tests that each response's phase latencies, status and error reason are recorded.
+   */
+  @Test
+  public void testResponsesRecorded()
+  {
+    final StubTransport transport = new StubTransport(request -> request.getUri().getQuery().contains("staff")
+        ? new TimedReply(200, MEMBER)
+        : new TimedReply(404, NOT_MEMBER));
+    final InteractionMetrics metrics = new InteractionMetrics();
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final GroupInteractor interactor =
+          Interactors.checkUserGroup(client, MembershipMode.DIRECT, RetryPolicy.none(), metrics);
+      interactor.execute("yoss", "staff");
+      interactor.executeAsync("yoss", "staff").join();
+      interactor.execute("yoss", "admins");
+    }
+
+    assertThat(metrics.getStatusCount(200), is(2L));
+    assertThat(metrics.getStatusCount(404), is(1L));
+    assertThat(metrics.getErrorCount("MEMBERSHIP_NOT_FOUND"), is(1L));
+    assertThat(metrics.getHistogram(Phase.POOL_WAIT).getCount(), is(3L));
+    assertThat(metrics.getHistogram(Phase.CONNECT).getMax(TimeUnit.MILLISECONDS), is(2L));
+    assertThat(metrics.getHistogram(Phase.SERVER).getMean(TimeUnit.MILLISECONDS), is(3.0));
+    assertThat(metrics.getHistogram(Phase.DESERIALISATION).getCount(), is(3L));
+  }
+
+  /**
+   * Tests that phases the transport does not measure are not recorded.
+   */
+  @Test
+  public void testUnmeasuredPhases()
+  {
+    final StubTransport transport = new StubTransport(request -> new StubTransport.Reply(200, MEMBER));
+    final InteractionMetrics metrics = new InteractionMetrics();
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      Interactors.authentication(client, metrics).execute("yoss", "secret");
+    }
+
+    assertThat(metrics.getHistogram(Phase.SERVER).getCount(), is(0L));
+    assertThat(metrics.getHistogram(Phase.DESERIALISATION).getCount(), is(1L));
+    assertThat(metrics.getStatusCount(200), is(1L));
+  }
+
+  /**
+   * Tests that calls failing to reach Crowd are counted, synchronously and asynchronously.
+   */
+  @Test
+  public void testTransportFailures()
+  {
+    final StubTransport transport = new StubTransport(request -> {
+      throw new TransportException("unreachable", new ConnectException());
+    });
+    final InteractionMetrics metrics = new InteractionMetrics();
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final AuthenticationInteractor interactor = new AuthenticationInteractor(client, metrics);
+      try
+      {
+        interactor.execute("yoss", "secret");
+        fail("expected the call to fail");
+      }
+      catch (TransportException e)
+      {
+        // expected
+      }
+
+      try
+      {
+        interactor.executeAsync("yoss", "secret").join();
+        fail("expected the call to fail");
+      }
+      catch (CompletionException e)
+      {
+        // expected
+      }
+    }
+
+    assertThat(metrics.getErrorCount(MetricsSink.TRANSPORT_FAILURE), is(2L));
+  }
+
+  /**
+   * A reply with fixed phase latencies: a millisecond waiting for a connection, two connecting and three at the
+   * server.
+   */
+  private static class TimedReply extends StubTransport.Reply
+  {
+    /**
+     * Constructor.
+     * @param status The HTTP status code.
+     * @param body The response body.
+     */
+    TimedReply(int status, String body)
+    {
+      super(status, body);
+    }
+
+    @Override
+    public long getPoolWaitNanos()
+    {
+      return TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getConnectNanos()
+    {
+      return TimeUnit.MILLISECONDS.toNanos(2);
+    }
+
+    @Override
+    public long getServerNanos()
+    {
+      return TimeUnit.MILLISECONDS.toNanos(3);
+    }
+  }
+}
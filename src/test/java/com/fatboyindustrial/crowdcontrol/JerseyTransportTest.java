@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link JerseyTransport}.
+ */
+public class JerseyTransportTest
+{
+  /** A server socket that accepts connections but never replies. */
+  private ServerSocket server;
+
+  /** The connections accepted by the server. */
+  private LinkedBlockingQueue<Socket> accepted;
+
+  /** The single worker that runs asynchronous requests. */
+  private ExecutorService executor;
+
+  /** The transport under test. */
+  private JerseyTransport sut;
+
+  /**
+   * Starts the silent server, and creates the transport with a single worker.
+   * @throws IOException If the server cannot be started.
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+    this.accepted = new LinkedBlockingQueue<>();
+    final Thread acceptor = new Thread(() -> {
+      try
+      {
+        while (true)
+        {
+          this.accepted.add(this.server.accept());
+        }
+      }
+      catch (IOException e)
+      {
+        // the server has been closed
+      }
+    });
+    acceptor.setDaemon(true);
+    acceptor.start();
+
+    this.executor = Executors.newSingleThreadExecutor();
+    this.sut = new JerseyTransport(CrowdClientConfig.defaults(), this.executor);
+  }
+
+  /**
+   * Closes the transport, worker and server.
+   * @throws IOException If the server cannot be closed.
+   */
+  @After
+  public void tearDown() throws IOException
+  {
+    this.sut.close();
+    this.executor.shutdownNow();
+    this.server.close();
+    for (final Socket socket : this.accepted)
+    {
+      socket.close();
+    }
+  }
+
+  /**
+   * Tests that cancelling an asynchronous request in flight shuts down its connection and releases the worker
+   * promptly, rather than once the read times out.
+   * @throws Exception If the test fails.
+   */
+  @Test
+  public void testCancelAbortsRequest() throws Exception
+  {
+    final URI uri = URI.create("http://localhost:" + this.server.getLocalPort() + "/crowd/rest/usermanagement/1/user");
+    final TransportRequest request = new TransportRequest(
+        "GET", uri, TransportRequest.APPLICATION_JSON, ImmutableMap.<String, String>of(), Optional.<String>absent());
+
+    final CompletableFuture<Integer> future = this.sut.executeAsync(request, TransportResponse::getStatus);
+    final Socket socket = this.accepted.poll(5, TimeUnit.SECONDS);
+    assertThat(socket != null, is(true));
+
+    final long started = System.nanoTime();
+    future.cancel(true);
+
+    // the worker is free to run the next task, and the server sees the connection closed
+    this.executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    socket.setSoTimeout(5000);
+    try (final InputStream in = socket.getInputStream())
+    {
+      while (in.read() >= 0)
+      {
+        // discard the request
+      }
+    }
+    catch (IOException e)
+    {
+      // a reset also shows the connection was shut down
+    }
+
+    assertThat(System.nanoTime() - started, is(lessThan(TimeUnit.SECONDS.toNanos(5))));
+    assertThat(future.isCancelled(), is(true));
+  }
+}
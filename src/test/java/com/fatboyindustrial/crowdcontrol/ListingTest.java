@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Listing}.
+ */
+public class ListingTest
+{
+  /**
+   * Tests that pages are only requested once iteration begins, and that each page is requested as soon as the
+   * previous one arrives.
+   */
+  @Test
+  public void testLazyPrefetch()
+  {
+    final StubPages pages = new StubPages("a", "b", "c", "d", "e");
+    final Listing sut = new Listing(pages, 2);
+
+    assertThat(pages.starts.isEmpty(), is(true));
+
+    assertThat(sut.next(), is("a"));
+    assertThat(pages.starts, contains(0, 2));
+
+    assertThat(sut.next(), is("b"));
+    assertThat(sut.next(), is("c"));
+    assertThat(pages.starts, contains(0, 2, 4));
+
+    assertThat(sut.next(), is("d"));
+    assertThat(sut.next(), is("e"));
+    assertThat(sut.hasNext(), is(false));
+    assertThat(pages.starts, contains(0, 2, 4));
+  }
+
+  /**
+   * Tests that a listing that ends on a page boundary is terminated by an empty page.
+   */
+  @Test
+  public void testExactPages()
+  {
+    final StubPages pages = new StubPages("a", "b", "c", "d");
+
+    assertThat(new Listing(pages, 2).stream().collect(Collectors.toList()), contains("a", "b", "c", "d"));
+    assertThat(pages.starts, contains(0, 2, 4));
+  }
+
+  /**
+   * Tests that an error fetching a page is thrown when the page is reached.
+   */
+  @Test
+  public void testError()
+  {
+    final StubPages pages = new StubPages("a", "b", "c");
+    pages.failAt = 2;
+    final Listing sut = new Listing(pages, 2);
+
+    assertThat(sut.next(), is("a"));
+    assertThat(sut.next(), is("b"));
+
+    try
+    {
+      sut.next();
+      fail("expected a ListingException");
+    }
+    catch (ListingException e)
+    {
+      assertThat(e.getError().getReason(), is("OPERATION_FAILED"));
+    }
+  }
+
+  /**
+   * Tests that closing the listing cancels the outstanding page request.
+   */
+  @Test
+  public void testClose()
+  {
+    final List<CompletableFuture<Either<NameList, DirectoryError>>> requests = new ArrayList<>();
+    final Listing sut = new Listing(start -> {
+      final CompletableFuture<Either<NameList, DirectoryError>> request = (start == 0
+          ? CompletableFuture.completedFuture(Either.value(new NameList(ImmutableList.of("a", "b"))))
+          : new CompletableFuture<>());
+      requests.add(request);
+      return request;
+    }, 2);
+
+    assertThat(sut.next(), is("a"));
+    sut.close();
+
+    assertThat(requests.size(), is(2));
+    assertThat(requests.get(1).isCancelled(), is(true));
+    assertThat(sut.hasNext(), is(false));
+  }
+
+  /**
+   * Tests that a listing closed before it is iterated never requests a page.
+   */
+  @Test
+  public void testCloseBeforeStart()
+  {
+    final StubPages pages = new StubPages("a", "b", "c");
+    final Listing sut = new Listing(pages, 2);
+
+    sut.close();
+
+    assertThat(sut.hasNext(), is(false));
+    assertThat(pages.starts.isEmpty(), is(true));
+  }
+
+  /**
+   * Serves fixed names in pages, recording the requested start indices.
+   */
+  private static class StubPages implements IntFunction<CompletableFuture<Either<NameList, DirectoryError>>>
+  {
+    /** The names. */
+    private final List<String> names;
+
+    /** The requested start indices, in order. */
+    private final List<Integer> starts = new ArrayList<>();
+
+    /** The start index at which to report an error, or -1. */
+    private int failAt = -1;
+
+    /**
+     * Constructor.
+     * @param names The names.
+     */
+    private StubPages(String... names)
+    {
+      this.names = ImmutableList.copyOf(names);
+    }
+
+    @Override
+    public CompletableFuture<Either<NameList, DirectoryError>> apply(int start)
+    {
+      this.starts.add(start);
+
+      if (start == this.failAt)
+      {
+        return CompletableFuture.completedFuture(Either.error(new DirectoryError("OPERATION_FAILED", "failed")));
+      }
+
+      final int end = Math.min(start + 2, this.names.size());
+      return CompletableFuture.completedFuture(Either.value(new NameList(this.names.subList(start, end))));
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link MembershipDumpReader}.
+ */
+public class MembershipDumpReaderTest
+{
+  /**
+   * Tests that memberships are streamed to the sink in document order.
+   */
+  @Test
+  public void testReadMemberships() throws XMLStreamException
+  {
+    final RecordingSink sink = new RecordingSink();
+    MembershipDumpReader.readMemberships(xml(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+        "<memberships>" +
+          "<membership group=\"staff\">" +
+            "<users><user name=\"yoss\"/><user name=\"orr\"/></users>" +
+            "<groups><group name=\"engineering\"/></groups>" +
+          "</membership>" +
+          "<membership group=\"engineering\"><users/><groups/></membership>" +
+        "</memberships>"), sink);
+
+    assertThat(sink.calls, contains("group staff", "user staff yoss", "user staff orr", "child staff engineering",
+                                    "group engineering"));
+  }
+
+  /**
+   * Tests that an XML error response is read.
+   */
+  @Test
+  public void testReadError() throws XMLStreamException
+  {
+    final DirectoryError error = MembershipDumpReader.readError(xml(
+        "<error><reason>APPLICATION_PERMISSION_DENIED</reason><message>Denied</message></error>"));
+
+    assertThat(error.getReason(), is("APPLICATION_PERMISSION_DENIED"));
+    assertThat(error.getMessage(), is("Denied"));
+  }
+
+  /**
+   * Tests that a membership without a group name is rejected.
+   */
+  @Test(expected = XMLStreamException.class)
+  public void testMissingGroup() throws XMLStreamException
+  {
+    MembershipDumpReader.readMemberships(xml("<memberships><membership/></memberships>"), new RecordingSink());
+  }
+
+  /**
+   * Creates a stream over the given XML.
+   * @param xml The XML.
+   * @return The stream.
+   */
+  private static InputStream xml(String xml)
+  {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A sink that records each call it receives.
+   */
+  private static class RecordingSink implements MembershipSink
+  {
+    /** The calls received, in order. */
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void group(String groupname)
+    {
+      this.calls.add("group " + groupname);
+    }
+
+    @Override
+    public void userMember(String groupname, String username)
+    {
+      this.calls.add("user " + groupname + " " + username);
+    }
+
+    @Override
+    public void childGroup(String groupname, String childGroupname)
+    {
+      this.calls.add("child " + groupname + " " + childGroupname);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link NamePublisher}.
+ */
+public class NamePublisherTest
+{
+  /**
+   * Tests that nothing is fetched until names are requested, and that each fetch asks for no more names than are
+   * requested.
+   */
+  @Test
+  public void testDemand()
+  {
+    final StubPages pages = new StubPages("a", "b", "c", "d", "e");
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new NamePublisher(pages, 3).subscribe(subscriber);
+    assertThat(pages.requests.isEmpty(), is(true));
+
+    subscriber.subscription.request(2);
+    assertThat(subscriber.names, contains("a", "b"));
+    assertThat(pages.requests, is(ImmutableList.of(ImmutableList.of(0, 2))));
+
+    subscriber.subscription.request(10);
+    assertThat(subscriber.names, contains("a", "b", "c", "d", "e"));
+    assertThat(pages.requests,
+               is(ImmutableList.of(ImmutableList.of(0, 2), ImmutableList.of(2, 3), ImmutableList.of(5, 3))));
+    assertThat(subscriber.completed, is(true));
+  }
+
+  /**
+   * Tests that cancelling the subscription cancels the outstanding fetch.
+   */
+  @Test
+  public void testCancel()
+  {
+    final CompletableFuture<Either<NameList, DirectoryError>> pending = new CompletableFuture<>();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new NamePublisher((start, max) -> pending, 10).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+
+    assertThat(pending.isCancelled(), is(true));
+    assertThat(subscriber.completed, is(false));
+    assertThat(subscriber.error == null, is(true));
+  }
+
+  /**
+   * Tests that an error from Crowd is reported as a {@link ListingException}, and that an invalid request is
+   * reported as an error.
+   */
+  @Test
+  public void testErrors()
+  {
+    final DirectoryError error = new DirectoryError("GROUP_NOT_FOUND", "Group not found");
+    final RecordingSubscriber failed = new RecordingSubscriber();
+    final RecordingSubscriber invalid = new RecordingSubscriber();
+
+    new NamePublisher((start, max) -> CompletableFuture.completedFuture(Either.error(error)), 10).subscribe(failed);
+    failed.subscription.request(1);
+    new NamePublisher(new StubPages("a"), 10).subscribe(invalid);
+    invalid.subscription.request(0);
+
+    assertThat(failed.error, instanceOf(ListingException.class));
+    assertThat(((ListingException) failed.error).getError(), is(error));
+    assertThat(invalid.error, instanceOf(IllegalArgumentException.class));
+  }
+
+  /**
+   * Tests that a fetch that throws rather than returning a future is reported as an error, instead of escaping the
+   * request, and that nothing more is fetched.
+   */
+  @Test
+  public void testFetchThrows()
+  {
+    final RuntimeException thrown = new IllegalStateException("simulated failure");
+    final List<Integer> fetches = new ArrayList<>();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new NamePublisher((start, max) -> {
+      fetches.add(start);
+      throw thrown;
+    }, 10).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.request(1);
+
+    assertThat(subscriber.error, is((Throwable) thrown));
+    assertThat(fetches.size(), is(1));
+    assertThat(subscriber.names.isEmpty(), is(true));
+  }
+
+  /**
+   * Serves pages of names immediately, recording each start index and maximum.
+   */
+  private static class StubPages implements NamePublisher.PageFetcher
+  {
+    /** The names. */
+    private final List<String> names;
+
+    /** The start index and maximum of each fetch. */
+    private final List<List<Integer>> requests = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * @param names The names.
+     */
+    private StubPages(String... names)
+    {
+      this.names = ImmutableList.copyOf(names);
+    }
+
+    @Override
+    public CompletableFuture<Either<NameList, DirectoryError>> fetch(int startIndex, int maxResults)
+    {
+      this.requests.add(ImmutableList.of(startIndex, maxResults));
+      final int end = Math.min(this.names.size(), startIndex + maxResults);
+      return CompletableFuture.completedFuture(Either.value(new NameList(this.names.subList(startIndex, end))));
+    }
+  }
+
+  /**
+   * Records the signals it receives.
+   */
+  private static class RecordingSubscriber implements Flow.Subscriber<String>
+  {
+    /** The subscription. */
+    private Flow.Subscription subscription;
+
+    /** The names received. */
+    private final List<String> names = new ArrayList<>();
+
+    /** Has the publisher completed? */
+    private boolean completed;
+
+    /** The error received, if any. */
+    private Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(String item)
+    {
+      this.names.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+      this.error = throwable;
+    }
+
+    @Override
+    public void onComplete()
+    {
+      this.completed = true;
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Retrier}, through the interactors that use it.
+ */
+public class RetrierTest
+{
+  /** A confirmed membership. */
+  private static final String MEMBER = "{ \"name\": \"yoss\" }";
+
+  /** The error returned by an unavailable Crowd. */
+  private static final String UNAVAILABLE = "{ \"reason\": \"UNAVAILABLE\", \"message\": \"Try again\" }";
+
+  /** A retry policy with short backoffs. */
+  private static final RetryPolicy RETRY = new RetryPolicy(2, 1, 2, false);
+
+  /**
+   * Tests that a lookup answered with 503 is retried, spending the retry budget.
+   */
+  @Test
+  public void testRetryUnavailable()
+  {
+    final AtomicInteger calls = new AtomicInteger();
+    final StubTransport transport = new StubTransport(
+        request -> (calls.incrementAndGet() <= 2
+            ? new StubTransport.Reply(503, UNAVAILABLE)
+            : new StubTransport.Reply(200, MEMBER)));
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final Either<GroupResponse, GroupError> result =
+          new GroupInteractor(client, MembershipMode.DIRECT, RETRY).execute("yoss", "staff");
+
+      assertThat(result.getValue().getUsername(), is("yoss"));
+      assertThat(client.getRetryBudget().getAvailable(), is((long) RetryBudget.DEFAULT_MAX_TOKENS - 2));
+    }
+
+    assertThat(transport.getRequests().size(), is(3));
+  }
+
+  /**
+   * Tests that the last attempt returns Crowd's answer rather than failing, and that no retry is made once the
+   * budget is spent.
+   */
+  @Test
+  public void testBudgetExhausted()
+  {
+    final StubTransport transport = new StubTransport(request -> new StubTransport.Reply(503, UNAVAILABLE));
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final GroupInteractor interactor = new GroupInteractor(client, MembershipMode.DIRECT, RETRY);
+      assertThat(interactor.execute("yoss", "staff").getError().getReason(), is("UNAVAILABLE"));
+      assertThat(transport.getRequests().size(), is(3));
+
+      while (client.getRetryBudget().tryWithdraw())
+      {
+        // drain the budget
+      }
+      assertThat(interactor.execute("yoss", "staff").getError().getReason(), is("UNAVAILABLE"));
+      assertThat(transport.getRequests().size(), is(4));
+    }
+  }
+
+  /**
+   * Tests that an asynchronous validation that cannot be sent is retried, while session creation is not.
+   */
+  @Test
+  public void testAsyncRetry()
+  {
+    final AtomicInteger calls = new AtomicInteger();
+    final StubTransport transport = new StubTransport(request -> {
+      if (calls.incrementAndGet() % 2 == 1)
+      {
+        throw new TransportException("connection reset", null);
+      }
+      return new StubTransport.Reply(404, "{ \"reason\": \"INVALID_SSO_TOKEN\", \"message\": \"Gone\" }");
+    });
+
+    try (CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", transport))
+    {
+      final SessionInteractor interactor = new SessionInteractor(client, 0, 10, RETRY);
+
+      assertThat(interactor.validateAsync("abc", ImmutableList.of()).join().getError().getReason(),
+                 is("INVALID_SSO_TOKEN"));
+      assertThat(transport.getRequests().size(), is(2));
+
+      boolean failed = false;
+      try
+      {
+        interactor.createAsync("yoss", "pw", ImmutableList.of()).join();
+      }
+      catch (RuntimeException e)
+      {
+        failed = true;
+      }
+      assertThat(failed, is(true));
+      assertThat(transport.getRequests().size(), is(3));
+    }
+  }
+
+  /**
+   * Tests that a request slower than the recent 95th percentile is hedged, that the first answer is taken, and that
+   * the slow copy is cancelled.
+   */
+  @Test
+  public void testHedging()
+  {
+    final AtomicBoolean hang = new AtomicBoolean();
+    final List<CompletableFuture<?>> hung = new CopyOnWriteArrayList<>();
+    final StubTransport transport = new StubTransport(request -> new StubTransport.Reply(200, MEMBER))
+    {
+      @Override
+      public <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                                   Function<? super TransportResponse, ? extends T> handler)
+      {
+        if (hang.getAndSet(false))
+        {
+          final CompletableFuture<T> future = new CompletableFuture<>();
+          hung.add(future);
+          return future;
+        }
+        return super.executeAsync(request, handler);
+      }
+    };
+    final Cluster cluster = new Cluster(ImmutableList.of("http://a/crowd", "http://b/crowd"));
+
+    try (CrowdClient client = new CrowdClient(cluster, "app", "secret", transport))
+    {
+      final GroupInteractor interactor =
+          new GroupInteractor(client, MembershipMode.DIRECT, new RetryPolicy(0, 1, 1, true));
+      for (int i = 0; i < 20; i++)
+      {
+        interactor.executeAsync("yoss", "staff").join();
+      }
+
+      hang.set(true);
+      assertThat(interactor.execute("yoss", "staff").getValue().getUsername(), is("yoss"));
+      assertThat(hung.size(), is(1));
+      assertThat(hung.get(0).isCancelled(), is(true));
+      assertThat(client.getRetryBudget().getAvailable(), is((long) RetryBudget.DEFAULT_MAX_TOKENS - 1));
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.cache.FakeTicker;
+import com.fatboyindustrial.crowdcontrol.model.Session;
+import com.fatboyindustrial.crowdcontrol.model.SessionError;
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link SessionInteractor}.
+ */
+public class SessionInteractorTest
+{
+  /** The wall clock time at which each test starts, in milliseconds. */
+  private static final long START_MILLIS = 1500000000000L;
+
+  /** The revalidation interval used by the tests, in milliseconds. */
+  private static final long REVALIDATION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  /** The validation factors of the tests' requests. */
+  private static final ImmutableList<ValidationFactor> FACTORS = ImmutableList.of(
+      new ValidationFactor(ValidationFactor.REMOTE_ADDRESS, "127.0.0.1"),
+      new ValidationFactor("User-Agent", "test"));
+
+  /** The reply Crowd gives to the next request. */
+  private final AtomicReference<StubTransport.Reply> reply = new AtomicReference<>();
+
+  /** The time source shared by the cache and the wall clock. */
+  private FakeTicker ticker;
+
+  /** The transport, which records the requests sent. */
+  private StubTransport transport;
+
+  /** The interactor under test. */
+  private SessionInteractor sut;
+
+  /**
+   * Creates the interactor, with Crowd answering every validation with a session expiring in an hour.
+   */
+  @Before
+  public void setUp()
+  {
+    this.ticker = new FakeTicker();
+    this.transport = new StubTransport(request -> this.reply.get());
+    this.reply.set(session(START_MILLIS + TimeUnit.HOURS.toMillis(1)));
+
+    final CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", this.transport);
+    this.sut = new SessionInteractor(client, true, REVALIDATION_MILLIS, 10, RetryPolicy.none(),
+                                     new TickerClock(this.ticker), this.ticker);
+  }
+
+  /**
+   * Tests that a recently validated token is answered from the cache, whatever the order of its validation factors.
+   */
+  @Test
+  public void testCacheHit()
+  {
+    assertThat(this.sut.validate("abc123", FACTORS).getValue().getUsername(), is("yoss"));
+    assertThat(this.sut.validate("abc123", FACTORS).getValue().getUsername(), is("yoss"));
+    assertThat(this.sut.validate("abc123", FACTORS.reverse()).isError(), is(false));
+    assertThat(this.sut.validateAsync("abc123", FACTORS).join().isError(), is(false));
+
+    assertThat(this.transport.getRequests().size(), is(1));
+  }
+
+  /**
+   * Tests that a cached token is revalidated with Crowd once the revalidation interval passes.
+   */
+  @Test
+  public void testRevalidationInterval()
+  {
+    this.sut.validate("abc123", FACTORS);
+    advance(REVALIDATION_MILLIS - 1);
+    this.sut.validate("abc123", FACTORS);
+    assertThat(this.transport.getRequests().size(), is(1));
+
+    advance(1);
+    this.sut.validate("abc123", FACTORS);
+    assertThat(this.transport.getRequests().size(), is(2));
+  }
+
+  /**
+   * Tests that a cached token is not trusted beyond its session's expiry date, even within the revalidation interval.
+   */
+  @Test
+  public void testCappedAtExpiry()
+  {
+    this.reply.set(session(START_MILLIS + 1000));
+    this.sut.validate("abc123", FACTORS);
+    advance(999);
+    this.sut.validate("abc123", FACTORS);
+    assertThat(this.transport.getRequests().size(), is(1));
+
+    advance(1);
+    this.sut.validate("abc123", FACTORS);
+    assertThat(this.transport.getRequests().size(), is(2));
+  }
+
+  /**
+   * Tests that a token presented with different validation factors is validated with Crowd, and that a failed
+   * validation evicts the token so that it is no longer trusted with its original factors either.
+   */
+  @Test
+  public void testFactorMismatchAndEviction()
+  {
+    this.sut.validate("abc123", FACTORS);
+
+    this.reply.set(new StubTransport.Reply(
+        400, "{ \"reason\": \"INVALID_SSO_TOKEN\", \"message\": \"Validation factors do not match\" }"));
+    final List<ValidationFactor> elsewhere =
+        ImmutableList.of(new ValidationFactor(ValidationFactor.REMOTE_ADDRESS, "10.0.0.1"));
+    final Either<Session, SessionError> mismatch = this.sut.validate("abc123", elsewhere);
+    assertThat(mismatch.getError().getReason(), is("INVALID_SSO_TOKEN"));
+    assertThat(this.transport.getRequests().size(), is(2));
+
+    assertThat(this.sut.validate("abc123", FACTORS).isError(), is(true));
+    assertThat(this.transport.getRequests().size(), is(3));
+  }
+
+  /**
+   * Tests that invalidating a session deletes it from Crowd and from the cache.
+   */
+  @Test
+  public void testInvalidate()
+  {
+    this.sut.validate("abc123", FACTORS);
+
+    this.reply.set(new StubTransport.Reply(204, ""));
+    assertThat(this.sut.invalidate("abc123").isPresent(), is(false));
+    assertThat(this.transport.getRequests().get(1).getMethod(), is("DELETE"));
+    assertThat(this.transport.getRequests().get(1).getUri().getPath(),
+               is("/crowd/rest/usermanagement/latest/session/abc123"));
+
+    this.reply.set(session(START_MILLIS + TimeUnit.HOURS.toMillis(1)));
+    this.sut.validate("abc123", FACTORS);
+    assertThat(this.transport.getRequests().size(), is(3));
+  }
+
+  /**
+   * Advances the time.
+   * @param millis The amount to advance, in milliseconds.
+   */
+  private void advance(long millis)
+  {
+    this.ticker.advance(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  /**
+   * Creates Crowd's reply describing a session.
+   * @param expiryDate The session's expiry date, in milliseconds since the epoch.
+   * @return The reply.
+   */
+  private static StubTransport.Reply session(long expiryDate)
+  {
+    return new StubTransport.Reply(200, "{ \"token\": \"abc123\", \"user\": { \"name\": \"yoss\" }, " +
+                                        "\"created-date\": " + START_MILLIS + ", \"expiry-date\": " + expiryDate + " }");
+  }
+
+  /**
+   * A wall clock that starts at {@link #START_MILLIS} and advances with a ticker.
+   */
+  private static class TickerClock extends Clock
+  {
+    /** The time source. */
+    private final FakeTicker ticker;
+
+    /**
+     * Constructor.
+     * @param ticker The time source.
+     */
+    TickerClock(FakeTicker ticker)
+    {
+      this.ticker = ticker;
+    }
+
+    @Override
+    public ZoneId getZone()
+    {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone)
+    {
+      return this;
+    }
+
+    @Override
+    public Instant instant()
+    {
+      return Instant.ofEpochMilli(START_MILLIS + TimeUnit.NANOSECONDS.toMillis(this.ticker.read()));
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A transport that answers every request from a function, on the calling thread, recording each request.
+ */
+class StubTransport implements Transport
+{
+  /** Answers each request. */
+  private final Function<TransportRequest, Reply> replies;
+
+  /** The requests sent, in order. */
+  private final List<TransportRequest> requests = new ArrayList<>();
+
+  /** Has the transport been closed? */
+  private boolean closed;
+
+  /**
+   * Constructor.
+   * @param replies Answers each request.
+   */
+  StubTransport(Function<TransportRequest, Reply> replies)
+  {
+    this.replies = replies;
+  }
+
+  /**
+   * Gets the requests sent so far.
+   * @return The requests, in order.
+   */
+  synchronized List<TransportRequest> getRequests()
+  {
+    return ImmutableList.copyOf(this.requests);
+  }
+
+  /**
+   * Has the transport been closed?
+   * @return True if closed.
+   */
+  synchronized boolean isClosed()
+  {
+    return this.closed;
+  }
+
+  @Override
+  public CrowdClientConfig getConfig()
+  {
+    return CrowdClientConfig.defaults();
+  }
+
+  @Override
+  public <T> T execute(TransportRequest request, Function<? super TransportResponse, ? extends T> handler)
+  {
+    synchronized (this)
+    {
+      this.requests.add(request);
+    }
+
+    return handler.apply(this.replies.apply(request));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> executeAsync(TransportRequest request,
+                                               Function<? super TransportResponse, ? extends T> handler)
+  {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    try
+    {
+      future.complete(execute(request, handler));
+    }
+    catch (RuntimeException e)
+    {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  @Override
+  public synchronized void close()
+  {
+    this.closed = true;
+  }
+
+  /**
+   * A canned response.
+   */
+  static class Reply implements TransportResponse
+  {
+    /** The HTTP status code. */
+    private final int status;
+
+    /** The response body. */
+    private final String body;
+
+    /**
+     * Constructor.
+     * @param status The HTTP status code.
+     * @param body The response body.
+     */
+    Reply(int status, String body)
+    {
+      this.status = status;
+      this.body = body;
+    }
+
+    @Override
+    public int getStatus()
+    {
+      return this.status;
+    }
+
+    @Override
+    public InputStream getBody()
+    {
+      return new ByteArrayInputStream(this.body.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A simple benchmark comparing {@link JerseyTransport} and {@link HttpClientTransport}: the time to create a client
+ * and complete its first login, and the per-request overhead of sequential logins against a local stub server that
+ * answers immediately.  Run the {@code main} method directly, once per transport for a fair startup figure (pass
+ * {@code jersey} or {@code jdk}); it is not part of the test suite.
+ */
+public class TransportBenchmark
+{
+  /** The number of sequential logins measured. */
+  private static final int LOGINS = 20_000;
+
+  /** The number of logins run before measuring. */
+  private static final int WARM_UP = 5_000;
+
+  /** A successful authentication response. */
+  private static final byte[] USER = ("{ \"name\": \"yoss\", \"active\": true }").getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Entry point.
+   * @param args The transports to run: {@code jersey}, {@code jdk}, or both if none are given.
+   * @throws IOException If the stub server cannot be started.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    // Without this, the stub server's separate header and body writes stall on delayed ACKs.
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+
+    final ExecutorService serverThreads = Executors.newCachedThreadPool();
+    final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+    server.setExecutor(serverThreads);
+    server.createContext("/", exchange -> {
+      try (InputStream in = exchange.getRequestBody(); OutputStream out = exchange.getResponseBody())
+      {
+        in.readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, USER.length);
+        out.write(USER);
+      }
+    });
+    server.start();
+
+    try
+    {
+      final String base = "http://localhost:" + server.getAddress().getPort() + "/crowd";
+      final String[] transports = (args.length == 0 ? new String[] { "jersey", "jdk" } : args);
+
+      for (final String transport : transports)
+      {
+        run(base, transport, (transport.equals("jdk") ? HttpClientTransport::new : JerseyTransport::new));
+      }
+    }
+    finally
+    {
+      server.stop(0);
+      serverThreads.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs and reports a single benchmark.
+   * @param base The stub server base URL.
+   * @param name The name of the transport under test.
+   * @param factory Creates the transport under test.
+   */
+  private static void run(String base, String name, Function<CrowdClientConfig, Transport> factory)
+  {
+    final long created = System.nanoTime();
+
+    try (CrowdClient client = new CrowdClient(base, "app", "secret", factory.apply(CrowdClientConfig.defaults())))
+    {
+      final AuthenticationInteractor interactor = new AuthenticationInteractor(client);
+      interactor.execute("yoss", "secret");
+      final long firstLogin = System.nanoTime() - created;
+
+      for (int i = 0; i < WARM_UP; i++)
+      {
+        interactor.execute("yoss", "secret");
+      }
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < LOGINS; i++)
+      {
+        interactor.execute("yoss", "secret");
+      }
+      final long elapsed = System.nanoTime() - start;
+
+      System.out.printf("%-8s first login after %5.0f ms, %6.1f us per login%n",
+                        name, firstLogin / 1e6, elapsed / 1e3 / LOGINS);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol;
+
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.Memberships;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link UserGroupsInteractor}.
+ */
+public class UserGroupsInteractorTest
+{
+  /** The number of groups fetched per page by the tests. */
+  private static final int PAGE_SIZE = 3;
+
+  /** The user's groups, as Crowd lists them: three pages, the last partly full. */
+  private static final List<String> GROUPS = ImmutableList.of(
+      "Staff", "Hospital", "Mess", "Bomber", "Squadron", "Base", "Rome");
+
+  /** The transport, which records the requests sent. */
+  private StubTransport transport;
+
+  /** The interactor under test. */
+  private UserGroupsInteractor sut;
+
+  /**
+   * Creates the interactor, with Crowd listing {@link #GROUPS} for user "yoss" and reporting any other user missing.
+   */
+  @Before
+  public void setUp()
+  {
+    this.transport = new StubTransport(UserGroupsInteractorTest::reply);
+
+    final CrowdClient client = new CrowdClient("http://localhost/crowd", "app", "secret", this.transport);
+    this.sut = new UserGroupsInteractor(client, MembershipMode.DIRECT, PAGE_SIZE);
+  }
+
+  /**
+   * Tests that pages are fetched in turn until the last (partly full) page when a group is never found.
+   */
+  @Test
+  public void testPaging()
+  {
+    final Memberships memberships = this.sut.execute("yoss", ImmutableList.of("Rome", "Nowhere")).getValue();
+
+    assertThat(memberships.isMember("Rome"), is(true));
+    assertThat(memberships.isMember("Nowhere"), is(false));
+    assertThat(startIndices(), is(ImmutableList.of("0", "3", "6")));
+
+    assertThat(this.sut.groupsOf("yoss").getValue(), containsInAnyOrder(GROUPS.toArray()));
+  }
+
+  /**
+   * Tests that paging stops as soon as every requested group has been found.
+   */
+  @Test
+  public void testStopsEarly()
+  {
+    final Memberships memberships = this.sut.execute("yoss", ImmutableList.of("Hospital", "Bomber")).getValue();
+
+    assertThat(memberships.isMemberOfAll(), is(true));
+    assertThat(startIndices(), is(ImmutableList.of("0", "3")));
+  }
+
+  /**
+   * Tests that group names are matched case-insensitively, and reported as requested.
+   */
+  @Test
+  public void testCaseInsensitive()
+  {
+    final Memberships memberships = this.sut.execute("yoss", ImmutableList.of("STAFF", "mess")).getValue();
+
+    assertThat(memberships.getGroups(), containsInAnyOrder("STAFF", "mess"));
+    assertThat(startIndices(), is(ImmutableList.of("0")));
+  }
+
+  /**
+   * Tests that the asynchronous interaction pages and matches as the synchronous one does, and reports errors.
+   */
+  @Test
+  public void testAsync()
+  {
+    final Memberships memberships =
+        this.sut.executeAsync("yoss", ImmutableList.of("squadron", "Nowhere")).join().getValue();
+
+    assertThat(memberships.getGroups(), containsInAnyOrder("squadron"));
+    assertThat(startIndices(), is(ImmutableList.of("0", "3", "6")));
+
+    final Either<Memberships, GroupError> missing = this.sut.executeAsync("orr", ImmutableList.of("Staff")).join();
+    assertThat(missing.getError().getReason(), is("USER_NOT_FOUND"));
+  }
+
+  /**
+   * Gets the start index of each request sent.
+   * @return The start indices, in order.
+   */
+  private List<String> startIndices()
+  {
+    return this.transport.getRequests().stream()
+        .map(request -> query(request).get("start-index"))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Answers a request for a page of a user's groups.
+   * @param request The request.
+   * @return The page, or an error if the user is not "yoss".
+   */
+  private static StubTransport.Reply reply(TransportRequest request)
+  {
+    final Map<String, String> query = query(request);
+    if (! query.get("username").equals("yoss"))
+    {
+      return new StubTransport.Reply(404, "{ \"reason\": \"USER_NOT_FOUND\", \"message\": \"Not found\" }");
+    }
+
+    final int start = Integer.parseInt(query.get("start-index"));
+    final int max = Integer.parseInt(query.get("max-results"));
+    final String groups = GROUPS.subList(Math.min(start, GROUPS.size()), Math.min(start + max, GROUPS.size())).stream()
+        .map(group -> "{ \"name\": \"" + group + "\" }")
+        .collect(Collectors.joining(", "));
+
+    return new StubTransport.Reply(200, "{ \"groups\": [ " + groups + " ] }");
+  }
+
+  /**
+   * Gets the query parameters of a request.
+   * @param request The request.
+   * @return The parameters, by name.
+   */
+  private static Map<String, String> query(TransportRequest request)
+  {
+    return Splitter.on('&').withKeyValueSeparator('=').split(request.getUri().getRawQuery());
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.breaker;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.TransportException;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CircuitBreaker} and the breaking interactors.
+ */
+public class CircuitBreakerTest
+{
+  /** The current time, in nanoseconds. */
+  private final AtomicLong nanos = new AtomicLong();
+
+  /** A ticker reading {@link #nanos}. */
+  private final Ticker ticker = new Ticker()
+  {
+    @Override
+    public long read()
+    {
+      return nanos.get();
+    }
+  };
+
+  /**
+   * Tests that the breaker opens once enough recent calls fail, refuses calls while open, and closes after its trial
+   * calls succeed.
+   */
+  @Test
+  public void testFailures()
+  {
+    final CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 1000, 1.0, 5000, 2, this.ticker);
+    final FlakyGroupInteraction crowd = new FlakyGroupInteraction();
+    final BreakingGroupInteractor interactor = new BreakingGroupInteractor(crowd, breaker);
+
+    for (int i = 0; i < 2; i++)
+    {
+      assertThat(interactor.execute("yoss", "staff").isError(), is(false));
+    }
+    crowd.down.set(true);
+    for (int i = 0; i < 2; i++)
+    {
+      assertThat(failed(interactor), is(true));
+    }
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+
+    final int calls = crowd.calls.get();
+    assertThat(interactor.execute("yoss", "staff").getError().getReason(), is(CircuitBreaker.CIRCUIT_OPEN));
+    assertThat(crowd.calls.get(), is(calls));
+
+    this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+    assertThat(breaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    crowd.down.set(false);
+    interactor.execute("yoss", "staff");
+    interactor.execute("yoss", "staff");
+    assertThat(breaker.getState(), is(CircuitBreaker.State.CLOSED));
+  }
+
+  /**
+   * Tests that the breaker opens when too many calls are slow, and reopens if a trial call is slow.
+   */
+  @Test
+  public void testSlowCalls()
+  {
+    final CircuitBreaker breaker = new CircuitBreaker(2, 1.0, 1000, 0.5, 5000, 1, this.ticker);
+
+    breaker.execute(() -> "fast", () -> Optional.<String>absent(), () -> "open");
+    breaker.execute(this::slow, () -> Optional.<String>absent(), () -> "open");
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+
+    this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+    assertThat(breaker.execute(this::slow, () -> Optional.<String>absent(), () -> "open"),
+               is("slow"));
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+  }
+
+  /**
+   * Tests that only the configured number of trial calls pass while half open.
+   */
+  @Test
+  public void testTrialCalls()
+  {
+    final CircuitBreaker breaker = new CircuitBreaker(1, 1.0, 1000, 1.0, 5000, 1, this.ticker);
+
+    breaker.onFailure();
+    this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5000));
+    assertThat(breaker.tryAcquire(), is(true));
+    assertThat(breaker.tryAcquire(), is(false));
+
+    breaker.onAbandon();
+    assertThat(breaker.tryAcquire(), is(true));
+  }
+
+  /**
+   * Tests that the last confirmed membership is returned when Crowd fails and while the breaker is open, and that
+   * the asynchronous path refuses calls the same way.
+   */
+  @Test
+  public void testFallback()
+  {
+    final CircuitBreaker breaker = new CircuitBreaker(2, 0.5, 1000, 1.0, 5000, 1, this.ticker);
+    final FlakyGroupInteraction crowd = new FlakyGroupInteraction();
+    final BreakingGroupInteractor interactor = new BreakingGroupInteractor(crowd, breaker, 100);
+
+    assertThat(interactor.execute("yoss", "staff").getValue().getUsername(), is("yoss"));
+
+    crowd.down.set(true);
+    assertThat(interactor.execute("yoss", "staff").getValue().getUsername(), is("yoss"));
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+    assertThat(interactor.executeAsync("yoss", "staff").join().getValue().getUsername(), is("yoss"));
+    assertThat(interactor.executeAsync("orr", "staff").join().getError().getReason(),
+               is(CircuitBreaker.CIRCUIT_OPEN));
+  }
+
+  /**
+   * Tests that a lookup Crowd cannot answer, with no fallback, is answered with an error rather than by throwing,
+   * both synchronously and asynchronously, and that an asynchronous failure still counts against the breaker.
+   */
+  @Test
+  public void testTransportFailureAnswered()
+  {
+    final CircuitBreaker breaker = new CircuitBreaker(2, 1.0, 1000, 1.0, 5000, 1, this.ticker);
+    final FlakyGroupInteraction crowd = new FlakyGroupInteraction();
+    final BreakingGroupInteractor interactor = new BreakingGroupInteractor(crowd, breaker);
+
+    crowd.down.set(true);
+    assertThat(failed(interactor), is(true));
+    assertThat(interactor.executeAsync("yoss", "staff").join().getError().getReason(),
+               is(CircuitBreaker.TRANSPORT_FAILURE));
+    assertThat(breaker.getState(), is(CircuitBreaker.State.OPEN));
+
+    final CompletableFuture<String> failedFuture = new CompletableFuture<>();
+    failedFuture.completeExceptionally(new TransportException("connection reset", null));
+    final CircuitBreaker other = new CircuitBreaker(2, 1.0, 1000, 1.0, 5000, 1, this.ticker);
+    assertThat(other.executeAsync(() -> failedFuture, () -> Optional.<String>absent(), () -> "open",
+                                  failure -> Optional.of("failed")).join(),
+               is("failed"));
+  }
+
+  /**
+   * Makes a slow call.
+   * @return The result.
+   */
+  private String slow()
+  {
+    this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+    return "slow";
+  }
+
+  /**
+   * Makes a lookup, reporting whether it failed because Crowd could not be reached.
+   * @param interactor The interactor.
+   * @return True if the lookup was answered with a transport failure.
+   */
+  private static boolean failed(GroupInteraction interactor)
+  {
+    final Either<GroupResponse, GroupError> result = interactor.execute("yoss", "staff");
+    return (result.isError() && result.getError().getReason().equals(CircuitBreaker.TRANSPORT_FAILURE));
+  }
+
+  /**
+   * A group interaction that confirms every membership, or fails while it is down.
+   */
+  private static class FlakyGroupInteraction implements GroupInteraction
+  {
+    /** Is Crowd down? */
+    private final AtomicBoolean down = new AtomicBoolean();
+
+    /** The number of lookups made. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Either<GroupResponse, GroupError> execute(String username, String groupname)
+    {
+      this.calls.incrementAndGet();
+      if (this.down.get())
+      {
+        throw new TransportException("connection refused", null);
+      }
+      return Either.value(new GroupResponse(new Link("self", "http://localhost"), username));
+    }
+
+    @Override
+    public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+    {
+      return CompletableFuture.completedFuture(execute(username, groupname));
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.cache;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CachingAuthenticationInteractor}.
+ */
+public class CachingAuthenticationInteractorTest
+{
+  /** The only password the stub accepts. */
+  private static final String PASSWORD = "catch-22";
+
+  /** The stub interaction. */
+  private StubAuthentication stub;
+
+  /** The fake time source. */
+  private FakeTicker ticker;
+
+  /** The system under test. */
+  private CachingAuthenticationInteractor sut;
+
+  /**
+   * Creates the system under test.
+   */
+  @Before
+  public void setUp()
+  {
+    this.stub = new StubAuthentication();
+    this.ticker = new FakeTicker();
+    this.sut = new CachingAuthenticationInteractor(this.stub, TimeUnit.MINUTES.toMillis(5), 2, 1, this.ticker);
+  }
+
+  /**
+   * Tests that a repeated authentication with the same password is answered from the cache.
+   */
+  @Test
+  public void testHit()
+  {
+    assertThat(this.sut.execute("yoss", PASSWORD).isError(), is(false));
+    assertThat(this.sut.execute("yoss", PASSWORD).getValue().getUsername(), is("yoss"));
+
+    assertThat(this.stub.calls.get(), is(1));
+    assertThat(this.sut.getStatistics().getHitCount(), is(1L));
+    assertThat(this.sut.getStatistics().getMissCount(), is(1L));
+  }
+
+  /**
+   * Tests that a different password is never answered from the cache, and evicts the cached entry.
+   */
+  @Test
+  public void testWrongPassword()
+  {
+    this.sut.execute("yoss", PASSWORD);
+
+    assertThat(this.sut.execute("yoss", "wrong").isError(), is(true));
+    assertThat(this.stub.calls.get(), is(2));
+    assertThat(this.sut.size(), is(0L));
+  }
+
+  /**
+   * Tests that a transient failure, unlike a credential failure, leaves the cached entry in place.
+   */
+  @Test
+  public void testTransientFailureKeepsEntry()
+  {
+    this.sut.execute("yoss", PASSWORD);
+
+    this.stub.reason = "CIRCUIT_OPEN";
+    assertThat(this.sut.execute("yoss", "wrong").getError().getReason(), is("CIRCUIT_OPEN"));
+    assertThat(this.sut.size(), is(1L));
+
+    assertThat(this.sut.execute("yoss", PASSWORD).isError(), is(false));
+    assertThat(this.stub.calls.get(), is(2));
+  }
+
+  /**
+   * Tests that entries expire.
+   */
+  @Test
+  public void testExpiry()
+  {
+    this.sut.execute("yoss", PASSWORD);
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(6));
+    this.sut.execute("yoss", PASSWORD);
+
+    assertThat(this.stub.calls.get(), is(2));
+    assertThat(this.sut.getStatistics().getEvictionCount(), is(1L));
+  }
+
+  /**
+   * Tests that the cache is bounded in size.
+   */
+  @Test
+  public void testMaximumSize()
+  {
+    this.sut.execute("a", PASSWORD);
+    this.sut.execute("b", PASSWORD);
+    this.sut.execute("c", PASSWORD);
+
+    assertThat(this.sut.size(), is(2L));
+    assertThat(this.sut.getStatistics().getEvictionCount(), is(1L));
+  }
+
+  /**
+   * Tests explicit invalidation.
+   */
+  @Test
+  public void testInvalidate()
+  {
+    this.sut.execute("yoss", PASSWORD);
+    this.sut.invalidate("yoss");
+    this.sut.execute("yoss", PASSWORD);
+
+    assertThat(this.stub.calls.get(), is(2));
+  }
+
+  /**
+   * Tests that asynchronous hits complete immediately.
+   */
+  @Test
+  public void testAsyncHit()
+  {
+    this.sut.executeAsync("yoss", PASSWORD).join();
+
+    final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> future =
+        this.sut.executeAsync("yoss", PASSWORD);
+
+    assertThat(future.isDone(), is(true));
+    assertThat(this.stub.calls.get(), is(1));
+  }
+
+  /**
+   * A stub authentication interaction that accepts a single password for any user.
+   */
+  private static class StubAuthentication implements AuthenticationInteraction
+  {
+    /** The number of calls made. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** The reason given for a rejected password. */
+    private volatile String reason = "INVALID_USER_AUTHENTICATION";
+
+    @Override
+    public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+    {
+      this.calls.incrementAndGet();
+
+      if (password.equals(PASSWORD))
+      {
+        return Either.value(new AuthenticationResponse("", new Link("self", "http://localhost/user"), username,
+                                                       "", "", "", "", "", true));
+      }
+
+      return Either.error(new AuthenticationError(this.reason, "Failed"));
+    }
+
+    @Override
+    public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                               String password)
+    {
+      return CompletableFuture.completedFuture(execute(username, password));
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.cache;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CachingGroupInteractor}.
+ */
+public class CachingGroupInteractorTest
+{
+  /** The stub interaction. */
+  private StubGroups stub;
+
+  /** The fake time source. */
+  private FakeTicker ticker;
+
+  /** The system under test. */
+  private CachingGroupInteractor sut;
+
+  /**
+   * Creates the system under test, caching positive results for 10 minutes and negative results for 1 minute.
+   */
+  @Before
+  public void setUp()
+  {
+    this.stub = new StubGroups();
+    this.ticker = new FakeTicker();
+    this.sut = new CachingGroupInteractor(this.stub, TimeUnit.MINUTES.toMillis(10), TimeUnit.MINUTES.toMillis(1),
+                                          100, 0.5, this.ticker);
+  }
+
+  /**
+   * Tests that positive and negative results are both cached.
+   */
+  @Test
+  public void testPositiveAndNegativeCached()
+  {
+    assertThat(this.sut.execute("yoss", "bombardiers").isError(), is(false));
+    assertThat(this.sut.execute("yoss", "bombardiers").isError(), is(false));
+    assertThat(this.sut.execute("yoss", "chaplains").isError(), is(true));
+    assertThat(this.sut.execute("yoss", "chaplains").isError(), is(true));
+
+    assertThat(this.stub.calls.get(), is(2));
+    assertThat(this.sut.getStatistics().getHitCount(), is(2L));
+  }
+
+  /**
+   * Tests that errors other than "not found" are never cached.
+   */
+  @Test
+  public void testOtherErrorsNotCached()
+  {
+    this.sut.execute("yoss", "secret");
+    this.sut.execute("yoss", "secret");
+
+    assertThat(this.stub.calls.get(), is(2));
+  }
+
+  /**
+   * Tests that negative results expire sooner than positive results.
+   */
+  @Test
+  public void testSeparateTtls()
+  {
+    this.sut.execute("yoss", "bombardiers");
+    this.sut.execute("yoss", "chaplains");
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(2));
+
+    this.sut.execute("yoss", "bombardiers");
+    assertThat(this.stub.calls.get(), is(2));
+
+    this.sut.execute("yoss", "chaplains");
+    assertThat(this.stub.calls.get(), is(3));
+  }
+
+  /**
+   * Tests that a refresh that throws before it starts does not leave the entry marked as refreshing, which would
+   * serve it beyond its expiry and never refresh it again.
+   */
+  @Test
+  public void testRefreshThrows()
+  {
+    this.sut.execute("yoss", "bombardiers");
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(6));
+    this.stub.broken = true;
+
+    assertThat(this.sut.execute("yoss", "bombardiers").isError(), is(false));
+    assertThat(this.stub.calls.get(), is(2));
+
+    this.stub.broken = false;
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(5));
+    this.sut.execute("yoss", "bombardiers");
+    assertThat(this.stub.calls.get(), is(3));
+  }
+
+  /**
+   * Tests that refresh and expiry times are compared correctly when the ticker wraps around.
+   */
+  @Test
+  public void testTickerWraparound()
+  {
+    this.ticker.advance(Long.MAX_VALUE - TimeUnit.SECONDS.toNanos(10));
+
+    // the negative result's refresh and expiry times wrap, but the ticker does not wrap until 10 seconds later
+    this.sut.execute("yoss", "chaplains");
+    this.ticker.advance(TimeUnit.SECONDS.toNanos(5));
+    this.sut.execute("yoss", "chaplains");
+    assertThat(this.stub.calls.get(), is(1));
+
+    this.ticker.advance(TimeUnit.SECONDS.toNanos(24));
+    this.sut.execute("yoss", "chaplains");
+    assertThat(this.stub.calls.get(), is(1));
+
+    this.ticker.advance(TimeUnit.SECONDS.toNanos(1));
+    this.sut.execute("yoss", "chaplains");
+    assertThat(this.stub.calls.get(), is(2));
+  }
+
+  /**
+   * Tests that a hot entry is refreshed in the background, and that the stale result is served while the refresh is
+   * in flight.
+   */
+  @Test
+  public void testRefreshAhead()
+  {
+    this.sut.execute("yoss", "bombardiers");
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(6));
+    this.stub.deferred = true;
+
+    assertThat(this.sut.execute("yoss", "bombardiers").isError(), is(false));
+    assertThat(this.stub.calls.get(), is(2));
+
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(6));
+    assertThat(this.sut.execute("yoss", "bombardiers").isError(), is(false));
+    assertThat(this.stub.calls.get(), is(2));
+
+    this.stub.pending.complete(Either.value(new GroupResponse(new Link("self", "http://localhost/user"), "yoss")));
+    this.ticker.advance(TimeUnit.MINUTES.toNanos(1));
+    assertThat(this.sut.execute("yoss", "bombardiers").isError(), is(false));
+    assertThat(this.stub.calls.get(), is(2));
+  }
+
+  /**
+   * A stub group interaction in which "yoss" is only a member of "bombardiers".
+   */
+  private static class StubGroups implements GroupInteraction
+  {
+    /** The number of calls made. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** Should asynchronous calls be left pending? */
+    private volatile boolean deferred;
+
+    /** Should asynchronous calls throw rather than return a future? */
+    private volatile boolean broken;
+
+    /** The most recent pending asynchronous call. */
+    private volatile CompletableFuture<Either<GroupResponse, GroupError>> pending;
+
+    @Override
+    public Either<GroupResponse, GroupError> execute(String username, String groupname)
+    {
+      this.calls.incrementAndGet();
+
+      switch (groupname)
+      {
+        case "bombardiers":
+          return Either.value(new GroupResponse(new Link("self", "http://localhost/user"), username));
+        case "secret":
+          return Either.error(new GroupError("APPLICATION_ACCESS_DENIED", "Denied"));
+        default:
+          return Either.error(new GroupError("MEMBERSHIP_NOT_FOUND", "Not found"));
+      }
+    }
+
+    @Override
+    public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+    {
+      if (this.broken)
+      {
+        this.calls.incrementAndGet();
+        throw new IllegalStateException("client has been closed");
+      }
+      if (this.deferred)
+      {
+        this.calls.incrementAndGet();
+        this.pending = new CompletableFuture<>();
+        return this.pending;
+      }
+
+      return CompletableFuture.completedFuture(execute(username, groupname));
+    }
+  }
+}
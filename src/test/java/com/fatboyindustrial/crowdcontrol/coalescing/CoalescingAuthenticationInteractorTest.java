@@ -0,0 +1,264 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.coalescing;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CoalescingAuthenticationInteractor}.
+ */
+public class CoalescingAuthenticationInteractorTest
+{
+  /** The number of concurrent callers. */
+  private static final int CALLERS = 8;
+
+  /**
+   * Tests that concurrent identical authentications share a single call and receive the same result.
+   */
+  @Test
+  public void testConcurrentAuthenticationsCoalesced() throws Exception
+  {
+    final BlockingAuthentication stub = new BlockingAuthentication();
+    final CoalescingAuthenticationInteractor sut = new CoalescingAuthenticationInteractor(stub);
+    final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    try
+    {
+      final List<Future<Either<AuthenticationResponse, AuthenticationError>>> results = new ArrayList<>();
+      for (int i = 0; i < CALLERS; i++)
+      {
+        results.add(executor.submit(() -> sut.execute("yoss", "secret")));
+      }
+
+      stub.entered.await();
+      while (sut.getCoalescedCount() < CALLERS - 1)
+      {
+        Thread.sleep(1);
+      }
+      stub.release.countDown();
+
+      for (final Future<Either<AuthenticationResponse, AuthenticationError>> result : results)
+      {
+        assertThat(result.get(), is(sameInstance(results.get(0).get())));
+      }
+      assertThat(stub.calls.get(), is(1));
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that concurrent authentications with different passwords are not coalesced.
+   */
+  @Test
+  public void testDifferentPasswordsNotCoalesced() throws Exception
+  {
+    final BlockingAuthentication stub = new BlockingAuthentication();
+    final CoalescingAuthenticationInteractor sut = new CoalescingAuthenticationInteractor(stub);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try
+    {
+      final Future<?> first = executor.submit(() -> sut.execute("yoss", "secret"));
+      stub.entered.await();
+      final Future<?> second = executor.submit(() -> sut.execute("yoss", "guess"));
+      while (stub.calls.get() < 2)
+      {
+        Thread.sleep(1);
+      }
+      stub.release.countDown();
+
+      first.get();
+      second.get();
+      assertThat(sut.getCoalescedCount(), is(0L));
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that an error thrown by the delegate, synchronously or asynchronously, releases the key so that later
+   * authentications are made afresh.
+   */
+  @Test
+  public void testErrorReleasesKey()
+  {
+    final BlockingAuthentication stub = new BlockingAuthentication();
+    final CoalescingAuthenticationInteractor sut = new CoalescingAuthenticationInteractor(stub);
+    stub.release.countDown();
+
+    stub.fail.set(true);
+    try
+    {
+      sut.execute("yoss", "secret");
+      fail("expected the error to be rethrown");
+    }
+    catch (Error e)
+    {
+      // expected
+    }
+    assertThat(sut.execute("yoss", "secret").getValue().getUsername(), is("yoss"));
+
+    stub.fail.set(true);
+    try
+    {
+      sut.executeAsync("yoss", "secret");
+      fail("expected the error to be rethrown");
+    }
+    catch (Error e)
+    {
+      // expected
+    }
+    assertThat(sut.executeAsync("yoss", "secret").join().getValue().getUsername(), is("yoss"));
+
+    assertThat(stub.calls.get(), is(4));
+    assertThat(sut.getCoalescedCount(), is(0L));
+  }
+
+  /**
+   * Tests that cancelling one caller's future leaves the shared authentication running, and cancelling every
+   * caller's future cancels it.
+   */
+  @Test
+  public void testCancellingEveryCallerCancelsAuthentication()
+  {
+    final PendingAuthentication stub = new PendingAuthentication();
+    final CoalescingAuthenticationInteractor sut = new CoalescingAuthenticationInteractor(stub);
+
+    final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> first =
+        sut.executeAsync("yoss", "secret");
+    final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> second =
+        sut.executeAsync("yoss", "secret");
+    assertThat(stub.futures.size(), is(1));
+
+    first.cancel(true);
+    assertThat(stub.futures.get(0).isCancelled(), is(false));
+    assertThat(second.isDone(), is(false));
+
+    second.cancel(true);
+    assertThat(stub.futures.get(0).isCancelled(), is(true));
+
+    sut.executeAsync("yoss", "secret");
+    assertThat(stub.futures.size(), is(2));
+  }
+
+  /**
+   * A stub authentication interaction that blocks until released, and can be made to throw an error once.
+   */
+  private static class BlockingAuthentication implements AuthenticationInteraction
+  {
+    /** The number of calls made. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** Counted down when the first call is entered. */
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    /** Counted down to release the calls. */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /** Should the next call throw an error? */
+    private final AtomicBoolean fail = new AtomicBoolean();
+
+    @Override
+    public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+    {
+      this.calls.incrementAndGet();
+      this.entered.countDown();
+
+      if (this.fail.getAndSet(false))
+      {
+        throw new Error("simulated failure");
+      }
+
+      try
+      {
+        this.release.await();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+
+      return Either.value(new AuthenticationResponse("", new Link("self", "http://localhost/user"), username,
+                                                     "John", "Yossarian", "Yossarian", "yoss@catch22.invalid",
+                                                     "1", true));
+    }
+
+    @Override
+    public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                               String password)
+    {
+      return CompletableFuture.completedFuture(execute(username, password));
+    }
+  }
+
+  /**
+   * A stub authentication interaction whose asynchronous calls are left pending.
+   */
+  private static class PendingAuthentication implements AuthenticationInteraction
+  {
+    /** The futures returned, in order. */
+    private final List<CompletableFuture<Either<AuthenticationResponse, AuthenticationError>>> futures =
+        new ArrayList<>();
+
+    @Override
+    public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                               String password)
+    {
+      final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> future = new CompletableFuture<>();
+      this.futures.add(future);
+      return future;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.coalescing;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CoalescingGroupInteractor}.
+ */
+public class CoalescingGroupInteractorTest
+{
+  /** The number of concurrent callers. */
+  private static final int CALLERS = 8;
+
+  /**
+   * Tests that concurrent identical lookups share a single call and receive the same result.
+   */
+  @Test
+  public void testConcurrentLookupsCoalesced() throws Exception
+  {
+    final BlockingGroups stub = new BlockingGroups();
+    final CoalescingGroupInteractor sut = new CoalescingGroupInteractor(stub);
+    final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    try
+    {
+      final List<Future<Either<GroupResponse, GroupError>>> results = new ArrayList<>();
+      for (int i = 0; i < CALLERS; i++)
+      {
+        results.add(executor.submit(() -> sut.execute("yoss", "bombardiers")));
+      }
+
+      stub.entered.await();
+      while (sut.getCoalescedCount() < CALLERS - 1)
+      {
+        Thread.sleep(1);
+      }
+      stub.release.countDown();
+
+      for (final Future<Either<GroupResponse, GroupError>> result : results)
+      {
+        assertThat(result.get(), is(sameInstance(results.get(0).get())));
+      }
+      assertThat(stub.calls.get(), is(1));
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that lookups are not coalesced once the earlier lookup has completed.
+   */
+  @Test
+  public void testSequentialLookupsNotCoalesced()
+  {
+    final BlockingGroups stub = new BlockingGroups();
+    final CoalescingGroupInteractor sut = new CoalescingGroupInteractor(stub);
+
+    stub.release.countDown();
+    sut.execute("yoss", "bombardiers");
+    sut.execute("yoss", "bombardiers");
+    sut.executeAsync("yoss", "bombardiers").join();
+
+    assertThat(stub.calls.get(), is(3));
+    assertThat(sut.getCoalescedCount(), is(0L));
+  }
+
+  /**
+   * A stub group interaction that blocks until released.
+   */
+  private static class BlockingGroups implements GroupInteraction
+  {
+    /** The number of calls made. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** Counted down when the first call is entered. */
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    /** Counted down to release the calls. */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public Either<GroupResponse, GroupError> execute(String username, String groupname)
+    {
+      this.calls.incrementAndGet();
+      this.entered.countDown();
+
+      try
+      {
+        this.release.await();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+
+      return Either.value(new GroupResponse(new Link("self", "http://localhost/user"), username));
+    }
+
+    @Override
+    public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+    {
+      return CompletableFuture.completedFuture(execute(username, groupname));
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.fatboyindustrial.crowdcontrol.DirectoryInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.MembershipMode;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryError;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryEvent;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link DirectoryReplica}.
+ */
+public class DirectoryReplicaTest
+{
+  /**
+   * Tests that the initial load answers membership queries, case-insensitively, with Crowd's error reasons.
+   */
+  @Test
+  public void testInitialLoad()
+  {
+    final StubDirectory directory = new StubDirectory();
+    directory.members.putAll("Staff", ImmutableList.of("yoss", "orr"));
+
+    final DirectoryReplica sut = new DirectoryReplica(directory, MembershipMode.DIRECT);
+
+    assertThat(sut.execute("yoss", "staff").getError().getReason(), is("OPERATION_FAILED"));
+    assertThat(sut.synchronise().isPresent(), is(false));
+
+    assertThat(sut.isMember("YOSS", "staff"), is(true));
+    assertThat(sut.execute("orr", "Staff").getValue().getUsername(), is("orr"));
+    assertThat(sut.execute("milo", "Staff").getError().getReason(), is("MEMBERSHIP_NOT_FOUND"));
+    assertThat(sut.execute("nobody", "Staff").getError().getReason(), is("USER_NOT_FOUND"));
+    assertThat(sut.execute("yoss", "nothing").getError().getReason(), is("GROUP_NOT_FOUND"));
+    assertThat(sut.getFullSynchronisations(), is(1L));
+  }
+
+  /**
+   * Tests that events are applied incrementally.
+   */
+  @Test
+  public void testEvents()
+  {
+    final StubDirectory directory = new StubDirectory();
+    directory.members.putAll("staff", ImmutableList.of("yoss", "orr"));
+
+    final DirectoryReplica sut = new DirectoryReplica(directory, MembershipMode.DIRECT);
+    sut.synchronise();
+
+    directory.events.add(event(DirectoryEvent.Type.USER_MEMBERSHIP, DirectoryEvent.Operation.DELETED, "yoss",
+                               "staff"));
+    directory.events.add(event(DirectoryEvent.Type.USER, DirectoryEvent.Operation.CREATED, "dunbar"));
+    directory.events.add(event(DirectoryEvent.Type.USER_MEMBERSHIP, DirectoryEvent.Operation.CREATED, "dunbar",
+                               "staff", "hospital"));
+    directory.events.add(event(DirectoryEvent.Type.USER, DirectoryEvent.Operation.DELETED, "orr"));
+    assertThat(sut.synchronise().isPresent(), is(false));
+
+    assertThat(sut.isMember("yoss", "staff"), is(false));
+    assertThat(sut.isMember("dunbar", "staff"), is(true));
+    assertThat(sut.isMember("dunbar", "hospital"), is(true));
+    assertThat(sut.execute("orr", "staff").getError().getReason(), is("USER_NOT_FOUND"));
+    assertThat(sut.getEventsApplied(), is(4L));
+    assertThat(sut.getFullSynchronisations(), is(1L));
+  }
+
+  /**
+   * Tests that nested membership follows group membership events.
+   */
+  @Test
+  public void testNested()
+  {
+    final StubDirectory directory = new StubDirectory();
+    directory.members.put("backend", "yoss");
+    directory.members.put("staff", "orr");
+    directory.children.put("engineering", "backend");
+
+    final DirectoryReplica sut = new DirectoryReplica(directory, MembershipMode.NESTED);
+    sut.synchronise();
+
+    assertThat(sut.isMember("yoss", "engineering"), is(true));
+    assertThat(sut.isMember("yoss", "staff"), is(false));
+
+    directory.events.add(event(DirectoryEvent.Type.GROUP_MEMBERSHIP, DirectoryEvent.Operation.CREATED,
+                               "engineering", "staff"));
+    sut.synchronise();
+    assertThat(sut.isMember("yoss", "staff"), is(true));
+
+    directory.events.add(event(DirectoryEvent.Type.GROUP, DirectoryEvent.Operation.DELETED, "engineering"));
+    sut.synchronise();
+    assertThat(sut.isMember("yoss", "staff"), is(false));
+    assertThat(sut.isMember("yoss", "backend"), is(true));
+  }
+
+  /**
+   * Tests that an expired event token causes a full resynchronisation.
+   */
+  @Test
+  public void testExpiredToken()
+  {
+    final StubDirectory directory = new StubDirectory();
+    directory.members.put("staff", "yoss");
+
+    final DirectoryReplica sut = new DirectoryReplica(directory, MembershipMode.DIRECT);
+    sut.synchronise();
+
+    directory.members.put("staff", "orr");
+    directory.expired = true;
+    assertThat(sut.synchronise().isPresent(), is(false));
+
+    assertThat(sut.isMember("orr", "staff"), is(true));
+    assertThat(sut.getFullSynchronisations(), is(2L));
+  }
+
+  /**
+   * Tests that a failed synchronisation keeps the previous state and is reported, and that staleness is measured
+   * from the last successful synchronisation.
+   */
+  @Test
+  public void testFailureAndStaleness()
+  {
+    final AtomicLong nanos = new AtomicLong();
+    final Ticker ticker = new Ticker()
+    {
+      @Override
+      public long read()
+      {
+        return nanos.get();
+      }
+    };
+
+    final StubDirectory directory = new StubDirectory();
+    directory.members.put("staff", "yoss");
+
+    final DirectoryReplica sut = new DirectoryReplica(directory, MembershipMode.DIRECT, 1000, ticker);
+    assertThat(sut.getStaleness(TimeUnit.SECONDS), is(Long.MAX_VALUE));
+    sut.synchronise();
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(3));
+    directory.failing = true;
+    assertThat(sut.synchronise().get().getReason(), is("OPERATION_FAILED"));
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(4));
+    assertThat(sut.isMember("yoss", "staff"), is(true));
+    assertThat(sut.getLastError().isPresent(), is(true));
+    assertThat(sut.getStaleness(TimeUnit.SECONDS), is(7L));
+
+    directory.failing = false;
+    sut.synchronise();
+    assertThat(sut.getLastError().isPresent(), is(false));
+    assertThat(sut.getStaleness(TimeUnit.SECONDS), is(0L));
+  }
+
+  /**
+   * Creates an event.
+   * @param type The kind of entity that changed.
+   * @param operation The kind of change.
+   * @param name The name of the entity that changed.
+   * @param parentGroups The parent groups, for membership events.
+   * @return The event.
+   */
+  private static DirectoryEvent event(DirectoryEvent.Type type, DirectoryEvent.Operation operation, String name,
+                                      String... parentGroups)
+  {
+    return new DirectoryEvent(type, operation, name, ImmutableList.copyOf(parentGroups));
+  }
+
+  /**
+   * A directory held in memory, with a queue of pending events.
+   */
+  private static class StubDirectory implements DirectoryInteraction
+  {
+    /** The direct user members of each group. */
+    private final ListMultimap<String, String> members = ArrayListMultimap.create();
+
+    /** The direct child groups of each group. */
+    private final ListMultimap<String, String> children = ArrayListMultimap.create();
+
+    /** The events not yet delivered. */
+    private final List<DirectoryEvent> events = new ArrayList<>();
+
+    /** The number of event tokens issued. */
+    private int tokens;
+
+    /** Should the next request for events report an expired token? */
+    private boolean expired;
+
+    /** Should every request fail? */
+    private boolean failing;
+
+    @Override
+    public Either<String, DirectoryError> eventToken()
+    {
+      this.expired = false;
+      this.events.clear();
+      return (this.failing ? Either.<String, DirectoryError>error(failure()) : Either.value("t" + ++this.tokens));
+    }
+
+    @Override
+    public Either<EventBatch, DirectoryError> events(String eventToken)
+    {
+      if (this.failing)
+      {
+        return Either.error(failure());
+      }
+
+      if (this.expired)
+      {
+        return Either.error(new DirectoryError("EVENT_TOKEN_EXPIRED", "Event token expired"));
+      }
+
+      final EventBatch batch = new EventBatch("t" + ++this.tokens, true, this.events);
+      this.events.clear();
+      return Either.value(batch);
+    }
+
+    @Override
+    public Either<List<String>, DirectoryError> users()
+    {
+      final List<String> users = new ArrayList<>(this.members.values());
+      users.add("milo");
+      return Either.value(users);
+    }
+
+    @Override
+    public Either<List<String>, DirectoryError> groups()
+    {
+      final List<String> groups = new ArrayList<>(this.members.keySet());
+      groups.addAll(this.children.keySet());
+      groups.addAll(this.children.values());
+      return Either.value(groups);
+    }
+
+    @Override
+    public Either<List<String>, DirectoryError> directMembersOf(String groupname)
+    {
+      return Either.value(this.members.get(groupname));
+    }
+
+    @Override
+    public Either<List<String>, DirectoryError> childGroupsOf(String groupname)
+    {
+      return Either.value(this.children.get(groupname));
+    }
+
+    /**
+     * Gets the error reported while failing.
+     * @return The error.
+     */
+    private static DirectoryError failure()
+    {
+      return new DirectoryError("OPERATION_FAILED", "Crowd is unavailable");
+    }
+  }
+}
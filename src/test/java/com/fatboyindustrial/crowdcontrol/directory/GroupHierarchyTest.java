@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GroupHierarchy}.
+ */
+public class GroupHierarchyTest
+{
+  /** A small hierarchy: staff contains engineering and sales; engineering contains backend and frontend. */
+  private static final Multimap<String, String> CHILDREN = ImmutableSetMultimap.<String, String>builder()
+      .putAll("staff", "engineering", "sales")
+      .putAll("engineering", "backend", "frontend")
+      .build();
+
+  /**
+   * Tests ancestor computation.
+   */
+  @Test
+  public void testAncestors()
+  {
+    final GroupHierarchy sut = new GroupHierarchy(CHILDREN);
+
+    assertThat(sut.ancestorsOf("backend"), containsInAnyOrder("engineering", "staff"));
+    assertThat(sut.ancestorsOf("sales"), containsInAnyOrder("staff"));
+    assertThat(sut.ancestorsOf("staff"), is(empty()));
+    assertThat(sut.ancestorsOf("unknown"), is(empty()));
+  }
+
+  /**
+   * Tests effective groups and nested membership.
+   */
+  @Test
+  public void testMembership()
+  {
+    final GroupHierarchy sut = new GroupHierarchy(CHILDREN);
+
+    assertThat(sut.effectiveGroups(ImmutableList.of("frontend", "other")),
+               containsInAnyOrder("frontend", "other", "engineering", "staff"));
+    assertThat(sut.isMember(ImmutableList.of("frontend"), "staff"), is(true));
+    assertThat(sut.isMember(ImmutableList.of("frontend"), "sales"), is(false));
+  }
+
+  /**
+   * Tests that names are matched case-insensitively but reported as first seen.
+   */
+  @Test
+  public void testCaseInsensitive()
+  {
+    final GroupHierarchy sut = new GroupHierarchy(CHILDREN);
+
+    assertThat(sut.ancestorsOf("BackEnd"), containsInAnyOrder("engineering", "staff"));
+    assertThat(sut.isMember(ImmutableList.of("FRONTEND"), "Staff"), is(true));
+    assertThat(sut.isMember(ImmutableList.of("Other"), "other"), is(true));
+    assertThat(sut.effectiveGroups(ImmutableList.of("Sales", "STAFF")), containsInAnyOrder("Sales", "staff"));
+  }
+
+  /**
+   * Tests that cycles terminate.
+   */
+  @Test
+  public void testCycle()
+  {
+    final GroupHierarchy sut = new GroupHierarchy(ImmutableSetMultimap.of("a", "b", "b", "a"));
+
+    assertThat(sut.ancestorsOf("a"), containsInAnyOrder("a", "b"));
+  }
+
+  /**
+   * Tests that a very deep hierarchy does not overflow the stack.
+   */
+  @Test
+  public void testDeepHierarchy()
+  {
+    final ImmutableSetMultimap.Builder<String, String> chain = ImmutableSetMultimap.builder();
+    for (int i = 0; i < 10000; i++)
+    {
+      chain.put("g" + (i + 1), "g" + i);
+    }
+
+    final GroupHierarchy sut = new GroupHierarchy(chain.build());
+
+    assertThat(sut.ancestorsOf("g0").size(), is(10000));
+    assertThat(sut.isMember(ImmutableList.of("g0"), "g10000"), is(true));
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link IdSet}.
+ */
+public class IdSetTest
+{
+  /**
+   * Tests that random additions and removals, across sparse and dense chunks, match a plain bitset.
+   */
+  @Test
+  public void testMatchesBitSet()
+  {
+    final Random random = new Random(1);
+    final IdSet sut = new IdSet();
+    final BitSet expected = new BitSet();
+
+    // dense enough in the first chunk to become a bitmap, then thinned back out to an array
+    for (int i = 0; i < 20_000; i++)
+    {
+      final int id = random.nextInt(70_000);
+      sut.add(id);
+      expected.set(id);
+    }
+    for (int i = 0; i < 60_000; i++)
+    {
+      final int id = random.nextInt(70_000);
+      sut.remove(id);
+      expected.clear(id);
+    }
+    sut.add(1_000_000);
+    expected.set(1_000_000);
+
+    assertSame(expected, sut);
+    for (int id = 0; id < 70_000; id++)
+    {
+      assertThat(sut.contains(id), is(expected.get(id)));
+    }
+  }
+
+  /**
+   * Tests intersections and unions of sparse and dense sets against a plain bitset.
+   */
+  @Test
+  public void testSetOperations()
+  {
+    final Random random = new Random(2);
+    final List<IdSet> sets = new ArrayList<>();
+    final List<BitSet> expected = new ArrayList<>();
+    for (final int count : new int[] { 10, 500, 10_000, 60_000 })
+    {
+      final IdSet set = new IdSet();
+      final BitSet bits = new BitSet();
+      for (int i = 0; i < count; i++)
+      {
+        final int id = random.nextInt(200_000);
+        set.add(id);
+        bits.set(id);
+      }
+      sets.add(set);
+      expected.add(bits);
+    }
+
+    for (int i = 0; i < sets.size(); i++)
+    {
+      for (int j = 0; j < sets.size(); j++)
+      {
+        final IdSet and = sets.get(i).copy();
+        and.and(sets.get(j));
+        final BitSet andBits = (BitSet) expected.get(i).clone();
+        andBits.and(expected.get(j));
+        assertSame(andBits, and);
+
+        final IdSet or = sets.get(i).copy();
+        or.or(sets.get(j));
+        final BitSet orBits = (BitSet) expected.get(i).clone();
+        orBits.or(expected.get(j));
+        assertSame(orBits, or);
+      }
+
+      assertSame(expected.get(i), sets.get(i));
+    }
+  }
+
+  /**
+   * Tests that a sparse set costs in proportion to its size rather than its largest identifier.
+   */
+  @Test
+  public void testSparseSetIsSmall()
+  {
+    final IdSet sut = new IdSet();
+    for (int id = 0; id < 1_000_000; id += 10_000)
+    {
+      sut.add(id);
+    }
+
+    // a bitset of the same identifiers needs 125 KB
+    assertThat(sut.sizeInBytes(), is(lessThan(2_000L)));
+  }
+
+  /**
+   * Asserts that a set holds exactly the expected identifiers, in ascending order.
+   * @param expected The expected identifiers.
+   * @param actual The set.
+   */
+  private static void assertSame(BitSet expected, IdSet actual)
+  {
+    final BitSet seen = new BitSet();
+    final int[] last = { -1 };
+    actual.forEach(id ->
+    {
+      assertThat(id > last[0], is(true));
+      last[0] = id;
+      seen.set(id);
+    });
+
+    assertThat(seen, is(expected));
+    assertThat(actual.cardinality(), is(expected.cardinality()));
+  }
+}
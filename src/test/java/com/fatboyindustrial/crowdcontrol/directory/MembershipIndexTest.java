@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.directory;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link MembershipIndex}.
+ */
+public class MembershipIndexTest
+{
+  /**
+   * Tests membership queries, and that names are matched case-insensitively but reported as first seen.
+   */
+  @Test
+  public void testMembership()
+  {
+    final MembershipIndex sut = index();
+
+    assertThat(sut.isMember("YOSS", "Staff"), is(true));
+    assertThat(sut.isMember("orr", "hospital"), is(false));
+    assertThat(sut.isMember("nobody", "staff"), is(false));
+    assertThat(sut.groupsOf("yoss"), containsInAnyOrder("staff", "hospital"));
+    assertThat(sut.membersOf("STAFF"), containsInAnyOrder("yoss", "orr", "milo"));
+    assertThat(sut.containsUser("major"), is(true));
+    assertThat(sut.groupsOf("major"), is(empty()));
+    assertThat(sut.getUserCount(), is(4));
+    assertThat(sut.getGroupCount(), is(3));
+  }
+
+  /**
+   * Tests intersections and unions across groups and users.
+   */
+  @Test
+  public void testSetOperations()
+  {
+    final MembershipIndex sut = index();
+
+    assertThat(sut.membersOfAll(ImmutableList.of("staff", "hospital")), containsInAnyOrder("yoss"));
+    assertThat(sut.membersOfAll(ImmutableList.of("staff", "unknown")), is(empty()));
+    assertThat(sut.membersOfAny(ImmutableList.of("hospital", "mess", "unknown")), containsInAnyOrder("yoss", "milo"));
+    assertThat(sut.commonGroups(ImmutableList.of("yoss", "milo")), containsInAnyOrder("staff"));
+    assertThat(sut.commonGroups(ImmutableList.<String>of()), is(empty()));
+  }
+
+  /**
+   * Tests that removals and replacements update both directions of the index.
+   */
+  @Test
+  public void testUpdates()
+  {
+    final MembershipIndex sut = index();
+
+    sut.removeMembership("yoss", "hospital");
+    assertThat(sut.membersOf("hospital"), is(empty()));
+
+    sut.setGroups("orr", ImmutableList.of("mess", "planes"));
+    assertThat(sut.groupsOf("orr"), containsInAnyOrder("mess", "planes"));
+    assertThat(sut.membersOf("staff"), containsInAnyOrder("yoss", "milo"));
+
+    sut.removeGroup("mess");
+    assertThat(sut.containsGroup("mess"), is(false));
+    assertThat(sut.groupsOf("milo"), containsInAnyOrder("staff"));
+    assertThat(sut.groupsOf("orr"), containsInAnyOrder("planes"));
+
+    sut.removeUser("yoss");
+    assertThat(sut.containsUser("yoss"), is(false));
+    assertThat(sut.membersOf("staff"), containsInAnyOrder("milo"));
+
+    sut.addMembership("yoss", "mess");
+    assertThat(sut.groupsOf("yoss"), containsInAnyOrder("mess"));
+    assertThat(sut.membersOf("mess"), containsInAnyOrder("yoss"));
+  }
+
+  /**
+   * Creates a small index.
+   * @return The index.
+   */
+  private static MembershipIndex index()
+  {
+    final MembershipIndex index = new MembershipIndex();
+    index.addMembership("yoss", "staff");
+    index.addMembership("yoss", "hospital");
+    index.addMembership("orr", "staff");
+    index.addMembership("milo", "Staff");
+    index.addMembership("milo", "mess");
+    index.addUser("major");
+    return index;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.google.gson.GsonBuilder;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A simple benchmark comparing the shared {@link JsonCodec} with creating a reflective GSON instance per call (the
+ * previous behaviour of the interactors).  Run the {@code main} method directly; it is not part of the test suite.
+ */
+public class JsonCodecBenchmark
+{
+  /** The number of warm-up iterations. */
+  private static final int WARM_UP = 200_000;
+
+  /** The number of measured iterations. */
+  private static final int ITERATIONS = 1_000_000;
+
+  /**
+   * Entry point.
+   * @param args Unused.
+   */
+  public static void main(String[] args)
+  {
+    run("per-call GsonBuilder", new Decoder()
+    {
+      @Override
+      public Object decode(String json)
+      {
+        return new GsonBuilder().create().fromJson(json, AuthenticationResponse.class);
+      }
+    });
+
+    run("shared JsonCodec", new Decoder()
+    {
+      @Override
+      public Object decode(String json)
+      {
+        return JsonCodec.getDefault().decode(json, AuthenticationResponse.class);
+      }
+    });
+  }
+
+  /**
+   * Runs and reports a single benchmark.
+   * @param name The benchmark name.
+   * @param decoder The decoder under test.
+   */
+  private static void run(String name, Decoder decoder)
+  {
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long thread = Thread.currentThread().getId();
+    int sink = 0;
+
+    for (int i = 0; i < WARM_UP; i++)
+    {
+      sink += decoder.decode(JsonCodecTest.USER_JSON).hashCode();
+    }
+
+    final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+    final long start = System.nanoTime();
+
+    for (int i = 0; i < ITERATIONS; i++)
+    {
+      sink += decoder.decode(JsonCodecTest.USER_JSON).hashCode();
+    }
+
+    final long elapsed = System.nanoTime() - start;
+    final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+    System.out.printf("%-22s %8.0f ns/op %8d bytes/op (%d)%n",
+                      name, (double) elapsed / ITERATIONS, allocated / ITERATIONS, sink & 1);
+  }
+
+  /**
+   * A decoding strategy.
+   */
+  private interface Decoder
+  {
+    /**
+     * Decodes the given JSON.
+     * @param json The JSON.
+     * @return The decoded object.
+     */
+    Object decode(String json);
+  }
+}
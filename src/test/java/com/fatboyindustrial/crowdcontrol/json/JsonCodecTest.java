@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.json;
+
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationRequest;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import com.fatboyindustrial.crowdcontrol.model.DirectoryEvent;
+import com.fatboyindustrial.crowdcontrol.model.EventBatch;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import com.fatboyindustrial.crowdcontrol.model.NameList;
+import com.fatboyindustrial.crowdcontrol.model.Session;
+import com.fatboyindustrial.crowdcontrol.model.SessionRequest;
+import com.fatboyindustrial.crowdcontrol.model.UserList;
+import com.fatboyindustrial.crowdcontrol.model.ValidationFactor;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.GsonBuilder;
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONAs;
+
+/**
+ * Tests for {@link JsonCodec}.
+ */
+public class JsonCodecTest
+{
+  /** A user, as returned by Crowd when the user's attributes are expanded. */
+  static final String USER_JSON =
+      "{ " +
+        "\"expand\": \"attributes\"," +
+        "\"link\": { \"rel\": \"self\", \"href\": \"http://localhost/user?username=yoss\" }," +
+        "\"name\": \"yoss\"," +
+        "\"password\": { \"link\": { \"rel\": \"edit\", \"href\": \"http://localhost/user/password\" } }," +
+        "\"first-name\": \"John\"," +
+        "\"last-name\": \"Yossarian\"," +
+        "\"display-name\": \"Captain Yossarian\"," +
+        "\"email\": \"yossarian@catch22.invalid\"," +
+        "\"key\": \"1-2-3-4-5-6-7-8-9\"," +
+        "\"active\": true," +
+        "\"attributes\": { \"attributes\": [ { \"name\": \"a\", \"values\": [ \"b\" ] } ] }" +
+      "}";
+
+  /**
+   * Tests that the model objects encode to the same JSON as reflective GSON produces.
+   */
+  @Test
+  public void testEncodeMatchesReflection() throws JSONException
+  {
+    final Link link = new Link("self", "http://localhost/user?username=yoss");
+    final Object[] objects = {
+        link,
+        new AuthenticationRequest("secret"),
+        new AuthenticationResponse("attributes", link, "yoss", "John", "Yossarian", "Captain Yossarian",
+                                   "yossarian@catch22.invalid", "1-2-3-4-5-6-7-8-9", true),
+        new AuthenticationError("INVALID_USER_AUTHENTICATION", "Failed to authenticate principal."),
+        new GroupResponse(link, "yoss"),
+        new GroupError("MEMBERSHIP_NOT_FOUND", "Membership not found")
+    };
+
+    for (final Object object : objects)
+    {
+      final String expected = new GsonBuilder().create().toJson(object);
+      assertThat(JsonCodec.getDefault().encode(object), is(sameJSONAs(expected)));
+    }
+  }
+
+  /**
+   * Tests that a user is decoded, and that unknown fields are skipped.
+   */
+  @Test
+  public void testDecodeAuthenticationResponse()
+  {
+    final AuthenticationResponse response = JsonCodec.getDefault().decode(USER_JSON, AuthenticationResponse.class);
+
+    assertThat(response.getExpand(), is("attributes"));
+    assertThat(response.getLink().getRel(), is("self"));
+    assertThat(response.getLink().getHref(), is("http://localhost/user?username=yoss"));
+    assertThat(response.getUsername(), is("yoss"));
+    assertThat(response.getGivenName(), is("John"));
+    assertThat(response.getFamilyName(), is("Yossarian"));
+    assertThat(response.getDisplayName(), is("Captain Yossarian"));
+    assertThat(response.getEmail(), is("yossarian@catch22.invalid"));
+    assertThat(response.getKey(), is("1-2-3-4-5-6-7-8-9"));
+    assertThat(response.isActive(), is(true));
+  }
+
+  /**
+   * Tests that absent and null fields decode to empty values.
+   */
+  @Test
+  public void testDecodeMissingFields()
+  {
+    final GroupResponse response = JsonCodec.getDefault().decode("{ \"name\": \"yoss\", \"link\": null }",
+                                                                 GroupResponse.class);
+
+    assertThat(response.getUsername(), is("yoss"));
+    assertThat(response.getLink().getRel(), is(""));
+    assertThat(response.getLink().getHref(), is(""));
+  }
+
+  /**
+   * Tests that an error is decoded.
+   */
+  @Test
+  public void testDecodeError()
+  {
+    final GroupError error = JsonCodec.getDefault().decode(
+        "{ \"reason\": \"MEMBERSHIP_NOT_FOUND\", \"message\": \"Membership not found\" }", GroupError.class);
+
+    assertThat(error.getReason(), is("MEMBERSHIP_NOT_FOUND"));
+    assertThat(error.getMessage(), is("Membership not found"));
+  }
+
+  /**
+   * Tests that a user is decoded directly from a stream.
+   */
+  @Test
+  public void testDecodeStream()
+  {
+    final AuthenticationResponse response = JsonCodec.getDefault().decode(
+        new ByteArrayInputStream(USER_JSON.getBytes(StandardCharsets.UTF_8)), AuthenticationResponse.class);
+
+    assertThat(response.getUsername(), is("yoss"));
+    assertThat(response.getEmail(), is("yossarian@catch22.invalid"));
+    assertThat(response.isActive(), is(true));
+  }
+
+  /**
+   * Tests that user and group name lists are decoded, keeping only the names.
+   */
+  @Test
+  public void testDecodeNameList()
+  {
+    final NameList groups = JsonCodec.getDefault().decode(
+        "{ \"expand\": \"group\", \"groups\": [ " +
+          "{ \"link\": { \"rel\": \"self\", \"href\": \"http://localhost/group?groupname=a\" }, \"name\": \"a\" }," +
+          "{ \"name\": \"b\", \"description\": \"Group B\" }" +
+        "] }", NameList.class);
+    final NameList users = JsonCodec.getDefault().decode("{ \"users\": [ { \"name\": \"yoss\" } ] }",
+                                                         NameList.class);
+
+    assertThat(groups.getNames(), contains("a", "b"));
+    assertThat(users.getNames(), contains("yoss"));
+  }
+
+  /**
+   * Tests that a session is decoded, keeping only the name of the embedded user.
+   */
+  @Test
+  public void testDecodeSession()
+  {
+    final Session session = JsonCodec.getDefault().decode(
+        "{ \"expand\": \"user\", \"token\": \"abc123\", " +
+          "\"user\": { \"name\": \"yoss\", \"link\": { \"rel\": \"self\", \"href\": \"http://localhost\" } }, " +
+          "\"link\": { \"rel\": \"self\", \"href\": \"http://localhost/session/abc123\" }, " +
+          "\"created-date\": 1500000000000, \"expiry-date\": 1500001800000 }", Session.class);
+
+    assertThat(session.getToken(), is("abc123"));
+    assertThat(session.getUsername(), is("yoss"));
+    assertThat(session.getCreatedDate(), is(1500000000000L));
+    assertThat(session.getExpiryDate(), is(1500001800000L));
+  }
+
+  /**
+   * Tests that a session request nests its validation factors the way Crowd expects.
+   */
+  @Test
+  public void testEncodeSessionRequest() throws JSONException
+  {
+    final SessionRequest request = new SessionRequest(
+        "yoss", "secret", ImmutableList.of(new ValidationFactor(ValidationFactor.REMOTE_ADDRESS, "127.0.0.1")));
+
+    assertThat(JsonCodec.getDefault().encode(request), is(sameJSONAs(
+        "{ \"username\": \"yoss\", \"password\": \"secret\", \"validation-factors\": " +
+          "{ \"validationFactors\": [ { \"name\": \"remote_address\", \"value\": \"127.0.0.1\" } ] } }")));
+  }
+
+  /**
+   * Tests that a batch of events is decoded, inferring missing types and dropping unrecognised events.
+   */
+  @Test
+  public void testDecodeEventBatch()
+  {
+    final EventBatch batch = JsonCodec.getDefault().decode(
+        "{ \"newEventToken\": \"t2\", \"events\": [ " +
+          "{ \"type\": \"USER\", \"operation\": \"CREATED\", \"user\": { \"name\": \"yoss\" } }, " +
+          "{ \"operation\": \"DELETED\", \"childUser\": { \"name\": \"orr\" }, " +
+            "\"parentGroups\": { \"groups\": [ { \"name\": \"staff\" } ] } }, " +
+          "{ \"type\": \"ALIAS\", \"operation\": \"CREATED\" }" +
+        "] }", EventBatch.class);
+
+    assertThat(batch.getNewEventToken(), is("t2"));
+    assertThat(batch.isIncrementalSynchronisationAvailable(), is(true));
+    assertThat(batch.getEvents().size(), is(2));
+    assertThat(batch.getEvents().get(0).getType(), is(DirectoryEvent.Type.USER));
+    assertThat(batch.getEvents().get(0).getName(), is("yoss"));
+    assertThat(batch.getEvents().get(1).getType(), is(DirectoryEvent.Type.USER_MEMBERSHIP));
+    assertThat(batch.getEvents().get(1).getOperation(), is(DirectoryEvent.Operation.DELETED));
+    assertThat(batch.getEvents().get(1).getParentGroups(), contains("staff"));
+  }
+
+  /**
+   * Tests that a list of expanded users is decoded.
+   */
+  @Test
+  public void testDecodeUserList()
+  {
+    final UserList users = JsonCodec.getDefault().decode(
+        "{ \"expand\": \"user\", \"users\": [ " + USER_JSON + ", { \"name\": \"orr\", \"active\": false } ] }",
+        UserList.class);
+
+    assertThat(users.getUsers().size(), is(2));
+    assertThat(users.getUsers().get(0).getEmail(), is("yossarian@catch22.invalid"));
+    assertThat(users.getUsers().get(1).getUsername(), is("orr"));
+    assertThat(users.getUsers().get(1).isActive(), is(false));
+  }
+}
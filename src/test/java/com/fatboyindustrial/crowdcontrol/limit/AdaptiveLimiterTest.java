@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.limit;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AdaptiveLimiter} and the limited interactors.
+ */
+public class AdaptiveLimiterTest
+{
+  /** The current time, in nanoseconds. */
+  private final AtomicLong nanos = new AtomicLong();
+
+  /** A ticker reading {@link #nanos}. */
+  private final Ticker ticker = new Ticker()
+  {
+    @Override
+    public long read()
+    {
+      return nanos.get();
+    }
+  };
+
+  /**
+   * Tests that calls beyond the limit are rejected at once when there is no maximum wait.
+   */
+  @Test
+  public void testFailFast()
+  {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 0, this.ticker);
+
+    final Optional<AdaptiveLimiter.Permit> first = limiter.acquire().join();
+    assertThat(limiter.acquire().join().isPresent(), is(true));
+    assertThat(limiter.acquire().join().isPresent(), is(false));
+    assertThat(limiter.getRejectedCount(), is(1L));
+
+    first.get().release(false);
+    assertThat(limiter.acquire().join().isPresent(), is(true));
+  }
+
+  /**
+   * Tests that a waiting call is granted the permit of a call that finishes.
+   */
+  @Test
+  public void testWaiterAdmitted()
+  {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, 60000, this.ticker);
+
+    final Optional<AdaptiveLimiter.Permit> first = limiter.acquire().join();
+    final CompletableFuture<Optional<AdaptiveLimiter.Permit>> second = limiter.acquire();
+    assertThat(second.isDone(), is(false));
+    assertThat(limiter.getWaiting(), is(1));
+
+    first.get().release(false);
+    assertThat(second.join().isPresent(), is(true));
+    assertThat(limiter.getInFlight(), is(1));
+    assertThat(limiter.getWaiting(), is(0));
+  }
+
+  /**
+   * Tests that a waiting call is rejected once its maximum wait passes.
+   */
+  @Test
+  public void testWaiterTimesOut()
+  {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, 10);
+
+    limiter.acquire().join();
+    assertThat(limiter.acquire().join().isPresent(), is(false));
+    assertThat(limiter.getRejectedCount(), is(1L));
+    assertThat(limiter.getWaiting(), is(0));
+  }
+
+  /**
+   * Tests that an error thrown when making an asynchronous call releases its permit and fails the returned future.
+   */
+  @Test
+  public void testAsyncCallErrorReleasesPermit()
+  {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, 0, this.ticker);
+    final Error error = new Error("simulated failure");
+
+    final CompletableFuture<String> future = limiter.executeAsync(() -> { throw error; }, () -> "rejected");
+
+    assertThat(future.isCompletedExceptionally(), is(true));
+    assertThat(limiter.getInFlight(), is(0));
+    assertThat(limiter.acquire().join().isPresent(), is(true));
+  }
+
+  /**
+   * Tests that the limit grows while calls are fast and the limit is used, and shrinks when a call is slow or fails.
+   */
+  @Test
+  public void testAdaptation()
+  {
+    final AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 100, 0, this.ticker);
+
+    for (int round = 0; round < 3; round++)
+    {
+      final List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+      for (int i = 0; i < 10; i++)
+      {
+        permits.add(limiter.acquire().join().get());
+      }
+
+      this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+      for (final AdaptiveLimiter.Permit permit : permits)
+      {
+        permit.release(false);
+      }
+    }
+
+    final int grown = limiter.getLimit();
+    assertThat(grown, is(greaterThan(10)));
+
+    final AdaptiveLimiter.Permit slow = limiter.acquire().join().get();
+    this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    slow.release(false);
+
+    final int shrunk = limiter.getLimit();
+    assertThat(shrunk, is(lessThan(grown)));
+
+    final AdaptiveLimiter.Permit failed = limiter.acquire().join().get();
+    this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    failed.release(true);
+
+    assertThat(limiter.getLimit(), is(lessThan(shrunk)));
+  }
+
+  /**
+   * Tests that a limited interactor answers a rejected lookup with an error, and that cancelling a lookup in flight
+   * cancels the delegate's request and frees its permit.
+   */
+  @Test
+  public void testLimitedGroupInteractor()
+  {
+    final CompletableFuture<Either<GroupResponse, GroupError>> pending = new CompletableFuture<>();
+    final LimitedGroupInteractor interactor =
+        new LimitedGroupInteractor(new PendingGroupInteraction(pending), new AdaptiveLimiter(1, 1, 1, 0, this.ticker));
+
+    final CompletableFuture<Either<GroupResponse, GroupError>> first = interactor.executeAsync("yoss", "staff");
+    final Either<GroupResponse, GroupError> second = interactor.execute("yoss", "staff");
+    assertThat(second.getError().getReason(), is(AdaptiveLimiter.LIMIT_EXCEEDED));
+
+    first.cancel(true);
+    assertThat(pending.isCancelled(), is(true));
+    assertThat(interactor.getLimiter().getInFlight(), is(0));
+    assertThat(interactor.getLimiter().getLimit(), is(1));
+  }
+
+  /**
+   * A group interaction whose asynchronous lookups never complete on their own.
+   */
+  private static class PendingGroupInteraction implements GroupInteraction
+  {
+    /** The future returned for every lookup. */
+    private final CompletableFuture<Either<GroupResponse, GroupError>> pending;
+
+    /**
+     * Constructor.
+     * @param pending The future returned for every lookup.
+     */
+    PendingGroupInteraction(CompletableFuture<Either<GroupResponse, GroupError>> pending)
+    {
+      this.pending = pending;
+    }
+
+    @Override
+    public Either<GroupResponse, GroupError> execute(String username, String groupname)
+    {
+      return this.pending.join();
+    }
+
+    @Override
+    public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+    {
+      return this.pending;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest
+{
+  /**
+   * Tests that every value falls in a bucket whose bounds contain it, and that buckets are contiguous.
+   */
+  @Test
+  public void testBuckets()
+  {
+    final long[] values = { 0, 1, 3, 4, 7, 8, 9, 1000, 123456789, Long.MAX_VALUE };
+    for (final long value : values)
+    {
+      final int bucket = LatencyHistogram.bucket(value);
+      assertThat(LatencyHistogram.lowerBound(bucket), is(lessThanOrEqualTo(value)));
+      if (value < Long.MAX_VALUE)
+      {
+        assertThat(LatencyHistogram.lowerBound(bucket + 1), is(greaterThanOrEqualTo(value + 1)));
+      }
+    }
+
+    for (int bucket = 1; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++)
+    {
+      assertThat(LatencyHistogram.bucket(LatencyHistogram.lowerBound(bucket)), is(bucket));
+      assertThat(LatencyHistogram.bucket(LatencyHistogram.lowerBound(bucket) - 1), is(bucket - 1));
+    }
+  }
+
+  /**
+   * Tests that percentiles are reported to within the histogram's precision.
+   */
+  @Test
+  public void testPercentiles()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int millis = 1; millis <= 100; millis++)
+    {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    assertThat(histogram.getCount(), is(100L));
+    assertThat(histogram.getMean(TimeUnit.MILLISECONDS), is(50.5));
+    assertThat(histogram.getMax(TimeUnit.MILLISECONDS), is(100L));
+    assertThat(histogram.getPercentile(50, TimeUnit.MICROSECONDS), is(allOf(greaterThanOrEqualTo(50000L),
+                                                                             lessThanOrEqualTo(62500L))));
+    assertThat(histogram.getPercentile(99, TimeUnit.MICROSECONDS), is(allOf(greaterThanOrEqualTo(99000L),
+                                                                             lessThanOrEqualTo(100000L))));
+    assertThat(histogram.getPercentile(100, TimeUnit.MILLISECONDS), is(100L));
+  }
+
+  /**
+   * Tests that an empty histogram reports zeroes, and that a negative value is recorded as zero.
+   */
+  @Test
+  public void testEmptyAndNegative()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.getPercentile(99, TimeUnit.NANOSECONDS), is(0L));
+    assertThat(histogram.getMean(TimeUnit.NANOSECONDS), is(0.0));
+
+    histogram.record(-5);
+    assertThat(histogram.getCount(), is(1L));
+    assertThat(histogram.getMax(TimeUnit.NANOSECONDS), is(0L));
+  }
+}
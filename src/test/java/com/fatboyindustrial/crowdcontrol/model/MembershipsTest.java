@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.model;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Memberships}.
+ */
+public class MembershipsTest
+{
+  /**
+   * Tests the any/all queries.
+   */
+  @Test
+  public void testAnyAll()
+  {
+    final Memberships some = new Memberships("yoss", ImmutableSet.of("a", "b"), ImmutableSet.of("a"));
+    final Memberships all = new Memberships("yoss", ImmutableSet.of("a", "b"), ImmutableSet.of("a", "b"));
+    final Memberships none = new Memberships("yoss", ImmutableSet.of("a", "b"), ImmutableSet.<String>of());
+
+    assertThat(some.isMember("a"), is(true));
+    assertThat(some.isMember("b"), is(false));
+    assertThat(some.isMemberOfAny(), is(true));
+    assertThat(some.isMemberOfAll(), is(false));
+    assertThat(all.isMemberOfAll(), is(true));
+    assertThat(none.isMemberOfAny(), is(false));
+  }
+
+  /**
+   * Tests that asking about a group that was not requested is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnrequestedGroup()
+  {
+    new Memberships("yoss", ImmutableSet.of("a"), ImmutableSet.<String>of()).isMember("b");
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.reactive;
+
+import com.fatboyindustrial.crowdcontrol.AuthenticationInteraction;
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationError;
+import com.fatboyindustrial.crowdcontrol.model.AuthenticationResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ReactiveAuthenticationInteractor}.
+ */
+public class ReactiveAuthenticationInteractorTest
+{
+  /** The error returned by the stub. */
+  private static final Either<AuthenticationResponse, AuthenticationError> FAILED =
+      Either.error(new AuthenticationError("INVALID_USER_AUTHENTICATION", "Failed to authenticate principal."));
+
+  /**
+   * Tests that the request is made only once the result is requested, and that the result is followed by
+   * completion.
+   */
+  @Test
+  public void testLazyRequest()
+  {
+    final StubAuthentication stub = new StubAuthentication();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new ReactiveAuthenticationInteractor(stub).execute("yoss", "secret").subscribe(subscriber);
+    assertThat(stub.futures.isEmpty(), is(true));
+
+    subscriber.subscription.request(1);
+    assertThat(stub.futures.size(), is(1));
+
+    stub.futures.get(0).complete(FAILED);
+    assertThat(subscriber.results, is(Collections.singletonList(FAILED)));
+    assertThat(subscriber.completed, is(true));
+  }
+
+  /**
+   * Tests that cancelling the subscription cancels the request, and that no result is delivered.
+   */
+  @Test
+  public void testCancel()
+  {
+    final StubAuthentication stub = new StubAuthentication();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new ReactiveAuthenticationInteractor(stub).execute("yoss", "secret").subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+
+    assertThat(stub.futures.get(0).isCancelled(), is(true));
+    assertThat(subscriber.results.isEmpty(), is(true));
+    assertThat(subscriber.error == null, is(true));
+  }
+
+  /**
+   * Tests that a request for no results is reported as an error, without making the request.
+   */
+  @Test
+  public void testInvalidRequest()
+  {
+    final StubAuthentication stub = new StubAuthentication();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new ReactiveAuthenticationInteractor(stub).execute("yoss", "secret").subscribe(subscriber);
+    subscriber.subscription.request(0);
+
+    assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+    assertThat(stub.futures.isEmpty(), is(true));
+  }
+
+  /**
+   * An authentication interaction whose asynchronous calls complete only when the test completes them.
+   */
+  private static class StubAuthentication implements AuthenticationInteraction
+  {
+    /** The futures returned, in order. */
+    private final List<CompletableFuture<Either<AuthenticationResponse, AuthenticationError>>> futures =
+        new ArrayList<>();
+
+    @Override
+    public Either<AuthenticationResponse, AuthenticationError> execute(String username, String password)
+    {
+      return FAILED;
+    }
+
+    @Override
+    public CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> executeAsync(String username,
+                                                                                               String password)
+    {
+      final CompletableFuture<Either<AuthenticationResponse, AuthenticationError>> future = new CompletableFuture<>();
+      this.futures.add(future);
+      return future;
+    }
+  }
+
+  /**
+   * Records the signals it receives.
+   */
+  private static class RecordingSubscriber
+      implements Flow.Subscriber<Either<AuthenticationResponse, AuthenticationError>>
+  {
+    /** The subscription. */
+    private Flow.Subscription subscription;
+
+    /** The results received. */
+    private final List<Either<AuthenticationResponse, AuthenticationError>> results = new ArrayList<>();
+
+    /** Has the publisher completed? */
+    private boolean completed;
+
+    /** The error received, if any. */
+    private Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Either<AuthenticationResponse, AuthenticationError> item)
+    {
+      this.results.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+      this.error = throwable;
+    }
+
+    @Override
+    public void onComplete()
+    {
+      this.completed = true;
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Greg Kopff
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.fatboyindustrial.crowdcontrol.reactive;
+
+import com.fatboyindustrial.crowdcontrol.Either;
+import com.fatboyindustrial.crowdcontrol.GroupInteraction;
+import com.fatboyindustrial.crowdcontrol.model.GroupError;
+import com.fatboyindustrial.crowdcontrol.model.GroupResponse;
+import com.fatboyindustrial.crowdcontrol.model.Link;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ReactiveGroupInteractor}.
+ */
+public class ReactiveGroupInteractorTest
+{
+  /** The membership returned by the stub. */
+  private static final Either<GroupResponse, GroupError> MEMBER =
+      Either.value(new GroupResponse(new Link("self", "http://localhost/group"), "yoss"));
+
+  /**
+   * Tests that the check is made only once the result is requested, and that the result is followed by completion.
+   */
+  @Test
+  public void testLazyRequest()
+  {
+    final StubGroups stub = new StubGroups();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new ReactiveGroupInteractor(stub).execute("yoss", "bombardiers").subscribe(subscriber);
+    assertThat(stub.futures.isEmpty(), is(true));
+
+    subscriber.subscription.request(1);
+    assertThat(stub.futures.size(), is(1));
+
+    stub.futures.get(0).complete(MEMBER);
+    assertThat(subscriber.results, is(Collections.singletonList(MEMBER)));
+    assertThat(subscriber.completed, is(true));
+  }
+
+  /**
+   * Tests that cancelling the subscription cancels the check, and that no result is delivered.
+   */
+  @Test
+  public void testCancel()
+  {
+    final StubGroups stub = new StubGroups();
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new ReactiveGroupInteractor(stub).execute("yoss", "bombardiers").subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+
+    assertThat(stub.futures.get(0).isCancelled(), is(true));
+    assertThat(subscriber.results.isEmpty(), is(true));
+    assertThat(subscriber.error == null, is(true));
+  }
+
+  /**
+   * Tests that a check that throws rather than returning a future is reported as an error, instead of escaping
+   * the request.
+   */
+  @Test
+  public void testDelegateThrows()
+  {
+    final StubGroups stub = new StubGroups();
+    final RuntimeException thrown = new IllegalStateException("simulated failure");
+    stub.thrown = thrown;
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    new ReactiveGroupInteractor(stub).execute("yoss", "bombardiers").subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    assertThat(subscriber.error, is(sameInstance((Throwable) thrown)));
+    assertThat(subscriber.results.isEmpty(), is(true));
+    assertThat(subscriber.completed, is(false));
+  }
+
+  /**
+   * A group interaction whose asynchronous calls complete only when the test completes them.
+   */
+  private static class StubGroups implements GroupInteraction
+  {
+    /** The futures returned, in order. */
+    private final List<CompletableFuture<Either<GroupResponse, GroupError>>> futures = new ArrayList<>();
+
+    /** The exception to throw instead of returning a future, if any. */
+    private RuntimeException thrown;
+
+    @Override
+    public Either<GroupResponse, GroupError> execute(String username, String groupname)
+    {
+      return MEMBER;
+    }
+
+    @Override
+    public CompletableFuture<Either<GroupResponse, GroupError>> executeAsync(String username, String groupname)
+    {
+      if (this.thrown != null)
+      {
+        throw this.thrown;
+      }
+
+      final CompletableFuture<Either<GroupResponse, GroupError>> future = new CompletableFuture<>();
+      this.futures.add(future);
+      return future;
+    }
+  }
+
+  /**
+   * Records the signals it receives.
+   */
+  private static class RecordingSubscriber implements Flow.Subscriber<Either<GroupResponse, GroupError>>
+  {
+    /** The subscription. */
+    private Flow.Subscription subscription;
+
+    /** The results received. */
+    private final List<Either<GroupResponse, GroupError>> results = new ArrayList<>();
+
+    /** Has the publisher completed? */
+    private boolean completed;
+
+    /** The error received, if any. */
+    private Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Either<GroupResponse, GroupError> item)
+    {
+      this.results.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+      this.error = throwable;
+    }
+
+    @Override
+    public void onComplete()
+    {
+      this.completed = true;
+    }
+  }
+}